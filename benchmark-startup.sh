@@ -0,0 +1,129 @@
+#!/bin/bash
+
+# Compares time-to-ready and resident memory of the JVM and native builds of the FHIR services.
+#
+# Usage: ./benchmark-startup.sh [--build] [module ...]
+#
+# Each module's database must be running. With --build, both the JVM jar and the native executable are
+# built first (./mvnw package, ./mvnw package -Dnative). Every build is started RUNS times; time-to-ready
+# is measured from launch until /q/health/ready answers 200, so it includes Flyway and the FHIR model
+# scan, and RSS is read once the service is ready.
+
+set -e
+
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+ROOT="$(cd "$(dirname "$0")" && pwd)"
+RUNS=${RUNS:-5}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+
+BUILD=false
+if [ "$1" == "--build" ]; then
+  BUILD=true
+  shift
+fi
+
+MODULES=("$@")
+if [ ${#MODULES[@]} -eq 0 ]; then
+  MODULES=(
+    "redhat-healthcare-patients"
+    "redhat-healthcare-patients-coverage"
+    "redhat-healthcare-claims"
+    "redhat-healthcare-practitioner"
+    "redhat-healthcare-appointment"
+    "redhat-healthcare-medication"
+  )
+fi
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Starts the command, waits for readiness and prints "<ready ms> <rss KiB>"
+measure() {
+  local port=$1
+  shift
+  local start
+  start=$(now_ms)
+  "$@" > /dev/null 2>&1 &
+  local pid=$!
+  local deadline=$(( start + TIMEOUT_SECONDS * 1000 ))
+  until curl -sf -o /dev/null "http://localhost:${port}/q/health/ready"; do
+    if ! kill -0 $pid 2> /dev/null || [ "$(now_ms)" -gt $deadline ]; then
+      kill $pid 2> /dev/null || true
+      echo "failed"
+      return
+    fi
+    sleep 0.05
+  done
+  local ready=$(( $(now_ms) - start ))
+  local rss
+  rss=$(ps -o rss= -p $pid | tr -d ' ')
+  kill $pid
+  wait $pid 2> /dev/null || true
+  echo "$ready $rss"
+}
+
+# Prints "<median ready ms> <median rss MiB>" over RUNS starts
+benchmark() {
+  local port=$1
+  shift
+  local readies=()
+  local rsses=()
+  for _ in $(seq "$RUNS"); do
+    read -r ready rss <<< "$(measure "$port" "$@")"
+    if [ "$ready" == "failed" ]; then
+      echo "failed failed"
+      return
+    fi
+    readies+=("$ready")
+    rsses+=("$rss")
+  done
+  local median_ready median_rss
+  median_ready=$(printf '%s\n' "${readies[@]}" | sort -n | sed -n "$(( (RUNS + 1) / 2 ))p")
+  median_rss=$(printf '%s\n' "${rsses[@]}" | sort -n | sed -n "$(( (RUNS + 1) / 2 ))p")
+  echo "$median_ready $(( median_rss / 1024 ))"
+}
+
+echo -e "${GREEN}========================================${NC}"
+echo -e "${GREEN}Red Hat Healthcare - JVM vs Native Startup${NC}"
+echo -e "${GREEN}========================================${NC}"
+
+results=()
+for module in "${MODULES[@]}"; do
+  cd "$ROOT/$module"
+  port=$(sed -n 's/^quarkus.http.port=//p' src/main/resources/application.properties)
+
+  if [ "$BUILD" == true ]; then
+    echo -e "\n${YELLOW}Building $module (JVM and native)...${NC}"
+    ./mvnw -q clean package -DskipTests
+    cp -r target/quarkus-app target/quarkus-app-jvm
+    ./mvnw -q package -DskipTests -Dnative
+    rm -rf target/quarkus-app
+    mv target/quarkus-app-jvm target/quarkus-app
+  fi
+
+  runner=$(ls target/*-runner 2> /dev/null | head -1)
+  if [ ! -f target/quarkus-app/quarkus-run.jar ]; then
+    echo -e "${RED}✗ $module: build the JVM jar first (or pass --build)${NC}"
+    continue
+  fi
+
+  echo -e "\n${YELLOW}Measuring $module on port $port ($RUNS runs each)...${NC}"
+  read -r jvm_ready jvm_rss <<< "$(benchmark "$port" java -jar target/quarkus-app/quarkus-run.jar)"
+  if [ -n "$runner" ]; then
+    read -r native_ready native_rss <<< "$(benchmark "$port" "$runner")"
+  else
+    echo -e "${YELLOW}  no native executable, measuring the JVM build only${NC}"
+    native_ready="n/a"
+    native_rss="n/a"
+  fi
+  results+=("$(printf '%-38s %10s %10s %12s %12s' "$module" "$jvm_ready" "$native_ready" "$jvm_rss" "$native_rss")")
+done
+
+echo -e "\n${GREEN}Median of $RUNS runs${NC}"
+printf '%-38s %10s %10s %12s %12s\n' "module" "jvm ms" "native ms" "jvm RSS MiB" "native MiB"
+printf '%s\n' "${results[@]}"
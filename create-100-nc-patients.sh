@@ -212,6 +212,7 @@ for i in {1..100}; do
       "type": "both",
       "line": ["$STREET_NUM $STREET"],
       "city": "$CITY_DISPLAY",
+      "district": "$COUNTY",
       "state": "NC",
       "postalCode": "$ZIP",
       "country": "USA"
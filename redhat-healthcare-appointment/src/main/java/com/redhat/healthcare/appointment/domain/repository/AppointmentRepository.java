@@ -1,67 +1,250 @@
 package com.redhat.healthcare.appointment.domain.repository;
 
+import ca.uhn.fhir.context.FhirContext;
 import com.redhat.healthcare.appointment.domain.entity.AppointmentEntity;
+import com.redhat.healthcare.appointment.dto.AppointmentSearchCriteria;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
+import com.redhat.healthcare.fhir.search.ProjectionQuery;
+import com.redhat.healthcare.fhir.store.FhirResourceStore;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
+import org.hl7.fhir.r4.model.Appointment;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class AppointmentRepository implements PanacheRepositoryBase<AppointmentEntity, String> {
 
+    private static final String SOFT_DELETE_SQL = FhirResourceStore.softDeleteSql("appointments");
+
+    @Inject
+    FhirResourceStore store;
+
+    @Inject
+    FhirContext fhirContext;
+
+    private ProjectionQuery projection;
+
+    @PostConstruct
+    void init() {
+        // Elements that can be rebuilt from extracted columns without detoasting fhir_resource
+        projection = new ProjectionQuery(fhirContext, Appointment.class, "appointments", Map.of(
+            "status", "status",
+            "start", ProjectionQuery.instant("start_time"),
+            "end", ProjectionQuery.instant("end_time"),
+            "minutesDuration", "minutes_duration",
+            "priority", "priority",
+            "description", "description",
+            "comment", "comment"
+        ));
+    }
+
     public Optional<AppointmentEntity> findByFhirId(String fhirId) {
         return find("fhirId", fhirId).firstResultOptional();
     }
 
-    public List<AppointmentEntity> findByIdentifier(String system, String value) {
+    /**
+     * The stored JSON of an appointment, for reads that only render it.
+     */
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        return firstResource("fhirId = ?1", fhirId);
+    }
+
+    public Stream<String> findByIdentifier(String system, String value) {
         if (system != null && value != null) {
-            return list("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value);
+            return streamResources("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value);
         } else if (value != null) {
-            return list("identifierValue = ?1 and active = true", value);
+            return streamResources("identifierValue = ?1 and active = true", value);
         }
-        return List.of();
+        return Stream.empty();
+    }
+
+    public Stream<String> findByPatient(String patientReference) {
+        return streamResources("patientReference = ?1 and active = true order by startTime", patientReference);
+    }
+
+    public Stream<String> findByPractitioner(String practitionerReference) {
+        return streamResources("practitionerReference = ?1 and active = true order by startTime",
+            practitionerReference);
+    }
+
+    public Stream<String> findByStatus(String status) {
+        return streamResources("status = ?1 and active = true order by startTime", status);
+    }
+
+    public Stream<String> findByPatientAndStatus(String patientReference, String status) {
+        return streamResources("patientReference = ?1 and status = ?2 and active = true order by startTime",
+            patientReference, status);
     }
 
-    public List<AppointmentEntity> findByPatient(String patientReference) {
-        return list("patientReference = ?1 and active = true order by startTime", patientReference);
+    public Stream<String> findBySpecialty(String specialtyCode) {
+        return streamResources("specialtyCode = ?1 and active = true order by startTime", specialtyCode);
     }
 
-    public List<AppointmentEntity> findByPractitioner(String practitionerReference) {
-        return list("practitionerReference = ?1 and active = true order by startTime", practitionerReference);
+    public Stream<String> findAllActive() {
+        return streamResources("active = true order by startTime");
     }
 
-    public List<AppointmentEntity> findByStatus(String status) {
-        return list("status = ?1 and active = true order by startTime", status);
+    /**
+     * Appointments matching criteria through the filter shared with counts and projections: used for chained
+     * parameters, and for a patient or practitioner combined with a date range.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> findFiltered(AppointmentSearchCriteria criteria) {
+        NativeFilter filter = nativeFilter(criteria);
+        Query query = getEntityManager().createNativeQuery(
+            "SELECT CAST(fhir_resource AS text) FROM appointments WHERE " + filter.where() +
+            " ORDER BY " + filter.orderBy())
+            .setHint(HibernateHints.HINT_FETCH_SIZE, store.fetchSize());
+        filter.params().forEach(query::setParameter);
+        return query.getResultStream();
     }
 
-    public List<AppointmentEntity> findByDateRange(LocalDateTime start, LocalDateTime end) {
-        if (start != null && end != null) {
-            return list("startTime >= ?1 and startTime <= ?2 and active = true order by startTime", start, end);
-        } else if (start != null) {
-            return list("startTime >= ?1 and active = true order by startTime", start);
-        } else if (end != null) {
-            return list("startTime <= ?1 and active = true order by startTime", end);
+    /**
+     * Soft-deletes the active appointments among fhirIds in one statement: the UPDATE bumps version_id and keeps
+     * meta.versionId and meta.lastUpdated of fhir_resource in step; the history trigger records the new version in
+     * appointment_history. Returns the new version of each deleted appointment; unknown or already deleted ids are
+     * absent.
+     */
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        return store.softDelete(getEntityManager(), SOFT_DELETE_SQL, fhirIds);
+    }
+
+    public long countActive(AppointmentSearchCriteria criteria) {
+        NativeFilter filter = nativeFilter(criteria);
+        Query query = getEntityManager()
+            .createNativeQuery("SELECT count(*) FROM appointments WHERE " + filter.where());
+        filter.params().forEach(query::setParameter);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * Counts the active appointments matching criteria per reference in one grouped query, where groupBy is the
+     * reference search parameter (patient or practitioner). References without matching appointments are absent.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> countActiveBy(String groupBy, Collection<String> references,
+                                           AppointmentSearchCriteria criteria) {
+        NativeFilter filter = nativeFilter(criteria);
+        String column = groupBy + "_reference";
+        Query query = getEntityManager().createNativeQuery(
+            "SELECT " + column + ", count(*) FROM appointments WHERE " + column + " IN (:references) AND " +
+            filter.where() + " GROUP BY " + column);
+        filter.params().forEach(query::setParameter);
+        query.setParameter("references", references);
+        return ((List<Object[]>) query.getResultList()).stream()
+            .collect(Collectors.toMap(row -> (String) row[0], row -> ((Number) row[1]).longValue()));
+    }
+
+    /**
+     * Returns Bundle entry JSON ({@code fullUrl} plus projected {@code resource}) built entirely in
+     * PostgreSQL. Only {@code resourceType}, {@code id} and {@code meta} are always kept. Close the stream.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> findProjectedEntries(AppointmentSearchCriteria criteria, ProjectionCriteria projected) {
+        NativeFilter filter = nativeFilter(criteria);
+        Map<String, Object> params = new HashMap<>(filter.params());
+        String sql = projection.entriesSql(projection.elements(projected), filter.where(), filter.orderBy(), params);
+        Query query = getEntityManager().createNativeQuery(sql)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, store.fetchSize());
+        params.forEach(query::setParameter);
+        return query.getResultStream();
+    }
+
+    // Mirrors the precedence used by AppointmentService.searchAppointments so projected and full searches match
+    private NativeFilter nativeFilter(AppointmentSearchCriteria criteria) {
+        Map<String, Object> params = new HashMap<>();
+        String where;
+
+        if (notEmpty(criteria.getIdentifier())) {
+            params.put("value", criteria.getIdentifier());
+            return new NativeFilter("identifier_value = :value and active = true", params, "fhir_id");
+        } else if (!criteria.getChainedReferences().isEmpty()) {
+            // One IN list per chain, narrowed by status when given
+            List<String> predicates = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> chain : criteria.getChainedReferences().entrySet()) {
+                if (chain.getValue().isEmpty()) {
+                    predicates.add("false");
+                } else {
+                    predicates.add(chain.getKey() + "_reference IN (:chain_" + chain.getKey() + ")");
+                    params.put("chain_" + chain.getKey(), chain.getValue());
+                }
+            }
+            if (notEmpty(criteria.getStatus())) {
+                params.put("status", criteria.getStatus());
+                predicates.add("status = :status");
+            }
+            where = String.join(" and ", predicates);
+        } else if (notEmpty(criteria.getPatient())) {
+            params.put("value", criteria.getPatient());
+            where = "patient_reference = :value";
+            if (notEmpty(criteria.getStatus())) {
+                params.put("status", criteria.getStatus());
+                where += " and status = :status";
+            }
+            where += dateBounds(criteria, params);
+        } else if (notEmpty(criteria.getPractitioner())) {
+            params.put("value", criteria.getPractitioner());
+            where = "practitioner_reference = :value" + dateBounds(criteria, params);
+        } else if (notEmpty(criteria.getStatus())) {
+            params.put("value", criteria.getStatus());
+            where = "status = :value";
+        } else if (criteria.getDateStart() != null || criteria.getDateEnd() != null) {
+            where = "true" + dateBounds(criteria, params);
+        } else if (notEmpty(criteria.getSpecialty())) {
+            params.put("value", criteria.getSpecialty());
+            where = "specialty_code = :value";
+        } else {
+            where = "true";
+        }
+
+        return new NativeFilter(where + " and active = true", params, "start_time");
+    }
+
+    private static String dateBounds(AppointmentSearchCriteria criteria, Map<String, Object> params) {
+        String bounds = "";
+        if (criteria.getDateStart() != null) {
+            params.put("start", criteria.getDateStart());
+            bounds += " and start_time >= :start";
+        }
+        if (criteria.getDateEnd() != null) {
+            params.put("end", criteria.getDateEnd());
+            bounds += " and start_time <= :end";
         }
-        return List.of();
+        return bounds;
+    }
+
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
     }
 
-    public List<AppointmentEntity> findByPatientAndStatus(String patientReference, String status) {
-        return list("patientReference = ?1 and status = ?2 and active = true order by startTime",
-                   patientReference, status);
+    private record NativeFilter(String where, Map<String, Object> params, String orderBy) {
     }
 
-    public List<AppointmentEntity> findBySpecialty(String specialtyCode) {
-        return list("specialtyCode = ?1 and active = true order by startTime", specialtyCode);
+    /**
+     * Makes the current transaction read-only; call it before the first query of a search.
+     */
+    public void readOnly() {
+        store.readOnly(getEntityManager());
     }
 
-    public List<AppointmentEntity> findAllActive() {
-        return list("active = true order by startTime");
+    private Stream<String> streamResources(String where, Object... params) {
+        return store.streamResources(getEntityManager(), AppointmentEntity.class, where, params);
     }
 
-    public void softDelete(String fhirId) {
-        update("active = false, lastUpdated = ?1 where fhirId = ?2",
-               LocalDateTime.now(), fhirId);
+    private Optional<String> firstResource(String where, Object... params) {
+        return store.firstResource(getEntityManager(), AppointmentEntity.class, where, params);
     }
 }
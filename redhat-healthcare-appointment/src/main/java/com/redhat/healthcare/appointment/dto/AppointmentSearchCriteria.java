@@ -1,6 +1,9 @@
 package com.redhat.healthcare.appointment.dto;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class AppointmentSearchCriteria {
 
@@ -10,6 +13,8 @@ public class AppointmentSearchCriteria {
     private String status;
     private LocalDateTime dateStart;
     private LocalDateTime dateEnd;
+    // Resolved chained parameters: reference parameter (patient, practitioner) -> matching references
+    private Map<String, Set<String>> chainedReferences = new LinkedHashMap<>();
     private String specialty;
 
     public String getIdentifier() {
@@ -67,4 +72,12 @@ public class AppointmentSearchCriteria {
     public void setSpecialty(String specialty) {
         this.specialty = specialty;
     }
+
+    public Map<String, Set<String>> getChainedReferences() {
+        return chainedReferences;
+    }
+
+    public void setChainedReferences(Map<String, Set<String>> chainedReferences) {
+        this.chainedReferences = chainedReferences;
+    }
 }
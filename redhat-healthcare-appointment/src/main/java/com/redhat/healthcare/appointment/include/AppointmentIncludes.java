@@ -0,0 +1,95 @@
+package com.redhat.healthcare.appointment.include;
+
+import ca.uhn.fhir.parser.IParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.fhir.chain.ReferenceSearchClient;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hl7.fhir.r4.model.Appointment;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Resource;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches the resources named by {@code _include} for a page of appointments. Participant references are
+ * de-duplicated and each target service is read with one {@code _id} search per batch-size ids, so a page
+ * costs a constant number of round trips however many appointments it holds.
+ */
+@ApplicationScoped
+public class AppointmentIncludes {
+
+    private static final Logger LOG = Logger.getLogger(AppointmentIncludes.class);
+
+    // _include value -> participant resource type it pulls in
+    public static final Map<String, String> SUPPORTED = Map.of(
+        "Appointment:patient", "Patient",
+        "Appointment:practitioner", "Practitioner"
+    );
+
+    @ConfigProperty(name = "fhir.include.batch-size", defaultValue = "200")
+    int batchSize;
+
+    @Inject
+    ReferenceSearchClient client;
+
+    @Inject
+    IParser jsonParser;
+
+    /**
+     * Included resources, plus an OperationOutcome when a target service could not be reached
+     * (null otherwise); the search itself still succeeds.
+     */
+    public record Included(List<Resource> resources, OperationOutcome outcome) {
+    }
+
+    /**
+     * Adds the participant references of one matched appointment that the includes pull in to idsByType,
+     * keyed by resource type, so matches can be streamed without keeping them for the include step.
+     */
+    public void collect(Appointment appointment, Set<String> includes, Map<String, Set<String>> idsByType) {
+        for (Appointment.AppointmentParticipantComponent participant : appointment.getParticipant()) {
+            if (participant.hasActor() && participant.getActor().hasReference()) {
+                IdType reference = new IdType(participant.getActor().getReference());
+                if (reference.hasIdPart() && includes.stream()
+                        .anyMatch(include -> SUPPORTED.get(include).equals(reference.getResourceType()))) {
+                    idsByType.computeIfAbsent(reference.getResourceType(), type -> new LinkedHashSet<>())
+                        .add(reference.getIdPart());
+                }
+            }
+        }
+    }
+
+    public Included include(Map<String, Set<String>> idsByType) {
+        List<Resource> resources = new ArrayList<>();
+        OperationOutcome outcome = null;
+        for (Map.Entry<String, Set<String>> target : idsByType.entrySet()) {
+            List<String> ids = new ArrayList<>(target.getValue());
+            try {
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    List<String> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                    for (JsonNode resource : client.read(target.getKey(), batch)) {
+                        resources.add((Resource) jsonParser.parseResource(resource.toString()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOG.warnf("Cannot include %s resources: %s", target.getKey(), e.getMessage());
+                if (outcome == null) {
+                    outcome = new OperationOutcome();
+                }
+                outcome.addIssue()
+                    .setSeverity(OperationOutcome.IssueSeverity.WARNING)
+                    .setCode(OperationOutcome.IssueType.INCOMPLETE)
+                    .setDiagnostics(target.getKey() + " resources could not be included: " + e.getMessage());
+            }
+        }
+        return new Included(resources, outcome);
+    }
+}
@@ -2,6 +2,7 @@ package com.redhat.healthcare.appointment.mapper;
 
 import ca.uhn.fhir.parser.IParser;
 import com.redhat.healthcare.appointment.domain.entity.AppointmentEntity;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.hl7.fhir.r4.model.*;
@@ -11,11 +12,17 @@ import java.time.ZoneId;
 import java.util.Date;
 
 @ApplicationScoped
-public class AppointmentMapper {
+public class AppointmentMapper implements ResourceMapping<Appointment, AppointmentEntity> {
 
     @Inject
     IParser jsonParser;
 
+    @Override
+    public Class<Appointment> resourceType() {
+        return Appointment.class;
+    }
+
+    @Override
     public AppointmentEntity toEntity(Appointment appointment) {
         AppointmentEntity entity = new AppointmentEntity();
 
@@ -141,7 +148,12 @@ public class AppointmentMapper {
     }
 
     public Appointment toFhir(AppointmentEntity entity) {
-        return jsonParser.parseResource(Appointment.class, entity.fhirResource);
+        return toFhir(entity.fhirResource);
+    }
+
+    @Override
+    public Appointment toFhir(String fhirResource) {
+        return jsonParser.parseResource(Appointment.class, fhirResource);
     }
 
     private LocalDateTime convertToLocalDateTime(Date date) {
@@ -2,33 +2,61 @@ package com.redhat.healthcare.appointment.resource;
 
 import ca.uhn.fhir.parser.IParser;
 import com.redhat.healthcare.appointment.dto.AppointmentSearchCriteria;
+import com.redhat.healthcare.appointment.include.AppointmentIncludes;
 import com.redhat.healthcare.appointment.service.AppointmentService;
+import com.redhat.healthcare.fhir.chain.ChainedParameters;
+import com.redhat.healthcare.fhir.chain.ChainedSearchResolver;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.rest.FhirBinaryEncodingFilter;
+import com.redhat.healthcare.fhir.rest.ResourceResponses;
+import com.redhat.healthcare.fhir.rest.SearchBundleWriter;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.hl7.fhir.r4.model.Appointment;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Parameters;
 
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Path("/fhir/Appointment")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, FhirBinaryEncodingFilter.FHIR_CBOR, FhirBinaryEncodingFilter.FHIR_SMILE})
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "Appointment", description = "FHIR Appointment Resource Operations")
 public class AppointmentResource {
 
+    // Appointment reference parameter -> resource type it is chained to
+    private static final Map<String, String> CHAINS = Map.of(
+        "patient", "Patient",
+        "practitioner", "Practitioner"
+    );
+
     @Inject
     AppointmentService appointmentService;
 
     @Inject
     IParser jsonParser;
 
+    @Inject
+    ChainedSearchResolver chainResolver;
+
+    @Inject
+    AppointmentIncludes includes;
+
     @POST
     @Operation(summary = "Create a new Appointment resource")
     public Response create(String appointmentJson) {
@@ -69,16 +97,63 @@ public class AppointmentResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/$delete")
+    @Operation(summary = "Delete many Appointment resources (soft delete)",
+               description = "Deletes the appointments named by the id parameters of a Parameters resource in one " +
+                             "statement. The batch-response Bundle has one entry per id: 204, or 404 when the " +
+                             "appointment is unknown or already deleted.")
+    public Response deleteBatch(String parametersJson) {
+        List<String> ids = ResourceResponses.deleteIds(jsonParser.parseResource(Parameters.class, parametersJson));
+        Map<String, Long> deleted = appointmentService.deleteAppointments(ids);
+        Bundle outcome = ResourceResponses.deleteOutcome("Appointment", ids, deleted);
+        return Response.ok(jsonParser.encodeResourceToString(outcome)).build();
+    }
+
+    @POST
+    @Path("/$counts")
+    @Operation(summary = "Count Appointment resources per patient or practitioner",
+               description = "Counts the active appointments of each reference parameter of a Parameters resource " +
+                             "in one grouped query. group-by (patient or practitioner) names the reference counted " +
+                             "by and date (as in search, e.g. ge2025-01-01) narrows the appointments counted. The " +
+                             "answer has one count parameter per reference, in request order, with reference and " +
+                             "count parts.")
+    public Response counts(String parametersJson) {
+        Parameters parameters = jsonParser.parseResource(Parameters.class, parametersJson);
+        List<String> references = ResourceResponses.countReferences(parameters);
+        AppointmentSearchCriteria criteria = new AppointmentSearchCriteria();
+        String date = ResourceResponses.parameter(parameters, "date");
+        if (date != null) {
+            parseDateParameter(date, criteria);
+        }
+        Map<String, Long> counts = appointmentService.countAppointmentsBy(
+            ResourceResponses.parameter(parameters, "group-by"), references, criteria);
+        return Response.ok(jsonParser.encodeResourceToString(ResourceResponses.countsOutcome(references, counts)))
+            .build();
+    }
+
     @GET
     @Operation(summary = "Search for Appointment resources",
-               description = "Search using FHIR parameters: identifier, patient, practitioner, status, date, specialty")
+               description = "Search using FHIR parameters: identifier, patient, practitioner, status, date, specialty; " +
+                             "date also narrows patient and practitioner searches. " +
+                             "Chained patient.<param> (identifier, family, given, birthdate) and " +
+                             "practitioner.<param> (e.g. specialty, npi, family) are resolved against the " +
+                             "patient and practitioner services and combine with status. " +
+                             "_include=Appointment:patient / Appointment:practitioner adds the referenced " +
+                             "resources, read in batches from their services. " +
+                             "_summary (true, data, count) and _elements return projections computed in the database")
     public Response search(
         @QueryParam("identifier") String identifier,
         @QueryParam("patient") String patient,
         @QueryParam("practitioner") String practitioner,
         @QueryParam("status") String status,
         @QueryParam("date") String date,
-        @QueryParam("specialty") String specialty
+        @QueryParam("specialty") String specialty,
+        @QueryParam("_summary") String summary,
+        @QueryParam("_elements") String elements,
+        @QueryParam("_include") List<String> include,
+        @QueryParam("_revinclude") List<String> revinclude,
+        @Context UriInfo uriInfo
     ) {
         AppointmentSearchCriteria criteria = new AppointmentSearchCriteria();
         criteria.setIdentifier(identifier);
@@ -86,25 +161,80 @@ public class AppointmentResource {
         criteria.setPractitioner(practitioner);
         criteria.setStatus(status);
         criteria.setSpecialty(specialty);
+        try {
+            Map<String, Map<String, List<String>>> chains = ChainedParameters.parse(CHAINS, uriInfo.getQueryParameters());
+            if (!chains.isEmpty()) {
+                criteria.setChainedReferences(chainResolver.resolve(CHAINS, chains));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new FhirValidationException(e.getMessage());
+        }
 
         // Parse date parameter (FHIR date format)
         if (date != null && !date.isEmpty()) {
             parseDateParameter(date, criteria);
         }
 
-        List<Appointment> appointments = appointmentService.searchAppointments(criteria);
-
-        Bundle bundle = new Bundle();
-        bundle.setType(Bundle.BundleType.SEARCHSET);
-        bundle.setTotal(appointments.size());
+        ProjectionCriteria projection = ProjectionCriteria.parse(summary, elements);
+        Set<String> includeSet = parseIncludes(include, revinclude, projection);
+        if (projection.getMode() == ProjectionCriteria.Mode.COUNT) {
+            Bundle bundle = new Bundle();
+            bundle.setType(Bundle.BundleType.SEARCHSET);
+            bundle.setTotal((int) appointmentService.countAppointments(criteria));
+            return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        } else if (projection.getMode() != ProjectionCriteria.Mode.FULL) {
+            StreamingOutput body = out -> {
+                SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+                appointmentService.searchAppointmentsProjected(criteria, projection, bundle::entry);
+                bundle.finish();
+            };
+            return Response.ok(body).build();
+        }
 
-        appointments.forEach(appointment -> {
-            Bundle.BundleEntryComponent entry = bundle.addEntry();
-            entry.setResource(appointment);
-            entry.setFullUrl("/fhir/Appointment/" + appointment.getIdElement().getIdPart());
-        });
+        StreamingOutput body = out -> {
+            SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+            // Only the referenced ids are kept for _include, not the matched appointments
+            Map<String, Set<String>> includeIds = new LinkedHashMap<>();
+            appointmentService.searchAppointments(criteria, appointment -> {
+                bundle.match(appointment);
+                if (!includeSet.isEmpty()) {
+                    includes.collect(appointment, includeSet, includeIds);
+                }
+            });
+            if (!includeIds.isEmpty()) {
+                AppointmentIncludes.Included included = includes.include(includeIds);
+                included.resources().forEach(bundle::include);
+                if (included.outcome() != null) {
+                    bundle.outcome(included.outcome());
+                }
+            }
+            bundle.finish();
+        };
+        return Response.ok(body).build();
+    }
 
-        return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+    private Set<String> parseIncludes(List<String> include, List<String> revinclude, ProjectionCriteria projection) {
+        if (revinclude != null && !revinclude.isEmpty()) {
+            // Nothing stored by these services references an Appointment
+            throw new FhirValidationException("Unsupported _revinclude: no resource type references Appointment");
+        }
+        if (include == null || include.isEmpty()) {
+            return Set.of();
+        }
+        if (projection.getMode() != ProjectionCriteria.Mode.FULL) {
+            throw new FhirValidationException("_include cannot be combined with _summary or _elements");
+        }
+        Set<String> values = new LinkedHashSet<>();
+        for (String value : include) {
+            for (String name : value.split(",")) {
+                if (!AppointmentIncludes.SUPPORTED.containsKey(name.trim())) {
+                    throw new FhirValidationException("Unsupported _include value: " + name.trim() +
+                        " (supported: " + String.join(", ", AppointmentIncludes.SUPPORTED.keySet()) + ")");
+                }
+                values.add(name.trim());
+            }
+        }
+        return values;
     }
 
     private void parseDateParameter(String date, AppointmentSearchCriteria criteria) {
@@ -3,17 +3,25 @@ package com.redhat.healthcare.appointment.service;
 import com.redhat.healthcare.appointment.domain.entity.AppointmentEntity;
 import com.redhat.healthcare.appointment.domain.repository.AppointmentRepository;
 import com.redhat.healthcare.appointment.dto.AppointmentSearchCriteria;
-import com.redhat.healthcare.appointment.exception.ResourceNotFoundException;
 import com.redhat.healthcare.appointment.mapper.AppointmentMapper;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.integrity.ReferenceValidator;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hl7.fhir.r4.model.Appointment;
 
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class AppointmentService {
@@ -30,9 +38,21 @@ public class AppointmentService {
     @Inject
     AppointmentMapper mapper;
 
+    @Inject
+    ReferenceValidator referenceValidator;
+
+    @ConfigProperty(name = "fhir.delete.max-ids", defaultValue = "1000")
+    int deleteMaxIds;
+
+    @ConfigProperty(name = "fhir.counts.max-references", defaultValue = "1000")
+    int countsMaxReferences;
+
     @Transactional
     public Appointment createAppointment(Appointment appointment) {
         validationService.validateOrThrow(appointment);
+        referenceValidator.validate(appointment.getParticipant().stream()
+            .map(participant -> participant.getActor().getReference())
+            .toArray(String[]::new));
 
         if (appointment.getId() == null || appointment.getId().isEmpty()) {
             appointment.setId(parserService.generateId());
@@ -60,6 +80,9 @@ public class AppointmentService {
             .orElseThrow(() -> new ResourceNotFoundException("Appointment/" + id));
 
         validationService.validateOrThrow(appointment);
+        referenceValidator.validate(appointment.getParticipant().stream()
+            .map(participant -> participant.getActor().getReference())
+            .toArray(String[]::new));
 
         appointment.setId(id);
 
@@ -81,45 +104,96 @@ public class AppointmentService {
     }
 
     public Appointment getAppointment(String id) {
-        AppointmentEntity entity = repository.findByFhirId(id)
+        String resource = repository.findResourceByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Appointment/" + id));
 
-        return mapper.toFhir(entity);
+        return mapper.toFhir(resource);
     }
 
     @Transactional
     public void deleteAppointment(String id) {
-        if (!repository.findByFhirId(id).isPresent()) {
+        if (repository.softDelete(List.of(id)).isEmpty()) {
             throw new ResourceNotFoundException("Appointment/" + id);
         }
-        repository.softDelete(id);
     }
 
-    public List<Appointment> searchAppointments(AppointmentSearchCriteria criteria) {
-        List<AppointmentEntity> entities;
+    /**
+     * Deletes many appointments with one statement. Returns the new version of each deleted appointment; ids that are
+     * unknown or already deleted are absent.
+     */
+    @Transactional
+    public Map<String, Long> deleteAppointments(List<String> ids) {
+        if (ids.size() > deleteMaxIds) {
+            throw new FhirValidationException("At most " + deleteMaxIds + " ids can be deleted at once");
+        }
+        return repository.softDelete(ids);
+    }
+
+    /**
+     * Passes each match to matches as it is fetched. Runs in a read-only transaction so the driver can fetch
+     * the matches through a cursor while they are parsed.
+     */
+    @Transactional
+    public void searchAppointments(AppointmentSearchCriteria criteria, Consumer<Appointment> matches) {
+        repository.readOnly();
+        try (Stream<String> resources = findResources(criteria)) {
+            resources.map(mapper::toFhir).forEach(matches);
+        }
+    }
 
+    private Stream<String> findResources(AppointmentSearchCriteria criteria) {
         if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
-            entities = repository.findByIdentifier(null, criteria.getIdentifier());
+            return repository.findByIdentifier(null, criteria.getIdentifier());
+        } else if (!criteria.getChainedReferences().isEmpty() || criteria.getDateStart() != null
+                || criteria.getDateEnd() != null) {
+            return repository.findFiltered(criteria);
         } else if (criteria.getPatient() != null && !criteria.getPatient().isEmpty()) {
             if (criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
-                entities = repository.findByPatientAndStatus(criteria.getPatient(), criteria.getStatus());
+                return repository.findByPatientAndStatus(criteria.getPatient(), criteria.getStatus());
             } else {
-                entities = repository.findByPatient(criteria.getPatient());
+                return repository.findByPatient(criteria.getPatient());
             }
         } else if (criteria.getPractitioner() != null && !criteria.getPractitioner().isEmpty()) {
-            entities = repository.findByPractitioner(criteria.getPractitioner());
+            return repository.findByPractitioner(criteria.getPractitioner());
         } else if (criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
-            entities = repository.findByStatus(criteria.getStatus());
-        } else if (criteria.getDateStart() != null || criteria.getDateEnd() != null) {
-            entities = repository.findByDateRange(criteria.getDateStart(), criteria.getDateEnd());
+            return repository.findByStatus(criteria.getStatus());
         } else if (criteria.getSpecialty() != null && !criteria.getSpecialty().isEmpty()) {
-            entities = repository.findBySpecialty(criteria.getSpecialty());
-        } else {
-            entities = repository.findAllActive();
+            return repository.findBySpecialty(criteria.getSpecialty());
         }
+        return repository.findAllActive();
+    }
+
+    public long countAppointments(AppointmentSearchCriteria criteria) {
+        return repository.countActive(criteria);
+    }
+
+    /**
+     * Counts the appointments in criteria's date range for each patient or practitioner reference with one
+     * grouped query. References without appointments are absent.
+     */
+    @Transactional
+    public Map<String, Long> countAppointmentsBy(String groupBy, List<String> references,
+                                                 AppointmentSearchCriteria criteria) {
+        if (!"patient".equals(groupBy) && !"practitioner".equals(groupBy)) {
+            throw new FhirValidationException("$counts group-by must be patient or practitioner");
+        }
+        if (references.size() > countsMaxReferences) {
+            throw new FhirValidationException(
+                "At most " + countsMaxReferences + " references can be counted at once");
+        }
+        repository.readOnly();
+        return repository.countActiveBy(groupBy, references, criteria);
+    }
 
-        return entities.stream()
-            .map(mapper::toFhir)
-            .collect(Collectors.toList());
+    /**
+     * Runs a _summary / _elements search, passing each encoded Bundle entry to entries as it is fetched.
+     * Projection happens in PostgreSQL, so matching rows are never parsed into HAPI model objects.
+     */
+    @Transactional
+    public void searchAppointmentsProjected(AppointmentSearchCriteria criteria, ProjectionCriteria projection, Consumer<String> entries) {
+        repository.readOnly();
+        try (Stream<String> projected = repository.findProjectedEntries(criteria, projection)) {
+            projected.forEach(entries);
+        }
     }
 }
@@ -0,0 +1,21 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The extracted claim columns the rules evaluate; the FHIR document itself is never parsed.
+ */
+public record AdjudicableClaim(
+    String fhirId,
+    Long versionId,
+    String status,
+    String patientReference,
+    String providerReference,
+    String coverageReference,
+    LocalDate billablePeriodStart,
+    LocalDate billablePeriodEnd,
+    BigDecimal totalValue,
+    String contentFingerprint
+) {
+}
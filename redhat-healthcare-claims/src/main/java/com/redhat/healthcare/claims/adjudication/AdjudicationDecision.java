@@ -0,0 +1,20 @@
+package com.redhat.healthcare.claims.adjudication;
+
+/**
+ * Outcome of running a claim through the rule pipeline; stored in claims.adjudication_outcome.
+ */
+public enum AdjudicationDecision {
+    APPROVED("approved"),
+    PENDED("pended"),
+    DENIED("denied");
+
+    private final String code;
+
+    AdjudicationDecision(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+}
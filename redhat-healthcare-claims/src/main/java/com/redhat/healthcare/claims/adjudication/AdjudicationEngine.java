@@ -0,0 +1,152 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import com.redhat.healthcare.claims.domain.repository.ClaimRepository;
+import com.redhat.healthcare.claims.dto.AdjudicationRun;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pulls unadjudicated draft/active claims in batches, runs them through the rule pipeline on a
+ * fork-join pool and writes the decisions back with one batched UPDATE per batch.
+ * <p>
+ * Each batch is its own transaction and locks its rows with {@code FOR UPDATE SKIP LOCKED},
+ * so concurrent runs or replicas never adjudicate the same claim twice.
+ */
+@ApplicationScoped
+public class AdjudicationEngine {
+
+    private static final Logger LOG = Logger.getLogger(AdjudicationEngine.class);
+
+    @ConfigProperty(name = "claims.adjudication.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "claims.adjudication.max-claims-per-run", defaultValue = "50000")
+    int maxClaimsPerRun;
+
+    // 0 uses one worker per available core
+    @ConfigProperty(name = "claims.adjudication.parallelism", defaultValue = "0")
+    int parallelism;
+
+    @ConfigProperty(name = "claims.adjudication.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    ClaimRepository repository;
+
+    @Inject
+    Instance<AdjudicationRule> ruleBeans;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ForkJoinPool pool;
+    private List<AdjudicationRule> rules;
+    private Map<AdjudicationDecision, Counter> decisionCounters;
+    private Timer batchTimer;
+    private volatile double lastClaimsPerSecond;
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        rules = ruleBeans.stream()
+            .sorted(Comparator.comparingInt(AdjudicationRule::order))
+            .toList();
+
+        decisionCounters = new EnumMap<>(AdjudicationDecision.class);
+        for (AdjudicationDecision decision : AdjudicationDecision.values()) {
+            decisionCounters.put(decision, Counter.builder("claims.adjudicated")
+                .description("Claims adjudicated, by decision")
+                .tag("decision", decision.code())
+                .register(registry));
+        }
+        batchTimer = Timer.builder("claims.adjudication.batch")
+            .description("Time to lock, evaluate and write back one batch")
+            .register(registry);
+        registry.gauge("claims.adjudication.throughput", this, engine -> engine.lastClaimsPerSecond);
+
+        LOG.infof("Adjudication pipeline: %s on %d workers",
+            rules.stream().map(AdjudicationRule::name).toList(), pool.getParallelism());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(every = "{claims.adjudication.interval}", delayed = "{claims.adjudication.interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledRun() {
+        if (enabled) {
+            AdjudicationRun run = adjudicate(maxClaimsPerRun);
+            if (run.getProcessed() > 0) {
+                LOG.infof("Adjudicated %d claims (%d approved, %d pended, %d denied) at %.0f claims/s",
+                    run.getProcessed(), run.getApproved(), run.getPended(), run.getDenied(), run.getClaimsPerSecond());
+            }
+        }
+    }
+
+    /**
+     * Adjudicates up to maxClaims pending claims, batch by batch, until none are left.
+     */
+    public AdjudicationRun adjudicate(int maxClaims) {
+        AdjudicationRun run = new AdjudicationRun();
+        long start = System.nanoTime();
+
+        while (run.getProcessed() < maxClaims) {
+            int size = Math.min(batchSize, maxClaims - run.getProcessed());
+            List<AdjudicationResult> results = batchTimer.record(
+                () -> QuarkusTransaction.requiringNew().call(() -> adjudicateBatch(size)));
+            if (results.isEmpty()) {
+                break;
+            }
+
+            run.setBatches(run.getBatches() + 1);
+            run.setProcessed(run.getProcessed() + results.size());
+            for (AdjudicationResult result : results) {
+                decisionCounters.get(result.decision()).increment();
+                switch (result.decision()) {
+                    case APPROVED -> run.setApproved(run.getApproved() + 1);
+                    case PENDED -> run.setPended(run.getPended() + 1);
+                    case DENIED -> run.setDenied(run.getDenied() + 1);
+                }
+            }
+            if (results.size() < size) {
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        run.setElapsedMillis(elapsedNanos / 1_000_000);
+        if (run.getProcessed() > 0) {
+            run.setClaimsPerSecond(run.getProcessed() * 1_000_000_000.0 / elapsedNanos);
+            lastClaimsPerSecond = run.getClaimsPerSecond();
+        }
+        return run;
+    }
+
+    private List<AdjudicationResult> adjudicateBatch(int size) {
+        List<AdjudicableClaim> batch = repository.lockAdjudicationBatch(size);
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        List<AdjudicationResult> results = AdjudicationPipeline.prepare(rules, batch).evaluateAll(batch, pool);
+        repository.applyAdjudication(results);
+        return results;
+    }
+}
@@ -0,0 +1,94 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The rule checks bound to one batch. Claims are evaluated independently, so the batch is split
+ * recursively and evaluated with work stealing on a {@link ForkJoinPool}.
+ */
+public final class AdjudicationPipeline {
+
+    // Below this many claims a task evaluates sequentially instead of forking
+    static final int SPLIT_THRESHOLD = 64;
+
+    private final List<String> names;
+    private final List<AdjudicationRule.ClaimCheck> checks;
+
+    private AdjudicationPipeline(List<String> names, List<AdjudicationRule.ClaimCheck> checks) {
+        this.names = names;
+        this.checks = checks;
+    }
+
+    public static AdjudicationPipeline prepare(List<AdjudicationRule> rules, List<AdjudicableClaim> batch) {
+        List<String> names = new ArrayList<>(rules.size());
+        List<AdjudicationRule.ClaimCheck> checks = new ArrayList<>(rules.size());
+        for (AdjudicationRule rule : rules) {
+            names.add(rule.name());
+            checks.add(rule.prepare(batch));
+        }
+        return new AdjudicationPipeline(names, checks);
+    }
+
+    /**
+     * Runs every rule: any denial denies the claim, otherwise any pend pends it. All reasons are kept.
+     */
+    public AdjudicationResult evaluate(AdjudicableClaim claim) {
+        AdjudicationDecision decision = AdjudicationDecision.APPROVED;
+        List<String> reasons = List.of();
+        for (int i = 0; i < checks.size(); i++) {
+            RuleOutcome outcome;
+            try {
+                outcome = checks.get(i).check(claim);
+            } catch (RuntimeException e) {
+                outcome = RuleOutcome.pend("rule failed: " + e.getMessage());
+            }
+            if (outcome.decision() != AdjudicationDecision.APPROVED) {
+                if (reasons.isEmpty()) {
+                    reasons = new ArrayList<>(2);
+                }
+                reasons.add(names.get(i) + ": " + outcome.reason());
+                if (outcome.decision().compareTo(decision) > 0) {
+                    decision = outcome.decision();
+                }
+            }
+        }
+        return new AdjudicationResult(claim, decision, reasons);
+    }
+
+    public List<AdjudicationResult> evaluateAll(List<AdjudicableClaim> batch, ForkJoinPool pool) {
+        AdjudicationResult[] results = new AdjudicationResult[batch.size()];
+        pool.invoke(new EvaluateRange(batch, results, 0, batch.size()));
+        return Arrays.asList(results);
+    }
+
+    private final class EvaluateRange extends RecursiveAction {
+
+        private final List<AdjudicableClaim> batch;
+        private final AdjudicationResult[] results;
+        private final int from;
+        private final int to;
+
+        EvaluateRange(List<AdjudicableClaim> batch, AdjudicationResult[] results, int from, int to) {
+            this.batch = batch;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = evaluate(batch.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EvaluateRange(batch, results, from, mid), new EvaluateRange(batch, results, mid, to));
+        }
+    }
+}
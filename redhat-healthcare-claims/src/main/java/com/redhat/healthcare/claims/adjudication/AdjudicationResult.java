@@ -0,0 +1,13 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import java.util.List;
+
+public record AdjudicationResult(AdjudicableClaim claim, AdjudicationDecision decision, List<String> reasons) {
+
+    /**
+     * Approved and denied claims have been processed and become active; pended claims keep their status.
+     */
+    public String resultingStatus() {
+        return decision == AdjudicationDecision.PENDED ? claim.status() : "active";
+    }
+}
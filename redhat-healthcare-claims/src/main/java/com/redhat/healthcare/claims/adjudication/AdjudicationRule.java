@@ -0,0 +1,26 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import java.util.List;
+
+/**
+ * A step in the adjudication pipeline. Implementations are discovered as CDI beans and run in {@link #order()}.
+ * <p>
+ * {@link #prepare(List)} runs once per batch on the calling thread and may do I/O (one query, one
+ * lookup per distinct key); the returned check is then called concurrently from the fork-join pool
+ * and must only read what prepare loaded.
+ */
+public interface AdjudicationRule {
+
+    String name();
+
+    default int order() {
+        return 100;
+    }
+
+    ClaimCheck prepare(List<AdjudicableClaim> batch);
+
+    @FunctionalInterface
+    interface ClaimCheck {
+        RuleOutcome check(AdjudicableClaim claim);
+    }
+}
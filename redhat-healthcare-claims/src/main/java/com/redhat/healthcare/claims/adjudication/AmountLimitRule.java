@@ -0,0 +1,44 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Denies claims without a positive total and pends claims above the auto-approval limit for manual review.
+ */
+@ApplicationScoped
+public class AmountLimitRule implements AdjudicationRule {
+
+    @ConfigProperty(name = "claims.adjudication.auto-approve-limit", defaultValue = "10000")
+    BigDecimal autoApproveLimit;
+
+    @Override
+    public String name() {
+        return "amount-limit";
+    }
+
+    @Override
+    public int order() {
+        return 10;
+    }
+
+    @Override
+    public ClaimCheck prepare(List<AdjudicableClaim> batch) {
+        return claim -> {
+            BigDecimal total = claim.totalValue();
+            if (total == null) {
+                return RuleOutcome.pend("claim has no total");
+            }
+            if (total.signum() <= 0) {
+                return RuleOutcome.deny("total must be positive");
+            }
+            if (total.compareTo(autoApproveLimit) > 0) {
+                return RuleOutcome.pend("total " + total + " exceeds auto-approval limit " + autoApproveLimit);
+            }
+            return RuleOutcome.approve();
+        };
+    }
+}
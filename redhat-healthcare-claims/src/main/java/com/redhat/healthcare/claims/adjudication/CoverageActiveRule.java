@@ -0,0 +1,120 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.claims.client.CoverageApi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Requires the claim's coverage to be active for its whole billable period. Each distinct Coverage
+ * in a batch is fetched once from the coverage service; if it cannot be reached the claim is pended.
+ */
+@ApplicationScoped
+public class CoverageActiveRule implements AdjudicationRule {
+
+    private static final Logger LOG = Logger.getLogger(CoverageActiveRule.class);
+
+    @Inject
+    @RestClient
+    CoverageApi coverageApi;
+
+    record CoverageWindow(String status, LocalDate start, LocalDate end) {
+    }
+
+    // Marks a Coverage the service reported as missing, as opposed to one that could not be fetched
+    static final CoverageWindow NOT_FOUND = new CoverageWindow(null, null, null);
+
+    @Override
+    public String name() {
+        return "coverage";
+    }
+
+    @Override
+    public int order() {
+        return 30;
+    }
+
+    @Override
+    public ClaimCheck prepare(List<AdjudicableClaim> batch) {
+        // A reference without an entry could not be looked up
+        Map<String, CoverageWindow> coverages = new HashMap<>();
+        for (AdjudicableClaim claim : batch) {
+            String reference = claim.coverageReference();
+            if (reference != null && reference.startsWith("Coverage/") && !coverages.containsKey(reference)) {
+                fetch(reference.substring("Coverage/".length())).ifPresent(window -> coverages.put(reference, window));
+            }
+        }
+        return check(coverages);
+    }
+
+    static ClaimCheck check(Map<String, CoverageWindow> coverages) {
+        return claim -> {
+            if (claim.coverageReference() == null) {
+                return RuleOutcome.deny("claim has no insurance coverage");
+            }
+            CoverageWindow coverage = coverages.get(claim.coverageReference());
+            if (coverage == null) {
+                return RuleOutcome.pend("coverage service unavailable for " + claim.coverageReference());
+            }
+            if (coverage == NOT_FOUND) {
+                return RuleOutcome.deny(claim.coverageReference() + " not found");
+            }
+            if (!"active".equals(coverage.status())) {
+                return RuleOutcome.deny(claim.coverageReference() + " is " + coverage.status());
+            }
+            LocalDate start = claim.billablePeriodStart();
+            LocalDate end = claim.billablePeriodEnd() != null ? claim.billablePeriodEnd() : start;
+            if (start == null) {
+                return RuleOutcome.pend("claim has no billable period");
+            }
+            if ((coverage.start() != null && start.isBefore(coverage.start()))
+                || (coverage.end() != null && end.isAfter(coverage.end()))) {
+                return RuleOutcome.deny("billable period is outside the coverage period");
+            }
+            return RuleOutcome.approve();
+        };
+    }
+
+    private Optional<CoverageWindow> fetch(String id) {
+        try {
+            JsonNode coverage = coverageApi.read(id);
+            JsonNode period = coverage.path("period");
+            return Optional.of(new CoverageWindow(
+                coverage.path("status").asText(null),
+                date(period.path("start").asText(null)),
+                date(period.path("end").asText(null))));
+        } catch (WebApplicationException e) {
+            if (e.getResponse() != null && e.getResponse().getStatus() == 404) {
+                return Optional.of(NOT_FOUND);
+            }
+            LOG.warnf("Coverage/%s lookup failed with HTTP %d", id, e.getResponse() != null ? e.getResponse().getStatus() : -1);
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            LOG.warnf("Coverage/%s lookup failed: %s", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // FHIR dates may be a date or a dateTime; only the date part matters here
+    private static LocalDate date(String value) {
+        if (value == null || value.length() < 10) {
+            return null;
+        }
+        try {
+            return value.length() == 10 ? LocalDate.parse(value) : OffsetDateTime.parse(value).toLocalDate();
+        } catch (DateTimeParseException e) {
+            return LocalDate.parse(value.substring(0, 10));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import com.redhat.healthcare.claims.duplicate.DuplicateClaimIndex;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Denies a claim when an earlier, non-denied claim has the same content fingerprint
+ * (patient, provider, billable period, items and total).
+ */
+@ApplicationScoped
+public class DuplicateClaimRule implements AdjudicationRule {
+
+    @Inject
+    DuplicateClaimIndex duplicateIndex;
+
+    @Override
+    public String name() {
+        return "duplicate";
+    }
+
+    @Override
+    public int order() {
+        return 20;
+    }
+
+    @Override
+    public ClaimCheck prepare(List<AdjudicableClaim> batch) {
+        List<String> fingerprints = batch.stream()
+            .map(AdjudicableClaim::contentFingerprint)
+            .filter(Objects::nonNull)
+            .toList();
+        return check(duplicateIndex.findOriginals(fingerprints));
+    }
+
+    static ClaimCheck check(Map<String, String> originals) {
+        return claim -> {
+            String original = claim.contentFingerprint() != null ? originals.get(claim.contentFingerprint()) : null;
+            if (original != null && !original.equals(claim.fhirId())) {
+                return RuleOutcome.deny("duplicate of Claim/" + original);
+            }
+            return RuleOutcome.approve();
+        };
+    }
+}
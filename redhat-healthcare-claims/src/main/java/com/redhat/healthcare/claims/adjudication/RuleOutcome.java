@@ -0,0 +1,18 @@
+package com.redhat.healthcare.claims.adjudication;
+
+public record RuleOutcome(AdjudicationDecision decision, String reason) {
+
+    private static final RuleOutcome APPROVE = new RuleOutcome(AdjudicationDecision.APPROVED, null);
+
+    public static RuleOutcome approve() {
+        return APPROVE;
+    }
+
+    public static RuleOutcome pend(String reason) {
+        return new RuleOutcome(AdjudicationDecision.PENDED, reason);
+    }
+
+    public static RuleOutcome deny(String reason) {
+        return new RuleOutcome(AdjudicationDecision.DENIED, reason);
+    }
+}
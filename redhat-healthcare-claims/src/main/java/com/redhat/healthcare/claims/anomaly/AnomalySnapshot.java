@@ -0,0 +1,18 @@
+package com.redhat.healthcare.claims.anomaly;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Map;
+
+/**
+ * Serialized detector state stored in claim_anomaly_snapshots. Jackson reads and writes it outside any REST
+ * endpoint, so the native executable needs it registered for reflection explicitly.
+ */
+@RegisterForReflection(targets = {AnomalySnapshot.class, SlidingWindowStats.State.class})
+public record AnomalySnapshot(
+    long bucketMillis,
+    Map<String, SlidingWindowStats.State> peerGroups,
+    Map<String, SlidingWindowStats.State> providerScores,
+    Map<String, SlidingWindowStats.State> providerFlags
+) {
+}
@@ -0,0 +1,16 @@
+package com.redhat.healthcare.claims.anomaly;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Fired for each created claim; folded into the running statistics once the transaction commits.
+ */
+public record ClaimScored(
+    String providerReference,
+    String peerGroup,
+    BigDecimal totalValue,
+    Double score,
+    LocalDateTime createdAt
+) {
+}
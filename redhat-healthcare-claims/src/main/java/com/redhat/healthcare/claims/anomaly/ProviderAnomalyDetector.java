@@ -0,0 +1,251 @@
+package com.redhat.healthcare.claims.anomaly;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.healthcare.claims.domain.entity.AnomalySnapshotEntity;
+import com.redhat.healthcare.claims.domain.entity.ClaimEntity;
+import com.redhat.healthcare.claims.domain.repository.AnomalySnapshotRepository;
+import com.redhat.healthcare.claims.domain.repository.ClaimRepository;
+import com.redhat.healthcare.claims.dto.ProviderAnomaly;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming outlier scoring of claim amounts.
+ * <p>
+ * Each peer group (primary procedure code, else claim type) keeps sliding-window Welford statistics of
+ * ln(total), since claim amounts are right-skewed. A new claim is scored as a z-score against its group
+ * before being added to it. Each provider keeps the same kind of window over its claims' z-scores; the
+ * provider score is mean z times sqrt(n), i.e. how many standard errors its average sits above its peers.
+ * <p>
+ * Group and provider maps are LRU-bounded, so memory stays fixed. State is snapshotted to the database
+ * periodically and on shutdown; after a restart, claims created since the snapshot are replayed.
+ */
+@ApplicationScoped
+public class ProviderAnomalyDetector {
+
+    private static final Logger LOG = Logger.getLogger(ProviderAnomalyDetector.class);
+
+    @ConfigProperty(name = "claims.anomaly.bucket", defaultValue = "1D")
+    Duration bucket;
+
+    @ConfigProperty(name = "claims.anomaly.window-buckets", defaultValue = "30")
+    int windowBuckets;
+
+    @ConfigProperty(name = "claims.anomaly.min-peer-claims", defaultValue = "30")
+    int minPeerClaims;
+
+    @ConfigProperty(name = "claims.anomaly.min-provider-claims", defaultValue = "5")
+    int minProviderClaims;
+
+    @ConfigProperty(name = "claims.anomaly.flag-threshold", defaultValue = "3.0")
+    double flagThreshold;
+
+    @ConfigProperty(name = "claims.anomaly.max-peer-groups", defaultValue = "10000")
+    int maxPeerGroups;
+
+    @ConfigProperty(name = "claims.anomaly.max-providers", defaultValue = "20000")
+    int maxProviders;
+
+    @Inject
+    ClaimRepository claimRepository;
+
+    @Inject
+    AnomalySnapshotRepository snapshotRepository;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private Map<String, SlidingWindowStats> peerGroups;
+    private Map<String, SlidingWindowStats> providerScores;
+    private Map<String, SlidingWindowStats> providerFlags;
+
+    @PostConstruct
+    void init() {
+        peerGroups = lru(maxPeerGroups);
+        providerScores = lru(maxProviders);
+        providerFlags = lru(maxProviders);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        LocalDateTime since = QuarkusTransaction.requiringNew().call(this::restore);
+        List<ClaimScored> missed = QuarkusTransaction.requiringNew().call(() -> claimRepository.findScoredSince(since));
+        missed.forEach(this::record);
+        LOG.infof("Anomaly scoring: %d peer groups, %d providers, %d claims replayed since %s",
+            peerGroups.size(), providerScores.size(), missed.size(), since);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        snapshot();
+    }
+
+    /**
+     * Peer group of a claim: its primary procedure code, or its claim type when it has no items.
+     */
+    public static String peerGroup(ClaimEntity entity) {
+        return peerGroup(entity.procedureCode, entity.claimType);
+    }
+
+    public static String peerGroup(String procedureCode, String claimType) {
+        if (procedureCode != null) {
+            return "procedure:" + procedureCode;
+        }
+        return claimType != null ? "type:" + claimType : null;
+    }
+
+    /**
+     * Z-score of the claim total against its peer group, or null until the group has enough claims.
+     */
+    public synchronized Double score(String peerGroup, BigDecimal total, LocalDateTime at) {
+        if (peerGroup == null || total == null || total.signum() <= 0) {
+            return null;
+        }
+        SlidingWindowStats group = peerGroups.get(peerGroup);
+        if (group == null) {
+            return null;
+        }
+        RunningStats stats = group.window(bucketId(at));
+        if (stats.count() < minPeerClaims || stats.stddev() == 0.0) {
+            return null;
+        }
+        return (Math.log(total.doubleValue()) - stats.mean()) / stats.stddev();
+    }
+
+    void onClaimScored(@Observes(during = TransactionPhase.AFTER_SUCCESS) ClaimScored event) {
+        record(event);
+    }
+
+    synchronized void record(ClaimScored claim) {
+        if (claim.totalValue() == null || claim.totalValue().signum() <= 0 || claim.createdAt() == null) {
+            return;
+        }
+        long bucketId = bucketId(claim.createdAt());
+        if (claim.peerGroup() != null) {
+            peerGroups.computeIfAbsent(claim.peerGroup(), key -> new SlidingWindowStats(windowBuckets))
+                .add(Math.log(claim.totalValue().doubleValue()), bucketId);
+        }
+        if (claim.providerReference() != null && claim.score() != null) {
+            providerScores.computeIfAbsent(claim.providerReference(), key -> new SlidingWindowStats(windowBuckets))
+                .add(claim.score(), bucketId);
+            providerFlags.computeIfAbsent(claim.providerReference(), key -> new SlidingWindowStats(windowBuckets))
+                .add(claim.score() >= flagThreshold ? 1.0 : 0.0, bucketId);
+        }
+    }
+
+    /**
+     * Providers with at least min-provider-claims scored claims in the window, most anomalous first.
+     */
+    public synchronized List<ProviderAnomaly> topProviders(int limit) {
+        long current = bucketId(LocalDateTime.now());
+        List<ProviderAnomaly> providers = new ArrayList<>();
+        for (Map.Entry<String, SlidingWindowStats> entry : providerScores.entrySet()) {
+            RunningStats scores = entry.getValue().window(current);
+            if (scores.count() < minProviderClaims) {
+                continue;
+            }
+            SlidingWindowStats flagWindow = providerFlags.get(entry.getKey());
+            RunningStats flags = flagWindow != null ? flagWindow.window(current) : new RunningStats();
+
+            ProviderAnomaly anomaly = new ProviderAnomaly();
+            anomaly.setProviderReference(entry.getKey());
+            anomaly.setClaims(scores.count());
+            anomaly.setMeanScore(scores.mean());
+            anomaly.setScore(scores.mean() * Math.sqrt(scores.count()));
+            anomaly.setFlaggedClaims(Math.round(flags.mean() * flags.count()));
+            providers.add(anomaly);
+        }
+        providers.sort(Comparator.comparingDouble(ProviderAnomaly::getScore).reversed());
+        return providers.size() > limit ? new ArrayList<>(providers.subList(0, limit)) : providers;
+    }
+
+    @Scheduled(every = "{claims.anomaly.snapshot-interval}", delayed = "{claims.anomaly.snapshot-interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void snapshot() {
+        LocalDateTime takenAt;
+        AnomalySnapshot snapshot;
+        synchronized (this) {
+            takenAt = LocalDateTime.now();
+            long current = bucketId(takenAt);
+            snapshot = new AnomalySnapshot(bucket.toMillis(),
+                states(peerGroups, current), states(providerScores, current), states(providerFlags, current));
+        }
+        try {
+            String state = objectMapper.writeValueAsString(snapshot);
+            QuarkusTransaction.requiringNew().run(() -> snapshotRepository.saveCurrent(state, takenAt));
+        } catch (JsonProcessingException | RuntimeException e) {
+            LOG.warnf("Anomaly snapshot failed: %s", e.getMessage());
+        }
+    }
+
+    // Returns the time to replay claims from: the snapshot time, or the start of the window without one
+    private synchronized LocalDateTime restore() {
+        LocalDateTime windowStart = LocalDateTime.now().minus(bucket.multipliedBy(windowBuckets));
+        AnomalySnapshotEntity entity = snapshotRepository.findCurrent().orElse(null);
+        if (entity == null) {
+            return windowStart;
+        }
+        try {
+            AnomalySnapshot snapshot = objectMapper.readValue(entity.state, AnomalySnapshot.class);
+            if (snapshot.bucketMillis() != bucket.toMillis()) {
+                LOG.info("Anomaly bucket width changed; rebuilding statistics from stored claims");
+                return windowStart;
+            }
+            restore(snapshot.peerGroups(), peerGroups);
+            restore(snapshot.providerScores(), providerScores);
+            restore(snapshot.providerFlags(), providerFlags);
+            return entity.takenAt.isAfter(windowStart) ? entity.takenAt : windowStart;
+        } catch (JsonProcessingException e) {
+            LOG.warnf("Ignoring unreadable anomaly snapshot: %s", e.getMessage());
+            return windowStart;
+        }
+    }
+
+    private void restore(Map<String, SlidingWindowStats.State> states, Map<String, SlidingWindowStats> target) {
+        if (states != null) {
+            states.forEach((key, state) -> target.put(key, SlidingWindowStats.fromState(state, windowBuckets)));
+        }
+    }
+
+    private Map<String, SlidingWindowStats.State> states(Map<String, SlidingWindowStats> source, long current) {
+        Map<String, SlidingWindowStats.State> states = new HashMap<>();
+        source.forEach((key, stats) -> {
+            if (!stats.isEmpty(current)) {
+                states.put(key, stats.toState());
+            }
+        });
+        return states;
+    }
+
+    private long bucketId(LocalDateTime at) {
+        return at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / bucket.toMillis();
+    }
+
+    private static <V> Map<String, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
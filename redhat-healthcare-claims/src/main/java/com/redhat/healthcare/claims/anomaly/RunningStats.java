@@ -0,0 +1,48 @@
+package com.redhat.healthcare.claims.anomaly;
+
+/**
+ * Welford running mean and variance, mergeable with Chan's parallel formula.
+ */
+public final class RunningStats {
+
+    private long count;
+    private double mean;
+    private double m2;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    public void merge(long otherCount, double otherMean, double otherM2) {
+        if (otherCount == 0) {
+            return;
+        }
+        long total = count + otherCount;
+        double delta = otherMean - mean;
+        mean += delta * otherCount / total;
+        m2 += otherM2 + delta * delta * ((double) count * otherCount / total);
+        count = total;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double m2() {
+        return m2;
+    }
+
+    /**
+     * Sample standard deviation; zero with fewer than two values.
+     */
+    public double stddev() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+    }
+}
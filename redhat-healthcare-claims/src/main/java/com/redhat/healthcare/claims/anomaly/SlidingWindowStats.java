@@ -0,0 +1,92 @@
+package com.redhat.healthcare.claims.anomaly;
+
+import java.util.Arrays;
+
+/**
+ * Running statistics over a sliding time window, kept as a ring of fixed-width buckets each holding
+ * Welford aggregates. Memory is fixed per instance; a bucket is recycled when the window moves past it.
+ */
+final class SlidingWindowStats {
+
+    private final long[] bucketIds;
+    private final long[] counts;
+    private final double[] means;
+    private final double[] m2s;
+
+    SlidingWindowStats(int bucketCount) {
+        bucketIds = new long[bucketCount];
+        counts = new long[bucketCount];
+        means = new double[bucketCount];
+        m2s = new double[bucketCount];
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+    }
+
+    void add(double value, long bucketId) {
+        int slot = (int) Math.floorMod(bucketId, (long) bucketIds.length);
+        if (bucketIds[slot] != bucketId) {
+            bucketIds[slot] = bucketId;
+            counts[slot] = 0;
+            means[slot] = 0;
+            m2s[slot] = 0;
+        }
+        long count = ++counts[slot];
+        double delta = value - means[slot];
+        means[slot] += delta / count;
+        m2s[slot] += delta * (value - means[slot]);
+    }
+
+    /**
+     * Aggregate of every bucket still inside the window ending at currentBucketId.
+     */
+    RunningStats window(long currentBucketId) {
+        RunningStats stats = new RunningStats();
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (inWindow(bucketIds[slot], currentBucketId)) {
+                stats.merge(counts[slot], means[slot], m2s[slot]);
+            }
+        }
+        return stats;
+    }
+
+    boolean isEmpty(long currentBucketId) {
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (counts[slot] > 0 && inWindow(bucketIds[slot], currentBucketId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean inWindow(long bucketId, long currentBucketId) {
+        return bucketId <= currentBucketId && bucketId > currentBucketId - bucketIds.length;
+    }
+
+    State toState() {
+        return new State(bucketIds.clone(), counts.clone(), means.clone(), m2s.clone());
+    }
+
+    static SlidingWindowStats fromState(State state, int bucketCount) {
+        SlidingWindowStats stats = new SlidingWindowStats(bucketCount);
+        for (int i = 0; i < state.bucketIds().length; i++) {
+            long bucketId = state.bucketIds()[i];
+            if (bucketId == Long.MIN_VALUE || state.counts()[i] == 0) {
+                continue;
+            }
+            int slot = (int) Math.floorMod(bucketId, (long) bucketCount);
+            // With a changed bucket count two old buckets may share a slot; keep the newer one
+            if (stats.bucketIds[slot] == Long.MIN_VALUE || stats.bucketIds[slot] < bucketId) {
+                stats.bucketIds[slot] = bucketId;
+                stats.counts[slot] = state.counts()[i];
+                stats.means[slot] = state.means()[i];
+                stats.m2s[slot] = state.m2s()[i];
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Serialized form used in anomaly snapshots.
+     */
+    public record State(long[] bucketIds, long[] counts, double[] means, double[] m2s) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.redhat.healthcare.claims.async;
+
+import com.redhat.healthcare.claims.service.ClaimService;
+import com.redhat.healthcare.fhir.async.AsyncWriter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Claim;
+
+/**
+ * Prefer: respond-async writes of Claims, queued in claim_async_requests.
+ */
+@ApplicationScoped
+public class ClaimAsyncWriter extends AsyncWriter<Claim> {
+
+    @Inject
+    ClaimService claimService;
+
+    @Override
+    protected Class<Claim> resourceType() {
+        return Claim.class;
+    }
+
+    @Override
+    protected String table() {
+        return "claim_async_requests";
+    }
+
+    @Override
+    protected Claim create(Claim claim) {
+        return claimService.createValidatedClaim(claim);
+    }
+
+    @Override
+    protected Claim update(String id, Claim claim) {
+        return claimService.updateValidatedClaim(id, claim);
+    }
+}
@@ -0,0 +1,19 @@
+package com.redhat.healthcare.claims.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+@RegisterRestClient(configKey = "coverage-api")
+@Path("/Coverage")
+@Produces(MediaType.APPLICATION_JSON)
+public interface CoverageApi {
+
+    @GET
+    @Path("/{id}")
+    JsonNode read(@PathParam("id") String id);
+}
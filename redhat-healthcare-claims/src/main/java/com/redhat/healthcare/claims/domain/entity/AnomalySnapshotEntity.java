@@ -0,0 +1,27 @@
+package com.redhat.healthcare.claims.domain.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "claim_anomaly_snapshots")
+public class AnomalySnapshotEntity extends PanacheEntityBase {
+
+    // Single-row table; the latest snapshot replaces the previous one
+    public static final int CURRENT = 1;
+
+    @Id
+    @Column(name = "id")
+    public Integer id;
+
+    @Column(name = "taken_at", nullable = false)
+    public LocalDateTime takenAt;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "state", columnDefinition = "jsonb", nullable = false)
+    public String state;
+}
@@ -17,9 +17,10 @@ import java.time.LocalDateTime;
     @Index(name = "idx_claim_insurer", columnList = "insurer_reference"),
     @Index(name = "idx_claim_status", columnList = "status"),
     @Index(name = "idx_claim_created", columnList = "created_date"),
-    @Index(name = "idx_claim_billable_period", columnList = "billable_period_start, billable_period_end"),
     @Index(name = "idx_claim_active", columnList = "active"),
-    @Index(name = "idx_claim_last_updated", columnList = "last_updated")
+    @Index(name = "idx_claim_last_updated", columnList = "last_updated"),
+    @Index(name = "idx_claim_content_fingerprint", columnList = "content_fingerprint"),
+    @Index(name = "idx_claim_created_at", columnList = "created_at")
 })
 public class ClaimEntity extends PanacheEntityBase {
 
@@ -75,15 +76,33 @@ public class ClaimEntity extends PanacheEntityBase {
     @Column(name = "total_currency", length = 10)
     public String totalCurrency;
 
-    @Column(name = "created_date")
+    // Monthly range partition key (ClaimPartitionManager); set on create and never changed by PUT
+    @Column(name = "created_date", nullable = false)
     public LocalDateTime createdDate;
 
+    // billable_period_range (daterange, GiST-indexed) is generated from these two columns by the database
     @Column(name = "billable_period_start")
     public LocalDate billablePeriodStart;
 
     @Column(name = "billable_period_end")
     public LocalDate billablePeriodEnd;
 
+    @Column(name = "procedure_code", length = 50)
+    public String procedureCode;
+
+    @Column(name = "anomaly_score")
+    public Double anomalyScore;
+
+    @Column(name = "content_fingerprint", length = 64)
+    public String contentFingerprint;
+
+    @Column(name = "duplicate_of", length = 64)
+    public String duplicateOf;
+
+    // ClaimSearchIndex.VERSION of the claim_idx_* rows; NULL until indexed
+    @Column(name = "search_index_version")
+    public Short searchIndexVersion;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "fhir_resource", columnDefinition = "jsonb")
     public String fhirResource;
@@ -91,6 +110,15 @@ public class ClaimEntity extends PanacheEntityBase {
     @Column(name = "active")
     public Boolean active;
 
+    @Column(name = "adjudication_outcome", length = 20)
+    public String adjudicationOutcome;
+
+    @Column(name = "adjudication_reasons", columnDefinition = "text")
+    public String adjudicationReasons;
+
+    @Column(name = "adjudicated_at")
+    public LocalDateTime adjudicatedAt;
+
     @Column(name = "last_updated")
     public LocalDateTime lastUpdated;
 
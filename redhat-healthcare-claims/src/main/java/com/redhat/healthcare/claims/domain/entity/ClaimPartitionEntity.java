@@ -0,0 +1,34 @@
+package com.redhat.healthcare.claims.domain.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "claim_partitions")
+public class ClaimPartitionEntity extends PanacheEntityBase {
+
+    // Marks a partition that retention dropped instead of moving to the archive schema
+    public static final String DROPPED = "dropped";
+
+    @Id
+    @Column(name = "partition_name", length = 63)
+    public String partitionName;
+
+    // NULL for the partition of claims backdated before the first month, which is unbounded below
+    @Column(name = "range_start")
+    public LocalDateTime rangeStart;
+
+    @Column(name = "range_end", nullable = false)
+    public LocalDateTime rangeEnd;
+
+    @Column(name = "created_at", nullable = false)
+    public LocalDateTime createdAt;
+
+    @Column(name = "detached_at")
+    public LocalDateTime detachedAt;
+
+    @Column(name = "archived_as", length = 130)
+    public String archivedAs;
+}
@@ -0,0 +1,27 @@
+package com.redhat.healthcare.claims.domain.repository;
+
+import com.redhat.healthcare.claims.domain.entity.AnomalySnapshotEntity;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@ApplicationScoped
+public class AnomalySnapshotRepository implements PanacheRepositoryBase<AnomalySnapshotEntity, Integer> {
+
+    public Optional<AnomalySnapshotEntity> findCurrent() {
+        return findByIdOptional(AnomalySnapshotEntity.CURRENT);
+    }
+
+    public void saveCurrent(String state, LocalDateTime takenAt) {
+        AnomalySnapshotEntity snapshot = findCurrent().orElseGet(() -> {
+            AnomalySnapshotEntity created = new AnomalySnapshotEntity();
+            created.id = AnomalySnapshotEntity.CURRENT;
+            return created;
+        });
+        snapshot.state = state;
+        snapshot.takenAt = takenAt;
+        persist(snapshot);
+    }
+}
@@ -0,0 +1,64 @@
+package com.redhat.healthcare.claims.domain.repository;
+
+import com.redhat.healthcare.claims.domain.entity.ClaimPartitionEntity;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@ApplicationScoped
+public class ClaimPartitionRepository implements PanacheRepositoryBase<ClaimPartitionEntity, String> {
+
+    public List<ClaimPartitionEntity> findAttached() {
+        return list("detachedAt is null order by rangeEnd");
+    }
+
+    /**
+     * Attached partitions whose whole range ends on or before the cutoff, oldest first.
+     */
+    public List<ClaimPartitionEntity> findExpired(LocalDateTime cutoff) {
+        return list("detachedAt is null and rangeEnd <= ?1 order by rangeEnd", cutoff);
+    }
+
+    /**
+     * Detached partitions still waiting to be archived or dropped, e.g. after a crash mid-retention.
+     */
+    public List<ClaimPartitionEntity> findUnarchived() {
+        return list("detachedAt is not null and archivedAs is null order by rangeEnd");
+    }
+
+    /**
+     * Creates monthly partitions through the month containing until (claims_create_partitions, V6).
+     */
+    public int createThrough(LocalDateTime until) {
+        return ((Number) getEntityManager()
+            .createNativeQuery("SELECT claims_create_partitions(CAST(:until AS timestamp))")
+            .setParameter("until", until)
+            .getSingleResult()).intValue();
+    }
+
+    public void markDetached(String partitionName, LocalDateTime detachedAt) {
+        update("detachedAt = ?1 where partitionName = ?2", detachedAt, partitionName);
+    }
+
+    public void markArchived(String partitionName, String archivedAs) {
+        update("archivedAs = ?1 where partitionName = ?2", archivedAs, partitionName);
+    }
+
+    /**
+     * Deletes up to limit claim_ids rows in [from, to); from may be null for an unbounded range.
+     */
+    public int deleteIds(LocalDateTime from, LocalDateTime to, int limit) {
+        Query query = getEntityManager().createNativeQuery(
+                "DELETE FROM claim_ids WHERE fhir_id IN (SELECT fhir_id FROM claim_ids WHERE created_date < :to" +
+                (from != null ? " AND created_date >= :from" : "") + " LIMIT :limit)")
+            .setParameter("to", to)
+            .setParameter("limit", limit);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        return query.executeUpdate();
+    }
+}
@@ -1,55 +1,553 @@
 package com.redhat.healthcare.claims.domain.repository;
 
+import ca.uhn.fhir.context.FhirContext;
+import com.redhat.healthcare.claims.adjudication.AdjudicableClaim;
+import com.redhat.healthcare.claims.adjudication.AdjudicationResult;
+import com.redhat.healthcare.claims.anomaly.ClaimScored;
+import com.redhat.healthcare.claims.anomaly.ProviderAnomalyDetector;
 import com.redhat.healthcare.claims.domain.entity.ClaimEntity;
+import com.redhat.healthcare.claims.dto.ClaimSearchCriteria;
+import com.redhat.healthcare.claims.search.ClaimSearchParameters;
+import com.redhat.healthcare.fhir.search.ExtractedSearchParams;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
+import com.redhat.healthcare.fhir.search.ProjectionQuery;
+import com.redhat.healthcare.fhir.search.SearchIndexQuery;
+import com.redhat.healthcare.fhir.search.SearchParamType;
+import com.redhat.healthcare.fhir.store.FhirResourceStore;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hl7.fhir.r4.model.Claim;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class ClaimRepository implements PanacheRepositoryBase<ClaimEntity, String> {
 
+    private static final String ADJUDICABLE_COLUMNS =
+        "fhir_id, version_id, status, patient_reference, provider_reference, " +
+        "fhir_resource -> 'insurance' -> 0 -> 'coverage' ->> 'reference', " +
+        "billable_period_start, billable_period_end, total_value, content_fingerprint";
+
+    // Keeps fhir_resource in step with the columns: status, meta.versionId and meta.lastUpdated
+    private static final String APPLY_ADJUDICATION_SQL =
+        "UPDATE claims SET status = ?, adjudication_outcome = ?, adjudication_reasons = ?, adjudicated_at = ?, " +
+        "version_id = version_id + 1, last_updated = ?, " +
+        "fhir_resource = jsonb_set(jsonb_set(jsonb_set(fhir_resource, '{status}', to_jsonb(CAST(? AS text))), " +
+        "'{meta,versionId}', to_jsonb(CAST(version_id + 1 AS text))), '{meta,lastUpdated}', to_jsonb(CAST(? AS text))) " +
+        "WHERE fhir_id = ? AND version_id = ?";
+
+    // Joined with claim_ids for the partition key, so only the partitions holding the claims are touched
+    private static final String SOFT_DELETE_SQL =
+        "UPDATE claims c SET active = false, version_id = c.version_id + 1, last_updated = ?, " +
+        "fhir_resource = jsonb_set(jsonb_set(c.fhir_resource, '{meta,versionId}', " +
+        "to_jsonb(CAST(c.version_id + 1 AS text))), '{meta,lastUpdated}', to_jsonb(CAST(? AS text))) " +
+        "FROM claim_ids i WHERE i.fhir_id = ANY (?) AND c.fhir_id = i.fhir_id " +
+        "AND c.created_date = i.created_date AND c.active = true " +
+        "RETURNING c.fhir_id, c.version_id";
+
+    @Inject
+    FhirResourceStore store;
+
+    @Inject
+    FhirContext fhirContext;
+
+    private ProjectionQuery projection;
+
+    @PostConstruct
+    void init() {
+        // Elements that can be rebuilt from extracted columns without detoasting fhir_resource
+        projection = new ProjectionQuery(fhirContext, Claim.class, "claims", Map.of(
+            "status", "status",
+            "use", "claim_use",
+            "total", "CASE WHEN total_value IS NULL THEN NULL " +
+                     "ELSE jsonb_build_object('value', total_value, 'currency', total_currency) END",
+            "patient", ProjectionQuery.reference("patient_reference", "patient_display"),
+            "provider", ProjectionQuery.reference("provider_reference", "provider_display"),
+            "insurer", ProjectionQuery.reference("insurer_reference", "insurer_display")
+        ));
+    }
+
+    /**
+     * Looks the partition key up in claim_ids first, so only the partition holding the claim is probed.
+     */
+    @SuppressWarnings("unchecked")
     public Optional<ClaimEntity> findByFhirId(String fhirId) {
-        return find("fhirId", fhirId).firstResultOptional();
+        List<ClaimEntity> claims = getEntityManager().createNativeQuery(
+                "SELECT * FROM claims WHERE fhir_id = :id AND created_date = " +
+                "(SELECT created_date FROM claim_ids WHERE fhir_id = :id)", ClaimEntity.class)
+            .setParameter("id", fhirId)
+            .getResultList();
+        return claims.stream().findFirst();
+    }
+
+    /**
+     * The stored JSON of a claim, for reads that only render it. Uses the same claim_ids lookup as findByFhirId.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        List<String> resources = getEntityManager().createNativeQuery(
+                "SELECT CAST(fhir_resource AS text) FROM claims WHERE fhir_id = :id AND created_date = " +
+                "(SELECT created_date FROM claim_ids WHERE fhir_id = :id)")
+            .setParameter("id", fhirId)
+            .getResultList();
+        return resources.stream().findFirst();
     }
 
-    public List<ClaimEntity> findByIdentifier(String system, String value) {
+    public Stream<String> findByIdentifier(String system, String value) {
         if (system != null && value != null) {
-            return list("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value);
+            return streamResources("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value);
         } else if (value != null) {
-            return list("identifierValue = ?1 and active = true", value);
+            return streamResources("identifierValue = ?1 and active = true", value);
         }
-        return List.of();
+        return Stream.empty();
+    }
+
+    public Stream<String> findByPatient(String patientReference) {
+        return streamResources("patientReference = ?1 and active = true", patientReference);
+    }
+
+    public Stream<String> findByProvider(String providerReference) {
+        return streamResources("providerReference = ?1 and active = true", providerReference);
+    }
+
+    public Stream<String> findByInsurer(String insurerReference) {
+        return streamResources("insurerReference = ?1 and active = true", insurerReference);
+    }
+
+    public Stream<String> findByStatus(String status) {
+        return streamResources("status = ?1 and active = true", status);
+    }
+
+    public Stream<String> findByUse(String use) {
+        return streamResources("claimUse = ?1 and active = true", use);
+    }
+
+    /**
+     * Soft-deletes the active claims among fhirIds in one statement: the UPDATE bumps version_id and keeps
+     * meta.versionId and meta.lastUpdated of fhir_resource in step; the history trigger records the new version in
+     * claim_history. Returns the new version of each deleted claim; unknown or already deleted ids are absent.
+     */
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        return store.softDelete(getEntityManager(), SOFT_DELETE_SQL, fhirIds);
+    }
+
+    /**
+     * Locks the next batch of unadjudicated draft/active claims, oldest first. Rows locked by
+     * another transaction are skipped rather than waited for.
+     */
+    @SuppressWarnings("unchecked")
+    public List<AdjudicableClaim> lockAdjudicationBatch(int size) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(
+                "SELECT " + ADJUDICABLE_COLUMNS + " FROM claims " +
+                "WHERE active = true AND status IN ('draft', 'active') AND adjudicated_at IS NULL " +
+                "ORDER BY created_at LIMIT :size FOR UPDATE SKIP LOCKED")
+            .setParameter("size", size)
+            .getResultList();
+        return rows.stream().map(ClaimRepository::toAdjudicable).collect(Collectors.toList());
+    }
+
+    private static final String ORIGINAL_FILTER =
+        "active = true AND (adjudication_outcome IS NULL OR adjudication_outcome <> 'denied')";
+
+    @SuppressWarnings("unchecked")
+    public Optional<String> findOriginalByFingerprint(String fingerprint, String excludeId) {
+        List<String> ids = getEntityManager().createNativeQuery(
+                "SELECT fhir_id FROM claims WHERE content_fingerprint = :fingerprint AND fhir_id <> :excludeId AND " +
+                ORIGINAL_FILTER + " ORDER BY created_at, fhir_id LIMIT 1")
+            .setParameter("fingerprint", fingerprint)
+            .setParameter("excludeId", excludeId != null ? excludeId : "")
+            .getResultList();
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Maps each fingerprint to its oldest active, non-denied claim.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> findOriginalsByFingerprint(Collection<String> fingerprints) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(
+                "SELECT content_fingerprint, fhir_id FROM claims WHERE content_fingerprint IN (:fingerprints) AND " +
+                ORIGINAL_FILTER + " ORDER BY created_at, fhir_id")
+            .setParameter("fingerprints", fingerprints)
+            .getResultList();
+        Map<String, String> originals = new HashMap<>();
+        rows.forEach(row -> originals.putIfAbsent((String) row[0], (String) row[1]));
+        return originals;
+    }
+
+    public long countFingerprints() {
+        return ((Number) getEntityManager()
+            .createNativeQuery("SELECT count(*) FROM claims WHERE content_fingerprint IS NOT NULL AND active = true")
+            .getSingleResult()).longValue();
+    }
+
+    public void forEachFingerprint(Consumer<String> consumer) {
+        getEntityManager()
+            .createNativeQuery("SELECT content_fingerprint FROM claims WHERE content_fingerprint IS NOT NULL AND active = true")
+            .setHint("org.hibernate.fetchSize", 10_000)
+            .getResultStream()
+            .forEach(fingerprint -> consumer.accept((String) fingerprint));
+    }
+
+    /**
+     * Fingerprints of active claims written at or after since.
+     */
+    public void forEachFingerprintSince(LocalDateTime since, Consumer<String> consumer) {
+        getEntityManager()
+            .createNativeQuery("SELECT content_fingerprint FROM claims " +
+                "WHERE last_updated >= :since AND content_fingerprint IS NOT NULL AND active = true")
+            .setParameter("since", since)
+            .setHint("org.hibernate.fetchSize", 10_000)
+            .getResultStream()
+            .forEach(fingerprint -> consumer.accept((String) fingerprint));
     }
 
-    public List<ClaimEntity> findByPatient(String patientReference) {
-        return list("patientReference = ?1 and active = true", patientReference);
+    /**
+     * Takes a transaction-scoped advisory lock on the fingerprint; only writers of the same fingerprint wait.
+     */
+    public void lockFingerprint(String fingerprint) {
+        getEntityManager()
+            .createNativeQuery("SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtextextended(:fingerprint, 0))) locked")
+            .setParameter("fingerprint", fingerprint)
+            .getSingleResult();
     }
 
-    public List<ClaimEntity> findByProvider(String providerReference) {
-        return list("providerReference = ?1 and active = true", providerReference);
+    /**
+     * Claims without a fingerprint after the given id: [fhir_id, fhir_resource as text].
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findUnfingerprinted(String afterId, int limit) {
+        return getEntityManager().createNativeQuery(
+                "SELECT fhir_id, CAST(fhir_resource AS text) FROM claims " +
+                "WHERE content_fingerprint IS NULL AND fhir_id > :after ORDER BY fhir_id LIMIT :limit")
+            .setParameter("after", afterId)
+            .setParameter("limit", limit)
+            .getResultList();
     }
 
-    public List<ClaimEntity> findByInsurer(String insurerReference) {
-        return list("insurerReference = ?1 and active = true", insurerReference);
+    public void setFingerprint(String fhirId, String fingerprint) {
+        update("contentFingerprint = ?1 where fhirId = ?2", fingerprint, fhirId);
+    }
+
+    /**
+     * Claims not yet in the search index after the given id: [fhir_id, fhir_resource as text].
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findUnindexed(String afterId, int limit) {
+        return getEntityManager().createNativeQuery(
+                "SELECT fhir_id, CAST(fhir_resource AS text) FROM claims " +
+                "WHERE search_index_version IS NULL AND fhir_id > :after ORDER BY fhir_id LIMIT :limit")
+            .setParameter("after", afterId)
+            .setParameter("limit", limit)
+            .getResultList();
+    }
+
+    public void setSearchIndexVersion(String fhirId, short version) {
+        update("searchIndexVersion = ?1 where fhirId = ?2", version, fhirId);
+    }
+
+    /**
+     * Replaces the claim_idx_* rows of one claim, one JDBC batch per table.
+     */
+    public void replaceSearchIndex(String fhirId, ExtractedSearchParams extracted) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            for (SearchParamType type : ClaimSearchParameters.INDEX_TABLES) {
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM " + type.table(ClaimSearchParameters.RESOURCE_PREFIX) + " WHERE fhir_id = ?")) {
+                    delete.setString(1, fhirId);
+                    delete.executeUpdate();
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO claim_idx_token (fhir_id, param_name, token_system, token_value) VALUES (?, ?, ?, ?)")) {
+                for (ExtractedSearchParams.Token token : extracted.tokens()) {
+                    insert.setString(1, fhirId);
+                    insert.setString(2, token.param());
+                    insert.setString(3, token.system());
+                    insert.setString(4, token.value());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO claim_idx_reference (fhir_id, param_name, target_type, target_id) VALUES (?, ?, ?, ?)")) {
+                for (ExtractedSearchParams.ResourceReference reference : extracted.references()) {
+                    insert.setString(1, fhirId);
+                    insert.setString(2, reference.param());
+                    insert.setString(3, reference.targetType());
+                    insert.setString(4, reference.targetId());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO claim_idx_quantity (fhir_id, param_name, quantity_value, quantity_system, quantity_code) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                for (ExtractedSearchParams.Quantity quantity : extracted.quantities()) {
+                    insert.setString(1, fhirId);
+                    insert.setString(2, quantity.param());
+                    insert.setBigDecimal(3, quantity.value());
+                    insert.setString(4, quantity.system());
+                    insert.setString(5, quantity.code());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Writes adjudication decisions back as one JDBC batch.
+     */
+    public void applyAdjudication(List<AdjudicationResult> results) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        String lastUpdated = now.atZone(ZoneId.systemDefault()).toOffsetDateTime()
+            .truncatedTo(ChronoUnit.MILLIS)
+            .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(APPLY_ADJUDICATION_SQL)) {
+                for (AdjudicationResult result : results) {
+                    String status = result.resultingStatus();
+                    statement.setString(1, status);
+                    statement.setString(2, result.decision().code());
+                    statement.setString(3, result.reasons().isEmpty() ? null : String.join("; ", result.reasons()));
+                    statement.setTimestamp(4, timestamp);
+                    statement.setTimestamp(5, timestamp);
+                    statement.setString(6, status);
+                    statement.setString(7, lastUpdated);
+                    statement.setString(8, result.claim().fhirId());
+                    statement.setLong(9, result.claim().versionId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Claims created after the given time, in creation order, for replaying into the anomaly statistics.
+     */
+    @SuppressWarnings("unchecked")
+    public List<ClaimScored> findScoredSince(LocalDateTime since) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(
+                "SELECT provider_reference, procedure_code, claim_type, total_value, anomaly_score, created_at " +
+                "FROM claims WHERE created_at > :since AND active = true ORDER BY created_at")
+            .setParameter("since", since)
+            .getResultList();
+        return rows.stream()
+            .map(row -> new ClaimScored(
+                (String) row[0],
+                ProviderAnomalyDetector.peerGroup((String) row[1], (String) row[2]),
+                (BigDecimal) row[3],
+                row[4] != null ? ((Number) row[4]).doubleValue() : null,
+                toLocalDateTime(row[5])))
+            .collect(Collectors.toList());
+    }
+
+    private static AdjudicableClaim toAdjudicable(Object[] row) {
+        return new AdjudicableClaim(
+            (String) row[0],
+            ((Number) row[1]).longValue(),
+            (String) row[2],
+            (String) row[3],
+            (String) row[4],
+            (String) row[5],
+            toLocalDate(row[6]),
+            toLocalDate(row[7]),
+            (BigDecimal) row[8],
+            (String) row[9]
+        );
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
+    public Stream<String> findAllActive() {
+        return streamResources("active = true order by createdDate desc");
+    }
+
+    public long countActive(ClaimSearchCriteria criteria) {
+        NativeFilter filter = nativeFilter(criteria);
+        Query query = getEntityManager()
+            .createNativeQuery("SELECT count(*) FROM claims WHERE " + filter.where());
+        filter.params().forEach(query::setParameter);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * Counts the active claims matching criteria per reference in one grouped query, where groupBy is the
+     * reference search parameter (patient or provider). References without matching claims are absent.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> countActiveBy(String groupBy, Collection<String> references,
+                                           ClaimSearchCriteria criteria) {
+        NativeFilter filter = nativeFilter(criteria);
+        String column = groupBy + "_reference";
+        Query query = getEntityManager().createNativeQuery(
+            "SELECT " + column + ", count(*) FROM claims WHERE " + column + " IN (:references) AND " +
+            filter.where() + " GROUP BY " + column);
+        filter.params().forEach(query::setParameter);
+        query.setParameter("references", references);
+        return ((List<Object[]>) query.getResultList()).stream()
+            .collect(Collectors.toMap(row -> (String) row[0], row -> ((Number) row[1]).longValue()));
+    }
+
+    /**
+     * Returns Bundle entry JSON ({@code fullUrl} plus projected {@code resource}) built entirely in
+     * PostgreSQL. Only {@code resourceType}, {@code id} and {@code meta} are always kept. Close the stream.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> findProjectedEntries(ClaimSearchCriteria criteria, ProjectionCriteria projected) {
+        NativeFilter filter = nativeFilter(criteria);
+        Map<String, Object> params = new HashMap<>(filter.params());
+        String sql = projection.entriesSql(projection.elements(projected), filter.where(), filter.orderBy(), params);
+        Query query = getEntityManager().createNativeQuery(sql)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, store.fetchSize());
+        params.forEach(query::setParameter);
+        return query.getResultStream();
+    }
+
+    /**
+     * Searches combining billable-period (GiST-indexed billable_period_range), created (partition key) and
+     * index-table parameters, with patient, provider and status.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> findCombined(ClaimSearchCriteria criteria) {
+        NativeFilter filter = nativeFilter(criteria);
+        Query query = getEntityManager().createNativeQuery(
+            "SELECT CAST(fhir_resource AS text) FROM claims WHERE " + filter.where() +
+            " ORDER BY " + filter.orderBy())
+            .setHint(HibernateHints.HINT_FETCH_SIZE, store.fetchSize());
+        filter.params().forEach(query::setParameter);
+        return query.getResultStream();
+    }
+
+    // Mirrors the precedence used by ClaimService.searchClaims so projected and full searches match
+    private NativeFilter nativeFilter(ClaimSearchCriteria criteria) {
+        Map<String, Object> params = new HashMap<>();
+        String where;
+
+        boolean billable = criteria.getBillablePeriod() != null && !criteria.getBillablePeriod().isEmpty();
+        boolean created = criteria.getCreated() != null && !criteria.getCreated().isEmpty();
+        if (criteria.isCombined()) {
+            // Date, index-table and chained searches narrow by patient, provider and status when those are also
+            // given, as do patient, provider and status given together
+            List<String> predicates = new ArrayList<>();
+            if (billable) {
+                predicates.add(criteria.getBillablePeriod().toSql("billable_period_range", "billable", params));
+            }
+            if (created) {
+                // A literal range on created_date lets the planner skip partitions outside it
+                predicates.add(criteria.getCreated().toPointSql("created_date", "created", params));
+            }
+            int n = 0;
+            for (Map.Entry<String, List<String>> param : criteria.getIndexedParams().entrySet()) {
+                String name = param.getKey().split(":", 2)[0];
+                predicates.add(SearchIndexQuery.toSql(ClaimSearchParameters.RESOURCE_PREFIX, param.getKey(),
+                    ClaimSearchParameters.INDEXED.get(name), param.getValue(), "sp" + n++, params));
+            }
+            for (Map.Entry<String, Set<String>> chain : criteria.getChainedReferences().entrySet()) {
+                if (chain.getValue().isEmpty()) {
+                    predicates.add("false");
+                } else {
+                    predicates.add(chain.getKey() + "_reference IN (:chain_" + chain.getKey() + ")");
+                    params.put("chain_" + chain.getKey(), chain.getValue());
+                }
+            }
+            if (notEmpty(criteria.getPatient())) {
+                predicates.add("patient_reference = :patient");
+                params.put("patient", criteria.getPatient());
+            }
+            if (notEmpty(criteria.getProvider())) {
+                predicates.add("provider_reference = :provider");
+                params.put("provider", criteria.getProvider());
+            }
+            if (notEmpty(criteria.getStatus())) {
+                predicates.add("status = :status");
+                params.put("status", criteria.getStatus());
+            }
+            return new NativeFilter(String.join(" AND ", predicates) + " and active = true", params,
+                billable ? "billable_period_start, fhir_id" : created ? "created_date DESC, fhir_id" : "fhir_id");
+        } else if (notEmpty(criteria.getIdentifier())) {
+            params.put("value", criteria.getIdentifier());
+            if (criteria.getIdentifierSystem() != null) {
+                params.put("system", criteria.getIdentifierSystem());
+                where = "identifier_system = :system and identifier_value = :value";
+            } else {
+                where = "identifier_value = :value";
+            }
+        } else if (notEmpty(criteria.getPatient())) {
+            params.put("value", criteria.getPatient());
+            where = "patient_reference = :value";
+        } else if (notEmpty(criteria.getProvider())) {
+            params.put("value", criteria.getProvider());
+            where = "provider_reference = :value";
+        } else if (notEmpty(criteria.getInsurer())) {
+            params.put("value", criteria.getInsurer());
+            where = "insurer_reference = :value";
+        } else if (notEmpty(criteria.getStatus())) {
+            params.put("value", criteria.getStatus());
+            where = "status = :value";
+        } else if (notEmpty(criteria.getUse())) {
+            params.put("value", criteria.getUse());
+            where = "claim_use = :value";
+        } else {
+            return new NativeFilter("active = true", params, "created_date DESC");
+        }
+
+        return new NativeFilter(where + " and active = true", params, "fhir_id");
     }
 
-    public List<ClaimEntity> findByStatus(String status) {
-        return list("status = ?1 and active = true", status);
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
     }
 
-    public List<ClaimEntity> findByUse(String use) {
-        return list("claimUse = ?1 and active = true", use);
+    private record NativeFilter(String where, Map<String, Object> params, String orderBy) {
     }
 
-    public void softDelete(String fhirId) {
-        update("active = false, lastUpdated = ?1 where fhirId = ?2",
-               LocalDateTime.now(), fhirId);
+    /**
+     * Makes the current transaction read-only; call it before the first query of a search.
+     */
+    public void readOnly() {
+        store.readOnly(getEntityManager());
     }
 
-    public List<ClaimEntity> findAllActive() {
-        return list("active = true order by createdDate desc");
+    private Stream<String> streamResources(String where, Object... params) {
+        return store.streamResources(getEntityManager(), ClaimEntity.class, where, params);
     }
 }
@@ -0,0 +1,71 @@
+package com.redhat.healthcare.claims.dto;
+
+/**
+ * Summary of one adjudication run, as returned by {@code POST /fhir/Claim/$adjudicate}.
+ */
+public class AdjudicationRun {
+
+    private int batches;
+    private int processed;
+    private int approved;
+    private int pended;
+    private int denied;
+    private long elapsedMillis;
+    private double claimsPerSecond;
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(int processed) {
+        this.processed = processed;
+    }
+
+    public int getApproved() {
+        return approved;
+    }
+
+    public void setApproved(int approved) {
+        this.approved = approved;
+    }
+
+    public int getPended() {
+        return pended;
+    }
+
+    public void setPended(int pended) {
+        this.pended = pended;
+    }
+
+    public int getDenied() {
+        return denied;
+    }
+
+    public void setDenied(int denied) {
+        this.denied = denied;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getClaimsPerSecond() {
+        return claimsPerSecond;
+    }
+
+    public void setClaimsPerSecond(double claimsPerSecond) {
+        this.claimsPerSecond = claimsPerSecond;
+    }
+}
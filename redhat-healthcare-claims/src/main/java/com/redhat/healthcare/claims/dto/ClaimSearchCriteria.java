@@ -1,5 +1,12 @@
 package com.redhat.healthcare.claims.dto;
 
+import com.redhat.healthcare.fhir.search.DateRangeParameter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public class ClaimSearchCriteria {
 
     private String identifierSystem;
@@ -9,6 +16,12 @@ public class ClaimSearchCriteria {
     private String insurer;
     private String status;
     private String use;
+    private DateRangeParameter billablePeriod;
+    private DateRangeParameter created;
+    // Parameters served from the claim_idx_* tables, keyed by name (with modifier, if any)
+    private Map<String, List<String>> indexedParams = new LinkedHashMap<>();
+    // Resolved chained parameters: reference parameter (patient, provider) -> matching references
+    private Map<String, Set<String>> chainedReferences = new LinkedHashMap<>();
 
     public String getIdentifierSystem() {
         return identifierSystem;
@@ -65,4 +78,53 @@ public class ClaimSearchCriteria {
     public void setUse(String use) {
         this.use = use;
     }
+
+    public DateRangeParameter getBillablePeriod() {
+        return billablePeriod;
+    }
+
+    public void setBillablePeriod(DateRangeParameter billablePeriod) {
+        this.billablePeriod = billablePeriod;
+    }
+
+    public DateRangeParameter getCreated() {
+        return created;
+    }
+
+    public void setCreated(DateRangeParameter created) {
+        this.created = created;
+    }
+
+    public Map<String, List<String>> getIndexedParams() {
+        return indexedParams;
+    }
+
+    public void setIndexedParams(Map<String, List<String>> indexedParams) {
+        this.indexedParams = indexedParams;
+    }
+
+    public Map<String, Set<String>> getChainedReferences() {
+        return chainedReferences;
+    }
+
+    public void setChainedReferences(Map<String, Set<String>> chainedReferences) {
+        this.chainedReferences = chainedReferences;
+    }
+
+    /**
+     * True when the search needs the combined query: a date, index-table or chained parameter, or, without an
+     * identifier, more than one of patient, provider and status.
+     */
+    public boolean isCombined() {
+        if ((billablePeriod != null && !billablePeriod.isEmpty()) || (created != null && !created.isEmpty())
+                || !indexedParams.isEmpty() || !chainedReferences.isEmpty()) {
+            return true;
+        }
+        int references = (isSet(patient) ? 1 : 0) + (isSet(provider) ? 1 : 0) + (isSet(status) ? 1 : 0);
+        return !isSet(identifier) && references > 1;
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isEmpty();
+    }
 }
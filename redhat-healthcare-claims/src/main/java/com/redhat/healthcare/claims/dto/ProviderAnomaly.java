@@ -0,0 +1,53 @@
+package com.redhat.healthcare.claims.dto;
+
+/**
+ * A provider's claim amounts relative to their peer groups over the scoring window.
+ */
+public class ProviderAnomaly {
+
+    private String providerReference;
+    private long claims;
+    private double meanScore;
+    private double score;
+    private long flaggedClaims;
+
+    public String getProviderReference() {
+        return providerReference;
+    }
+
+    public void setProviderReference(String providerReference) {
+        this.providerReference = providerReference;
+    }
+
+    public long getClaims() {
+        return claims;
+    }
+
+    public void setClaims(long claims) {
+        this.claims = claims;
+    }
+
+    public double getMeanScore() {
+        return meanScore;
+    }
+
+    public void setMeanScore(double meanScore) {
+        this.meanScore = meanScore;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public long getFlaggedClaims() {
+        return flaggedClaims;
+    }
+
+    public void setFlaggedClaims(long flaggedClaims) {
+        this.flaggedClaims = flaggedClaims;
+    }
+}
@@ -0,0 +1,74 @@
+package com.redhat.healthcare.claims.duplicate;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over hex SHA-256 fingerprints. The fingerprint is already uniformly distributed,
+ * so its first two 64-bit words drive double hashing instead of re-hashing the key k times.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+    }
+
+    /**
+     * Sizes the filter for the expected number of fingerprints at the target false-positive rate.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, Math.min(bits, (long) Integer.MAX_VALUE * 64));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    public void add(String fingerprint) {
+        long h1 = word(fingerprint, 0);
+        long h2 = word(fingerprint, 16);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(index)) & mask) == 0
+                && !words.compareAndSet(index, current, current | mask)) {
+                // retry until this bit is set
+            }
+        }
+    }
+
+    /**
+     * False means the fingerprint was never added; true means it probably was.
+     */
+    public boolean mightContain(String fingerprint) {
+        long h1 = word(fingerprint, 0);
+        long h2 = word(fingerprint, 16);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    private static long word(String hex, int offset) {
+        return HexFormat.fromHexDigitsToLong(hex, offset, offset + 16);
+    }
+}
@@ -0,0 +1,111 @@
+package com.redhat.healthcare.claims.duplicate;
+
+import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Money;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.Quantity;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * SHA-256 over the normalized billing content of a Claim: patient, provider, billable period, items and total.
+ * <p>
+ * Identifiers, status, narrative and meta are left out, so a resubmission of the same bill matches even with a
+ * new claim number. Item order and numeric scale (100 vs 100.00) do not change the fingerprint.
+ */
+public final class ClaimFingerprint {
+
+    private ClaimFingerprint() {
+    }
+
+    public static String of(Claim claim) {
+        StringBuilder content = new StringBuilder(256);
+        field(content, claim.hasPatient() ? claim.getPatient().getReference() : null);
+        field(content, claim.hasProvider() ? claim.getProvider().getReference() : null);
+        period(content, claim.hasBillablePeriod() ? claim.getBillablePeriod() : null);
+        money(content, claim.hasTotal() ? claim.getTotal() : null);
+
+        List<String> items = new ArrayList<>(claim.getItem().size());
+        for (Claim.ItemComponent item : claim.getItem()) {
+            items.add(item(item));
+        }
+        items.sort(null);
+        items.forEach(item -> field(content, item));
+
+        return sha256(content.toString());
+    }
+
+    private static String item(Claim.ItemComponent item) {
+        StringBuilder content = new StringBuilder(96);
+
+        List<String> codes = new ArrayList<>();
+        for (Coding coding : item.getProductOrService().getCoding()) {
+            codes.add(coding.getSystem() + '#' + coding.getCode());
+        }
+        codes.sort(null);
+        field(content, String.join(",", codes));
+
+        for (Coding modifier : item.getModifier().stream().flatMap(m -> m.getCoding().stream()).toList()) {
+            field(content, modifier.getCode());
+        }
+        if (item.hasServicedDateType()) {
+            field(content, item.getServicedDateType().getValueAsString());
+        } else if (item.hasServicedPeriod()) {
+            period(content, item.getServicedPeriod());
+        } else {
+            field(content, null);
+        }
+        Quantity quantity = item.hasQuantity() ? item.getQuantity() : null;
+        field(content, quantity != null ? decimal(quantity.getValue()) : null);
+        money(content, item.hasUnitPrice() ? item.getUnitPrice() : null);
+        money(content, item.hasNet() ? item.getNet() : null);
+        return content.toString();
+    }
+
+    private static void period(StringBuilder content, Period period) {
+        field(content, period != null ? value(period.getStartElement()) : null);
+        field(content, period != null ? value(period.getEndElement()) : null);
+    }
+
+    private static void money(StringBuilder content, Money money) {
+        field(content, money != null ? decimal(money.getValue()) : null);
+        field(content, money != null ? money.getCurrency() : null);
+    }
+
+    // Dates are compared as written (day precision), not converted through the server time zone
+    private static String value(PrimitiveType<?> element) {
+        String value = element.getValueAsString();
+        return value != null && value.length() > 10 ? value.substring(0, 10) : value;
+    }
+
+    private static String decimal(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+
+    // Length-prefixed so values containing the separator cannot shift field boundaries
+    private static void field(StringBuilder content, String value) {
+        if (value == null) {
+            content.append("-1:");
+        } else {
+            content.append(value.length()).append(':').append(value);
+        }
+        content.append('|');
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.redhat.healthcare.claims.duplicate;
+
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.claims.domain.repository.ClaimRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hl7.fhir.r4.model.Claim;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Duplicate lookups by content fingerprint. The persistent index is claims.content_fingerprint, and the
+ * create-time check always queries it, under a transaction lock on the fingerprint so that concurrent
+ * submissions of the same claim, on any replica, are checked one after the other.
+ * <p>
+ * Batch adjudication first asks an in-memory Bloom filter, which answers "never seen" without touching the
+ * database. The filter is loaded at startup and rebuilt every rebuild-interval. Between rebuilds it picks up
+ * fingerprints written on any replica every refresh-interval, re-reading refresh-overlap back so that late
+ * commits are not missed. Until the first load every check goes to the database.
+ */
+@ApplicationScoped
+public class DuplicateClaimIndex {
+
+    private static final Logger LOG = Logger.getLogger(DuplicateClaimIndex.class);
+
+    public enum OnCreate {
+        REJECT,
+        FLAG,
+        OFF
+    }
+
+    @ConfigProperty(name = "claims.duplicates.on-create", defaultValue = "reject")
+    String onCreate;
+
+    @ConfigProperty(name = "claims.duplicates.expected-claims", defaultValue = "1000000")
+    long expectedClaims;
+
+    @ConfigProperty(name = "claims.duplicates.false-positive-rate", defaultValue = "0.01")
+    double falsePositiveRate;
+
+    @ConfigProperty(name = "claims.duplicates.refresh-overlap", defaultValue = "PT1M")
+    Duration refreshOverlap;
+
+    @Inject
+    ClaimRepository repository;
+
+    @Inject
+    IParser jsonParser;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    // Null until loaded at startup; until then every check goes to the database
+    private volatile BloomFilter filter;
+    // The filter being loaded, which receives every add meanwhile
+    private volatile BloomFilter loading;
+    // Fingerprints written before this time are in the filter, unless their transaction committed later
+    private LocalDateTime loadedThrough;
+    private Counter bloomNegatives;
+    private Counter indexLookups;
+    private Counter duplicatesFound;
+
+    @PostConstruct
+    void init() {
+        bloomNegatives = Counter.builder("claims.duplicates.checks").tag("path", "bloom-negative")
+            .description("Duplicate checks answered by the Bloom filter alone").register(registry);
+        indexLookups = Counter.builder("claims.duplicates.checks").tag("path", "index-lookup")
+            .description("Duplicate checks that needed a fingerprint index query").register(registry);
+        duplicatesFound = Counter.builder("claims.duplicates.found")
+            .description("Fingerprint matches against an existing claim").register(registry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        int backfilled = backfill();
+        BloomFilter loaded = rebuild();
+        LOG.infof("Duplicate index: %d fingerprints backfilled, Bloom filter %d bits / %d hashes",
+            backfilled, loaded.bitCount(), loaded.hashCount());
+    }
+
+    @Scheduled(every = "{claims.duplicates.rebuild-interval}", delayed = "{claims.duplicates.rebuild-interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Loads a new filter from the index and swaps it in, dropping fingerprints of deleted claims.
+     */
+    synchronized BloomFilter rebuild() {
+        LocalDateTime started = LocalDateTime.now();
+        long count = QuarkusTransaction.requiringNew().call(repository::countFingerprints);
+        BloomFilter loaded = BloomFilter.create(Math.max(expectedClaims, count * 2), falsePositiveRate);
+        loading = loaded;
+        try {
+            QuarkusTransaction.requiringNew().run(() -> repository.forEachFingerprint(loaded::add));
+        } finally {
+            loading = null;
+        }
+        filter = loaded;
+        loadedThrough = started;
+        return loaded;
+    }
+
+    /**
+     * Adds the fingerprints written since the last load or refresh, on this replica or any other.
+     */
+    @Scheduled(every = "{claims.duplicates.refresh-interval}", delayed = "{claims.duplicates.refresh-interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    synchronized void refresh() {
+        BloomFilter current = filter;
+        if (current == null) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        LocalDateTime since = loadedThrough.minus(refreshOverlap);
+        QuarkusTransaction.requiringNew().run(() -> repository.forEachFingerprintSince(since, current::add));
+        loadedThrough = started;
+    }
+
+    public OnCreate onCreate() {
+        return OnCreate.valueOf(onCreate.trim().toUpperCase());
+    }
+
+    /**
+     * The oldest active, non-denied claim other than excludeId with this fingerprint, if any, read from the
+     * index. Holds a lock on the fingerprint until the current transaction ends, so a concurrent create of the
+     * same claim waits for this one to commit and then finds it.
+     */
+    public Optional<String> findOriginal(String fingerprint, String excludeId) {
+        indexLookups.increment();
+        repository.lockFingerprint(fingerprint);
+        Optional<String> original = repository.findOriginalByFingerprint(fingerprint, excludeId);
+        original.ifPresent(id -> duplicatesFound.increment());
+        return original;
+    }
+
+    /**
+     * Oldest active, non-denied claim per fingerprint, with one index query for whatever the filter cannot rule out.
+     */
+    public Map<String, String> findOriginals(Collection<String> fingerprints) {
+        BloomFilter current = filter;
+        List<String> candidates = fingerprints.stream()
+            .filter(fingerprint -> current == null || current.mightContain(fingerprint))
+            .distinct()
+            .collect(Collectors.toList());
+        bloomNegatives.increment(fingerprints.size() - candidates.size());
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+        indexLookups.increment(candidates.size());
+        return repository.findOriginalsByFingerprint(candidates);
+    }
+
+    /**
+     * Adds the fingerprint of a claim written by the current transaction once that transaction commits, so a
+     * rolled-back write, such as an async group commit that is then replayed claim by claim, leaves nothing in
+     * the filter.
+     */
+    public void add(String fingerprint) {
+        if (fingerprint == null) {
+            return;
+        }
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            addCommitted(fingerprint);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    addCommitted(fingerprint);
+                }
+            }
+        });
+    }
+
+    private void addCommitted(String fingerprint) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(fingerprint);
+        }
+        BloomFilter next = loading;
+        if (next != null) {
+            next.add(fingerprint);
+        }
+    }
+
+    // Claims stored before fingerprints existed are fingerprinted once, keyset-paged by fhir_id
+    private int backfill() {
+        int total = 0;
+        String after = "";
+        while (true) {
+            String from = after;
+            List<Object[]> rows = QuarkusTransaction.requiringNew().call(() -> {
+                List<Object[]> page = repository.findUnfingerprinted(from, 500);
+                for (Object[] row : page) {
+                    try {
+                        Claim claim = jsonParser.parseResource(Claim.class, (String) row[1]);
+                        repository.setFingerprint((String) row[0], ClaimFingerprint.of(claim));
+                    } catch (RuntimeException e) {
+                        LOG.warnf("Cannot fingerprint Claim/%s: %s", row[0], e.getMessage());
+                    }
+                }
+                return page;
+            });
+            if (rows.isEmpty()) {
+                return total;
+            }
+            total += rows.size();
+            after = (String) rows.get(rows.size() - 1)[0];
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.redhat.healthcare.claims.mapper;
 
 import ca.uhn.fhir.parser.IParser;
 import com.redhat.healthcare.claims.domain.entity.ClaimEntity;
+import com.redhat.healthcare.claims.duplicate.ClaimFingerprint;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.hl7.fhir.r4.model.*;
@@ -13,11 +15,17 @@ import java.time.ZoneId;
 import java.util.Date;
 
 @ApplicationScoped
-public class ClaimMapper {
+public class ClaimMapper implements ResourceMapping<Claim, ClaimEntity> {
 
     @Inject
     IParser jsonParser;
 
+    @Override
+    public Class<Claim> resourceType() {
+        return Claim.class;
+    }
+
+    @Override
     public ClaimEntity toEntity(Claim claim) {
         ClaimEntity entity = new ClaimEntity();
 
@@ -86,13 +94,23 @@ public class ClaimMapper {
             }
         }
 
+        if (claim.hasItem() && claim.getItemFirstRep().getProductOrService().hasCoding()) {
+            entity.procedureCode = claim.getItemFirstRep().getProductOrService().getCodingFirstRep().getCode();
+        }
+
+        entity.contentFingerprint = ClaimFingerprint.of(claim);
         entity.lastUpdated = LocalDateTime.now();
 
         return entity;
     }
 
     public Claim toFhir(ClaimEntity entity) {
-        return jsonParser.parseResource(Claim.class, entity.fhirResource);
+        return toFhir(entity.fhirResource);
+    }
+
+    @Override
+    public Claim toFhir(String fhirResource) {
+        return jsonParser.parseResource(Claim.class, fhirResource);
     }
 
     private LocalDate convertToLocalDate(Date date) {
@@ -0,0 +1,233 @@
+package com.redhat.healthcare.claims.partition;
+
+import com.redhat.healthcare.claims.domain.entity.ClaimPartitionEntity;
+import com.redhat.healthcare.claims.domain.repository.ClaimPartitionRepository;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of claims ahead of time and applies retention.
+ * <p>
+ * Future partitions are created months.ahead in advance, and on demand when a claim's created date falls past
+ * the newest one. Retention detaches partitions older than retention.months with DETACH PARTITION CONCURRENTLY,
+ * which waits for queries using the partition instead of blocking new ones, then moves them to the archive
+ * schema (or drops them) and removes their ids from claim_ids in small batches.
+ */
+@ApplicationScoped
+public class ClaimPartitionManager {
+
+    private static final Logger LOG = Logger.getLogger(ClaimPartitionManager.class);
+
+    private static final int ID_DELETE_BATCH = 10_000;
+
+    public enum RetentionMode {
+        ARCHIVE,
+        DROP
+    }
+
+    @ConfigProperty(name = "claims.partitions.months-ahead", defaultValue = "3")
+    int monthsAhead;
+
+    // Claims dated further ahead than this are rejected rather than creating a run of empty partitions
+    @ConfigProperty(name = "claims.partitions.max-future-months", defaultValue = "12")
+    int maxFutureMonths;
+
+    // 0 keeps every partition attached
+    @ConfigProperty(name = "claims.partitions.retention.months", defaultValue = "0")
+    int retentionMonths;
+
+    @ConfigProperty(name = "claims.partitions.retention.mode", defaultValue = "archive")
+    String retentionMode;
+
+    @ConfigProperty(name = "claims.partitions.retention.archive-schema", defaultValue = "claims_archive")
+    String archiveSchema;
+
+    @Inject
+    ClaimPartitionRepository repository;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    // Range covered by attached partitions; from is null while the unbounded partition of older claims is attached
+    private volatile Coverage coverage;
+
+    record Coverage(LocalDateTime from, LocalDateTime until) {
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        createAhead();
+    }
+
+    @Scheduled(every = "{claims.partitions.maintenance-interval}", delayed = "{claims.partitions.maintenance-interval}",
+               concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledMaintenance() {
+        createAhead();
+        if (retentionMonths > 0) {
+            applyRetention();
+        }
+    }
+
+    /**
+     * Makes sure a partition exists for a claim created at createdDate, creating months on demand.
+     * Throws FhirValidationException when the date is before the retained range or too far ahead.
+     */
+    public void ensurePartition(LocalDateTime createdDate) {
+        Coverage current = coverage != null ? coverage : refresh();
+        if (current.from() != null && createdDate.isBefore(current.from())) {
+            throw new FhirValidationException("Claim.created " + createdDate.toLocalDate() +
+                " is before the retained claims, which start at " + current.from().toLocalDate());
+        }
+        if (!createdDate.isBefore(current.until())) {
+            LocalDateTime latest = monthStart(LocalDateTime.now()).plusMonths(maxFutureMonths + 1L);
+            if (!createdDate.isBefore(latest)) {
+                throw new FhirValidationException("Claim.created " + createdDate.toLocalDate() +
+                    " is more than " + maxFutureMonths + " months in the future");
+            }
+            // Committed on its own so the partition outlives a rollback of the claim insert
+            int created = QuarkusTransaction.requiringNew().call(() -> repository.createThrough(createdDate));
+            if (created > 0) {
+                LOG.infof("Created %d claim partition(s) through %s on demand", created, createdDate.toLocalDate());
+            }
+            refresh();
+        }
+    }
+
+    public void createAhead() {
+        LocalDateTime through = monthStart(LocalDateTime.now()).plusMonths(monthsAhead);
+        int created = QuarkusTransaction.requiringNew().call(() -> repository.createThrough(through));
+        if (created > 0) {
+            LOG.infof("Created %d claim partition(s) through %s", created, through.toLocalDate());
+        }
+        refresh();
+    }
+
+    /**
+     * Detaches and archives (or drops) every partition that ends on or before the retention cutoff.
+     * Returns the number of partitions retired.
+     */
+    public int applyRetention() {
+        LocalDateTime cutoff = monthStart(LocalDateTime.now()).minusMonths(retentionMonths);
+        List<ClaimPartitionEntity> expired = QuarkusTransaction.requiringNew().call(() -> repository.findExpired(cutoff));
+
+        int detached = 0;
+        for (ClaimPartitionEntity partition : expired) {
+            try {
+                detach(partition.partitionName);
+            } catch (SQLException e) {
+                LOG.errorf(e, "Cannot detach claim partition %s", partition.partitionName);
+                break;
+            }
+            QuarkusTransaction.requiringNew().run(
+                () -> repository.markDetached(partition.partitionName, LocalDateTime.now()));
+            LOG.infof("Detached claim partition %s (claims before %s)", partition.partitionName,
+                partition.rangeEnd.toLocalDate());
+            detached++;
+        }
+        refresh();
+
+        // Includes partitions left detached but not archived by an interrupted earlier run
+        List<ClaimPartitionEntity> unarchived = QuarkusTransaction.requiringNew().call(repository::findUnarchived);
+        for (ClaimPartitionEntity partition : unarchived) {
+            try {
+                removeIds(partition);
+                archive(partition.partitionName);
+            } catch (SQLException e) {
+                LOG.errorf(e, "Cannot archive claim partition %s", partition.partitionName);
+            }
+        }
+        return detached;
+    }
+
+    private void detach(String partitionName) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            // DETACH ... CONCURRENTLY cannot run inside a transaction block
+            connection.setAutoCommit(true);
+            Boolean pending = detachPending(connection, partitionName);
+            if (pending == null) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                // A detach interrupted part-way leaves the partition pending until it is finalized
+                statement.execute("ALTER TABLE claims DETACH PARTITION " + quote(partitionName) +
+                    (pending ? " FINALIZE" : " CONCURRENTLY"));
+            }
+        }
+    }
+
+    // null when the table is no longer a partition of claims
+    private static Boolean detachPending(Connection connection, String partitionName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT inhdetachpending FROM pg_inherits " +
+                "WHERE inhrelid = to_regclass(?) AND inhparent = to_regclass('claims')")) {
+            statement.setString(1, quote(partitionName));
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getBoolean(1) : null;
+            }
+        }
+    }
+
+    // Short transactions so claim_ids is never locked for the whole partition at once
+    private void removeIds(ClaimPartitionEntity partition) {
+        int removed;
+        do {
+            removed = QuarkusTransaction.requiringNew().call(
+                () -> repository.deleteIds(partition.rangeStart, partition.rangeEnd, ID_DELETE_BATCH));
+        } while (removed == ID_DELETE_BATCH);
+    }
+
+    private void archive(String partitionName) throws SQLException {
+        RetentionMode mode = RetentionMode.valueOf(retentionMode.trim().toUpperCase());
+        String archivedAs;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            // The table is detached, so these locks only touch the archived partition
+            if (mode == RetentionMode.DROP) {
+                statement.execute("DROP TABLE IF EXISTS " + quote(partitionName));
+                archivedAs = ClaimPartitionEntity.DROPPED;
+            } else {
+                statement.execute("CREATE SCHEMA IF NOT EXISTS " + quote(archiveSchema));
+                statement.execute("ALTER TABLE IF EXISTS " + quote(partitionName) + " SET SCHEMA " + quote(archiveSchema));
+                archivedAs = archiveSchema + "." + partitionName;
+            }
+        }
+        QuarkusTransaction.requiringNew().run(() -> repository.markArchived(partitionName, archivedAs));
+        LOG.infof("Retired claim partition %s as %s", partitionName, archivedAs);
+    }
+
+    private Coverage refresh() {
+        List<ClaimPartitionEntity> attached = QuarkusTransaction.requiringNew().call(repository::findAttached);
+        if (attached.isEmpty()) {
+            throw new IllegalStateException("claims has no attached partitions");
+        }
+        ClaimPartitionEntity oldest = attached.get(0);
+        Coverage refreshed = new Coverage(oldest.rangeStart, attached.get(attached.size() - 1).rangeEnd);
+        coverage = refreshed;
+        return refreshed;
+    }
+
+    private static LocalDateTime monthStart(LocalDateTime time) {
+        return time.toLocalDate().with(TemporalAdjusters.firstDayOfMonth()).atStartOfDay();
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
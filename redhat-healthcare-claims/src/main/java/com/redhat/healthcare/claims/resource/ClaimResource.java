@@ -1,22 +1,46 @@
 package com.redhat.healthcare.claims.resource;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.claims.adjudication.AdjudicationEngine;
+import com.redhat.healthcare.claims.async.ClaimAsyncWriter;
+import com.redhat.healthcare.claims.dto.AdjudicationRun;
 import com.redhat.healthcare.claims.dto.ClaimSearchCriteria;
+import com.redhat.healthcare.claims.dto.ProviderAnomaly;
+import com.redhat.healthcare.claims.search.ClaimSearchParameters;
 import com.redhat.healthcare.claims.service.ClaimService;
+import com.redhat.healthcare.fhir.async.AsyncRequestStatus;
+import com.redhat.healthcare.fhir.chain.ChainedParameters;
+import com.redhat.healthcare.fhir.chain.ChainedSearchResolver;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.rest.FhirBinaryEncodingFilter;
+import com.redhat.healthcare.fhir.rest.ResourceResponses;
+import com.redhat.healthcare.fhir.rest.SearchBundleWriter;
+import com.redhat.healthcare.fhir.search.DateRangeParameter;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
+import com.redhat.healthcare.fhir.search.SearchIndexQuery;
+import com.redhat.healthcare.fhir.search.SearchParamType;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Parameters;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Path("/fhir/Claim")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, FhirBinaryEncodingFilter.FHIR_CBOR, FhirBinaryEncodingFilter.FHIR_SMILE})
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "Claim", description = "FHIR Claim Resource Operations")
 public class ClaimResource {
@@ -27,10 +51,24 @@ public class ClaimResource {
     @Inject
     IParser jsonParser;
 
+    @Inject
+    AdjudicationEngine adjudicationEngine;
+
+    @Inject
+    ChainedSearchResolver chainResolver;
+
+    @Inject
+    ClaimAsyncWriter asyncWriter;
+
     @POST
-    @Operation(summary = "Create a new Claim resource")
-    public Response create(String claimJson) {
+    @Operation(summary = "Create a new Claim resource",
+               description = "With Prefer: respond-async the claim is validated, queued and answered with 202; " +
+                             "Content-Location points at the status to poll")
+    public Response create(@HeaderParam("Prefer") String prefer, String claimJson) {
         Claim claim = jsonParser.parseResource(Claim.class, claimJson);
+        if (ClaimAsyncWriter.prefersAsync(prefer) && asyncWriter.accepting()) {
+            return accepted(asyncWriter.submitCreate(claim), "create of Claim/" + claim.getIdElement().getIdPart());
+        }
         Claim created = claimService.createClaim(claim);
 
         String location = "/fhir/Claim/" + created.getIdElement().getIdPart();
@@ -41,6 +79,32 @@ public class ClaimResource {
             .build();
     }
 
+    @POST
+    @Path("/$adjudicate")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Adjudicate pending draft/active claims now",
+               description = "Runs the rule pipeline over up to limit unadjudicated claims (default 1000) and " +
+                             "returns decision counts and throughput. The same run also happens on a schedule.")
+    public AdjudicationRun adjudicate(@QueryParam("limit") @DefaultValue("1000") int limit) {
+        if (limit <= 0) {
+            throw new FhirValidationException("limit must be positive");
+        }
+        return adjudicationEngine.adjudicate(limit);
+    }
+
+    @GET
+    @Path("/$anomalous-providers")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Providers whose claim amounts sit furthest above their peer groups",
+               description = "Scores come from streaming per-procedure statistics over the configured window; " +
+                             "score is the provider's mean z-score times the square root of its claim count")
+    public List<ProviderAnomaly> anomalousProviders(@QueryParam("limit") @DefaultValue("20") int limit) {
+        if (limit <= 0) {
+            throw new FhirValidationException("limit must be positive");
+        }
+        return claimService.getAnomalousProviders(limit);
+    }
+
     @GET
     @Path("/{id}")
     @Operation(summary = "Read a Claim resource by ID")
@@ -51,14 +115,42 @@ public class ClaimResource {
 
     @PUT
     @Path("/{id}")
-    @Operation(summary = "Update a Claim resource")
-    public Response update(@PathParam("id") String id, String claimJson) {
+    @Operation(summary = "Update a Claim resource",
+               description = "Prefer: respond-async answers with 202 once the update is queued")
+    public Response update(@PathParam("id") String id, @HeaderParam("Prefer") String prefer, String claimJson) {
         Claim claim = jsonParser.parseResource(Claim.class, claimJson);
+        if (ClaimAsyncWriter.prefersAsync(prefer) && asyncWriter.accepting()) {
+            return accepted(asyncWriter.submitUpdate(id, claim), "update of Claim/" + id);
+        }
         Claim updated = claimService.updateClaim(id, claim);
 
         return Response.ok(jsonParser.encodeResourceToString(updated)).build();
     }
 
+    @GET
+    @Path("/$async-status/{requestId}")
+    @Operation(summary = "Status of a Prefer: respond-async write",
+               description = "202 while queued; then 200 with a batch-response Bundle carrying the write's " +
+                             "status, location or OperationOutcome")
+    public Response asyncStatus(@PathParam("requestId") String requestId) {
+        Optional<AsyncRequestStatus> status = asyncWriter.status(requestId);
+        if (status.isEmpty()) {
+            return Response.accepted().header("X-Progress", "queued").build();
+        }
+        return Response.ok(jsonParser.encodeResourceToString(status.get().toBundle())).build();
+    }
+
+    private Response accepted(String requestId, String description) {
+        OperationOutcome outcome = new OperationOutcome();
+        outcome.addIssue()
+            .setSeverity(OperationOutcome.IssueSeverity.INFORMATION)
+            .setCode(OperationOutcome.IssueType.INFORMATIONAL)
+            .setDiagnostics("Accepted for asynchronous " + description);
+        return Response.accepted(jsonParser.encodeResourceToString(outcome))
+            .header("Content-Location", "/fhir/Claim/$async-status/" + requestId)
+            .build();
+    }
+
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a Claim resource (soft delete)")
@@ -67,16 +159,60 @@ public class ClaimResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/$delete")
+    @Operation(summary = "Delete many Claim resources (soft delete)",
+               description = "Deletes the claims named by the id parameters of a Parameters resource in one " +
+                             "statement. The batch-response Bundle has one entry per id: 204, or 404 when the " +
+                             "claim is unknown or already deleted.")
+    public Response deleteBatch(String parametersJson) {
+        List<String> ids = ResourceResponses.deleteIds(jsonParser.parseResource(Parameters.class, parametersJson));
+        Map<String, Long> deleted = claimService.deleteClaims(ids);
+        Bundle outcome = ResourceResponses.deleteOutcome("Claim", ids, deleted);
+        return Response.ok(jsonParser.encodeResourceToString(outcome)).build();
+    }
+
+    @POST
+    @Path("/$counts")
+    @Operation(summary = "Count Claim resources per patient or provider",
+               description = "Counts the active claims of each reference parameter of a Parameters resource in one " +
+                             "grouped query. group-by (patient or provider) names the reference counted by and " +
+                             "status narrows the claims counted. The answer has one count parameter per reference, " +
+                             "in request order, with reference and count parts.")
+    public Response counts(String parametersJson) {
+        Parameters parameters = jsonParser.parseResource(Parameters.class, parametersJson);
+        List<String> references = ResourceResponses.countReferences(parameters);
+        ClaimSearchCriteria criteria = new ClaimSearchCriteria();
+        criteria.setStatus(ResourceResponses.parameter(parameters, "status"));
+        Map<String, Long> counts = claimService.countClaimsBy(
+            ResourceResponses.parameter(parameters, "group-by"), references, criteria);
+        return Response.ok(jsonParser.encodeResourceToString(ResourceResponses.countsOutcome(references, counts)))
+            .build();
+    }
+
     @GET
     @Operation(summary = "Search for Claim resources",
-               description = "Search using FHIR parameters: identifier, patient, provider, insurer, status, use")
+               description = "Search using FHIR parameters: identifier, patient, provider, insurer, status, use, " +
+                             "billable-period and created (date prefixes eq, ge, gt, le, lt, sa, eb); priority, " +
+                             "item-code (token), care-team, encounter, enterer, facility, payee (reference) and " +
+                             "total (quantity) from the search index tables. Date and index parameters combine " +
+                             "with each other and with patient, provider, status, which also combine with each " +
+                             "other. Chained patient.<param> " +
+                             "(identifier, family, given, birthdate) and provider.<param> (Practitioner " +
+                             "parameters) are resolved against the patient and practitioner services. " +
+                             "_summary (true, data, count) and _elements return projections computed in the database")
     public Response search(
         @QueryParam("identifier") String identifier,
         @QueryParam("patient") String patient,
         @QueryParam("provider") String provider,
         @QueryParam("insurer") String insurer,
         @QueryParam("status") String status,
-        @QueryParam("use") String use
+        @QueryParam("use") String use,
+        @QueryParam("billable-period") List<String> billablePeriod,
+        @QueryParam("created") List<String> created,
+        @QueryParam("_summary") String summary,
+        @QueryParam("_elements") String elements,
+        @Context UriInfo uriInfo
     ) {
         ClaimSearchCriteria criteria = new ClaimSearchCriteria();
         criteria.setIdentifier(identifier);
@@ -85,19 +221,51 @@ public class ClaimResource {
         criteria.setInsurer(insurer);
         criteria.setStatus(status);
         criteria.setUse(use);
+        try {
+            if (billablePeriod != null && !billablePeriod.isEmpty()) {
+                criteria.setBillablePeriod(DateRangeParameter.parse("billable-period", billablePeriod));
+            }
+            if (created != null && !created.isEmpty()) {
+                criteria.setCreated(DateRangeParameter.parse("created", created));
+            }
+            for (Map.Entry<String, List<String>> param : uriInfo.getQueryParameters().entrySet()) {
+                SearchParamType type = ClaimSearchParameters.INDEXED.get(param.getKey().split(":", 2)[0]);
+                if (type != null) {
+                    // Parsed here so a malformed value is a 400 rather than a failure building the query
+                    SearchIndexQuery.toSql(ClaimSearchParameters.RESOURCE_PREFIX, param.getKey(), type,
+                        param.getValue(), "sp", new HashMap<>());
+                    criteria.getIndexedParams().put(param.getKey(), param.getValue());
+                }
+            }
+            Map<String, Map<String, List<String>>> chains = ChainedParameters.parse(ClaimSearchParameters.CHAINS,
+                uriInfo.getQueryParameters());
+            if (!chains.isEmpty()) {
+                criteria.setChainedReferences(chainResolver.resolve(ClaimSearchParameters.CHAINS, chains));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new FhirValidationException(e.getMessage());
+        }
 
-        List<Claim> claims = claimService.searchClaims(criteria);
-
-        Bundle bundle = new Bundle();
-        bundle.setType(Bundle.BundleType.SEARCHSET);
-        bundle.setTotal(claims.size());
-
-        claims.forEach(claim -> {
-            Bundle.BundleEntryComponent entry = bundle.addEntry();
-            entry.setResource(claim);
-            entry.setFullUrl("/fhir/Claim/" + claim.getIdElement().getIdPart());
-        });
+        ProjectionCriteria projection = ProjectionCriteria.parse(summary, elements);
+        if (projection.getMode() == ProjectionCriteria.Mode.COUNT) {
+            Bundle bundle = new Bundle();
+            bundle.setType(Bundle.BundleType.SEARCHSET);
+            bundle.setTotal((int) claimService.countClaims(criteria));
+            return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        } else if (projection.getMode() != ProjectionCriteria.Mode.FULL) {
+            StreamingOutput body = out -> {
+                SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+                claimService.searchClaimsProjected(criteria, projection, bundle::entry);
+                bundle.finish();
+            };
+            return Response.ok(body).build();
+        }
 
-        return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        StreamingOutput body = out -> {
+            SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+            claimService.searchClaims(criteria, bundle::match);
+            bundle.finish();
+        };
+        return Response.ok(body).build();
     }
 }
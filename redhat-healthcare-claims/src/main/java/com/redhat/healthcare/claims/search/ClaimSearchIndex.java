@@ -0,0 +1,74 @@
+package com.redhat.healthcare.claims.search;
+
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.claims.domain.entity.ClaimEntity;
+import com.redhat.healthcare.claims.domain.repository.ClaimRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Claim;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Maintains the claim_idx_* search index tables. Rows are replaced in the same transaction as the claim write;
+ * claims.search_index_version records which extraction produced them, and rows left NULL (stored before the
+ * index existed, or reset by a migration after the extraction changes) are indexed at startup.
+ */
+@ApplicationScoped
+public class ClaimSearchIndex {
+
+    private static final Logger LOG = Logger.getLogger(ClaimSearchIndex.class);
+
+    // Bump, and reset claims.search_index_version to NULL in a migration, when ClaimSearchParameters changes
+    public static final short VERSION = 1;
+
+    @Inject
+    ClaimRepository repository;
+
+    @Inject
+    IParser jsonParser;
+
+    void onStart(@Observes StartupEvent event) {
+        int indexed = reindex();
+        if (indexed > 0) {
+            LOG.infof("Search index: indexed %d existing claims", indexed);
+        }
+    }
+
+    public void index(ClaimEntity entity, Claim claim) {
+        repository.replaceSearchIndex(entity.fhirId, ClaimSearchParameters.extract(claim));
+        entity.searchIndexVersion = VERSION;
+    }
+
+    // Keyset-paged by fhir_id, one short transaction per page
+    private int reindex() {
+        int total = 0;
+        String after = "";
+        while (true) {
+            String from = after;
+            List<Object[]> rows = QuarkusTransaction.requiringNew().call(() -> {
+                List<Object[]> page = repository.findUnindexed(from, 500);
+                for (Object[] row : page) {
+                    String fhirId = (String) row[0];
+                    try {
+                        Claim claim = jsonParser.parseResource(Claim.class, (String) row[1]);
+                        repository.replaceSearchIndex(fhirId, ClaimSearchParameters.extract(claim));
+                        repository.setSearchIndexVersion(fhirId, VERSION);
+                    } catch (RuntimeException e) {
+                        LOG.warnf("Cannot index Claim/%s: %s", fhirId, e.getMessage());
+                    }
+                }
+                return page;
+            });
+            if (rows.isEmpty()) {
+                return total;
+            }
+            total += rows.size();
+            after = (String) rows.get(rows.size() - 1)[0];
+        }
+    }
+}
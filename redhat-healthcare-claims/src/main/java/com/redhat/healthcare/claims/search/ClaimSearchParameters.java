@@ -0,0 +1,74 @@
+package com.redhat.healthcare.claims.search;
+
+import com.redhat.healthcare.fhir.search.ExtractedSearchParams;
+import com.redhat.healthcare.fhir.search.SearchParamType;
+import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.Money;
+import org.hl7.fhir.r4.model.Reference;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Claim search parameters served from the claim_idx_* tables, and their extraction. Parameters with an
+ * extracted column on claims (identifier, patient, provider, insurer, status, use, created, billable-period)
+ * are searched there and are not duplicated into the index tables.
+ */
+public final class ClaimSearchParameters {
+
+    public static final String RESOURCE_PREFIX = "claim";
+
+    // Claim reference parameter -> resource type it is chained to
+    public static final Map<String, String> CHAINS = Map.of(
+        "patient", "Patient",
+        "provider", "Practitioner"
+    );
+
+    public static final Map<String, SearchParamType> INDEXED = Map.of(
+        "priority", SearchParamType.TOKEN,
+        "item-code", SearchParamType.TOKEN,
+        "care-team", SearchParamType.REFERENCE,
+        "encounter", SearchParamType.REFERENCE,
+        "enterer", SearchParamType.REFERENCE,
+        "facility", SearchParamType.REFERENCE,
+        "payee", SearchParamType.REFERENCE,
+        "total", SearchParamType.QUANTITY
+    );
+
+    // The claim_idx_* tables that exist, one per type in INDEXED
+    public static final Set<SearchParamType> INDEX_TABLES =
+        EnumSet.of(SearchParamType.TOKEN, SearchParamType.REFERENCE, SearchParamType.QUANTITY);
+
+    private static final String CURRENCY_SYSTEM = "urn:iso:std:iso:4217";
+
+    private ClaimSearchParameters() {
+    }
+
+    public static ExtractedSearchParams extract(Claim claim) {
+        ExtractedSearchParams params = new ExtractedSearchParams();
+
+        params.token("priority", claim.getPriority());
+        for (Claim.ItemComponent item : claim.getItem()) {
+            params.token("item-code", item.getProductOrService());
+            for (Reference encounter : item.getEncounter()) {
+                params.reference("encounter", encounter);
+            }
+        }
+
+        for (Claim.CareTeamComponent member : claim.getCareTeam()) {
+            params.reference("care-team", member.getProvider());
+        }
+        params.reference("enterer", claim.getEnterer());
+        params.reference("facility", claim.getFacility());
+        if (claim.hasPayee()) {
+            params.reference("payee", claim.getPayee().getParty());
+        }
+
+        if (claim.hasTotal()) {
+            Money total = claim.getTotal();
+            params.quantity("total", total.getValue(), CURRENCY_SYSTEM, total.getCurrency());
+        }
+        return params;
+    }
+}
@@ -1,23 +1,44 @@
 package com.redhat.healthcare.claims.service;
 
+import com.redhat.healthcare.claims.anomaly.ClaimScored;
+import com.redhat.healthcare.claims.anomaly.ProviderAnomalyDetector;
 import com.redhat.healthcare.claims.domain.entity.ClaimEntity;
 import com.redhat.healthcare.claims.domain.repository.ClaimRepository;
 import com.redhat.healthcare.claims.dto.ClaimSearchCriteria;
-import com.redhat.healthcare.claims.exception.ResourceNotFoundException;
+import com.redhat.healthcare.claims.dto.ProviderAnomaly;
+import com.redhat.healthcare.claims.duplicate.ClaimFingerprint;
+import com.redhat.healthcare.claims.duplicate.DuplicateClaimIndex;
 import com.redhat.healthcare.claims.mapper.ClaimMapper;
+import com.redhat.healthcare.claims.partition.ClaimPartitionManager;
+import com.redhat.healthcare.claims.search.ClaimSearchIndex;
+import com.redhat.healthcare.fhir.exception.DuplicateResourceException;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.integrity.ReferenceValidator;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.Reference;
 
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class ClaimService {
 
+    static final String CLAIM_FLAG_SYSTEM = "http://redhat.com/fhir/CodeSystem/claim-flag";
+    static final String DUPLICATE_OF_URL = "http://redhat.com/fhir/StructureDefinition/duplicate-of";
+
     @Inject
     ClaimRepository repository;
 
@@ -30,9 +51,42 @@ public class ClaimService {
     @Inject
     ClaimMapper mapper;
 
+    @Inject
+    DuplicateClaimIndex duplicateIndex;
+
+    @Inject
+    ProviderAnomalyDetector anomalyDetector;
+
+    @Inject
+    Event<ClaimScored> claimScored;
+
+    @Inject
+    ClaimPartitionManager partitionManager;
+
+    @Inject
+    ClaimSearchIndex searchIndex;
+
+    @Inject
+    ReferenceValidator referenceValidator;
+
+    @ConfigProperty(name = "fhir.delete.max-ids", defaultValue = "1000")
+    int deleteMaxIds;
+
+    @ConfigProperty(name = "fhir.counts.max-references", defaultValue = "1000")
+    int countsMaxReferences;
+
     @Transactional
     public Claim createClaim(Claim claim) {
         validationService.validateOrThrow(claim);
+        return createValidatedClaim(claim);
+    }
+
+    /**
+     * Creates a claim that already passed FHIR validation, e.g. one accepted earlier for an asynchronous write.
+     */
+    @Transactional
+    public Claim createValidatedClaim(Claim claim) {
+        referenceValidator.validate(claim.getPatient().getReference(), claim.getProvider().getReference());
 
         if (claim.getId() == null || claim.getId().isEmpty()) {
             claim.setId(parserService.generateId());
@@ -44,12 +98,28 @@ public class ClaimService {
         claim.getMeta().setVersionId("1");
         claim.getMeta().setLastUpdated(new Date());
 
+        String duplicateOf = checkDuplicate(claim);
+
         ClaimEntity entity = mapper.toEntity(claim);
         entity.versionId = 1L;
         entity.createdAt = LocalDateTime.now();
         entity.lastUpdated = LocalDateTime.now();
+        entity.duplicateOf = duplicateOf;
+        // created_date is the partition key
+        if (entity.createdDate == null) {
+            entity.createdDate = entity.createdAt;
+        }
+        partitionManager.ensurePartition(entity.createdDate);
+
+        String peerGroup = ProviderAnomalyDetector.peerGroup(entity);
+        entity.anomalyScore = anomalyDetector.score(peerGroup, entity.totalValue, entity.createdAt);
 
         repository.persist(entity);
+        searchIndex.index(entity, claim);
+        // Neither reaches the Bloom filter or the peer statistics unless this transaction commits
+        duplicateIndex.add(entity.contentFingerprint);
+        claimScored.fire(new ClaimScored(
+            entity.providerReference, peerGroup, entity.totalValue, entity.anomalyScore, entity.createdAt));
 
         return claim;
     }
@@ -60,6 +130,23 @@ public class ClaimService {
             .orElseThrow(() -> new ResourceNotFoundException("Claim/" + id));
 
         validationService.validateOrThrow(claim);
+        return update(existing, claim);
+    }
+
+    /**
+     * Updates Claim/id with a claim that already passed FHIR validation.
+     */
+    @Transactional
+    public Claim updateValidatedClaim(String id, Claim claim) {
+        ClaimEntity existing = repository.findByFhirId(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Claim/" + id));
+
+        return update(existing, claim);
+    }
+
+    private Claim update(ClaimEntity existing, Claim claim) {
+        String id = existing.fhirId;
+        referenceValidator.validate(claim.getPatient().getReference(), claim.getProvider().getReference());
 
         claim.setId(id);
 
@@ -90,53 +177,139 @@ public class ClaimService {
         existing.totalCurrency = updated.totalCurrency;
         existing.billablePeriodStart = updated.billablePeriodStart;
         existing.billablePeriodEnd = updated.billablePeriodEnd;
+        existing.contentFingerprint = updated.contentFingerprint;
         existing.versionId = newVersion;
         existing.lastUpdated = LocalDateTime.now();
+        // A resubmitted claim goes back through adjudication
+        existing.adjudicationOutcome = null;
+        existing.adjudicationReasons = null;
+        existing.adjudicatedAt = null;
 
         // Panache will automatically persist changes to the managed entity
+        searchIndex.index(existing, claim);
+        duplicateIndex.add(updated.contentFingerprint);
 
         return claim;
     }
 
+    /**
+     * Rejects a resubmitted claim, or tags it as a suspected duplicate, per claims.duplicates.on-create.
+     * Returns the id of the original claim when the claim is kept despite matching it.
+     */
+    private String checkDuplicate(Claim claim) {
+        DuplicateClaimIndex.OnCreate mode = duplicateIndex.onCreate();
+        if (mode == DuplicateClaimIndex.OnCreate.OFF) {
+            return null;
+        }
+        String original = duplicateIndex
+            .findOriginal(ClaimFingerprint.of(claim), claim.getIdElement().getIdPart())
+            .orElse(null);
+        if (original == null) {
+            return null;
+        }
+        if (mode == DuplicateClaimIndex.OnCreate.REJECT) {
+            throw new DuplicateResourceException(
+                "Claim duplicates Claim/" + original + " (same patient, provider, billable period, items and total)");
+        }
+        claim.getMeta().addTag(CLAIM_FLAG_SYSTEM, "suspected-duplicate", "Suspected duplicate");
+        claim.addExtension(DUPLICATE_OF_URL, new Reference("Claim/" + original));
+        return original;
+    }
+
     public Claim getClaim(String id) {
-        ClaimEntity entity = repository.findByFhirId(id)
+        String resource = repository.findResourceByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Claim/" + id));
 
-        return mapper.toFhir(entity);
+        return mapper.toFhir(resource);
     }
 
     @Transactional
     public void deleteClaim(String id) {
-        if (!repository.findByFhirId(id).isPresent()) {
+        if (repository.softDelete(List.of(id)).isEmpty()) {
             throw new ResourceNotFoundException("Claim/" + id);
         }
-        repository.softDelete(id);
     }
 
-    public List<Claim> searchClaims(ClaimSearchCriteria criteria) {
-        List<ClaimEntity> entities;
+    /**
+     * Deletes many claims with one statement. Returns the new version of each deleted claim; ids that are unknown or
+     * already deleted are absent.
+     */
+    @Transactional
+    public Map<String, Long> deleteClaims(List<String> ids) {
+        if (ids.size() > deleteMaxIds) {
+            throw new FhirValidationException("At most " + deleteMaxIds + " ids can be deleted at once");
+        }
+        return repository.softDelete(ids);
+    }
+
+    /**
+     * Passes each match to matches as it is fetched. Runs in a read-only transaction so the driver can fetch
+     * the matches through a cursor while they are parsed.
+     */
+    @Transactional
+    public void searchClaims(ClaimSearchCriteria criteria, Consumer<Claim> matches) {
+        repository.readOnly();
+        try (Stream<String> resources = findResources(criteria)) {
+            resources.map(mapper::toFhir).forEach(matches);
+        }
+    }
 
-        if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
-            entities = repository.findByIdentifier(
+    private Stream<String> findResources(ClaimSearchCriteria criteria) {
+        if (criteria.isCombined()) {
+            return repository.findCombined(criteria);
+        } else if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
+            return repository.findByIdentifier(
                 criteria.getIdentifierSystem(),
                 criteria.getIdentifier()
             );
         } else if (criteria.getPatient() != null && !criteria.getPatient().isEmpty()) {
-            entities = repository.findByPatient(criteria.getPatient());
+            return repository.findByPatient(criteria.getPatient());
         } else if (criteria.getProvider() != null && !criteria.getProvider().isEmpty()) {
-            entities = repository.findByProvider(criteria.getProvider());
+            return repository.findByProvider(criteria.getProvider());
         } else if (criteria.getInsurer() != null && !criteria.getInsurer().isEmpty()) {
-            entities = repository.findByInsurer(criteria.getInsurer());
+            return repository.findByInsurer(criteria.getInsurer());
         } else if (criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
-            entities = repository.findByStatus(criteria.getStatus());
+            return repository.findByStatus(criteria.getStatus());
         } else if (criteria.getUse() != null && !criteria.getUse().isEmpty()) {
-            entities = repository.findByUse(criteria.getUse());
-        } else {
-            entities = repository.findAllActive();
+            return repository.findByUse(criteria.getUse());
         }
+        return repository.findAllActive();
+    }
+
+    public List<ProviderAnomaly> getAnomalousProviders(int limit) {
+        return anomalyDetector.topProviders(limit);
+    }
 
-        return entities.stream()
-            .map(mapper::toFhir)
-            .collect(Collectors.toList());
+    public long countClaims(ClaimSearchCriteria criteria) {
+        return repository.countActive(criteria);
+    }
+
+    /**
+     * Counts the claims matching criteria for each patient or provider reference with one grouped query, so a
+     * list view gets all its counters from one request. References without claims are absent.
+     */
+    @Transactional
+    public Map<String, Long> countClaimsBy(String groupBy, List<String> references, ClaimSearchCriteria criteria) {
+        if (!"patient".equals(groupBy) && !"provider".equals(groupBy)) {
+            throw new FhirValidationException("$counts group-by must be patient or provider");
+        }
+        if (references.size() > countsMaxReferences) {
+            throw new FhirValidationException(
+                "At most " + countsMaxReferences + " references can be counted at once");
+        }
+        repository.readOnly();
+        return repository.countActiveBy(groupBy, references, criteria);
+    }
+
+    /**
+     * Runs a _summary / _elements search, passing each encoded Bundle entry to entries as it is fetched.
+     * Projection happens in PostgreSQL, so matching rows are never parsed into HAPI model objects.
+     */
+    @Transactional
+    public void searchClaimsProjected(ClaimSearchCriteria criteria, ProjectionCriteria projection, Consumer<String> entries) {
+        repository.readOnly();
+        try (Stream<String> projected = repository.findProjectedEntries(criteria, projection)) {
+            projected.forEach(entries);
+        }
     }
 }
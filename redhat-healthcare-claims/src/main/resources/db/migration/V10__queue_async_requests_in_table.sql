@@ -0,0 +1,20 @@
+-- The async request table becomes the queue itself instead of a journal on the accepting replica's disk:
+-- a request is inserted as queued with its payload, and the writer of whichever replica holds the queue lock
+-- applies it and marks the row done with its outcome in one transaction. Any replica can then answer
+-- $async-status, and accepted writes no longer depend on one pod's volume.
+ALTER TABLE claim_async_requests DROP COLUMN journal_sequence;
+
+ALTER TABLE claim_async_requests
+    ADD COLUMN queue_position BIGSERIAL,
+    ADD COLUMN state VARCHAR(10) NOT NULL DEFAULT 'done',
+    ADD COLUMN payload TEXT,
+    ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0,
+    ALTER COLUMN http_status DROP NOT NULL,
+    ALTER COLUMN completed_at DROP NOT NULL;
+
+ALTER TABLE claim_async_requests ALTER COLUMN state SET DEFAULT 'queued';
+
+CREATE INDEX idx_claim_async_requests_queued ON claim_async_requests(queue_position) WHERE state = 'queued';
+
+COMMENT ON COLUMN claim_async_requests.state IS 'queued until applied or failed, then done';
+COMMENT ON COLUMN claim_async_requests.payload IS 'The submitted resource; cleared once the request is done';
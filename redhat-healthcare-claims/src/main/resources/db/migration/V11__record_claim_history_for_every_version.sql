@@ -0,0 +1,35 @@
+-- claim_history only received a marker row per delete. Every version is now recorded with its resource, by a
+-- trigger on create, on each update that bumps version_id and on the soft delete, whichever path wrote it.
+ALTER TABLE claim_history ADD COLUMN fhir_resource JSONB;
+
+-- Earlier versions are gone; keep what is still known: the current version of every Claim
+UPDATE claim_history h SET fhir_resource = t.fhir_resource
+FROM claims t
+WHERE t.fhir_id = h.fhir_id AND t.version_id = h.version_id;
+
+INSERT INTO claim_history (fhir_id, version_id, operation, recorded_at, fhir_resource)
+SELECT fhir_id, version_id, CASE WHEN active THEN 'UPDATE' ELSE 'DELETE' END, last_updated, fhir_resource
+FROM claims
+ON CONFLICT (fhir_id, version_id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION claims_record_history() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO claim_history (fhir_id, version_id, operation, recorded_at, fhir_resource)
+    VALUES (NEW.fhir_id, NEW.version_id,
+            CASE WHEN TG_OP = 'INSERT' THEN 'CREATE' WHEN NEW.active IS FALSE THEN 'DELETE' ELSE 'UPDATE' END,
+            NEW.last_updated, NEW.fhir_resource)
+    ON CONFLICT (fhir_id, version_id) DO NOTHING;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER claims_history_on_insert
+    AFTER INSERT ON claims
+    FOR EACH ROW EXECUTE FUNCTION claims_record_history();
+
+CREATE TRIGGER claims_history_on_update
+    AFTER UPDATE ON claims
+    FOR EACH ROW WHEN (OLD.version_id IS DISTINCT FROM NEW.version_id)
+    EXECUTE FUNCTION claims_record_history();
+
+COMMENT ON TABLE claim_history IS 'Every Claim version with its resource; versions before V11 only where they were current';
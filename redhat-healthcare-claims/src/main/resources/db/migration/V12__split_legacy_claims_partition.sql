@@ -0,0 +1,56 @@
+-- V6 attached the pre-partitioning table as one partition, claims_legacy, from MINVALUE to the end of the
+-- migration month. Its claims were never pruned by month and retention could only retire all of them at once,
+-- after the newest had expired. Its rows now move into monthly partitions like every later claim. This rewrites
+-- the legacy rows once, under the migration's lock on claims.
+
+ALTER TABLE claims DETACH PARTITION claims_legacy;
+
+DO $$
+DECLARE
+    legacy_end TIMESTAMP;
+    first_month TIMESTAMP;
+    month_start TIMESTAMP;
+    part_name TEXT;
+    column_list TEXT;
+BEGIN
+    SELECT range_end INTO legacy_end FROM claim_partitions WHERE partition_name = 'claims_legacy';
+    DELETE FROM claim_partitions WHERE partition_name = 'claims_legacy';
+
+    -- At least the month before legacy_end, which the legacy partition covered even when empty
+    SELECT least(date_trunc('month', min(created_date)), legacy_end - INTERVAL '1 month')
+    INTO first_month FROM claims_legacy;
+
+    -- Claims backdated before the oldest month keep a partition, which retention retires before that month
+    part_name := 'claims_pre_' || to_char(first_month, 'YYYY_MM');
+    EXECUTE format('CREATE TABLE %I (LIKE claims INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)',
+                   part_name);
+    EXECUTE format('ALTER TABLE claims ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)',
+                   part_name, first_month);
+    INSERT INTO claim_partitions (partition_name, range_start, range_end) VALUES (part_name, NULL, first_month);
+
+    month_start := first_month;
+    WHILE month_start < legacy_end LOOP
+        part_name := 'claims_p' || to_char(month_start, 'YYYY_MM');
+        EXECUTE format('CREATE TABLE %I (LIKE claims INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)',
+                       part_name);
+        EXECUTE format('ALTER TABLE claims ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       part_name, month_start, month_start + INTERVAL '1 month');
+        INSERT INTO claim_partitions (partition_name, range_start, range_end)
+        VALUES (part_name, month_start, month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+
+    -- trg_claims_track_id adds each moved claim back to claim_ids; the history trigger finds every current
+    -- version already recorded (V11) and writes nothing
+    DELETE FROM claim_ids i USING claims_legacy l WHERE i.fhir_id = l.fhir_id;
+
+    -- The generated billable_period_range is recomputed on insert
+    SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) INTO column_list
+    FROM pg_attribute
+    WHERE attrelid = 'claims'::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = '';
+    EXECUTE format('INSERT INTO claims (%s) SELECT %s FROM claims_legacy', column_list, column_list);
+END $$;
+
+DROP TABLE claims_legacy;
+
+COMMENT ON COLUMN claim_partitions.range_start IS 'NULL for the partition of claims older than the first month';
@@ -0,0 +1,15 @@
+-- Adjudication decisions written back by AdjudicationEngine
+ALTER TABLE claims ADD COLUMN adjudication_outcome VARCHAR(20);
+ALTER TABLE claims ADD COLUMN adjudication_reasons TEXT;
+ALTER TABLE claims ADD COLUMN adjudicated_at TIMESTAMP;
+
+ALTER TABLE claims ADD CONSTRAINT ck_adjudication_outcome
+    CHECK (adjudication_outcome IN ('approved', 'pended', 'denied'));
+
+-- Work queue: only claims still waiting for adjudication, in pull order
+CREATE INDEX idx_claim_adjudication_queue ON claims(created_at)
+    WHERE adjudicated_at IS NULL AND active = true AND status IN ('draft', 'active');
+
+COMMENT ON COLUMN claims.adjudication_outcome IS 'approved | pended | denied; NULL until adjudicated';
+COMMENT ON COLUMN claims.adjudication_reasons IS 'Rule messages for pended and denied claims';
+COMMENT ON COLUMN claims.adjudicated_at IS 'When the rule pipeline last decided this claim; reset by PUT';
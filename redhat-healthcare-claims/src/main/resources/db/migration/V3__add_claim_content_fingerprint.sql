@@ -0,0 +1,9 @@
+-- Duplicate detection: SHA-256 of the normalized claim content (see ClaimFingerprint).
+-- Existing rows are fingerprinted by the application at startup.
+ALTER TABLE claims ADD COLUMN content_fingerprint CHAR(64);
+ALTER TABLE claims ADD COLUMN duplicate_of VARCHAR(64);
+
+CREATE INDEX idx_claim_content_fingerprint ON claims(content_fingerprint) WHERE active = true;
+
+COMMENT ON COLUMN claims.content_fingerprint IS 'SHA-256 of patient, provider, billable period, items and total';
+COMMENT ON COLUMN claims.duplicate_of IS 'Original claim when this one was accepted as a suspected duplicate';
@@ -0,0 +1,19 @@
+-- Streaming provider anomaly scoring (see ProviderAnomalyDetector)
+ALTER TABLE claims ADD COLUMN procedure_code VARCHAR(50);
+ALTER TABLE claims ADD COLUMN anomaly_score DOUBLE PRECISION;
+
+UPDATE claims SET procedure_code = fhir_resource -> 'item' -> 0 -> 'productOrService' -> 'coding' -> 0 ->> 'code'
+WHERE fhir_resource -> 'item' IS NOT NULL;
+
+-- Replay of claims created since the last snapshot
+CREATE INDEX idx_claim_created_at ON claims(created_at);
+
+CREATE TABLE claim_anomaly_snapshots (
+    id INTEGER PRIMARY KEY,
+    taken_at TIMESTAMP NOT NULL,
+    state JSONB NOT NULL
+);
+
+COMMENT ON COLUMN claims.procedure_code IS 'Code of item[0].productOrService; the peer group for anomaly scoring';
+COMMENT ON COLUMN claims.anomaly_score IS 'z-score of ln(total) against the peer group when the claim was created';
+COMMENT ON TABLE claim_anomaly_snapshots IS 'Latest serialized anomaly statistics, restored at startup';
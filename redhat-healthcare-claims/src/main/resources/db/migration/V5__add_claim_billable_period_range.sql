@@ -0,0 +1,11 @@
+-- Claim.billablePeriod as a daterange so "period overlaps / contains date" uses a GiST index.
+-- NULL bounds are unbounded; an inverted period (end before start) has no range.
+ALTER TABLE claims ADD COLUMN billable_period_range DATERANGE GENERATED ALWAYS AS (
+    CASE WHEN billable_period_end < billable_period_start THEN NULL
+         ELSE daterange(billable_period_start, billable_period_end, '[]') END
+) STORED;
+
+DROP INDEX IF EXISTS idx_claim_billable_period;
+CREATE INDEX idx_claim_billable_period_range ON claims USING GIST (billable_period_range);
+
+COMMENT ON COLUMN claims.billable_period_range IS 'Inclusive daterange of the billable period, generated; searched with && and @>';
@@ -0,0 +1,139 @@
+-- Monthly range partitioning of claims on created_date (see ClaimPartitionManager).
+-- The existing table is attached as a single partition covering everything up to the end of the current
+-- month, so its rows are scanned once for the new primary key but never rewritten. Monthly partitions follow it.
+
+-- created_date is the partition key and part of the primary key, so it cannot be NULL
+UPDATE claims SET created_date = created_at WHERE created_date IS NULL;
+ALTER TABLE claims ALTER COLUMN created_date SET NOT NULL;
+
+ALTER TABLE claims RENAME TO claims_legacy;
+
+-- Free the index names for the partitioned table; matching indexes are adopted on attach, not rebuilt
+DO $$
+DECLARE
+    idx RECORD;
+BEGIN
+    FOR idx IN SELECT indexname FROM pg_indexes
+               WHERE schemaname = current_schema() AND tablename = 'claims_legacy' LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.indexname, idx.indexname || '_legacy');
+    END LOOP;
+END $$;
+
+CREATE TABLE claims (
+    LIKE claims_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED INCLUDING COMMENTS
+) PARTITION BY RANGE (created_date);
+
+-- A unique constraint on a partitioned table must include the partition key; fhir_id alone is kept
+-- unique through claim_ids below
+ALTER TABLE claims ADD CONSTRAINT claims_pkey PRIMARY KEY (fhir_id, created_date);
+
+CREATE INDEX idx_claim_identifier ON claims(identifier_value);
+CREATE INDEX idx_claim_patient ON claims(patient_reference);
+CREATE INDEX idx_claim_provider ON claims(provider_reference);
+CREATE INDEX idx_claim_insurer ON claims(insurer_reference);
+CREATE INDEX idx_claim_status ON claims(status);
+CREATE INDEX idx_claim_created ON claims(created_date);
+CREATE INDEX idx_claim_active ON claims(active);
+CREATE INDEX idx_claim_last_updated ON claims(last_updated);
+CREATE INDEX idx_claim_fhir_resource ON claims USING GIN(fhir_resource);
+CREATE INDEX idx_claim_adjudication_queue ON claims(created_at)
+    WHERE adjudicated_at IS NULL AND active = true AND status IN ('draft', 'active');
+CREATE INDEX idx_claim_content_fingerprint ON claims(content_fingerprint) WHERE active = true;
+CREATE INDEX idx_claim_created_at ON claims(created_at);
+CREATE INDEX idx_claim_billable_period_range ON claims USING GIST (billable_period_range);
+
+-- Partition registry; range_start NULL means unbounded below (claims_legacy)
+CREATE TABLE claim_partitions (
+    partition_name VARCHAR(63) PRIMARY KEY,
+    range_start TIMESTAMP,
+    range_end TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT localtimestamp,
+    detached_at TIMESTAMP,
+    archived_as VARCHAR(130)
+);
+
+-- The partition must carry the partitioned table's primary key before it can be attached; its own
+-- fhir_id key is replaced rather than kept alongside, since a table has only one primary key
+DO $$
+DECLARE
+    legacy_pkey TEXT;
+BEGIN
+    SELECT conname INTO legacy_pkey FROM pg_constraint
+    WHERE conrelid = 'claims_legacy'::regclass AND contype = 'p';
+    EXECUTE format('ALTER TABLE claims_legacy DROP CONSTRAINT %I', legacy_pkey);
+END $$;
+ALTER TABLE claims_legacy ADD CONSTRAINT claims_legacy_pkey PRIMARY KEY (fhir_id, created_date);
+
+DO $$
+DECLARE
+    legacy_end TIMESTAMP;
+BEGIN
+    -- Future-dated rows (if any) stay in the legacy partition rather than failing the attach
+    SELECT greatest(date_trunc('month', localtimestamp), date_trunc('month', max(created_date))) + INTERVAL '1 month'
+    INTO legacy_end FROM claims_legacy;
+
+    EXECUTE format('ALTER TABLE claims ATTACH PARTITION claims_legacy FOR VALUES FROM (MINVALUE) TO (%L)', legacy_end);
+    INSERT INTO claim_partitions (partition_name, range_start, range_end) VALUES ('claims_legacy', NULL, legacy_end);
+END $$;
+
+-- Global fhir_id uniqueness, and the partition key for lookups by id so they touch one partition
+CREATE TABLE claim_ids (
+    fhir_id VARCHAR(64) PRIMARY KEY,
+    created_date TIMESTAMP NOT NULL
+);
+INSERT INTO claim_ids (fhir_id, created_date) SELECT fhir_id, created_date FROM claims_legacy;
+CREATE INDEX idx_claim_ids_created ON claim_ids(created_date);
+
+CREATE OR REPLACE FUNCTION claims_track_id() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO claim_ids (fhir_id, created_date) VALUES (NEW.fhir_id, NEW.created_date);
+    ELSIF TG_OP = 'UPDATE' THEN
+        IF NEW.fhir_id <> OLD.fhir_id OR NEW.created_date <> OLD.created_date THEN
+            UPDATE claim_ids SET fhir_id = NEW.fhir_id, created_date = NEW.created_date WHERE fhir_id = OLD.fhir_id;
+        END IF;
+    ELSE
+        DELETE FROM claim_ids WHERE fhir_id = OLD.fhir_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_claims_track_id
+    AFTER INSERT OR UPDATE OF fhir_id, created_date OR DELETE ON claims
+    FOR EACH ROW EXECUTE FUNCTION claims_track_id();
+
+-- Creates monthly partitions after the newest one, through the month containing until_ts. Each partition is
+-- created standalone and then attached, which takes SHARE UPDATE EXCLUSIVE on claims rather than the
+-- ACCESS EXCLUSIVE lock of CREATE TABLE ... PARTITION OF, so reads and writes carry on.
+CREATE OR REPLACE FUNCTION claims_create_partitions(until_ts TIMESTAMP) RETURNS INTEGER AS $$
+DECLARE
+    next_start TIMESTAMP;
+    next_end TIMESTAMP;
+    part_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    -- Replicas and the scheduled job may race to create the same month
+    PERFORM pg_advisory_xact_lock(hashtext('claims_create_partitions'));
+
+    SELECT max(range_end) INTO next_start FROM claim_partitions;
+    WHILE next_start <= until_ts LOOP
+        next_end := next_start + INTERVAL '1 month';
+        part_name := 'claims_p' || to_char(next_start, 'YYYY_MM');
+        EXECUTE format('CREATE TABLE %I (LIKE claims INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)',
+                       part_name);
+        EXECUTE format('ALTER TABLE claims ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       part_name, next_start, next_end);
+        INSERT INTO claim_partitions (partition_name, range_start, range_end) VALUES (part_name, next_start, next_end);
+        next_start := next_end;
+        created := created + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT claims_create_partitions(date_trunc('month', localtimestamp) + INTERVAL '3 months');
+
+COMMENT ON TABLE claims IS 'FHIR R4 Claim resources for insurance claims, range-partitioned by month of created_date';
+COMMENT ON TABLE claim_partitions IS 'Partitions of claims: attached, detached by retention, and where each was archived';
+COMMENT ON TABLE claim_ids IS 'fhir_id -> created_date for every stored claim; enforces fhir_id uniqueness across partitions';
@@ -0,0 +1,44 @@
+-- Typed search-parameter index tables (see ClaimSearchParameters / ClaimSearchIndex). Each row is one extracted
+-- value; searches join on fhir_id. Rows cascade away with claim_ids when retention removes a partition's claims.
+-- The FK is deferred because index rows are written before Hibernate flushes the claim insert.
+
+CREATE TABLE claim_idx_token (
+    fhir_id VARCHAR(64) NOT NULL REFERENCES claim_ids(fhir_id) ON DELETE CASCADE DEFERRABLE INITIALLY DEFERRED,
+    param_name VARCHAR(64) NOT NULL,
+    token_system VARCHAR(255),
+    token_value VARCHAR(255) NOT NULL
+);
+CREATE INDEX idx_claim_idx_token_value ON claim_idx_token(param_name, token_value, token_system) INCLUDE (fhir_id);
+CREATE INDEX idx_claim_idx_token_system ON claim_idx_token(param_name, token_system) INCLUDE (fhir_id);
+CREATE INDEX idx_claim_idx_token_resource ON claim_idx_token(fhir_id);
+
+CREATE TABLE claim_idx_reference (
+    fhir_id VARCHAR(64) NOT NULL REFERENCES claim_ids(fhir_id) ON DELETE CASCADE DEFERRABLE INITIALLY DEFERRED,
+    param_name VARCHAR(64) NOT NULL,
+    target_type VARCHAR(64) NOT NULL,
+    target_id VARCHAR(64) NOT NULL
+);
+CREATE INDEX idx_claim_idx_reference_target ON claim_idx_reference(param_name, target_id, target_type) INCLUDE (fhir_id);
+CREATE INDEX idx_claim_idx_reference_resource ON claim_idx_reference(fhir_id);
+
+CREATE TABLE claim_idx_quantity (
+    fhir_id VARCHAR(64) NOT NULL REFERENCES claim_ids(fhir_id) ON DELETE CASCADE DEFERRABLE INITIALLY DEFERRED,
+    param_name VARCHAR(64) NOT NULL,
+    quantity_value NUMERIC(18,4) NOT NULL,
+    quantity_system VARCHAR(255),
+    quantity_code VARCHAR(64)
+);
+CREATE INDEX idx_claim_idx_quantity_value ON claim_idx_quantity(param_name, quantity_value) INCLUDE (fhir_id);
+CREATE INDEX idx_claim_idx_quantity_resource ON claim_idx_quantity(fhir_id);
+
+-- NULL until ClaimSearchIndex has written the claim's rows; existing claims are indexed at startup
+ALTER TABLE claims ADD COLUMN search_index_version SMALLINT;
+CREATE INDEX idx_claim_search_unindexed ON claims(fhir_id) WHERE search_index_version IS NULL;
+
+-- Nothing queries the whole document with @> or ?, and the GIN index made every write rewrite posting lists
+DROP INDEX IF EXISTS idx_claim_fhir_resource;
+
+COMMENT ON TABLE claim_idx_token IS 'Token search parameters (system|code) extracted from claims';
+COMMENT ON TABLE claim_idx_reference IS 'Reference search parameters (Type/id) extracted from claims';
+COMMENT ON TABLE claim_idx_quantity IS 'Quantity search parameters extracted from claims';
+COMMENT ON COLUMN claims.search_index_version IS 'Extraction version of the claim_idx_* rows; NULL = not indexed yet';
@@ -0,0 +1,17 @@
+-- Outcome of each Prefer: respond-async write (see AsyncWriter), recorded in the same transaction as the
+-- claim itself, so a journal record replayed after a crash is recognized as already applied
+CREATE TABLE claim_async_requests (
+    request_id VARCHAR(36) PRIMARY KEY,
+    journal_sequence BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    resource_id VARCHAR(64),
+    version_id BIGINT,
+    http_status INTEGER NOT NULL,
+    diagnostics TEXT,
+    received_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_claim_async_requests_completed ON claim_async_requests(completed_at);
+
+COMMENT ON TABLE claim_async_requests IS 'Results of asynchronous Claim writes, polled through $async-status; purged after claims.async.status-retention';
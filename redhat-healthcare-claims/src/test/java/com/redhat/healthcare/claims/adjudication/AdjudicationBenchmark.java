@@ -0,0 +1,121 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Rule-pipeline throughput on synthetic batches with a given number of fork-join workers; each operation is one
+ * claim, so the score is claims/second. Rules run against in-memory lookups, so this isolates evaluation from
+ * database and coverage I/O.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main AdjudicationBenchmark -p workers=1,2,4,8"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdjudicationBenchmark {
+
+    private static final int CLAIMS = 200_000;
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    private ForkJoinPool pool;
+    private List<AdjudicationRule> rules;
+    private List<List<AdjudicableClaim>> batches;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<AdjudicableClaim> claims = new ArrayList<>(CLAIMS);
+        Map<String, CoverageActiveRule.CoverageWindow> coverages = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            coverages.put("Coverage/cov-" + i, new CoverageActiveRule.CoverageWindow(
+                i % 10 == 0 ? "cancelled" : "active", LocalDate.of(2024, 1, 1), LocalDate.of(2026, 12, 31)));
+        }
+        for (int i = 0; i < CLAIMS; i++) {
+            String patient = "Patient/p-" + random.nextInt(CLAIMS / 4 + 1);
+            LocalDate start = LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365));
+            BigDecimal total = BigDecimal.valueOf(random.nextInt(1_500_000), 2);
+            claims.add(new AdjudicableClaim(
+                "claim-" + i, 1L, "draft", patient,
+                "Practitioner/pr-" + random.nextInt(200),
+                "Coverage/cov-" + random.nextInt(100),
+                start, start.plusDays(random.nextInt(3)), total,
+                // ~1% resubmissions share a fingerprint with an earlier claim
+                random.nextInt(100) == 0 && i > 0 ? "fp-" + random.nextInt(i) : "fp-" + i));
+        }
+
+        // First claim per fingerprint is the original, as DuplicateClaimIndex.findOriginals returns it
+        Map<String, String> originals = new HashMap<>();
+        for (AdjudicableClaim claim : claims) {
+            originals.putIfAbsent(claim.contentFingerprint(), claim.fhirId());
+        }
+
+        AmountLimitRule amountLimit = new AmountLimitRule();
+        amountLimit.autoApproveLimit = new BigDecimal("10000");
+        rules = List.of(
+            amountLimit,
+            fixed("duplicate", DuplicateClaimRule.check(originals)),
+            fixed("coverage", CoverageActiveRule.check(coverages)));
+
+        batches = new ArrayList<>();
+        for (int from = 0; from < CLAIMS; from += BATCH_SIZE) {
+            batches.add(claims.subList(from, from + BATCH_SIZE));
+        }
+        pool = new ForkJoinPool(workers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<AdjudicationResult> adjudicateBatch() {
+        List<AdjudicableClaim> batch = batches.get(next);
+        next = (next + 1) % batches.size();
+        return AdjudicationPipeline.prepare(rules, batch).evaluateAll(batch, pool);
+    }
+
+    private static AdjudicationRule fixed(String name, AdjudicationRule.ClaimCheck check) {
+        return new AdjudicationRule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public AdjudicationRule.ClaimCheck prepare(List<AdjudicableClaim> batch) {
+                return check;
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package com.redhat.healthcare.claims.adjudication;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdjudicationPipelineTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void denialOutranksPendAndEveryReasonIsKept() {
+        AdjudicationPipeline pipeline = AdjudicationPipeline.prepare(List.of(
+            rule("first", claim -> RuleOutcome.pend("needs review")),
+            rule("second", claim -> RuleOutcome.approve()),
+            rule("third", claim -> RuleOutcome.deny("not covered"))), List.of());
+
+        AdjudicationResult result = pipeline.evaluate(claim("c1", "100.00", "fp-1"));
+
+        assertEquals(AdjudicationDecision.DENIED, result.decision());
+        assertEquals(List.of("first: needs review", "third: not covered"), result.reasons());
+        assertEquals("active", result.resultingStatus());
+    }
+
+    @Test
+    void claimPassingEveryRuleIsApprovedWithoutReasons() {
+        AdjudicationPipeline pipeline = AdjudicationPipeline.prepare(List.of(
+            rule("first", claim -> RuleOutcome.approve())), List.of());
+
+        AdjudicationResult result = pipeline.evaluate(claim("c1", "100.00", "fp-1"));
+
+        assertEquals(AdjudicationDecision.APPROVED, result.decision());
+        assertTrue(result.reasons().isEmpty());
+    }
+
+    @Test
+    void failingRulePendsTheClaim() {
+        AdjudicationPipeline pipeline = AdjudicationPipeline.prepare(List.of(
+            rule("broken", claim -> {
+                throw new IllegalStateException("lookup failed");
+            })), List.of());
+
+        AdjudicationResult result = pipeline.evaluate(claim("c1", "100.00", "fp-1"));
+
+        assertEquals(AdjudicationDecision.PENDED, result.decision());
+        assertEquals(List.of("broken: rule failed: lookup failed"), result.reasons());
+        assertEquals("draft", result.resultingStatus());
+    }
+
+    @Test
+    void eachRuleIsPreparedOnceWithTheWholeBatch() {
+        List<AdjudicableClaim> batch = claims(10);
+        List<List<AdjudicableClaim>> prepared = new ArrayList<>();
+        AdjudicationRule rule = new AdjudicationRule() {
+            @Override
+            public String name() {
+                return "recording";
+            }
+
+            @Override
+            public ClaimCheck prepare(List<AdjudicableClaim> claims) {
+                prepared.add(claims);
+                return claim -> RuleOutcome.approve();
+            }
+        };
+
+        AdjudicationPipeline.prepare(List.of(rule), batch).evaluateAll(batch, pool);
+
+        assertEquals(1, prepared.size());
+        assertSame(batch, prepared.get(0));
+    }
+
+    @Test
+    void parallelEvaluationKeepsBatchOrderAndChecksEachClaimOnce() {
+        // Several split levels below the threshold
+        List<AdjudicableClaim> batch = claims(AdjudicationPipeline.SPLIT_THRESHOLD * 8 + 3);
+        Map<String, AtomicInteger> checked = new ConcurrentHashMap<>();
+        AdjudicationPipeline pipeline = AdjudicationPipeline.prepare(List.of(rule("counting", claim -> {
+            checked.computeIfAbsent(claim.fhirId(), id -> new AtomicInteger()).incrementAndGet();
+            return claim.totalValue().compareTo(new BigDecimal("500")) > 0
+                ? RuleOutcome.pend("large") : RuleOutcome.approve();
+        })), batch);
+
+        List<AdjudicationResult> results = pipeline.evaluateAll(batch, pool);
+
+        assertEquals(batch.size(), results.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertSame(batch.get(i), results.get(i).claim());
+            assertEquals(pipeline.evaluate(batch.get(i)).decision(), results.get(i).decision());
+        }
+        assertEquals(batch.size(), checked.size());
+        assertTrue(checked.values().stream().allMatch(count -> count.get() == 2));
+    }
+
+    @Test
+    void builtInRulesCombine() {
+        AmountLimitRule amountLimit = new AmountLimitRule();
+        amountLimit.autoApproveLimit = new BigDecimal("1000");
+        Map<String, CoverageActiveRule.CoverageWindow> coverages = Map.of(
+            "Coverage/cov-1", new CoverageActiveRule.CoverageWindow(
+                "active", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)));
+        AdjudicationPipeline pipeline = AdjudicationPipeline.prepare(List.of(
+            amountLimit,
+            rule("duplicate", DuplicateClaimRule.check(Map.of("fp-1", "c1"))),
+            rule("coverage", CoverageActiveRule.check(coverages))), List.of());
+
+        assertEquals(AdjudicationDecision.APPROVED, pipeline.evaluate(claim("c1", "100.00", "fp-1")).decision());
+        AdjudicationResult duplicate = pipeline.evaluate(claim("c2", "2000.00", "fp-1"));
+        assertEquals(AdjudicationDecision.DENIED, duplicate.decision());
+        assertEquals(List.of("amount-limit: total 2000.00 exceeds auto-approval limit 1000",
+            "duplicate: duplicate of Claim/c1"), duplicate.reasons());
+        assertEquals(AdjudicationDecision.PENDED, pipeline.evaluate(claim("c3", "2000.00", "fp-3")).decision());
+    }
+
+    private static List<AdjudicableClaim> claims(int count) {
+        List<AdjudicableClaim> claims = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            claims.add(claim("c" + i, (i % 10) * 100 + ".00", "fp-" + i));
+        }
+        return claims;
+    }
+
+    private static AdjudicableClaim claim(String id, String total, String fingerprint) {
+        return new AdjudicableClaim(id, 1L, "draft", "Patient/p1", "Practitioner/pr1", "Coverage/cov-1",
+            LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2), new BigDecimal(total), fingerprint);
+    }
+
+    private static AdjudicationRule rule(String name, AdjudicationRule.ClaimCheck check) {
+        return new AdjudicationRule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public ClaimCheck prepare(List<AdjudicableClaim> batch) {
+                return check;
+            }
+        };
+    }
+}
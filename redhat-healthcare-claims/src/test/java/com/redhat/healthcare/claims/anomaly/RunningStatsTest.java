@@ -0,0 +1,80 @@
+package com.redhat.healthcare.claims.anomaly;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RunningStatsTest {
+
+    @Test
+    void matchesTwoPassMeanAndSampleStddev() {
+        double[] values = {2, 4, 4, 4, 5, 5, 7, 9};
+        RunningStats stats = new RunningStats();
+        for (double value : values) {
+            stats.add(value);
+        }
+
+        assertEquals(8, stats.count());
+        assertEquals(5.0, stats.mean(), 1e-12);
+        // Population variance is 4; the sample variance divides by n - 1
+        assertEquals(Math.sqrt(32.0 / 7), stats.stddev(), 1e-12);
+    }
+
+    @Test
+    void stddevIsZeroBelowTwoValues() {
+        RunningStats stats = new RunningStats();
+        assertEquals(0.0, stats.stddev());
+        stats.add(42);
+        assertEquals(42.0, stats.mean());
+        assertEquals(0.0, stats.stddev());
+    }
+
+    @Test
+    void stableForLargeOffsets() {
+        // Naive sum-of-squares loses every significant digit here
+        RunningStats stats = new RunningStats();
+        for (double value : new double[] {1e9 + 4, 1e9 + 7, 1e9 + 13, 1e9 + 16}) {
+            stats.add(value);
+        }
+
+        assertEquals(1e9 + 10, stats.mean(), 1e-6);
+        assertEquals(Math.sqrt(30), stats.stddev(), 1e-9);
+    }
+
+    @Test
+    void mergingPartsEqualsAddingEverything() {
+        Random random = new Random(3);
+        RunningStats all = new RunningStats();
+        RunningStats left = new RunningStats();
+        RunningStats right = new RunningStats();
+        for (int i = 0; i < 1_000; i++) {
+            double value = random.nextGaussian() * 250 + 1_200;
+            all.add(value);
+            (i < 300 ? left : right).add(value);
+        }
+
+        left.merge(right.count(), right.mean(), right.m2());
+
+        assertEquals(all.count(), left.count());
+        assertEquals(all.mean(), left.mean(), 1e-9);
+        assertEquals(all.stddev(), left.stddev(), 1e-9);
+    }
+
+    @Test
+    void mergingIntoEmptyAndMergingEmptyAreIdentities() {
+        RunningStats part = new RunningStats();
+        part.add(10);
+        part.add(20);
+
+        RunningStats empty = new RunningStats();
+        empty.merge(part.count(), part.mean(), part.m2());
+        part.merge(0, 0, 0);
+
+        assertEquals(2, empty.count());
+        assertEquals(15.0, empty.mean(), 1e-12);
+        assertEquals(part.stddev(), empty.stddev(), 1e-12);
+        assertEquals(2, part.count());
+    }
+}
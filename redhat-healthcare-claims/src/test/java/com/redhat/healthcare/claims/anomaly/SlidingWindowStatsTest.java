@@ -0,0 +1,80 @@
+package com.redhat.healthcare.claims.anomaly;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowStatsTest {
+
+    @Test
+    void windowAggregatesTheBucketsItCovers() {
+        SlidingWindowStats stats = new SlidingWindowStats(4);
+        stats.add(10, 100);
+        stats.add(20, 101);
+        stats.add(30, 103);
+
+        RunningStats window = stats.window(103);
+
+        assertEquals(3, window.count());
+        assertEquals(20.0, window.mean(), 1e-12);
+        assertEquals(10.0, window.stddev(), 1e-12);
+    }
+
+    @Test
+    void bucketsFallOutAsTheWindowMoves() {
+        SlidingWindowStats stats = new SlidingWindowStats(4);
+        stats.add(10, 100);
+        stats.add(20, 102);
+
+        assertEquals(2, stats.window(103).count());
+        assertEquals(1, stats.window(104).count());
+        assertEquals(20.0, stats.window(104).mean());
+        assertFalse(stats.isEmpty(105));
+        assertTrue(stats.isEmpty(106));
+    }
+
+    @Test
+    void futureBucketsAreOutsideTheWindow() {
+        SlidingWindowStats stats = new SlidingWindowStats(4);
+        stats.add(10, 100);
+        stats.add(50, 101);
+
+        assertEquals(1, stats.window(100).count());
+        assertEquals(10.0, stats.window(100).mean());
+    }
+
+    @Test
+    void reusedSlotStartsFromEmpty() {
+        SlidingWindowStats stats = new SlidingWindowStats(4);
+        stats.add(1_000, 100);
+        stats.add(1_000, 100);
+
+        // Bucket 104 maps to the same slot as 100
+        stats.add(5, 104);
+
+        RunningStats window = stats.window(104);
+        assertEquals(1, window.count());
+        assertEquals(5.0, window.mean());
+    }
+
+    @Test
+    void stateRoundTripsAndShrinksToTheNewestBuckets() {
+        SlidingWindowStats stats = new SlidingWindowStats(4);
+        stats.add(10, 100);
+        stats.add(20, 101);
+        stats.add(30, 102);
+        stats.add(40, 103);
+
+        RunningStats restored = SlidingWindowStats.fromState(stats.toState(), 4).window(103);
+        assertEquals(4, restored.count());
+        assertEquals(25.0, restored.mean(), 1e-12);
+        assertEquals(stats.window(103).stddev(), restored.stddev(), 1e-12);
+
+        // With two slots, 100 and 102 collide as do 101 and 103; the newer bucket of each pair wins
+        RunningStats shrunk = SlidingWindowStats.fromState(stats.toState(), 2).window(103);
+        assertEquals(2, shrunk.count());
+        assertEquals(35.0, shrunk.mean(), 1e-12);
+    }
+}
@@ -0,0 +1,144 @@
+package com.redhat.healthcare.claims.async;
+
+import com.redhat.healthcare.fhir.async.AsyncRequestStatus;
+import com.redhat.healthcare.fhir.async.AsyncWriter;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Money;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The async queue end to end against the test database: group-committed submissions, the background drain and
+ * the recorded outcomes.
+ */
+@QuarkusTest
+class ClaimAsyncWriterTest {
+
+    private static final Duration DRAINED_WITHIN = Duration.ofSeconds(30);
+
+    @Inject
+    ClaimAsyncWriter writer;
+
+    @Test
+    void concurrentSubmissionsAreAllAppliedAndReported() throws Exception {
+        assertTrue(writer.accepting());
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        List<Future<String>> submissions = new ArrayList<>();
+        List<String> claimIds = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                Claim claim = claim();
+                claimIds.add(claim.getIdElement().getIdPart());
+                submissions.add(clients.submit(() -> writer.submitCreate(claim)));
+            }
+            for (int i = 0; i < submissions.size(); i++) {
+                AsyncRequestStatus status = awaitOutcome(submissions.get(i).get());
+                assertEquals(201, status.httpStatus(), status.diagnostics());
+                assertEquals(claimIds.get(i), status.resourceId());
+                assertEquals(1L, status.versionId());
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    void updateIsAppliedAsTheNextVersion() {
+        Claim claim = claim();
+        String id = claim.getIdElement().getIdPart();
+        assertEquals(201, awaitOutcome(writer.submitCreate(claim)).httpStatus());
+
+        claim.setTotal(new Money().setValue(new BigDecimal("99.00")).setCurrency("USD"));
+        AsyncRequestStatus status = awaitOutcome(writer.submitUpdate(id, claim));
+
+        assertEquals(200, status.httpStatus(), status.diagnostics());
+        assertEquals(id, status.resourceId());
+        assertEquals(2L, status.versionId());
+    }
+
+    @Test
+    void failingWriteIsRecordedWithoutFailingItsNeighbours() {
+        String missing = "missing-" + UUID.randomUUID();
+        String before = writer.submitCreate(claim());
+        String failing = writer.submitUpdate(missing, claim());
+        String after = writer.submitCreate(claim());
+
+        AsyncRequestStatus failed = awaitOutcome(failing);
+        assertEquals(404, failed.httpStatus());
+        assertEquals(missing, failed.resourceId());
+        assertTrue(failed.diagnostics().contains("Claim/" + missing), failed.diagnostics());
+        assertEquals(201, awaitOutcome(before).httpStatus());
+        assertEquals(201, awaitOutcome(after).httpStatus());
+    }
+
+    @Test
+    void unknownRequestIsNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> writer.status(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void respondAsyncIsOnePreferenceAmongOthers() {
+        assertTrue(AsyncWriter.prefersAsync("respond-async"));
+        assertTrue(AsyncWriter.prefersAsync("return=minimal, Respond-Async"));
+        assertFalse(AsyncWriter.prefersAsync("return=representation"));
+        assertFalse(AsyncWriter.prefersAsync(null));
+    }
+
+    private AsyncRequestStatus awaitOutcome(String requestId) {
+        long deadline = System.nanoTime() + DRAINED_WITHIN.toNanos();
+        while (System.nanoTime() - deadline < 0) {
+            Optional<AsyncRequestStatus> status = writer.status(requestId);
+            if (status.isPresent()) {
+                return status.get();
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new AssertionError("request " + requestId + " still queued after " + DRAINED_WITHIN);
+    }
+
+    // A distinct patient per claim keeps duplicate detection out of the way
+    private static Claim claim() {
+        Claim claim = new Claim();
+        claim.setId(UUID.randomUUID().toString());
+        claim.setStatus(Claim.ClaimStatus.ACTIVE);
+        claim.setUse(Claim.Use.CLAIM);
+        claim.setType(new CodeableConcept(
+            new Coding("http://terminology.hl7.org/CodeSystem/claim-type", "professional", null)));
+        claim.setPriority(new CodeableConcept(
+            new Coding("http://terminology.hl7.org/CodeSystem/processpriority", "normal", null)));
+        claim.setPatient(new Reference("Patient/async-" + UUID.randomUUID()));
+        claim.setProvider(new Reference("Practitioner/async-test"));
+        claim.setCreated(new Date());
+        claim.setBillablePeriod(new Period().setStart(new Date()).setEnd(new Date()));
+        claim.addInsurance().setSequence(1).setFocal(true).setCoverage(new Reference("Coverage/async-test"));
+        claim.setTotal(new Money().setValue(new BigDecimal("125.00")).setCurrency("USD"));
+        return claim;
+    }
+}
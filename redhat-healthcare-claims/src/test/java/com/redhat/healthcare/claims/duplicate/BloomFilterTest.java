@@ -0,0 +1,100 @@
+package com.redhat.healthcare.claims.duplicate;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void sizesBitsAndHashesForTheTargetRate() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+
+        // m = -n ln p / (ln 2)^2 ≈ 9.59 bits per element, k = m/n ln 2 ≈ 7
+        assertEquals(958_506, filter.bitCount());
+        assertEquals(7, filter.hashCount());
+    }
+
+    @Test
+    void tinyExpectationsStillGetAWord() {
+        BloomFilter filter = BloomFilter.create(0, 0.5);
+
+        assertEquals(64, filter.bitCount());
+        assertFalse(filter.mightContain(sha256("anything")));
+    }
+
+    @Test
+    void everyAddedFingerprintIsFound() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(sha256("claim-" + i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(sha256("claim-" + i)), "claim-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(sha256("claim-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(sha256("other-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives in 100000");
+    }
+
+    @Test
+    void concurrentAddsLoseNoBits() throws Exception {
+        BloomFilter filter = BloomFilter.create(40_000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int first = thread * 10_000;
+                adds.add(executor.submit(() -> {
+                    for (int i = first; i < first + 10_000; i++) {
+                        filter.add(sha256("claim-" + i));
+                    }
+                }));
+            }
+            for (Future<?> add : adds) {
+                add.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < 40_000; i++) {
+            assertTrue(filter.mightContain(sha256("claim-" + i)), "claim-" + i);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.redhat.healthcare.claims.duplicate;
+
+import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.DateType;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Money;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ClaimFingerprintTest {
+
+    private static final String CPT = "http://www.ama-assn.org/go/cpt";
+
+    @Test
+    void identifiersStatusAndNarrativeDoNotChangeTheFingerprint() {
+        Claim resubmitted = claim();
+        resubmitted.setId("another-id");
+        resubmitted.addIdentifier(new Identifier().setSystem("http://payer/claims").setValue("CLM-2"));
+        resubmitted.setStatus(Claim.ClaimStatus.DRAFT);
+        resubmitted.setText(new Narrative().setStatus(Narrative.NarrativeStatus.GENERATED));
+        resubmitted.getMeta().setVersionId("3");
+
+        assertEquals(ClaimFingerprint.of(claim()), ClaimFingerprint.of(resubmitted));
+    }
+
+    @Test
+    void itemOrderDoesNotChangeTheFingerprint() {
+        Claim reordered = claim();
+        Collections.reverse(reordered.getItem());
+
+        assertEquals(ClaimFingerprint.of(claim()), ClaimFingerprint.of(reordered));
+    }
+
+    @Test
+    void codingOrderWithinAnItemDoesNotChangeTheFingerprint() {
+        Claim claim = claim();
+        claim.getItemFirstRep().getProductOrService().addCoding(new Coding("http://snomed.info/sct", "1234", null));
+        Claim reordered = claim();
+        reordered.getItemFirstRep().getProductOrService().getCoding()
+            .add(0, new Coding("http://snomed.info/sct", "1234", null));
+
+        assertEquals(ClaimFingerprint.of(claim), ClaimFingerprint.of(reordered));
+    }
+
+    @Test
+    void decimalScaleDoesNotChangeTheFingerprint() {
+        Claim rescaled = claim();
+        rescaled.getTotal().setValue(new BigDecimal("225"));
+        rescaled.getItemFirstRep().getNet().setValue(new BigDecimal("100.000"));
+        rescaled.getItemFirstRep().setQuantity(new Quantity(1));
+        Claim original = claim();
+        original.getItemFirstRep().setQuantity(new Quantity().setValue(new BigDecimal("1.0")));
+
+        assertEquals(ClaimFingerprint.of(original), ClaimFingerprint.of(rescaled));
+    }
+
+    @Test
+    void differentAmountsOrCurrenciesAreDifferentClaims() {
+        String original = ClaimFingerprint.of(claim());
+
+        Claim amount = claim();
+        amount.getTotal().setValue(new BigDecimal("225.01"));
+        assertNotEquals(original, ClaimFingerprint.of(amount));
+
+        Claim currency = claim();
+        currency.getTotal().setCurrency("EUR");
+        assertNotEquals(original, ClaimFingerprint.of(currency));
+
+        Claim itemCurrency = claim();
+        itemCurrency.getItemFirstRep().getNet().setCurrency("EUR");
+        assertNotEquals(original, ClaimFingerprint.of(itemCurrency));
+    }
+
+    @Test
+    void billablePeriodIsComparedAtDayPrecision() {
+        Claim morning = claim();
+        morning.setBillablePeriod(new Period()
+            .setStartElement(new DateTimeType("2025-03-01T08:00:00Z"))
+            .setEndElement(new DateTimeType("2025-03-01T09:00:00Z")));
+        Claim afternoon = claim();
+        afternoon.setBillablePeriod(new Period()
+            .setStartElement(new DateTimeType("2025-03-01T15:30:00Z"))
+            .setEndElement(new DateTimeType("2025-03-01")));
+
+        assertEquals(ClaimFingerprint.of(morning), ClaimFingerprint.of(afternoon));
+
+        Claim nextDay = claim();
+        nextDay.setBillablePeriod(new Period()
+            .setStartElement(new DateTimeType("2025-03-02"))
+            .setEndElement(new DateTimeType("2025-03-02")));
+        assertNotEquals(ClaimFingerprint.of(morning), ClaimFingerprint.of(nextDay));
+    }
+
+    @Test
+    void missingBillablePeriodIsItsOwnValue() {
+        Claim withoutPeriod = claim();
+        withoutPeriod.setBillablePeriod(null);
+        Claim openPeriod = claim();
+        openPeriod.setBillablePeriod(new Period().setStartElement(new DateTimeType("2025-03-01")));
+
+        assertEquals(ClaimFingerprint.of(withoutPeriod), ClaimFingerprint.of(withoutPeriod.copy()));
+        assertNotEquals(ClaimFingerprint.of(claim()), ClaimFingerprint.of(withoutPeriod));
+        assertNotEquals(ClaimFingerprint.of(openPeriod), ClaimFingerprint.of(withoutPeriod));
+    }
+
+    @Test
+    void servicedDateAndPeriodAreDistinguished() {
+        Claim date = claim();
+        date.getItemFirstRep().setServiced(new DateType("2025-03-01"));
+        Claim period = claim();
+        period.getItemFirstRep().setServiced(new Period()
+            .setStartElement(new DateTimeType("2025-03-01"))
+            .setEndElement(new DateTimeType("2025-03-01")));
+
+        assertNotEquals(ClaimFingerprint.of(date), ClaimFingerprint.of(period));
+        assertNotEquals(ClaimFingerprint.of(claim()), ClaimFingerprint.of(date));
+    }
+
+    @Test
+    void separatorsInValuesCannotShiftFieldBoundaries() {
+        Claim first = claim();
+        first.setPatient(new Reference("Patient/a|1"));
+        first.setProvider(new Reference("Practitioner/b"));
+        Claim second = claim();
+        second.setPatient(new Reference("Patient/a"));
+        second.setProvider(new Reference("1|Practitioner/b"));
+
+        assertNotEquals(ClaimFingerprint.of(first), ClaimFingerprint.of(second));
+    }
+
+    private static Claim claim() {
+        Claim claim = new Claim();
+        claim.setId("claim-1");
+        claim.setStatus(Claim.ClaimStatus.ACTIVE);
+        claim.setPatient(new Reference("Patient/p1"));
+        claim.setProvider(new Reference("Practitioner/d1"));
+        claim.setBillablePeriod(new Period()
+            .setStartElement(new DateTimeType("2025-03-01"))
+            .setEndElement(new DateTimeType("2025-03-01")));
+        claim.addItem().setSequence(1)
+            .setProductOrService(new CodeableConcept(new Coding(CPT, "99213", null)))
+            .setNet(new Money().setValue(new BigDecimal("100.00")).setCurrency("USD"));
+        claim.addItem().setSequence(2)
+            .setProductOrService(new CodeableConcept(new Coding(CPT, "85025", null)))
+            .setNet(new Money().setValue(new BigDecimal("125.00")).setCurrency("USD"));
+        claim.setTotal(new Money().setValue(new BigDecimal("225.00")).setCurrency("USD"));
+        return claim;
+    }
+}
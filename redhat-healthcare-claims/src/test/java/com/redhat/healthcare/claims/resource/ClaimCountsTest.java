@@ -0,0 +1,120 @@
+package com.redhat.healthcare.claims.resource;
+
+import com.redhat.healthcare.claims.service.ClaimService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Money;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * $counts answers a list view's counter for every listed patient or provider with one grouped query.
+ */
+@QuarkusTest
+class ClaimCountsTest {
+
+    @Inject
+    ClaimService claimService;
+
+    @Test
+    void countsEachReferenceInRequestOrder() {
+        String run = UUID.randomUUID().toString();
+        String p1 = "Patient/counts-1-" + run;
+        String p2 = "Patient/counts-2-" + run;
+        String none = "Patient/counts-none-" + run;
+        String provider = "Practitioner/counts-" + run;
+        claimService.createValidatedClaim(claim(p1, provider, Claim.ClaimStatus.ACTIVE));
+        claimService.createValidatedClaim(claim(p1, provider, Claim.ClaimStatus.ACTIVE));
+        claimService.createValidatedClaim(claim(p1, provider, Claim.ClaimStatus.DRAFT));
+        claimService.createValidatedClaim(claim(p2, provider, Claim.ClaimStatus.ACTIVE));
+
+        assertEquals(Map.of(p2, 1, none, 0, p1, 3), counts(request("patient", null, p2, none, p1)));
+        assertEquals(Map.of(p1, 2, p2, 1), counts(request("patient", "active", p1, p2)));
+        assertEquals(Map.of(provider, 4), counts(request("provider", null, provider)));
+    }
+
+    @Test
+    void deletedClaimsAreNotCounted() {
+        String patient = "Patient/counts-deleted-" + UUID.randomUUID();
+        claimService.createValidatedClaim(claim(patient, "Practitioner/counts", Claim.ClaimStatus.ACTIVE));
+        Claim deleted = claimService.createValidatedClaim(
+            claim(patient, "Practitioner/counts", Claim.ClaimStatus.ACTIVE));
+        claimService.deleteClaim(deleted.getIdElement().getIdPart());
+
+        assertEquals(Map.of(patient, 1), counts(request("patient", null, patient)));
+    }
+
+    @Test
+    void unknownGroupByOrNoReferencesIsABadRequest() {
+        post(request("insurer", null, "Organization/abc")).then().statusCode(400);
+        post(request("patient", null)).then().statusCode(400);
+    }
+
+    private static Map<String, Integer> counts(String request) {
+        JsonPath answer = post(request).then().statusCode(200).extract().jsonPath();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        int size = answer.getList("parameter").size();
+        for (int i = 0; i < size; i++) {
+            counts.put(answer.getString("parameter[" + i + "].part.find { it.name == 'reference' }.valueString"),
+                answer.getInt("parameter[" + i + "].part.find { it.name == 'count' }.valueInteger"));
+        }
+        assertEquals(size, counts.size());
+        return counts;
+    }
+
+    // Unencoded, as RestAssured would send $counts as %24counts
+    private static Response post(String request) {
+        return given().urlEncodingEnabled(false).contentType("application/json").body(request)
+            .post("/fhir/Claim/$counts");
+    }
+
+    private static String request(String groupBy, String status, String... references) {
+        StringBuilder json = new StringBuilder("{\"resourceType\":\"Parameters\",\"parameter\":[")
+            .append("{\"name\":\"group-by\",\"valueCode\":\"").append(groupBy).append("\"}");
+        if (status != null) {
+            json.append(",{\"name\":\"status\",\"valueString\":\"").append(status).append("\"}");
+        }
+        for (String reference : references) {
+            json.append(",{\"name\":\"reference\",\"valueString\":\"").append(reference).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    // A distinct procedure per claim keeps duplicate detection from rejecting claims of one patient
+    private static Claim claim(String patient, String provider, Claim.ClaimStatus status) {
+        Claim claim = new Claim();
+        claim.setId(UUID.randomUUID().toString());
+        claim.setStatus(status);
+        claim.setUse(Claim.Use.CLAIM);
+        claim.setType(new CodeableConcept(
+            new Coding("http://terminology.hl7.org/CodeSystem/claim-type", "professional", null)));
+        claim.setPriority(new CodeableConcept(
+            new Coding("http://terminology.hl7.org/CodeSystem/processpriority", "normal", null)));
+        claim.setPatient(new Reference(patient));
+        claim.setProvider(new Reference(provider));
+        claim.setCreated(new Date());
+        claim.setBillablePeriod(new Period().setStart(new Date()).setEnd(new Date()));
+        claim.addInsurance().setSequence(1).setFocal(true).setCoverage(new Reference("Coverage/counts-test"));
+        claim.addItem().setSequence(1)
+            .setProductOrService(new CodeableConcept(
+                new Coding("http://www.ama-assn.org/go/cpt", UUID.randomUUID().toString(), null)))
+            .setNet(new Money().setValue(new BigDecimal("80.00")).setCurrency("USD"));
+        claim.setTotal(new Money().setValue(new BigDecimal("80.00")).setCurrency("USD"));
+        return claim;
+    }
+}
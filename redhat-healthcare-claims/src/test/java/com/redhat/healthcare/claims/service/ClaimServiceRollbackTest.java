@@ -0,0 +1,121 @@
+package com.redhat.healthcare.claims.service;
+
+import com.redhat.healthcare.claims.anomaly.ProviderAnomalyDetector;
+import com.redhat.healthcare.claims.duplicate.ClaimFingerprint;
+import com.redhat.healthcare.claims.duplicate.DuplicateClaimIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Claim;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Money;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A claim write feeds the duplicate Bloom filter and the anomaly peer statistics only once its transaction
+ * commits, so a rolled-back group commit that the async writer replays claim by claim is not counted twice.
+ */
+@QuarkusTest
+class ClaimServiceRollbackTest {
+
+    // claims.anomaly.min-peer-claims
+    private static final int PEER_CLAIMS = 30;
+
+    @Inject
+    ClaimService claimService;
+
+    @Inject
+    DuplicateClaimIndex duplicateIndex;
+
+    @Inject
+    ProviderAnomalyDetector anomalyDetector;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void rolledBackCreateLeavesNoFingerprintInTheBloomFilter() {
+        Claim claim = claim("rollback-" + UUID.randomUUID(), new BigDecimal("125.00"));
+        assertThrows(IllegalStateException.class, () -> QuarkusTransaction.requiringNew().run(() -> {
+            claimService.createValidatedClaim(claim);
+            throw new IllegalStateException("a later write of the group failed");
+        }));
+
+        double negatives = bloomNegatives();
+        assertEquals(Map.of(), duplicateIndex.findOriginals(List.of(ClaimFingerprint.of(claim))));
+        assertEquals(negatives + 1, bloomNegatives());
+    }
+
+    @Test
+    void committedCreateIsFoundThroughTheBloomFilter() {
+        Claim claim = claim("commit-" + UUID.randomUUID(), new BigDecimal("125.00"));
+        claimService.createValidatedClaim(claim);
+
+        double negatives = bloomNegatives();
+        String fingerprint = ClaimFingerprint.of(claim);
+        assertEquals(Map.of(fingerprint, claim.getIdElement().getIdPart()),
+            duplicateIndex.findOriginals(List.of(fingerprint)));
+        assertEquals(negatives, bloomNegatives());
+    }
+
+    @Test
+    void rolledBackCreatesDoNotFeedThePeerStatistics() {
+        String procedure = "peer-" + UUID.randomUUID();
+        assertThrows(IllegalStateException.class, () -> QuarkusTransaction.requiringNew().run(() -> {
+            createPeerClaims(procedure);
+            throw new IllegalStateException("a later write of the group failed");
+        }));
+        assertNull(anomalyDetector.score("procedure:" + procedure, new BigDecimal("500"), LocalDateTime.now()));
+
+        createPeerClaims(procedure);
+        assertNotNull(anomalyDetector.score("procedure:" + procedure, new BigDecimal("500"), LocalDateTime.now()));
+    }
+
+    private void createPeerClaims(String procedure) {
+        for (int i = 0; i < PEER_CLAIMS; i++) {
+            claimService.createValidatedClaim(claim(procedure, BigDecimal.valueOf(100 + i)));
+        }
+    }
+
+    private double bloomNegatives() {
+        return registry.get("claims.duplicates.checks").tag("path", "bloom-negative").counter().count();
+    }
+
+    // A distinct patient per claim keeps duplicate detection from rejecting the peer claims
+    private static Claim claim(String procedure, BigDecimal total) {
+        Claim claim = new Claim();
+        claim.setId(UUID.randomUUID().toString());
+        claim.setStatus(Claim.ClaimStatus.ACTIVE);
+        claim.setUse(Claim.Use.CLAIM);
+        claim.setType(new CodeableConcept(
+            new Coding("http://terminology.hl7.org/CodeSystem/claim-type", "professional", null)));
+        claim.setPriority(new CodeableConcept(
+            new Coding("http://terminology.hl7.org/CodeSystem/processpriority", "normal", null)));
+        claim.setPatient(new Reference("Patient/rollback-" + UUID.randomUUID()));
+        claim.setProvider(new Reference("Practitioner/rollback-test"));
+        claim.setCreated(new Date());
+        claim.setBillablePeriod(new Period().setStart(new Date()).setEnd(new Date()));
+        claim.addInsurance().setSequence(1).setFocal(true).setCoverage(new Reference("Coverage/rollback-test"));
+        claim.addItem().setSequence(1)
+            .setProductOrService(new CodeableConcept(new Coding("http://www.ama-assn.org/go/cpt", procedure, null)))
+            .setNet(new Money().setValue(total).setCurrency("USD"));
+        claim.setTotal(new Money().setValue(total).setCurrency("USD"));
+        return claim;
+    }
+}
@@ -0,0 +1,38 @@
+package com.redhat.healthcare.fhir.async;
+
+import jakarta.ws.rs.core.Response;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.OperationOutcome;
+
+/**
+ * The recorded outcome of a Prefer: respond-async write. httpStatus is 201 or 200 when the write was applied,
+ * otherwise the status the synchronous write would have answered with.
+ */
+public record AsyncRequestStatus(String resourceType, String resourceId, Long versionId, int httpStatus,
+                                 String diagnostics) {
+
+    /**
+     * The batch-response Bundle $async-status answers with: the write's status, and its location or an
+     * OperationOutcome.
+     */
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        bundle.setType(Bundle.BundleType.BATCHRESPONSE);
+        Bundle.BundleEntryResponseComponent response = bundle.addEntry().getResponse();
+        Response.Status status = Response.Status.fromStatusCode(httpStatus);
+        response.setStatus(httpStatus + (status != null ? " " + status.getReasonPhrase() : ""));
+        if (httpStatus < 300) {
+            response.setLocation(resourceType + "/" + resourceId + "/_history/" + versionId);
+            response.setEtag("W/\"" + versionId + "\"");
+        } else {
+            OperationOutcome outcome = new OperationOutcome();
+            outcome.addIssue()
+                .setSeverity(OperationOutcome.IssueSeverity.ERROR)
+                .setCode(httpStatus < 500 ? OperationOutcome.IssueType.PROCESSING
+                                          : OperationOutcome.IssueType.EXCEPTION)
+                .setDiagnostics(diagnostics);
+            response.setOutcome(outcome);
+        }
+        return bundle;
+    }
+}
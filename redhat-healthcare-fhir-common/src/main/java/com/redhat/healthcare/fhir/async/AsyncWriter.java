@@ -0,0 +1,451 @@
+package com.redhat.healthcare.fhir.async;
+
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.exception.DuplicateResourceException;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hl7.fhir.r4.model.Resource;
+import org.jboss.logging.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prefer: respond-async writes, shared by the services that offer them; each extends this class for its
+ * resource type and async request table.
+ * <p>
+ * A request is validated, inserted into the table as a queued row and answered with 202 once that row is
+ * committed. Requests arriving while another thread is committing wait for the next commit instead of issuing
+ * their own, so one commit covers every request queued since the last one (group commit). A background thread
+ * on each replica drains the table in queue order and applies up to fhir.async.batch-size writes per
+ * transaction, recording each write's outcome on its row in the same transaction. Replicas take turns through
+ * a transaction-level advisory lock, so writes are applied in the order they were accepted. When one write in
+ * a group fails, the group is rolled back and its writes are applied one by one, so only the failing write is
+ * recorded as failed. The queue and the outcomes live in PostgreSQL, so any replica answers $async-status and
+ * accepted writes survive the loss of the replica that accepted them.
+ */
+public abstract class AsyncWriter<R extends Resource> {
+
+    private static final Logger LOG = Logger.getLogger(AsyncWriter.class);
+
+    public enum Operation {
+        CREATE,
+        UPDATE
+    }
+
+    @ConfigProperty(name = "fhir.async.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "fhir.async.batch-size", defaultValue = "500")
+    int batchSize;
+
+    // Beyond this backlog, respond-async requests are written synchronously instead
+    @ConfigProperty(name = "fhir.async.max-pending", defaultValue = "100000")
+    int maxPending;
+
+    // Attempts for a write failing with a server error before it is recorded as failed
+    @ConfigProperty(name = "fhir.async.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "fhir.async.retry-delay", defaultValue = "5s")
+    Duration retryDelay;
+
+    // How often an idle writer looks for writes accepted by other replicas
+    @ConfigProperty(name = "fhir.async.poll-interval", defaultValue = "1s")
+    Duration pollInterval;
+
+    @ConfigProperty(name = "fhir.async.status-retention", defaultValue = "7D")
+    Duration statusRetention;
+
+    @ConfigProperty(name = "fhir.async.purge-interval", defaultValue = "1h")
+    Duration purgeInterval;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    FhirValidationService validationService;
+
+    @Inject
+    FhirParserService parserService;
+
+    @Inject
+    IParser jsonParser;
+
+    private final Queue<Submission> uncommitted = new ConcurrentLinkedQueue<>();
+    private final Object commitLock = new Object();
+
+    // Queued rows as of the writer's last count, plus those accepted here since
+    private final AtomicLong backlog = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    protected abstract Class<R> resourceType();
+
+    /**
+     * The table holding the queue and the outcomes.
+     */
+    protected abstract String table();
+
+    protected abstract R create(R resource);
+
+    protected abstract R update(String id, R resource);
+
+    public void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::drain, table() + "-writer");
+        worker.start();
+    }
+
+    public void onStop(@Observes ShutdownEvent event) {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                // Whatever is still queued is drained by another replica or after the next start
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().equalsIgnoreCase("respond-async")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a respond-async request can be queued; the caller writes synchronously otherwise.
+     */
+    public boolean accepting() {
+        return running && backlog.get() < maxPending;
+    }
+
+    /**
+     * Validates and queues a create. Returns the request id to poll.
+     */
+    public String submitCreate(R resource) {
+        validationService.validateOrThrow(resource);
+        if (resource.getId() == null || resource.getId().isEmpty()) {
+            resource.setId(parserService.generateId());
+        }
+        return submit(Operation.CREATE, null, resource);
+    }
+
+    /**
+     * Validates and queues an update of the resource with the given id. Returns the request id to poll.
+     */
+    public String submitUpdate(String id, R resource) {
+        validationService.validateOrThrow(resource);
+        resource.setId(id);
+        return submit(Operation.UPDATE, id, resource);
+    }
+
+    /**
+     * The outcome of a request: empty while it is still queued. Throws ResourceNotFoundException for an
+     * unknown (or purged) request id.
+     */
+    public Optional<AsyncRequestStatus> status(String requestId) {
+        List<?> rows = QuarkusTransaction.requiringNew().call(() -> entityManager.createNativeQuery(
+                "SELECT state, resource_id, version_id, http_status, diagnostics FROM " + table()
+                    + " WHERE request_id = ?1")
+            .setParameter(1, requestId)
+            .getResultList());
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Async request " + requestId);
+        }
+        Object[] row = (Object[]) rows.get(0);
+        if ("queued".equals(row[0])) {
+            return Optional.empty();
+        }
+        return Optional.of(new AsyncRequestStatus(resourceType().getSimpleName(), (String) row[1],
+            row[2] != null ? ((Number) row[2]).longValue() : null, ((Number) row[3]).intValue(), (String) row[4]));
+    }
+
+    private String submit(Operation operation, String resourceId, R resource) {
+        Submission submission = new Submission(UUID.randomUUID().toString(), operation, resourceId,
+            jsonParser.encodeResourceToString(resource));
+        uncommitted.add(submission);
+        synchronized (commitLock) {
+            if (!submission.committed) {
+                List<Submission> group = new ArrayList<>();
+                for (Submission next = uncommitted.poll(); next != null; next = uncommitted.poll()) {
+                    group.add(next);
+                }
+                RuntimeException failure = null;
+                try {
+                    QuarkusTransaction.requiringNew().run(() -> insertQueued(group));
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                for (Submission member : group) {
+                    member.failure = failure;
+                    member.committed = true;
+                }
+            }
+            if (submission.failure != null) {
+                throw submission.failure;
+            }
+        }
+        backlog.incrementAndGet();
+        LockSupport.unpark(worker);
+        return submission.requestId;
+    }
+
+    private void insertQueued(List<Submission> group) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table()
+                    + " (request_id, operation, resource_id, payload, state, received_at)"
+                    + " VALUES (?, ?, ?, ?, 'queued', ?)")) {
+                for (Submission submission : group) {
+                    insert.setString(1, submission.requestId);
+                    insert.setString(2, submission.operation.name());
+                    insert.setString(3, submission.resourceId);
+                    insert.setString(4, submission.payload);
+                    insert.setTimestamp(5, now);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    private void drain() {
+        long nextPurge = System.nanoTime() + purgeInterval.toNanos();
+        while (running) {
+            try {
+                if (writeBatch() == 0) {
+                    LockSupport.parkNanos(pollInterval.toNanos());
+                }
+                if (System.nanoTime() - nextPurge >= 0) {
+                    purgeStatuses();
+                    nextPurge = System.nanoTime() + purgeInterval.toNanos();
+                }
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Async write to %s failed; retrying in %s", table(), retryDelay);
+                LockSupport.parkNanos(retryDelay.toNanos());
+            }
+        }
+    }
+
+    /**
+     * Applies the oldest queued writes in one transaction. Returns how many were taken, 0 when the queue is
+     * empty or another replica is draining it.
+     */
+    private int writeBatch() {
+        List<QueuedWrite> batch = new ArrayList<>();
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                if (!lockQueue(false)) {
+                    return;
+                }
+                batch.addAll(nextQueued());
+                for (QueuedWrite write : batch) {
+                    apply(write);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOG.debugf(e, "Group of %d async write(s) to %s failed; applying them one by one", batch.size(),
+                table());
+            batch.forEach(this::writeOne);
+        }
+        backlog.set(QuarkusTransaction.requiringNew().call(() -> ((Number) entityManager.createNativeQuery(
+            "SELECT count(*) FROM " + table() + " WHERE state = 'queued'").getSingleResult()).longValue()));
+        return batch.size();
+    }
+
+    private void writeOne(QueuedWrite write) {
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                lockQueue(true);
+                // Another replica may have applied it meanwhile
+                if (isQueued(write.requestId())) {
+                    apply(write);
+                }
+            });
+        } catch (RuntimeException e) {
+            int status = httpStatus(e);
+            if (status >= 500 && QuarkusTransaction.requiringNew().call(() -> countAttempt(write)) < maxAttempts) {
+                throw e;
+            }
+            QuarkusTransaction.requiringNew().run(() -> complete(write.requestId(), status, write.resourceId(),
+                null, rootMessage(e)));
+        }
+    }
+
+    private void apply(QueuedWrite write) {
+        R resource = jsonParser.parseResource(resourceType(), write.payload());
+        R stored;
+        int status;
+        if (write.operation() == Operation.CREATE) {
+            stored = create(resource);
+            status = 201;
+        } else {
+            stored = update(write.resourceId(), resource);
+            status = 200;
+        }
+        complete(write.requestId(), status, stored.getIdElement().getIdPart(),
+            Long.valueOf(stored.getMeta().getVersionId()), null);
+    }
+
+    // Through JDBC so that null columns are bound with their types
+    private void complete(String requestId, int status, String resourceId, Long versionId, String diagnostics) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement("UPDATE " + table()
+                    + " SET state = 'done', payload = NULL, http_status = ?, resource_id = ?, version_id = ?,"
+                    + " diagnostics = ?, completed_at = ? WHERE request_id = ? AND state = 'queued'")) {
+                update.setInt(1, status);
+                update.setString(2, resourceId);
+                update.setObject(3, versionId, Types.BIGINT);
+                update.setString(4, diagnostics);
+                update.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+                update.setString(6, requestId);
+                update.executeUpdate();
+            }
+        });
+    }
+
+    // Only the holder applies writes; the lock is released with the transaction
+    private boolean lockQueue(boolean wait) {
+        String key = "async:" + table();
+        if (wait) {
+            entityManager.createNativeQuery(
+                    "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtextextended(?1, 0))) locked")
+                .setParameter(1, key)
+                .getSingleResult();
+            return true;
+        }
+        return (Boolean) entityManager.createNativeQuery(
+                "SELECT pg_try_advisory_xact_lock(hashtextextended(?1, 0))")
+            .setParameter(1, key)
+            .getSingleResult();
+    }
+
+    private List<QueuedWrite> nextQueued() {
+        List<?> rows = entityManager.createNativeQuery("SELECT request_id, operation, resource_id, payload FROM "
+                + table() + " WHERE state = 'queued' ORDER BY queue_position LIMIT ?1")
+            .setParameter(1, batchSize)
+            .getResultList();
+        List<QueuedWrite> writes = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            writes.add(new QueuedWrite((String) columns[0], Operation.valueOf((String) columns[1]),
+                (String) columns[2], (String) columns[3]));
+        }
+        return writes;
+    }
+
+    private boolean isQueued(String requestId) {
+        return !entityManager.createNativeQuery(
+                "SELECT 1 FROM " + table() + " WHERE request_id = ?1 AND state = 'queued'")
+            .setParameter(1, requestId)
+            .getResultList()
+            .isEmpty();
+    }
+
+    private int countAttempt(QueuedWrite write) {
+        entityManager.createNativeQuery("UPDATE " + table() + " SET attempts = attempts + 1 WHERE request_id = ?1")
+            .setParameter(1, write.requestId())
+            .executeUpdate();
+        return ((Number) entityManager.createNativeQuery("SELECT attempts FROM " + table()
+                + " WHERE request_id = ?1")
+            .setParameter(1, write.requestId())
+            .getSingleResult()).intValue();
+    }
+
+    private void purgeStatuses() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(statusRetention);
+        int purged = QuarkusTransaction.requiringNew().call(() -> entityManager.createNativeQuery(
+                "DELETE FROM " + table() + " WHERE state = 'done' AND completed_at < ?1")
+            .setParameter(1, cutoff)
+            .executeUpdate());
+        if (purged > 0) {
+            LOG.debugf("Purged %d async request outcome(s) from %s completed before %s", purged, table(), cutoff);
+        }
+    }
+
+    // The status the synchronous write would have answered with
+    private static int httpStatus(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FhirValidationException) {
+                return 400;
+            } else if (cause instanceof ResourceNotFoundException) {
+                return 404;
+            } else if (cause instanceof DuplicateResourceException) {
+                return 409;
+            }
+        }
+        return 500;
+    }
+
+    private static String rootMessage(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FhirValidationException || cause instanceof ResourceNotFoundException
+                    || cause instanceof DuplicateResourceException) {
+                return cause.getMessage();
+            }
+        }
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private record QueuedWrite(String requestId, Operation operation, String resourceId, String payload) {
+    }
+
+    private static final class Submission {
+
+        private final String requestId;
+        private final Operation operation;
+        private final String resourceId;
+        private final String payload;
+
+        // Guarded by commitLock
+        private boolean committed;
+        private RuntimeException failure;
+
+        private Submission(String requestId, Operation operation, String resourceId, String payload) {
+            this.requestId = requestId;
+            this.operation = operation;
+            this.resourceId = resourceId;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.redhat.healthcare.fhir.chain;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chained search parameters such as {@code patient.family=Smith}: the part before the dot is a reference
+ * parameter of the searched resource, the part after it a search parameter of the referenced resource, which
+ * lives in another service. Each service passes its own map of reference parameter to chained resource type.
+ */
+public final class ChainedParameters {
+
+    // Parameters the remote services search on; anything else would be silently ignored there and match everything
+    static final Map<String, Set<String>> TARGET_PARAMS = Map.of(
+        "Patient", Set.of("identifier", "family", "given", "birthdate"),
+        "Practitioner", Set.of("identifier", "npi", "name", "family", "given", "email", "specialty", "gender",
+            "telecom", "address-city", "address-state", "address-postalcode")
+    );
+
+    private ChainedParameters() {
+    }
+
+    /**
+     * Picks the chained parameters out of a query string, grouped by reference parameter so each group is
+     * resolved with one remote search. Throws IllegalArgumentException for an unsupported chain.
+     */
+    public static Map<String, Map<String, List<String>>> parse(Map<String, String> chainTypes,
+                                                               Map<String, List<String>> query) {
+        Map<String, Map<String, List<String>>> chains = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> param : query.entrySet()) {
+            int dot = param.getKey().indexOf('.');
+            if (dot < 0) {
+                continue;
+            }
+            String reference = param.getKey().substring(0, dot);
+            String target = param.getKey().substring(dot + 1);
+            String targetType = chainTypes.get(reference);
+            if (targetType == null) {
+                throw new IllegalArgumentException("Unsupported chained parameter '" + param.getKey() + "'");
+            }
+            if (!TARGET_PARAMS.get(targetType).contains(target.split(":", 2)[0])) {
+                throw new IllegalArgumentException("Unsupported chained parameter '" + param.getKey() +
+                    "': " + targetType + " cannot be searched by " + target);
+            }
+            chains.computeIfAbsent(reference, key -> new LinkedHashMap<>()).put(target, param.getValue());
+        }
+        return chains;
+    }
+}
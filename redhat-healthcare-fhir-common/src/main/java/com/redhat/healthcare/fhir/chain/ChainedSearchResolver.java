@@ -0,0 +1,89 @@
+package com.redhat.healthcare.fhir.chain;
+
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Turns chained parameters into the set of references they match, so a chain becomes a single
+ * {@code patient_reference IN (...)} predicate instead of a lookup per matched resource.
+ * <p>
+ * All chained parameters on one reference go to the remote service in a single search, and the resulting id
+ * sets are cached for cache.ttl-seconds, keyed by resource type and the normalized parameters.
+ */
+@ApplicationScoped
+public class ChainedSearchResolver {
+
+    @ConfigProperty(name = "fhir.chain.max-ids", defaultValue = "1000")
+    int maxIds;
+
+    @ConfigProperty(name = "fhir.chain.cache.ttl-seconds", defaultValue = "60")
+    int ttlSeconds;
+
+    @ConfigProperty(name = "fhir.chain.cache.max-entries", defaultValue = "1000")
+    int maxEntries;
+
+    @Inject
+    ReferenceSearchClient client;
+
+    private Map<String, CachedIds> cache;
+
+    record CachedIds(Set<String> ids, long expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedIds> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Resolves each chain from {@link ChainedParameters#parse} to the references it matches (e.g.
+     * {@code Patient/123}), keyed by reference parameter. An empty set means nothing matched.
+     */
+    public Map<String, Set<String>> resolve(Map<String, String> chainTypes,
+                                            Map<String, Map<String, List<String>>> chains) {
+        Map<String, Set<String>> references = new LinkedHashMap<>();
+        chains.forEach((reference, params) -> {
+            String targetType = chainTypes.get(reference);
+            Set<String> ids = ids(targetType, params);
+            if (ids.size() > maxIds) {
+                throw new FhirValidationException("Chained search on " + reference + " matches more than " +
+                    maxIds + " " + targetType + " resources; add criteria to narrow it");
+            }
+            Set<String> resolved = new LinkedHashSet<>();
+            ids.forEach(id -> resolved.add(targetType + "/" + id));
+            references.put(reference, resolved);
+        });
+        return references;
+    }
+
+    private Set<String> ids(String targetType, Map<String, List<String>> params) {
+        String key = targetType + "?" + new TreeMap<>(params);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CachedIds cached = cache.get(key);
+            if (cached != null && cached.expiresAt() > now) {
+                return cached.ids();
+            }
+        }
+        Set<String> ids = Set.copyOf(client.searchIds(targetType, params));
+        synchronized (this) {
+            cache.put(key, new CachedIds(ids, now + ttlSeconds * 1000L));
+        }
+        return ids;
+    }
+}
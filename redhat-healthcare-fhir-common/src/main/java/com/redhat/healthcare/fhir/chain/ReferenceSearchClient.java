@@ -0,0 +1,25 @@
+package com.redhat.healthcare.fhir.chain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Searches the service that owns a resource type. The REST implementation is the default bean; tests can
+ * replace it with a local stub by declaring their own bean of this type.
+ */
+public interface ReferenceSearchClient {
+
+    /**
+     * Ids of the resources matching the search parameters.
+     */
+    Set<String> searchIds(String resourceType, Map<String, List<String>> params);
+
+    /**
+     * The resources with the given ids, read in one request; missing or deleted ids are left out.
+     */
+    List<JsonNode> read(String resourceType, Collection<String> ids);
+}
@@ -0,0 +1,72 @@
+package com.redhat.healthcare.fhir.chain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.fhir.client.PatientApi;
+import com.redhat.healthcare.fhir.client.PractitionerApi;
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves chains and includes with one search against the patient or practitioner service.
+ */
+@DefaultBean
+@ApplicationScoped
+public class RemoteReferenceSearchClient implements ReferenceSearchClient {
+
+    @Inject
+    @RestClient
+    PatientApi patientApi;
+
+    @Inject
+    @RestClient
+    PractitionerApi practitionerApi;
+
+    @Override
+    public Set<String> searchIds(String resourceType, Map<String, List<String>> params) {
+        MultivaluedMap<String, String> query = new MultivaluedHashMap<>();
+        params.forEach(query::put);
+
+        Set<String> ids = new LinkedHashSet<>();
+        for (JsonNode resource : search(resourceType, query)) {
+            String id = resource.path("id").asText(null);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public List<JsonNode> read(String resourceType, Collection<String> ids) {
+        MultivaluedMap<String, String> query = new MultivaluedHashMap<>();
+        query.putSingle("_id", String.join(",", ids));
+        return search(resourceType, query);
+    }
+
+    private List<JsonNode> search(String resourceType, MultivaluedMap<String, String> query) {
+        JsonNode bundle = switch (resourceType) {
+            case "Patient" -> patientApi.search(query);
+            case "Practitioner" -> practitionerApi.search(query);
+            default -> throw new IllegalArgumentException("No service for " + resourceType);
+        };
+
+        List<JsonNode> resources = new ArrayList<>();
+        for (JsonNode entry : bundle.path("entry")) {
+            if (entry.has("resource")) {
+                resources.add(entry.get("resource"));
+            }
+        }
+        return resources;
+    }
+}
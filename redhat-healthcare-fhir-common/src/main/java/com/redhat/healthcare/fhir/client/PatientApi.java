@@ -0,0 +1,33 @@
+package com.redhat.healthcare.fhir.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.jboss.resteasy.reactive.RestQuery;
+
+@RegisterRestClient(configKey = "patient-api")
+@Path("/Patient")
+@Produces(MediaType.APPLICATION_JSON)
+public interface PatientApi {
+
+    @GET
+    JsonNode search(@RestQuery MultivaluedMap<String, String> params);
+
+    @GET
+    @Path("/{id}")
+    JsonNode read(@PathParam("id") String id);
+
+    /**
+     * One page of the change feed after the given position, "0.0" for the start; the X-Change-Sequence header
+     * carries the position of the last entry returned.
+     */
+    @GET
+    Response changes(@QueryParam("_cursor") String cursor, @QueryParam("_count") int count);
+}
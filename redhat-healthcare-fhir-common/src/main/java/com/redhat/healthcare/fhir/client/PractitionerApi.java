@@ -0,0 +1,24 @@
+package com.redhat.healthcare.fhir.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.jboss.resteasy.reactive.RestQuery;
+
+@RegisterRestClient(configKey = "practitioner-api")
+@Path("/Practitioner")
+@Produces(MediaType.APPLICATION_JSON)
+public interface PractitionerApi {
+
+    @GET
+    JsonNode search(@RestQuery MultivaluedMap<String, String> params);
+
+    @GET
+    @Path("/{id}")
+    JsonNode read(@PathParam("id") String id);
+}
@@ -1,4 +1,4 @@
-package com.redhat.healthcare.claims.config;
+package com.redhat.healthcare.fhir.config;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.parser.IParser;
@@ -19,7 +19,7 @@ public class FhirConfig {
     @Produces
     @ApplicationScoped
     public FhirContext fhirContext() {
-        return FhirContext.forR4();
+        return FhirModel.R4;
     }
 
     @Produces
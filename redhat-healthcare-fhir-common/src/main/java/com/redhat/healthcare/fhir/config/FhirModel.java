@@ -0,0 +1,52 @@
+package com.redhat.healthcare.fhir.config;
+
+import ca.uhn.fhir.context.FhirContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Holds the R4 FhirContext with the resource types this service handles already scanned. The types are listed in
+ * {@value #RESOURCE_TYPES} in application.properties; HAPI scans any other type on first use. In a native
+ * executable this class is initialized while the image is built, so the scan is done once at build time and the
+ * scanned context is part of the image heap. On the JVM the scan runs when the context is first injected.
+ */
+public final class FhirModel {
+
+    static final String RESOURCE_TYPES = "fhir.model.resource-types";
+
+    public static final List<String> SCANNED_TYPES = resourceTypes();
+    public static final FhirContext R4 = scan(FhirContext.forR4(), SCANNED_TYPES);
+
+    private FhirModel() {
+    }
+
+    private static FhirContext scan(FhirContext context, List<String> resourceTypes) {
+        for (String resourceType : resourceTypes) {
+            context.getResourceDefinition(resourceType);
+        }
+        return context;
+    }
+
+    // Read from application.properties directly: the native build initializes this class in the image builder,
+    // where the Quarkus configuration is not available
+    private static List<String> resourceTypes() {
+        Properties properties = new Properties();
+        try (InputStream in = FhirModel.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String types = properties.getProperty(RESOURCE_TYPES, "");
+        return Arrays.stream(types.split(","))
+            .map(String::trim)
+            .filter(type -> !type.isEmpty())
+            .toList();
+    }
+}
@@ -0,0 +1,62 @@
+package com.redhat.healthcare.fhir.config;
+
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+import org.hl7.fhir.r4.model.Enumerations;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Native-image feature that registers the HAPI FHIR R4 model for reflection. HAPI instantiates model classes
+ * and reads and writes their fields reflectively while parsing and encoding, so every class the scanned
+ * {@link FhirModel#R4} context knows about is registered, with its superclasses and nested enums and enum
+ * factories. Only the service's own resource types and the datatypes they use are scanned, so a type missing
+ * from fhir.model.resource-types cannot be parsed by the native executable. Enabled with --features in
+ * quarkus.native.additional-build-args.
+ * <p>
+ * Methods are not registered wholesale: that would make every model method reachable, and some (XhtmlNode's
+ * markdown helpers, for one) link against optional libraries that are not on the classpath, which fails the
+ * build under --link-at-build-time. The parser only looks up {@code copy()} reflectively.
+ */
+public class FhirModelFeature implements Feature {
+
+    @Override
+    public String getDescription() {
+        return "Registers the HAPI FHIR R4 model classes for reflection";
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        Set<Class<?>> registered = new HashSet<>();
+        for (BaseRuntimeElementDefinition<?> definition : FhirModel.R4.getElementDefinitions()) {
+            register(definition.getImplementingClass(), registered);
+        }
+        for (String resourceType : FhirModel.SCANNED_TYPES) {
+            register(FhirModel.R4.getResourceDefinition(resourceType).getImplementingClass(), registered);
+        }
+        register(Enumerations.class, registered);
+    }
+
+    private static void register(Class<?> type, Set<Class<?>> registered) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (!registered.add(current)) {
+                return;
+            }
+            RuntimeReflection.register(current);
+            RuntimeReflection.register(current.getDeclaredConstructors());
+            RuntimeReflection.register(current.getDeclaredFields());
+            // BaseParser copies meta elements through their public copy() method
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals("copy") && method.getParameterCount() == 0) {
+                    RuntimeReflection.register(method);
+                }
+            }
+            for (Class<?> nested : current.getDeclaredClasses()) {
+                register(nested, registered);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.redhat.healthcare.fhir.config;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.validation.FhirValidator;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the FHIR stack before the service reports ready. A background thread started at boot forces the R4 model
+ * scan, then runs the service's sample resource, warmup/&lt;ResourceType&gt;.json, through the same parse, validate,
+ * column extraction and encode steps as a write, fhir.warmup.iterations times, so the first request finds those
+ * paths scanned and JIT-compiled. Readiness stays down until it is done; liveness is not affected.
+ */
+@Readiness
+@ApplicationScoped
+public class FhirWarmup implements HealthCheck {
+
+    private static final Logger LOG = Logger.getLogger(FhirWarmup.class);
+
+    @ConfigProperty(name = "fhir.warmup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "fhir.warmup.iterations", defaultValue = "500")
+    int iterations;
+
+    @Inject
+    FhirContext fhirContext;
+
+    @Inject
+    FhirValidator validator;
+
+    @Inject
+    ResourceMapping<?, ?> mapping;
+
+    private volatile boolean warm;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            warm = true;
+            return;
+        }
+        Thread worker = new Thread(this::warmUp, "fhir-warmup");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("fhir-warmup").status(warm).build();
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            int resourceTypes = FhirModel.SCANNED_TYPES.size();
+            String type = roundTrips(mapping);
+            LOG.infof("FHIR warm-up done in %d ms: %d resource types scanned, %d %s round trips",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), resourceTypes, iterations, type);
+        } catch (RuntimeException e) {
+            // Only first-request latency depends on the warm-up, so it never keeps the service unready
+            LOG.warn("FHIR warm-up failed; reporting ready without it", e);
+        } finally {
+            warm = true;
+        }
+    }
+
+    private <R extends IBaseResource> String roundTrips(ResourceMapping<R, ?> resourceMapping) {
+        String type = resourceMapping.resourceType().getSimpleName();
+        String payload = readPayload("warmup/" + type + ".json");
+        for (int i = 0; i < iterations; i++) {
+            R resource = resourceMapping.toFhir(payload);
+            validator.validateWithResult(resource);
+            resourceMapping.toEntity(resource);
+        }
+        return type;
+    }
+
+    // The payload lives in the service, so it is looked up through the application class loader, not this jar's
+    private String readPayload(String path) {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("Warm-up payload " + path + " is missing");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read warm-up payload " + path, e);
+        }
+    }
+}
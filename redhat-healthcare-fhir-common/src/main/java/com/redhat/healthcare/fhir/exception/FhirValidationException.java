@@ -1,4 +1,4 @@
-package com.redhat.healthcare.claims.exception;
+package com.redhat.healthcare.fhir.exception;
 
 public class FhirValidationException extends RuntimeException {
 
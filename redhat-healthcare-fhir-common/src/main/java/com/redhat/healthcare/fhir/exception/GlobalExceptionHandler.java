@@ -1,4 +1,4 @@
-package com.redhat.healthcare.claims.exception;
+package com.redhat.healthcare.fhir.exception;
 
 import ca.uhn.fhir.parser.IParser;
 import jakarta.inject.Inject;
@@ -21,6 +21,10 @@ public class GlobalExceptionHandler implements ExceptionMapper<Exception> {
             return notFound(outcome, exception.getMessage());
         } else if (exception instanceof FhirValidationException) {
             return badRequest(outcome, exception.getMessage());
+        } else if (exception instanceof DuplicateResourceException) {
+            return conflict(outcome, exception.getMessage());
+        } else if (exception instanceof PreconditionFailedException) {
+            return preconditionFailed(outcome, exception.getMessage());
         } else {
             return serverError(outcome, exception.getMessage());
         }
@@ -48,6 +52,28 @@ public class GlobalExceptionHandler implements ExceptionMapper<Exception> {
             .build();
     }
 
+    private Response conflict(OperationOutcome outcome, String message) {
+        outcome.addIssue()
+            .setSeverity(OperationOutcome.IssueSeverity.ERROR)
+            .setCode(OperationOutcome.IssueType.DUPLICATE)
+            .setDiagnostics(message);
+
+        return Response.status(Response.Status.CONFLICT)
+            .entity(jsonParser.encodeResourceToString(outcome))
+            .build();
+    }
+
+    private Response preconditionFailed(OperationOutcome outcome, String message) {
+        outcome.addIssue()
+            .setSeverity(OperationOutcome.IssueSeverity.ERROR)
+            .setCode(OperationOutcome.IssueType.MULTIPLEMATCHES)
+            .setDiagnostics(message);
+
+        return Response.status(Response.Status.PRECONDITION_FAILED)
+            .entity(jsonParser.encodeResourceToString(outcome))
+            .build();
+    }
+
     private Response serverError(OperationOutcome outcome, String message) {
         outcome.addIssue()
             .setSeverity(OperationOutcome.IssueSeverity.ERROR)
@@ -0,0 +1,166 @@
+package com.redhat.healthcare.fhir.integrity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.fhir.client.PatientApi;
+import com.redhat.healthcare.fhir.client.PractitionerApi;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.ScheduledExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local replica of the ids of active patients and practitioners, so checking a reference on write is a
+ * hash lookup instead of an HTTP call.
+ * <p>
+ * Patients follow the patient service's change feed ({@code _cursor}, {@code X-Change-Sequence}) every
+ * feed-interval, page by page until a page has no next link. Soft-deleted patients arrive as DELETE entries
+ * and are dropped from the replica. A full snapshot is also read every snapshot-interval, which is how
+ * practitioners are replicated (their service has no feed).
+ * <p>
+ * Neither job runs while fhir.references.validation.enabled is false, so services that never validate
+ * references do not create the REST clients.
+ */
+@ApplicationScoped
+public class ReferenceExistenceIndex {
+
+    private static final Logger LOG = Logger.getLogger(ReferenceExistenceIndex.class);
+
+    private static final int FEED_PAGE_SIZE = 1000;
+    private static final String FEED_START = "0.0";
+
+    @Inject
+    @RestClient
+    PatientApi patientApi;
+
+    @Inject
+    @RestClient
+    PractitionerApi practitionerApi;
+
+    // null until the first snapshot has loaded
+    private volatile Set<String> patients;
+    private volatile Set<String> practitioners;
+    private String patientCursor;
+
+    @Scheduled(every = "${fhir.references.feed-interval:15s}", skipExecutionIf = ValidationDisabled.class,
+        concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public synchronized void followPatientFeed() {
+        Set<String> current = patients;
+        if (current == null) {
+            return;
+        }
+        try {
+            patientCursor = readPatientFeed(patientCursor, current);
+        } catch (RuntimeException e) {
+            LOG.warnf("Patient change feed unavailable: %s", e.getMessage());
+        }
+    }
+
+    @Scheduled(every = "${fhir.references.snapshot-interval:1h}", skipExecutionIf = ValidationDisabled.class,
+        concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public synchronized void snapshot() {
+        try {
+            Set<String> loaded = ConcurrentHashMap.newKeySet();
+            patientCursor = readPatientFeed(FEED_START, loaded);
+            patients = loaded;
+            LOG.debugf("Reference index: %d patients through change position %s", loaded.size(), patientCursor);
+        } catch (RuntimeException e) {
+            LOG.warnf("Patient snapshot failed, keeping the previous one: %s", e.getMessage());
+        }
+        try {
+            Set<String> loaded = ConcurrentHashMap.newKeySet();
+            for (JsonNode entry : practitionerApi.search(new MultivaluedHashMap<>()).path("entry")) {
+                addId(entry, loaded);
+            }
+            practitioners = loaded;
+            LOG.debugf("Reference index: %d practitioners", loaded.size());
+        } catch (RuntimeException e) {
+            LOG.warnf("Practitioner snapshot failed, keeping the previous one: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the replica holds the id, or null when that resource type has not been loaded yet.
+     */
+    public Boolean contains(String resourceType, String id) {
+        Set<String> ids = ids(resourceType);
+        return ids == null ? null : ids.contains(id);
+    }
+
+    /**
+     * Records an id confirmed by the owning service ahead of the next sync.
+     */
+    public void add(String resourceType, String id) {
+        Set<String> ids = ids(resourceType);
+        if (ids != null) {
+            ids.add(id);
+        }
+    }
+
+    private Set<String> ids(String resourceType) {
+        return switch (resourceType) {
+            case "Patient" -> patients;
+            case "Practitioner" -> practitioners;
+            default -> null;
+        };
+    }
+
+    private String readPatientFeed(String cursor, Set<String> ids) {
+        while (true) {
+            boolean hasNext = false;
+            try (Response page = patientApi.changes(cursor, FEED_PAGE_SIZE)) {
+                JsonNode bundle = page.readEntity(JsonNode.class);
+                for (JsonNode entry : bundle.path("entry")) {
+                    if ("DELETE".equals(entry.path("request").path("method").asText())) {
+                        removeId(entry, ids);
+                    } else {
+                        addId(entry, ids);
+                    }
+                }
+                for (JsonNode link : bundle.path("link")) {
+                    hasNext |= "next".equals(link.path("relation").asText());
+                }
+                String last = page.getHeaderString("X-Change-Sequence");
+                if (last != null) {
+                    cursor = last;
+                }
+            }
+            if (!hasNext) {
+                return cursor;
+            }
+        }
+    }
+
+    private static void addId(JsonNode entry, Set<String> ids) {
+        String id = entry.path("resource").path("id").asText(null);
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    // A DELETE entry has no resource; its request url is Patient/<id>
+    private static void removeId(JsonNode entry, Set<String> ids) {
+        String url = entry.path("request").path("url").asText("");
+        ids.remove(url.substring(url.lastIndexOf('/') + 1));
+    }
+
+    @Singleton
+    public static class ValidationDisabled implements Scheduled.SkipPredicate {
+
+        @ConfigProperty(name = "fhir.references.validation.enabled", defaultValue = "false")
+        boolean enabled;
+
+        @Override
+        public boolean test(ScheduledExecution execution) {
+            return !enabled;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.redhat.healthcare.fhir.integrity;
+
+import com.redhat.healthcare.fhir.client.PatientApi;
+import com.redhat.healthcare.fhir.client.PractitionerApi;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.hl7.fhir.r4.model.IdType;
+import org.jboss.logging.Logger;
+
+/**
+ * Rejects writes that reference a Patient or Practitioner that does not exist. Hits in the
+ * {@link ReferenceExistenceIndex} pass without a remote call; a miss may be a resource created since the last
+ * sync, so it is confirmed with the owning service before the write is rejected. If that service cannot be
+ * reached the reference is accepted, so an outage there does not block writes here.
+ */
+@ApplicationScoped
+public class ReferenceValidator {
+
+    private static final Logger LOG = Logger.getLogger(ReferenceValidator.class);
+
+    @ConfigProperty(name = "fhir.references.validation.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @Inject
+    ReferenceExistenceIndex index;
+
+    @Inject
+    @RestClient
+    PatientApi patientApi;
+
+    @Inject
+    @RestClient
+    PractitionerApi practitionerApi;
+
+    /**
+     * Checks each Patient/... and Practitioner/... reference; null and other reference types are skipped.
+     */
+    public void validate(String... references) {
+        if (!enabled) {
+            return;
+        }
+        for (String reference : references) {
+            if (reference == null || reference.isEmpty()) {
+                continue;
+            }
+            IdType id = new IdType(reference);
+            String type = id.getResourceType();
+            if (!("Patient".equals(type) || "Practitioner".equals(type)) || !id.hasIdPart()) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(index.contains(type, id.getIdPart()))) {
+                continue;
+            }
+            if (!existsRemotely(type, id.getIdPart())) {
+                throw new FhirValidationException("Referenced resource " + type + "/" + id.getIdPart() + " does not exist");
+            }
+            index.add(type, id.getIdPart());
+        }
+    }
+
+    private boolean existsRemotely(String type, String id) {
+        try {
+            if ("Patient".equals(type)) {
+                patientApi.read(id);
+            } else {
+                practitionerApi.read(id);
+            }
+            return true;
+        } catch (WebApplicationException e) {
+            int status = e.getResponse() != null ? e.getResponse().getStatus() : -1;
+            if (status == 404 || status == 410) {
+                return false;
+            }
+            LOG.warnf("Cannot verify %s/%s (HTTP %d); accepting the reference", type, id, status);
+            return true;
+        } catch (RuntimeException e) {
+            LOG.warnf("Cannot verify %s/%s (%s); accepting the reference", type, id, e.getMessage());
+            return true;
+        }
+    }
+}
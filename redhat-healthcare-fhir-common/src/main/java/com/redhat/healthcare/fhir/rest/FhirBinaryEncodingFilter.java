@@ -0,0 +1,170 @@
+package com.redhat.healthcare.fhir.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Re-encodes JSON response bodies as CBOR or Smile when the client negotiated
+ * {@code application/fhir+cbor} or {@code application/fhir+smile}. The document structure is
+ * unchanged; only the wire encoding differs, so binary clients skip JSON text parsing. The body is transcoded
+ * token by token as the JSON writer produces it, so a streamed search stays streamed.
+ */
+@Provider
+public class FhirBinaryEncodingFilter implements WriterInterceptor {
+
+    public static final String FHIR_CBOR = "application/fhir+cbor";
+    public static final String FHIR_SMILE = "application/fhir+smile";
+
+    public static final MediaType FHIR_CBOR_TYPE = MediaType.valueOf(FHIR_CBOR);
+    public static final MediaType FHIR_SMILE_TYPE = MediaType.valueOf(FHIR_SMILE);
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final CBORFactory CBOR = new CBORFactory();
+    private static final SmileFactory SMILE = new SmileFactory();
+
+    @Context
+    HttpHeaders requestHeaders;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        JsonFactory target = binaryTarget(negotiatedType(context.getMediaType()));
+        // A body that already carries a Content-Encoding is a pre-encoded representation, not JSON text
+        if (target == null || context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+
+        OutputStream out = context.getOutputStream();
+        TranscodingOutputStream binary = new TranscodingOutputStream(out, target);
+        context.setOutputStream(binary);
+        try {
+            context.proceed();
+            binary.close();
+        } finally {
+            context.setOutputStream(out);
+        }
+    }
+
+    /**
+     * Quarkus REST only fixes the Content-Type from @Produces after the writer interceptors have run, so a
+     * response built without an explicit type is negotiated here the same way: the client's most preferred
+     * acceptable type among those the resource method produces.
+     */
+    private MediaType negotiatedType(MediaType mediaType) {
+        if (mediaType != null) {
+            return mediaType;
+        }
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return null;
+        }
+        Produces produces = method.getAnnotation(Produces.class);
+        if (produces == null) {
+            produces = resourceInfo.getResourceClass().getAnnotation(Produces.class);
+        }
+        if (produces == null) {
+            return null;
+        }
+        for (MediaType accepted : requestHeaders.getAcceptableMediaTypes()) {
+            for (String produced : produces.value()) {
+                MediaType candidate = MediaType.valueOf(produced);
+                if (accepted.isCompatible(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static JsonFactory binaryTarget(MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        if (mediaType.isCompatible(FHIR_CBOR_TYPE)) {
+            return CBOR;
+        }
+        if (mediaType.isCompatible(FHIR_SMILE_TYPE)) {
+            return SMILE;
+        }
+        return null;
+    }
+
+    /**
+     * True when the client's most preferred acceptable type is one of the binary encodings.
+     */
+    public static boolean prefersBinary(HttpHeaders headers) {
+        for (MediaType accepted : headers.getAcceptableMediaTypes()) {
+            if (accepted.isWildcardType() || accepted.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return false;
+            }
+            if (accepted.isCompatible(FHIR_CBOR_TYPE) || accepted.isCompatible(FHIR_SMILE_TYPE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses JSON with Jackson's non-blocking parser as it is written and copies each complete token to the
+     * binary generator. Closing ends the document but leaves the underlying stream open.
+     */
+    static final class TranscodingOutputStream extends OutputStream {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final JsonGenerator generator;
+
+        TranscodingOutputStream(OutputStream out, JsonFactory target) throws IOException {
+            parser = JSON.createNonBlockingByteArrayParser();
+            feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            generator = target.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            // The feeder reads the array in place until drain() has consumed it, so it must not be reused
+            feeder.feedInput(bytes, offset, offset + length);
+            drain();
+        }
+
+        @Override
+        public void close() throws IOException {
+            feeder.endOfInput();
+            drain();
+            parser.close();
+            generator.close();
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                generator.copyCurrentEventExact(parser);
+            }
+        }
+    }
+}
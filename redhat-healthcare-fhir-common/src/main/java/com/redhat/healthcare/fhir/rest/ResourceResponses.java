@@ -0,0 +1,119 @@
+package com.redhat.healthcare.fhir.rest;
+
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.store.WriteResult;
+import jakarta.ws.rs.core.Response;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.StringType;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responses the resource endpoints build the same way for every resource type.
+ */
+public final class ResourceResponses {
+
+    private ResourceResponses() {
+    }
+
+    /**
+     * 201 with a Location for a conditional write that created the resource, 200 otherwise.
+     */
+    public static Response written(IParser jsonParser, WriteResult<? extends Resource> result) {
+        Resource resource = result.getResource();
+        String body = jsonParser.encodeResourceToString(resource);
+        if (result.isCreated()) {
+            String location = "/fhir/" + resource.fhirType() + "/" + resource.getIdElement().getIdPart();
+            return Response.created(URI.create(location)).entity(body).build();
+        }
+        return Response.ok(body).build();
+    }
+
+    /**
+     * The distinct, trimmed id parameters of a $delete request.
+     */
+    public static List<String> deleteIds(Parameters parameters) {
+        List<String> ids = values(parameters, "id");
+        if (ids.isEmpty()) {
+            throw new FhirValidationException("$delete requires at least one id parameter");
+        }
+        return ids;
+    }
+
+    /**
+     * The distinct, trimmed reference parameters of a $counts request.
+     */
+    public static List<String> countReferences(Parameters parameters) {
+        List<String> references = values(parameters, "reference");
+        if (references.isEmpty()) {
+            throw new FhirValidationException("$counts requires at least one reference parameter");
+        }
+        return references;
+    }
+
+    /**
+     * The first value of a single-valued operation parameter, or null when it is absent.
+     */
+    public static String parameter(Parameters parameters, String name) {
+        List<String> values = values(parameters, name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * The answer to a $counts request: one count parameter per requested reference, in request order, with
+     * reference and count parts; references without matches count 0.
+     */
+    public static Parameters countsOutcome(List<String> references, Map<String, Long> counts) {
+        Parameters outcome = new Parameters();
+        for (String reference : references) {
+            Parameters.ParametersParameterComponent count = outcome.addParameter().setName("count");
+            count.addPart().setName("reference").setValue(new StringType(reference));
+            long matches = counts.getOrDefault(reference, 0L);
+            count.addPart().setName("count").setValue(new IntegerType(Math.toIntExact(matches)));
+        }
+        return outcome;
+    }
+
+    /**
+     * The batch-response Bundle of a $delete: one entry per requested id, in request order, 204 with the new
+     * version as ETag, or 404 when the id was unknown or already deleted.
+     */
+    public static Bundle deleteOutcome(String resourceType, List<String> ids, Map<String, Long> deleted) {
+        Bundle bundle = new Bundle();
+        bundle.setType(Bundle.BundleType.BATCHRESPONSE);
+        for (String id : ids) {
+            Bundle.BundleEntryResponseComponent response = bundle.addEntry().getResponse();
+            Long version = deleted.get(id);
+            if (version != null) {
+                response.setStatus("204 No Content");
+                response.setEtag("W/\"" + version + "\"");
+            } else {
+                response.setStatus("404 Not Found");
+                OperationOutcome outcome = new OperationOutcome();
+                outcome.addIssue()
+                    .setSeverity(OperationOutcome.IssueSeverity.ERROR)
+                    .setCode(OperationOutcome.IssueType.NOTFOUND)
+                    .setDiagnostics(resourceType + "/" + id);
+                response.setOutcome(outcome);
+            }
+        }
+        return bundle;
+    }
+
+    private static List<String> values(Parameters parameters, String name) {
+        return parameters.getParameter().stream()
+            .filter(parameter -> name.equals(parameter.getName()) && parameter.hasValue())
+            .map(parameter -> parameter.getValue().primitiveValue())
+            .filter(value -> value != null && !value.isBlank())
+            .map(String::trim)
+            .distinct()
+            .toList();
+    }
+}
@@ -0,0 +1,111 @@
+package com.redhat.healthcare.fhir.rest;
+
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Resource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a searchset Bundle to the response as the matches arrive, so a search never holds its result list or
+ * the encoded Bundle in memory. Nothing is written until the first entry, so a search that fails before its
+ * first row still answers with an OperationOutcome; total is written last, once the matches have been counted.
+ * {@link #finish()} completes the Bundle and flushes, but leaves the response stream open. A search that fails
+ * part way is never finished, so the client sees a truncated body rather than a Bundle missing matches.
+ */
+public class SearchBundleWriter {
+
+    private final Writer out;
+    private final IParser parser;
+    private boolean started;
+    private int total;
+
+    public SearchBundleWriter(OutputStream out, IParser parser) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.parser = parser;
+    }
+
+    /**
+     * Adds a resource that matched the search; it counts towards total.
+     */
+    public void match(Resource resource) {
+        total++;
+        write(resource, "match");
+    }
+
+    /**
+     * Adds a resource pulled in by _include; it does not count towards total.
+     */
+    public void include(Resource resource) {
+        write(resource, "include");
+    }
+
+    /**
+     * Adds an OperationOutcome describing a problem with the search, such as an _include that could not be
+     * resolved.
+     */
+    public void outcome(OperationOutcome outcome) {
+        try {
+            startEntry();
+            out.write("{\"resource\":");
+            parser.encodeResourceToWriter(outcome, out);
+            out.write(",\"search\":{\"mode\":\"outcome\"}}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds a match that is already an encoded entry object, such as a projection built by the database.
+     */
+    public void entry(String json) {
+        total++;
+        try {
+            startEntry();
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() {
+        try {
+            if (!started) {
+                out.write("{\"resourceType\":\"Bundle\",\"type\":\"searchset\"");
+            } else {
+                out.write(']');
+            }
+            out.write(",\"total\":" + total + "}");
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(Resource resource, String mode) {
+        try {
+            startEntry();
+            out.write("{\"fullUrl\":\"/fhir/" + resource.fhirType() + "/" + resource.getIdElement().getIdPart() +
+                "\",\"resource\":");
+            parser.encodeResourceToWriter(resource, out);
+            out.write(",\"search\":{\"mode\":\"" + mode + "\"}}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void startEntry() throws IOException {
+        if (!started) {
+            out.write("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"entry\":[");
+            started = true;
+        } else {
+            out.write(',');
+        }
+    }
+}
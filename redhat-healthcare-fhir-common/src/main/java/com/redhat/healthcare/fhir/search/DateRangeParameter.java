@@ -0,0 +1,162 @@
+package com.redhat.healthcare.fhir.search;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A FHIR date search parameter (eq, ge, gt, le, lt, sa, eb prefixes) applied to a daterange column.
+ * <p>
+ * A day-precision eq matches periods containing that day ({@code @>}); ge/gt/le/lt and coarser eq values
+ * narrow one search window that the period must overlap ({@code &&}); sa/eb require the period to lie
+ * strictly after/before the value ({@code >>}, {@code <<}). All of these can use a GiST index.
+ */
+public class DateRangeParameter {
+
+    private final List<LocalDate> containsDays = new ArrayList<>();
+    private LocalDate lower;
+    private LocalDate upper;
+    private boolean windowed;
+    private LocalDate startsAfter;
+    private LocalDate endsBefore;
+
+    public static DateRangeParameter parse(String name, List<String> values) {
+        DateRangeParameter parameter = new DateRangeParameter();
+        for (String raw : values) {
+            for (String value : raw.split(",")) {
+                parameter.add(name, value.trim());
+            }
+        }
+        return parameter;
+    }
+
+    private void add(String name, String value) {
+        String prefix = value.length() > 2 && Character.isLetter(value.charAt(0)) ? value.substring(0, 2) : "eq";
+        String date = prefix.equals("eq") && !value.startsWith("eq") ? value : value.substring(2);
+
+        LocalDate first;
+        LocalDate last;
+        try {
+            if (date.length() == 4) {
+                first = LocalDate.of(Integer.parseInt(date), 1, 1);
+                last = first.withDayOfYear(first.lengthOfYear());
+            } else if (date.length() == 7) {
+                YearMonth month = YearMonth.parse(date);
+                first = month.atDay(1);
+                last = month.atEndOfMonth();
+            } else {
+                // dateTime values are compared at day precision
+                first = LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date);
+                last = first;
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " value '" + value + "'");
+        }
+
+        switch (prefix) {
+            case "eq" -> {
+                if (first.equals(last)) {
+                    containsDays.add(first);
+                } else {
+                    narrow(first, last);
+                }
+            }
+            case "ge" -> narrow(first, null);
+            case "gt" -> narrow(last.plusDays(1), null);
+            case "le" -> narrow(null, last);
+            case "lt" -> narrow(null, first.minusDays(1));
+            case "sa" -> startsAfter = startsAfter == null || last.isAfter(startsAfter) ? last : startsAfter;
+            case "eb" -> endsBefore = endsBefore == null || first.isBefore(endsBefore) ? first : endsBefore;
+            default -> throw new IllegalArgumentException("Unsupported " + name + " prefix '" + prefix + "'");
+        }
+    }
+
+    private void narrow(LocalDate from, LocalDate to) {
+        windowed = true;
+        if (from != null && (lower == null || from.isAfter(lower))) {
+            lower = from;
+        }
+        if (to != null && (upper == null || to.isBefore(upper))) {
+            upper = to;
+        }
+    }
+
+    public boolean isEmpty() {
+        return containsDays.isEmpty() && !windowed && startsAfter == null && endsBefore == null;
+    }
+
+    /**
+     * SQL predicate over the given daterange column; adds its bind values to params.
+     */
+    public String toSql(String column, String paramPrefix, Map<String, Object> params) {
+        List<String> predicates = new ArrayList<>();
+        for (int i = 0; i < containsDays.size(); i++) {
+            String param = paramPrefix + "Day" + i;
+            params.put(param, containsDays.get(i));
+            predicates.add(column + " @> CAST(:" + param + " AS date)");
+        }
+        if (windowed) {
+            if (lower != null && upper != null && lower.isAfter(upper)) {
+                return "false";
+            }
+            predicates.add(column + " && daterange(" + bound(lower, paramPrefix + "Lower", params) + ", "
+                + bound(upper, paramPrefix + "Upper", params) + ", '[]')");
+        }
+        if (startsAfter != null) {
+            params.put(paramPrefix + "After", startsAfter);
+            predicates.add(column + " >> daterange(CAST(:" + paramPrefix + "After AS date), CAST(:"
+                + paramPrefix + "After AS date), '[]')");
+        }
+        if (endsBefore != null) {
+            params.put(paramPrefix + "Before", endsBefore);
+            predicates.add(column + " << daterange(CAST(:" + paramPrefix + "Before AS date), CAST(:"
+                + paramPrefix + "Before AS date), '[]')");
+        }
+        return String.join(" AND ", predicates);
+    }
+
+    /**
+     * SQL predicate over a timestamp column holding a single point in time. Everything is folded into one
+     * half-open window so a column that is also a range partition key prunes to the months it covers.
+     */
+    public String toPointSql(String column, String paramPrefix, Map<String, Object> params) {
+        LocalDate from = lower;
+        LocalDate to = upper;
+        for (LocalDate day : containsDays) {
+            from = from == null || day.isAfter(from) ? day : from;
+            to = to == null || day.isBefore(to) ? day : to;
+        }
+        // For a point, "starts after" and "ends before" are just strict bounds
+        if (startsAfter != null && (from == null || !startsAfter.isBefore(from))) {
+            from = startsAfter.plusDays(1);
+        }
+        if (endsBefore != null && (to == null || !endsBefore.isAfter(to))) {
+            to = endsBefore.minusDays(1);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return "false";
+        }
+
+        List<String> predicates = new ArrayList<>();
+        if (from != null) {
+            params.put(paramPrefix + "From", from.atStartOfDay());
+            predicates.add(column + " >= :" + paramPrefix + "From");
+        }
+        if (to != null) {
+            params.put(paramPrefix + "To", to.plusDays(1).atStartOfDay());
+            predicates.add(column + " < :" + paramPrefix + "To");
+        }
+        return String.join(" AND ", predicates);
+    }
+
+    private static String bound(LocalDate value, String param, Map<String, Object> params) {
+        if (value == null) {
+            return "NULL";
+        }
+        params.put(param, value);
+        return "CAST(:" + param + " AS date)";
+    }
+}
@@ -0,0 +1,110 @@
+package com.redhat.healthcare.fhir.search;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Reference;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Index rows extracted from one resource, one collection per index table. Duplicates are dropped, except among
+ * quantities.
+ */
+public class ExtractedSearchParams {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    public record Token(String param, String system, String value) {
+    }
+
+    public record StringValue(String param, String normalized, String exact) {
+    }
+
+    public record ResourceReference(String param, String targetType, String targetId) {
+    }
+
+    public record Quantity(String param, BigDecimal value, String system, String code) {
+    }
+
+    private final Set<Token> tokens = new LinkedHashSet<>();
+    private final Set<StringValue> strings = new LinkedHashSet<>();
+    private final Set<ResourceReference> references = new LinkedHashSet<>();
+    private final List<Quantity> quantities = new ArrayList<>();
+
+    public void token(String param, String system, String value) {
+        if (value != null && !value.isBlank()) {
+            tokens.add(new Token(param, system, value));
+        }
+    }
+
+    public void token(String param, CodeableConcept concept) {
+        if (concept != null) {
+            for (Coding coding : concept.getCoding()) {
+                token(param, coding.getSystem(), coding.getCode());
+            }
+        }
+    }
+
+    public void string(String param, String value) {
+        if (value != null && !value.isBlank()) {
+            strings.add(new StringValue(param, normalize(value), value.trim()));
+        }
+    }
+
+    /**
+     * Literal references only ("Type/id" or an absolute URL ending in it); contained and logical references are skipped.
+     */
+    public void reference(String param, Reference reference) {
+        if (reference == null || !reference.hasReference() || reference.getReference().startsWith("#")) {
+            return;
+        }
+        String[] parts = reference.getReference().split("/");
+        if (parts.length >= 2) {
+            String id = parts[parts.length - 1];
+            String type = parts[parts.length - 2];
+            // Versioned references: Type/id/_history/n
+            if (parts.length >= 4 && "_history".equals(type)) {
+                id = parts[parts.length - 3];
+                type = parts[parts.length - 4];
+            }
+            references.add(new ResourceReference(param, type, id));
+        }
+    }
+
+    public void quantity(String param, BigDecimal value, String system, String code) {
+        if (value != null) {
+            quantities.add(new Quantity(param, value, system, code));
+        }
+    }
+
+    /**
+     * FHIR string matching ignores case and accents: lower-cased, decomposed, combining marks removed.
+     */
+    public static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public Set<Token> tokens() {
+        return tokens;
+    }
+
+    public Set<StringValue> strings() {
+        return strings;
+    }
+
+    public Set<ResourceReference> references() {
+        return references;
+    }
+
+    public List<Quantity> quantities() {
+        return quantities;
+    }
+}
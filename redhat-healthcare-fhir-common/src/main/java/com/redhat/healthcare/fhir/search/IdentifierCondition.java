@@ -0,0 +1,56 @@
+package com.redhat.healthcare.fhir.search;
+
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The identifier search of a conditional create ({@code If-None-Exist: identifier=system|value}) or a
+ * conditional update ({@code PUT /fhir/<type>?identifier=system|value}). The system may be omitted.
+ */
+public class IdentifierCondition {
+
+    private final String system;
+    private final String value;
+
+    public IdentifierCondition(String system, String value) {
+        this.system = system;
+        this.value = value;
+    }
+
+    /**
+     * Parses an If-None-Exist header, which carries the search as a query string.
+     */
+    public static IdentifierCondition fromQuery(String query) {
+        String decoded = URLDecoder.decode(query.trim(), StandardCharsets.UTF_8);
+        if (!decoded.startsWith("identifier=") || decoded.indexOf('&') >= 0) {
+            throw new FhirValidationException(
+                "Unsupported conditional search '" + query + "'; only identifier=[system|]value is supported");
+        }
+        return fromToken(decoded.substring("identifier=".length()));
+    }
+
+    public static IdentifierCondition fromToken(String token) {
+        int bar = token.indexOf('|');
+        String system = bar < 0 ? null : token.substring(0, bar).trim();
+        String value = (bar < 0 ? token : token.substring(bar + 1)).trim();
+        if (value.isEmpty()) {
+            throw new FhirValidationException("Conditional identifier search needs a value: '" + token + "'");
+        }
+        return new IdentifierCondition(system == null || system.isEmpty() ? null : system, value);
+    }
+
+    public String getSystem() {
+        return system;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return (system != null ? system + "|" : "") + value;
+    }
+}
@@ -0,0 +1,70 @@
+package com.redhat.healthcare.fhir.search;
+
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The part of each matched resource a search returns, from its {@code _summary} and {@code _elements}
+ * parameters.
+ */
+public class ProjectionCriteria {
+
+    public enum Mode {
+        FULL,
+        SUMMARY,
+        DATA,
+        COUNT,
+        ELEMENTS
+    }
+
+    private Mode mode = Mode.FULL;
+    private Set<String> elements = new LinkedHashSet<>();
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Set<String> getElements() {
+        return elements;
+    }
+
+    public void setElements(Set<String> elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * Reads {@code _summary} (true, data, count or false) or, failing that, {@code _elements}; a search with
+     * neither returns full resources.
+     */
+    public static ProjectionCriteria parse(String summary, String elements) {
+        ProjectionCriteria projection = new ProjectionCriteria();
+
+        if (summary != null && !summary.isEmpty() && !"false".equals(summary)) {
+            switch (summary) {
+                case "true" -> projection.setMode(Mode.SUMMARY);
+                case "data" -> projection.setMode(Mode.DATA);
+                case "count" -> projection.setMode(Mode.COUNT);
+                default -> throw new FhirValidationException("Unsupported _summary value: " + summary);
+            }
+        } else if (elements != null && !elements.isBlank()) {
+            // resourceType, id and meta are always returned, so they never force a document read
+            Set<String> names = Arrays.stream(elements.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .filter(name -> !Set.of("resourceType", "id", "meta").contains(name))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+            projection.setMode(Mode.ELEMENTS);
+            projection.setElements(names);
+        }
+
+        return projection;
+    }
+}
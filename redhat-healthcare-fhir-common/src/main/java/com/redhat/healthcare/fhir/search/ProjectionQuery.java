@@ -0,0 +1,109 @@
+package com.redhat.healthcare.fhir.search;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeChildResourceDefinition;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the SQL that turns matching rows of one resource table into Bundle entry JSON ({@code fullUrl} plus
+ * projected {@code resource}) in PostgreSQL, for {@code _summary} and {@code _elements} searches. Elements that
+ * can all be rebuilt from extracted columns never detoast fhir_resource; anything else is cut from the stored
+ * document. The table needs the standard fhir_id, version_id, last_updated and fhir_resource columns.
+ */
+public class ProjectionQuery {
+
+    public static final String SUBSETTED_TAG =
+        "CAST('[{\"system\":\"http://terminology.hl7.org/CodeSystem/v3-ObservationValue\",\"code\":\"SUBSETTED\"}]' AS jsonb)";
+
+    private final String resourceType;
+    private final String table;
+    private final Map<String, String> columnElements;
+    private final Set<String> summaryElements;
+
+    /**
+     * @param columnElements element name -> SQL expression that renders it from extracted columns; expressions
+     *                       may use the {@code :zone} parameter (see {@link #instant(String)})
+     */
+    public ProjectionQuery(FhirContext fhirContext, Class<? extends IBaseResource> type, String table,
+                           Map<String, String> columnElements) {
+        this.resourceType = fhirContext.getResourceType(type);
+        this.table = table;
+        this.columnElements = columnElements;
+        Set<String> summary = new LinkedHashSet<>();
+        for (BaseRuntimeChildDefinition child : fhirContext.getResourceDefinition(type).getChildren()) {
+            if (!child.isSummary()) {
+                continue;
+            }
+            // A reference child also answers to <name>Resource, which never appears in the JSON
+            if (child instanceof RuntimeChildResourceDefinition) {
+                summary.add(child.getElementName());
+            } else {
+                summary.addAll(child.getValidChildNames());
+            }
+        }
+        this.summaryElements = Collections.unmodifiableSet(summary);
+    }
+
+    /**
+     * The elements a projection keeps besides resourceType, id and meta, or null for the whole document minus
+     * text (_summary=data).
+     */
+    public Set<String> elements(ProjectionCriteria projection) {
+        return switch (projection.getMode()) {
+            case SUMMARY -> summaryElements;
+            case ELEMENTS -> projection.getElements();
+            default -> null;
+        };
+    }
+
+    /**
+     * The entry query over the rows matching where, adding the parameters its projection binds to params.
+     */
+    public String entriesSql(Set<String> elements, String where, String orderBy, Map<String, Object> params) {
+        String resource;
+        if (elements == null) {
+            resource = "fhir_resource - 'text'";
+        } else if (columnElements.keySet().containsAll(elements)) {
+            resource = columnProjection(elements);
+            params.put("zone", ZoneId.systemDefault().getId());
+        } else {
+            resource = "(SELECT jsonb_object_agg(e.key, e.value) FROM jsonb_each(fhir_resource) e " +
+                       "WHERE e.key = ANY(string_to_array(:elements, ','))) || " +
+                       "jsonb_build_object('meta', COALESCE(fhir_resource -> 'meta', CAST('{}' AS jsonb)) || " +
+                       "jsonb_build_object('tag', COALESCE(fhir_resource -> 'meta' -> 'tag', CAST('[]' AS jsonb)) || " +
+                       SUBSETTED_TAG + "))";
+            params.put("elements", "resourceType,id,meta," + String.join(",", elements));
+        }
+        return "SELECT CAST(jsonb_build_object('fullUrl', '/fhir/" + resourceType + "/' || fhir_id, 'resource', " +
+               resource + ") AS text) FROM " + table + " WHERE " + where + " ORDER BY " + orderBy;
+    }
+
+    private String columnProjection(Set<String> elements) {
+        String columns = elements.stream()
+            .map(element -> "'" + element + "', " + columnElements.get(element))
+            .collect(Collectors.joining(", "));
+        return "jsonb_strip_nulls(jsonb_build_object('resourceType', '" + resourceType + "', 'id', fhir_id, " +
+               "'meta', jsonb_build_object('versionId', CAST(version_id AS text), " +
+               "'lastUpdated', to_char((last_updated AT TIME ZONE :zone) AT TIME ZONE 'UTC', " +
+               "'YYYY-MM-DD\"T\"HH24:MI:SS.MS\"Z\"'), 'tag', " + SUBSETTED_TAG + ")" +
+               (columns.isEmpty() ? "" : ", " + columns) + "))";
+    }
+
+    // Timestamps are stored in server local time; render them back as UTC instants
+    public static String instant(String column) {
+        return "to_char((" + column + " AT TIME ZONE :zone) AT TIME ZONE 'UTC', 'YYYY-MM-DD\"T\"HH24:MI:SS\"Z\"')";
+    }
+
+    public static String reference(String referenceColumn, String displayColumn) {
+        return "CASE WHEN " + referenceColumn + " IS NULL AND " + displayColumn + " IS NULL THEN NULL " +
+               "ELSE jsonb_build_object('reference', " + referenceColumn + ", 'display', " + displayColumn + ") END";
+    }
+}
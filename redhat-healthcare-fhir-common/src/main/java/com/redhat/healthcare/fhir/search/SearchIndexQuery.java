@@ -0,0 +1,163 @@
+package com.redhat.healthcare.fhir.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns one index-backed search parameter into a {@code fhir_id IN (...)} predicate over its index table.
+ * <p>
+ * Comma-separated values are alternatives (OR); repeating the parameter narrows the search (AND), as in FHIR.
+ * Token values take the {@code [system]|[code]} forms. Strings match case- and accent-insensitively from the
+ * start of the value, or exactly with {@code :exact}, or anywhere with {@code :contains}. References take
+ * {@code [Type/]id} (or the {@code :Type} modifier), quantities {@code [prefix]number[|system|code]} with eq, ne,
+ * gt, ge, lt and le prefixes.
+ */
+public final class SearchIndexQuery {
+
+    private SearchIndexQuery() {
+    }
+
+    /**
+     * @param key    the query parameter name, possibly with a modifier (e.g. {@code family:exact})
+     * @param values the repeated values of that query parameter
+     * @param prefix unique bind-name prefix for this parameter
+     */
+    public static String toSql(String resourcePrefix, String key, SearchParamType type, List<String> values,
+                               String prefix, Map<String, Object> params) {
+        int colon = key.indexOf(':');
+        String name = colon < 0 ? key : key.substring(0, colon);
+        String modifier = colon < 0 ? null : key.substring(colon + 1);
+        if (modifier != null && !supports(type, modifier)) {
+            throw new IllegalArgumentException("Unsupported modifier '" + modifier + "' on " + name);
+        }
+
+        List<String> clauses = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            List<String> alternatives = new ArrayList<>();
+            String[] options = values.get(i).split(",");
+            for (int j = 0; j < options.length; j++) {
+                String bind = prefix + i + "_" + j;
+                alternatives.add(switch (type) {
+                    case TOKEN -> token(options[j].trim(), bind, params);
+                    case STRING -> string(options[j].trim(), modifier, bind, params);
+                    case REFERENCE -> reference(options[j].trim(), modifier, bind, params);
+                    case QUANTITY -> quantity(name, options[j].trim(), bind, params);
+                });
+            }
+            params.put(prefix + i, name);
+            clauses.add("fhir_id IN (SELECT fhir_id FROM " + type.table(resourcePrefix) + " WHERE param_name = :"
+                + prefix + i + " AND (" + String.join(" OR ", alternatives) + "))");
+        }
+        return String.join(" AND ", clauses);
+    }
+
+    // A reference modifier names the target type
+    private static boolean supports(SearchParamType type, String modifier) {
+        return switch (type) {
+            case STRING -> modifier.equals("exact") || modifier.equals("contains");
+            case REFERENCE -> true;
+            default -> false;
+        };
+    }
+
+    private static String token(String value, String bind, Map<String, Object> params) {
+        int bar = value.indexOf('|');
+        if (bar < 0) {
+            params.put(bind, value);
+            return "token_value = :" + bind;
+        }
+        String system = value.substring(0, bar);
+        String code = value.substring(bar + 1);
+        if (system.isEmpty()) {
+            params.put(bind, code);
+            return "(token_system IS NULL AND token_value = :" + bind + ")";
+        }
+        params.put(bind + "s", system);
+        if (code.isEmpty()) {
+            return "token_system = :" + bind + "s";
+        }
+        params.put(bind, code);
+        return "(token_system = :" + bind + "s AND token_value = :" + bind + ")";
+    }
+
+    private static String string(String value, String modifier, String bind, Map<String, Object> params) {
+        if ("exact".equals(modifier)) {
+            params.put(bind, value);
+            return "value_exact = :" + bind;
+        }
+        String pattern = escapeLike(ExtractedSearchParams.normalize(value));
+        // A prefix pattern can use the varchar_pattern_ops index; :contains cannot
+        params.put(bind, ("contains".equals(modifier) ? "%" : "") + pattern + "%");
+        return "value_normalized LIKE :" + bind;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String reference(String value, String typeModifier, String bind, Map<String, Object> params) {
+        String[] parts = value.split("/");
+        String id = parts[parts.length - 1];
+        String type = parts.length >= 2 ? parts[parts.length - 2] : typeModifier;
+        params.put(bind, id);
+        if (type == null) {
+            return "target_id = :" + bind;
+        }
+        params.put(bind + "t", type);
+        return "(target_type = :" + bind + "t AND target_id = :" + bind + ")";
+    }
+
+    private static String quantity(String name, String value, String bind, Map<String, Object> params) {
+        String[] parts = value.split("\\|", -1);
+        String number = parts[0];
+        String prefix = "eq";
+        if (number.length() > 2 && Character.isLetter(number.charAt(0))) {
+            prefix = number.substring(0, 2);
+            number = number.substring(2);
+        }
+
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " value '" + value + "'");
+        }
+        // eq and ne compare against the precision of the value: 100 means [99.5, 100.5)
+        BigDecimal half = BigDecimal.ONE.movePointLeft(Math.max(amount.scale(), 0)).divide(BigDecimal.valueOf(2));
+
+        String predicate = switch (prefix) {
+            case "eq" -> range(amount.subtract(half), amount.add(half), bind, params, false);
+            case "ne" -> range(amount.subtract(half), amount.add(half), bind, params, true);
+            case "gt" -> compare(">", amount, bind, params);
+            case "ge" -> compare(">=", amount, bind, params);
+            case "lt" -> compare("<", amount, bind, params);
+            case "le" -> compare("<=", amount, bind, params);
+            default -> throw new IllegalArgumentException("Unsupported " + name + " prefix '" + prefix + "'");
+        };
+
+        if (parts.length >= 2 && !parts[1].isEmpty()) {
+            params.put(bind + "s", parts[1]);
+            predicate += " AND quantity_system = :" + bind + "s";
+        }
+        if (parts.length >= 3 && !parts[2].isEmpty()) {
+            params.put(bind + "c", parts[2]);
+            predicate += " AND quantity_code = :" + bind + "c";
+        }
+        return "(" + predicate + ")";
+    }
+
+    private static String compare(String operator, BigDecimal amount, String bind, Map<String, Object> params) {
+        params.put(bind, amount);
+        return "quantity_value " + operator + " :" + bind;
+    }
+
+    private static String range(BigDecimal low, BigDecimal high, String bind, Map<String, Object> params,
+                                boolean negate) {
+        params.put(bind + "l", low);
+        params.put(bind + "h", high);
+        String inside = "quantity_value >= :" + bind + "l AND quantity_value < :" + bind + "h";
+        return negate ? "NOT (" + inside + ")" : inside;
+    }
+}
@@ -0,0 +1,22 @@
+package com.redhat.healthcare.fhir.search;
+
+/**
+ * Search parameter types with their own index table, named {@code <resource>_idx_<type>}. A service creates
+ * only the tables of the types it indexes.
+ */
+public enum SearchParamType {
+    TOKEN("token"),
+    STRING("string"),
+    REFERENCE("reference"),
+    QUANTITY("quantity");
+
+    private final String tableSuffix;
+
+    SearchParamType(String tableSuffix) {
+        this.tableSuffix = tableSuffix;
+    }
+
+    public String table(String resourcePrefix) {
+        return resourcePrefix + "_idx_" + tableSuffix;
+    }
+}
@@ -0,0 +1,27 @@
+package com.redhat.healthcare.fhir.service;
+
+import ca.uhn.fhir.parser.IParser;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.UUID;
+
+@ApplicationScoped
+public class FhirParserService {
+
+    @Inject
+    IParser jsonParser;
+
+    public <R extends IBaseResource> R parse(Class<R> type, String json) {
+        return jsonParser.parseResource(type, json);
+    }
+
+    public String encode(IBaseResource resource) {
+        return jsonParser.encodeResourceToString(resource);
+    }
+
+    public String generateId() {
+        return UUID.randomUUID().toString();
+    }
+}
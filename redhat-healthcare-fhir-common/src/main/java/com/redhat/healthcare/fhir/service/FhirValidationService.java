@@ -1,13 +1,13 @@
-package com.redhat.healthcare.members.service;
+package com.redhat.healthcare.fhir.service;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.validation.FhirValidator;
 import ca.uhn.fhir.validation.SingleValidationMessage;
 import ca.uhn.fhir.validation.ValidationResult;
-import com.redhat.healthcare.members.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 
 import java.util.stream.Collectors;
 
@@ -20,12 +20,12 @@ public class FhirValidationService {
     @Inject
     FhirContext fhirContext;
 
-    public ValidationResult validate(Patient patient) {
-        return validator.validateWithResult(patient);
+    public ValidationResult validate(IBaseResource resource) {
+        return validator.validateWithResult(resource);
     }
 
-    public void validateOrThrow(Patient patient) {
-        ValidationResult result = validate(patient);
+    public void validateOrThrow(IBaseResource resource) {
+        ValidationResult result = validate(resource);
         if (!result.isSuccessful()) {
             String errorMessages = result.getMessages().stream()
                 .map(SingleValidationMessage::getMessage)
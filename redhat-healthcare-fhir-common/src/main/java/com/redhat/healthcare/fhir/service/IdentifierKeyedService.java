@@ -0,0 +1,153 @@
+package com.redhat.healthcare.fhir.service;
+
+import com.redhat.healthcare.fhir.exception.DuplicateResourceException;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.PreconditionFailedException;
+import com.redhat.healthcare.fhir.search.IdentifierCondition;
+import com.redhat.healthcare.fhir.store.WriteResult;
+import jakarta.transaction.Transactional;
+import org.hl7.fhir.r4.model.DomainResource;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Meta;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Create, conditional create and conditional update for resources that at most one active row may hold a given
+ * first identifier of. A service plugs in its entity, mapper and repository through the abstract methods; the
+ * repository's insertIfIdentifierFree, backed by a unique index, settles concurrent creates.
+ */
+public abstract class IdentifierKeyedService<R extends DomainResource, E> {
+
+    protected abstract String resourceType();
+
+    /**
+     * The identifier a resource is kept unique by, or null when it has none.
+     */
+    protected abstract Identifier identifier(R resource);
+
+    protected abstract List<E> findActiveByIdentifier(String system, String value);
+
+    /**
+     * The active row holding exactly this identifier, the one the unique index would conflict with; a missing
+     * system only matches a missing system.
+     */
+    protected abstract Optional<E> findActiveHolder(String system, String value);
+
+    protected abstract String fhirId(E entity);
+
+    protected abstract R toFhir(E entity);
+
+    /**
+     * Validates a new resource, gives it an id and version 1, and maps it to its row.
+     */
+    protected abstract E prepareCreate(R resource);
+
+    /**
+     * Inserts the row unless an active row already holds its identifier; false when one does.
+     */
+    protected abstract boolean insert(E entity, R resource);
+
+    public abstract R update(String id, R resource);
+
+    @Transactional
+    public R create(R resource) {
+        E entity = prepareCreate(resource);
+        if (!insert(entity, resource)) {
+            throw identifierTaken(resource);
+        }
+        return resource;
+    }
+
+    /**
+     * Conditional create (If-None-Exist): returns the resource matching the condition instead of creating
+     * another, so a retried create is idempotent. Several matches fail with 412.
+     */
+    @Transactional
+    public WriteResult<R> createIfNoneExist(R resource, IdentifierCondition condition) {
+        Optional<E> existing = findSingleMatch(condition);
+        if (existing.isPresent()) {
+            return new WriteResult<>(toFhir(existing.get()), false);
+        }
+
+        E entity = prepareCreate(resource);
+        if (insert(entity, resource)) {
+            return new WriteResult<>(resource, true);
+        }
+        // A concurrent create with the same identifier committed between the lookup and the insert
+        return findSingleMatch(condition)
+            .map(match -> new WriteResult<>(toFhir(match), false))
+            .orElseThrow(() -> identifierTaken(resource));
+    }
+
+    /**
+     * Conditional update (PUT with an identifier search): updates the single match, creates the resource when
+     * nothing matches, and fails with 412 when several do.
+     */
+    @Transactional
+    public WriteResult<R> conditionalUpdate(IdentifierCondition condition, R resource) {
+        Optional<E> existing = findSingleMatch(condition);
+        if (existing.isEmpty()) {
+            E entity = prepareCreate(resource);
+            if (insert(entity, resource)) {
+                return new WriteResult<>(resource, true);
+            }
+            // Lost a race with a create of the same identifier; update the resource that won
+            existing = findSingleMatch(condition);
+            if (existing.isEmpty()) {
+                throw identifierTaken(resource);
+            }
+            resource.setId((String) null);
+        }
+
+        String id = fhirId(existing.get());
+        if (resource.hasIdElement() && resource.getIdElement().getIdPart() != null
+                && !id.equals(resource.getIdElement().getIdPart())) {
+            throw new FhirValidationException(resourceType() + " id " + resource.getIdElement().getIdPart() +
+                " does not match " + resourceType() + "/" + id + " found by identifier " + condition);
+        }
+        return new WriteResult<>(update(id, resource), false);
+    }
+
+    /**
+     * Sets meta.versionId and meta.lastUpdated for the version about to be stored.
+     */
+    protected void stamp(R resource, long version) {
+        if (resource.getMeta() == null) {
+            resource.setMeta(new Meta());
+        }
+        resource.getMeta().setVersionId(Long.toString(version));
+        resource.getMeta().setLastUpdated(new Date());
+    }
+
+    // Checked up front so the unique index does not surface as a constraint violation at commit
+    protected void rejectIdentifierHeldByAnother(String id, R resource) {
+        Identifier identifier = identifier(resource);
+        if (identifier == null || identifier.getValue() == null) {
+            return;
+        }
+        Optional<E> holder = findActiveHolder(identifier.getSystem(), identifier.getValue());
+        if (holder.isPresent() && !fhirId(holder.get()).equals(id)) {
+            throw new DuplicateResourceException("Identifier " + Objects.toString(identifier.getSystem(), "") +
+                "|" + identifier.getValue() + " belongs to " + resourceType() + "/" + fhirId(holder.get()));
+        }
+    }
+
+    private Optional<E> findSingleMatch(IdentifierCondition condition) {
+        List<E> matches = findActiveByIdentifier(condition.getSystem(), condition.getValue());
+        if (matches.size() > 1) {
+            throw new PreconditionFailedException("More than one " + resourceType() + " matches identifier " +
+                condition);
+        }
+        return matches.stream().findFirst();
+    }
+
+    private DuplicateResourceException identifierTaken(R resource) {
+        Identifier identifier = identifier(resource);
+        return new DuplicateResourceException("An active " + resourceType() + " already has identifier " +
+            (identifier != null ? Objects.toString(identifier.getSystem(), "") + "|" + identifier.getValue() : null));
+    }
+}
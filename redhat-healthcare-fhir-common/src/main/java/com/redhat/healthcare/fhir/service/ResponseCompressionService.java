@@ -0,0 +1,123 @@
+package com.redhat.healthcare.fhir.service;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-coding negotiation and compression for responses that are served pre-compressed.
+ * Streamed search Bundles are compressed on the fly by the HTTP layer (quarkus.http.enable-compression).
+ */
+@ApplicationScoped
+public class ResponseCompressionService {
+
+    public static final String BROTLI = "br";
+    public static final String GZIP = "gzip";
+    public static final String IDENTITY = "identity";
+
+    @ConfigProperty(name = "fhir.compression.brotli-quality", defaultValue = "8")
+    int brotliQuality;
+
+    private boolean brotliAvailable;
+
+    @PostConstruct
+    void init() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            brotliAvailable = true;
+        } catch (Throwable e) {
+            // Native library missing for this platform; fall back to gzip only
+            brotliAvailable = false;
+        }
+    }
+
+    public boolean isBrotliAvailable() {
+        return brotliAvailable;
+    }
+
+    /**
+     * Picks the preferred coding from an Accept-Encoding header: br, then gzip, then identity.
+     * Codings with q=0 are treated as refused.
+     */
+    public String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        Double brotli = null;
+        Double gzip = null;
+        Double wildcard = null;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case BROTLI -> brotli = quality;
+                case GZIP, "x-gzip" -> gzip = quality;
+                case "*" -> wildcard = quality;
+                default -> { }
+            }
+        }
+        double brotliQ = brotli != null ? brotli : (wildcard != null ? wildcard : 0);
+        double gzipQ = gzip != null ? gzip : (wildcard != null ? wildcard : 0);
+        if (brotliAvailable && brotliQ > 0 && brotliQ >= gzipQ) {
+            return BROTLI;
+        }
+        if (gzipQ > 0) {
+            return GZIP;
+        }
+        return IDENTITY;
+    }
+
+    /**
+     * Compresses data with a negotiated coding; null for identity, or for br when Brotli is not available.
+     */
+    public byte[] compress(String coding, byte[] data) {
+        return switch (coding) {
+            case BROTLI -> brotli(data);
+            case GZIP -> gzip(data);
+            default -> null;
+        };
+    }
+
+    public byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Returns the Brotli-compressed bytes, or null when the native library is not available.
+     */
+    public byte[] brotli(byte[] data) {
+        if (!brotliAvailable) {
+            return null;
+        }
+        try {
+            return Encoder.compress(data, new Encoder.Parameters().setQuality(brotliQuality));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
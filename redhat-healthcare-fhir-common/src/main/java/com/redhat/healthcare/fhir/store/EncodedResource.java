@@ -0,0 +1,88 @@
+package com.redhat.healthcare.fhir.store;
+
+import com.redhat.healthcare.fhir.service.ResponseCompressionService;
+
+/**
+ * A resource's encoded JSON together with the compressed forms requested so far, so repeated reads skip
+ * compression. Each coding is added by {@link #withCoding} the first time a client asks for it. An instance read
+ * back from {@link EncodedResourceCache} holds only the codings that read needed.
+ */
+public class EncodedResource {
+
+    private final String versionId;
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final byte[] brotli;
+
+    public EncodedResource(String versionId, byte[] identity) {
+        this(versionId, identity, null, null);
+    }
+
+    EncodedResource(String versionId, byte[] identity, byte[] gzip, byte[] brotli) {
+        this.versionId = versionId;
+        this.identity = identity;
+        this.gzip = gzip;
+        this.brotli = brotli;
+    }
+
+    /**
+     * A copy that also holds the bytes for coding; this instance when bytes is null.
+     */
+    public EncodedResource withCoding(String coding, byte[] bytes) {
+        if (bytes == null || !ResponseCompressionService.BROTLI.equals(coding)
+            && !ResponseCompressionService.GZIP.equals(coding)) {
+            return this;
+        }
+        return withBytes(coding, bytes);
+    }
+
+    EncodedResource withBytes(String coding, byte[] bytes) {
+        return switch (coding) {
+            case ResponseCompressionService.BROTLI -> new EncodedResource(versionId, identity, gzip, bytes);
+            case ResponseCompressionService.GZIP -> new EncodedResource(versionId, identity, bytes, brotli);
+            default -> new EncodedResource(versionId, bytes, gzip, brotli);
+        };
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    /**
+     * The numeric meta.versionId, or null when the resource has none.
+     */
+    public Long version() {
+        if (versionId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(versionId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean has(String coding) {
+        return bytesFor(coding) != null;
+    }
+
+    /**
+     * Returns the bytes for a negotiated coding; callers must fall back to identity when this is null. The array
+     * is not copied and must not be modified.
+     */
+    public byte[] bytesFor(String coding) {
+        return switch (coding) {
+            case ResponseCompressionService.BROTLI -> brotli;
+            case ResponseCompressionService.GZIP -> gzip;
+            default -> identity;
+        };
+    }
+
+    public long sizeInBytes() {
+        return length(identity) + length(gzip) + length(brotli);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+}
@@ -0,0 +1,387 @@
+package com.redhat.healthcare.fhir.store;
+
+import com.redhat.healthcare.fhir.service.ResponseCompressionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU cache of encoded single resources, keyed by FHIR id and held in direct memory, so a cache sized for the
+ * active population does not lengthen GC pauses. Each content coding is compressed once, when a client first
+ * asks for it. Ids hash to independent segments, each with its own lock, its own share of max-entries and a
+ * {@link SlabArena} holding its share of max-bytes, evicting its least recently read entries. Reads copy the
+ * bytes out under the segment lock, so a chunk can be reused as soon as its entry is evicted. An invalidation
+ * records the version that replaced the entry, and older versions are not cached again.
+ * <p>
+ * Invalidations only reach this JVM, so every hit is checked against the version the database holds now; an
+ * entry written or deleted through another replica is dropped and re-encoded on its next read.
+ */
+@ApplicationScoped
+public class EncodedResourceCache {
+
+    @ConfigProperty(name = "fhir.cache.encoded.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "fhir.cache.encoded.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    @ConfigProperty(name = "fhir.cache.encoded.max-bytes", defaultValue = "268435456")
+    long maxBytes;
+
+    @ConfigProperty(name = "fhir.cache.encoded.segments", defaultValue = "16")
+    int segmentCount;
+
+    @ConfigProperty(name = "fhir.cache.encoded.slab-bytes", defaultValue = "1048576")
+    int slabBytes;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    ResponseCompressionService compressionService;
+
+    private Segment[] segments;
+    private Counter hits;
+    private Counter misses;
+    private Counter stale;
+
+    @PostConstruct
+    void init() {
+        segments = new Segment[Math.max(1, segmentCount)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(
+                Math.max(1, maxEntries / segments.length),
+                new SlabArena(slabBytes, Math.max(1, maxBytes / segments.length)));
+        }
+
+        hits = Counter.builder("fhir.cache.encoded.requests").tag("result", "hit")
+            .description("Encoded resource reads served from the cache").register(registry);
+        misses = Counter.builder("fhir.cache.encoded.requests").tag("result", "miss")
+            .description("Encoded resource reads that had to encode the resource").register(registry);
+        stale = Counter.builder("fhir.cache.encoded.requests").tag("result", "stale")
+            .description("Cached encodings found older than the stored version and re-encoded").register(registry);
+        FunctionCounter.builder("fhir.cache.encoded.evictions", this, cache -> cache.total(Segment::evictionCount))
+            .description("Entries evicted to stay within max-bytes or max-entries").register(registry);
+        Gauge.builder("fhir.cache.encoded.entries", this, cache -> cache.total(Segment::entryCount))
+            .description("Cached resources").register(registry);
+        Gauge.builder("fhir.cache.encoded.size", this, cache -> cache.total(Segment::byteCount))
+            .description("Slab bytes held by cached resources").baseUnit("bytes").register(registry);
+        Gauge.builder("fhir.cache.encoded.reserved", this, cache -> cache.total(Segment::reservedCount))
+            .description("Direct memory allocated to slabs").baseUnit("bytes").register(registry);
+        Gauge.builder("fhir.cache.encoded.hit.ratio", this, EncodedResourceCache::hitRatio)
+            .description("Share of reads served from the cache since startup").register(registry);
+    }
+
+    /**
+     * Returns the resource holding the bytes for coding. A miss encodes it through loader; a hit without that
+     * coding yet compresses it once. A hit whose version differs from storedVersion, the version_id the
+     * database holds now (null when there is no row), counts as a miss. Either way the result is cached, unless
+     * the id was invalidated while it was being built, or a newer version is cached or has invalidated it. A hit
+     * holds only the bytes for coding, and identity when coding is not cached yet.
+     */
+    public EncodedResource get(String id, String coding, Supplier<Long> storedVersion,
+                               Supplier<EncodedResource> loader) {
+        if (!enabled) {
+            return withCoding(loader.get(), coding);
+        }
+        Segment segment = segmentFor(id);
+        long generation = segment.generation();
+        EncodedResource resource = segment.get(id, coding);
+        if (resource != null && !Objects.equals(resource.version(), storedVersion.get())) {
+            stale.increment();
+            generation = segment.drop(id, resource.version());
+            resource = null;
+        }
+        (resource != null ? hits : misses).increment();
+        if (resource != null && resource.has(coding)) {
+            return resource;
+        }
+        resource = withCoding(resource != null ? resource : loader.get(), coding);
+        segment.put(id, resource, generation);
+        return resource;
+    }
+
+    /**
+     * Evicts now and again once the current transaction completes, so a read racing the write cannot
+     * re-populate the cache with the previous version; encodings older than version are refused from now on.
+     */
+    public void invalidate(String id, long version) {
+        if (!enabled) {
+            return;
+        }
+        segmentFor(id).invalidate(id, version);
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    segmentFor(id).invalidate(id, version);
+                }
+            });
+        }
+    }
+
+    private EncodedResource withCoding(EncodedResource resource, String coding) {
+        if (resource.has(coding)) {
+            return resource;
+        }
+        byte[] identity = resource.bytesFor(ResponseCompressionService.IDENTITY);
+        return resource.withCoding(coding, compressionService.compress(coding, identity));
+    }
+
+    private Segment segmentFor(String id) {
+        return segments[Math.floorMod(id.hashCode(), segments.length)];
+    }
+
+    private double hitRatio() {
+        double reads = hits.count() + misses.count();
+        return reads == 0 ? 0 : hits.count() / reads;
+    }
+
+    private double total(ToLongFunction<Segment> metric) {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += metric.applyAsLong(segment);
+        }
+        return total;
+    }
+
+    /**
+     * One lock's worth of the cache: an access-ordered map whose entries are either chunks of the segment's
+     * arena or, after an invalidation, a tombstone holding the lowest version that may be cached again.
+     * Tombstones count towards max-entries and age out like any entry, but only cached entries are evicted to
+     * make room in the arena. The generation counts invalidations, so a put can tell that an id without an
+     * entry may have lost its tombstone while the resource was being loaded.
+     */
+    private static final class Segment {
+
+        private final int maxEntries;
+        private final SlabArena arena;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long cached;
+        private long evictions;
+        private long generation;
+
+        Segment(int maxEntries, SlabArena arena) {
+            this.maxEntries = maxEntries;
+            this.arena = arena;
+        }
+
+        /**
+         * Copies out the bytes for coding, or identity when coding is not held; null when nothing is cached.
+         */
+        synchronized EncodedResource get(String id, String coding) {
+            Entry entry = entries.get(id);
+            if (entry == null || !entry.isCached()) {
+                return null;
+            }
+            if (entry.length(coding) == 0) {
+                coding = ResponseCompressionService.IDENTITY;
+            }
+            byte[] bytes = arena.read(entry.address, entry.offset(coding), entry.length(coding));
+            return new EncodedResource(entry.versionId, null, null, null).withBytes(coding, bytes);
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        synchronized void put(String id, EncodedResource resource, long loadedAt) {
+            Entry current = entries.get(id);
+            if (current == null ? loadedAt != generation : isOlder(resource.version(), current.version)) {
+                return;
+            }
+            if (current != null && current.isCached()) {
+                resource = carryOver(current, resource);
+                entries.remove(id);
+                forget(current);
+            }
+            if (resource.sizeInBytes() > arena.maxChunk()) {
+                return;
+            }
+            long address = allocate((int) resource.sizeInBytes());
+            if (address == SlabArena.NONE) {
+                return;
+            }
+            Entry entry = new Entry(address, resource.getVersionId(), resource.version(),
+                length(resource, ResponseCompressionService.IDENTITY),
+                length(resource, ResponseCompressionService.GZIP),
+                length(resource, ResponseCompressionService.BROTLI));
+            for (String coding : CODINGS) {
+                if (resource.has(coding)) {
+                    arena.write(address, entry.offset(coding), resource.bytesFor(coding));
+                }
+            }
+            replace(id, entry);
+            evictOverflow();
+        }
+
+        /**
+         * Removes the entry if it still caches version and returns the generation to load against. Unlike an
+         * invalidation this leaves no tombstone: the stored version may be older than the cached one when the
+         * cached encoding came from a transaction that rolled back.
+         */
+        synchronized long drop(String id, Long version) {
+            Entry current = entries.get(id);
+            if (current != null && current.isCached() && Objects.equals(current.version, version)) {
+                generation++;
+                entries.remove(id);
+                forget(current);
+            }
+            return generation;
+        }
+
+        synchronized void invalidate(String id, long version) {
+            generation++;
+            Entry current = entries.get(id);
+            long floor = current != null && current.version != null ? Math.max(current.version, version) : version;
+            replace(id, Entry.tombstone(floor));
+            evictOverflow();
+        }
+
+        synchronized long entryCount() {
+            return cached;
+        }
+
+        synchronized long byteCount() {
+            return arena.usedBytes();
+        }
+
+        synchronized long reservedCount() {
+            return arena.reservedBytes();
+        }
+
+        synchronized long evictionCount() {
+            return evictions;
+        }
+
+        // Codings already cached for the same version are kept when another coding is added
+        private EncodedResource carryOver(Entry current, EncodedResource resource) {
+            if (!Objects.equals(current.versionId, resource.getVersionId())) {
+                return resource;
+            }
+            for (String coding : CODINGS) {
+                if (!resource.has(coding) && current.length(coding) > 0) {
+                    resource = resource.withBytes(coding,
+                        arena.read(current.address, current.offset(coding), current.length(coding)));
+                }
+            }
+            return resource;
+        }
+
+        // Evicts the least recently read cached entries until the arena has a free range of size
+        private long allocate(int size) {
+            long address = arena.allocate(size);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (address == SlabArena.NONE && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                if (evicted.isCached()) {
+                    eldest.remove();
+                    forget(evicted);
+                    evictions++;
+                    address = arena.allocate(size);
+                }
+            }
+            return address;
+        }
+
+        private void replace(String id, Entry entry) {
+            Entry previous = entries.put(id, entry);
+            if (previous != null) {
+                forget(previous);
+            }
+            if (entry.isCached()) {
+                cached++;
+            }
+        }
+
+        // Eldest first: the access order makes the head the least recently read entry
+        private void evictOverflow() {
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                if (evicted.isCached()) {
+                    forget(evicted);
+                    evictions++;
+                }
+            }
+        }
+
+        private void forget(Entry entry) {
+            if (entry.isCached()) {
+                cached--;
+                arena.free(entry.address, entry.size());
+            }
+        }
+
+        // An unversioned resource cannot be ordered against a versioned entry, so it never displaces one
+        private static boolean isOlder(Long version, Long current) {
+            return current != null && (version == null || version < current);
+        }
+
+        private static int length(EncodedResource resource, String coding) {
+            byte[] bytes = resource.bytesFor(coding);
+            return bytes != null ? bytes.length : 0;
+        }
+    }
+
+    private static final String[] CODINGS = {
+        ResponseCompressionService.IDENTITY, ResponseCompressionService.GZIP, ResponseCompressionService.BROTLI
+    };
+
+    /**
+     * A cached resource's chunk, laid out as identity, gzip, brotli; a coding not held has length 0. A tombstone
+     * has no chunk.
+     */
+    private record Entry(long address, String versionId, Long version, int identity, int gzip, int brotli) {
+
+        static Entry tombstone(long floor) {
+            return new Entry(SlabArena.NONE, null, floor, 0, 0, 0);
+        }
+
+        boolean isCached() {
+            return address != SlabArena.NONE;
+        }
+
+        int size() {
+            return identity + gzip + brotli;
+        }
+
+        int offset(String coding) {
+            return switch (coding) {
+                case ResponseCompressionService.BROTLI -> identity + gzip;
+                case ResponseCompressionService.GZIP -> identity;
+                default -> 0;
+            };
+        }
+
+        int length(String coding) {
+            return switch (coding) {
+                case ResponseCompressionService.BROTLI -> brotli;
+                case ResponseCompressionService.GZIP -> gzip;
+                default -> identity;
+            };
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.redhat.healthcare.fhir.store;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage operations shared by the resource repositories. Entities are expected to keep the encoded resource
+ * in a {@code fhirResource} attribute and the FHIR id in {@code fhirId}.
+ */
+@ApplicationScoped
+public class FhirResourceStore {
+
+    @ConfigProperty(name = "fhir.search.fetch-size", defaultValue = "500")
+    int fetchSize;
+
+    /**
+     * Rows fetched per round trip when a result is streamed; set it as HibernateHints.HINT_FETCH_SIZE on
+     * native queries.
+     */
+    public int fetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Marks the current transaction read-only before its first statement: Hibernate neither snapshots loaded
+     * entities nor flushes, and PostgreSQL runs the transaction with SET TRANSACTION READ ONLY, so a search
+     * cannot write by accident.
+     */
+    public void readOnly(EntityManager entityManager) {
+        Session session = entityManager.unwrap(Session.class);
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION READ ONLY");
+            }
+        });
+    }
+
+    /**
+     * Selects only fhir_resource instead of hydrating the entity, so nothing enters the persistence context
+     * or is dirty-checked at flush, and rows are fetched fhir.search.fetch-size at a time as the stream is
+     * consumed. PostgreSQL only fetches through a cursor inside a transaction. Close the stream.
+     */
+    public Stream<String> streamResources(EntityManager entityManager, Class<?> entityType, String where,
+                                          Object... params) {
+        return resourceQuery(entityManager, entityType, where, params)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+            .getResultStream();
+    }
+
+    public Optional<String> firstResource(EntityManager entityManager, Class<?> entityType, String where,
+                                          Object... params) {
+        return resourceQuery(entityManager, entityType, where, params)
+            .setMaxResults(1)
+            .getResultList()
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * The stored version_id of a resource, empty when there is no row; a primary-key lookup that never reads
+     * fhir_resource, so a cached encoding can be checked against the database on every read.
+     */
+    public Optional<Long> currentVersion(EntityManager entityManager, Class<?> entityType, String fhirId) {
+        String entityName = entityManager.getMetamodel().entity(entityType).getName();
+        return entityManager
+            .createQuery("select versionId from " + entityName + " where fhirId = ?1", Long.class)
+            .setParameter(1, fhirId)
+            .getResultStream()
+            .findFirst();
+    }
+
+    /**
+     * The soft-delete statement for a resource table with the standard columns: marks the active rows with the
+     * given ids inactive and bumps version_id, last_updated and the matching meta elements in fhir_resource.
+     */
+    public static String softDeleteSql(String table) {
+        return "UPDATE " + table + " SET active = false, version_id = version_id + 1, last_updated = ?, " +
+            "fhir_resource = jsonb_set(jsonb_set(fhir_resource, '{meta,versionId}', " +
+            "to_jsonb(CAST(version_id + 1 AS text))), '{meta,lastUpdated}', to_jsonb(CAST(? AS text))) " +
+            "WHERE fhir_id = ANY (?) AND active = true " +
+            "RETURNING fhir_id, version_id";
+    }
+
+    /**
+     * Runs a soft-delete statement for a batch of ids and returns the new version of each deleted resource.
+     * The statement binds the new last_updated timestamp, the same instant as an ISO string for
+     * meta.lastUpdated, and a varchar array of ids, in that order, and returns (fhir_id, version_id) rows.
+     */
+    public Map<String, Long> softDelete(EntityManager entityManager, String sql, Collection<String> fhirIds) {
+        LocalDateTime now = LocalDateTime.now();
+        String lastUpdated = now.atZone(ZoneId.systemDefault()).toOffsetDateTime()
+            .truncatedTo(ChronoUnit.MILLIS)
+            .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement delete = connection.prepareStatement(sql)) {
+                delete.setTimestamp(1, Timestamp.valueOf(now));
+                delete.setString(2, lastUpdated);
+                delete.setArray(3, connection.createArrayOf("varchar", fhirIds.toArray()));
+                Map<String, Long> deleted = new HashMap<>();
+                try (ResultSet rows = delete.executeQuery()) {
+                    while (rows.next()) {
+                        deleted.put(rows.getString(1), rows.getLong(2));
+                    }
+                }
+                return deleted;
+            }
+        });
+    }
+
+    private static TypedQuery<String> resourceQuery(EntityManager entityManager, Class<?> entityType, String where,
+                                                    Object... params) {
+        String entityName = entityManager.getMetamodel().entity(entityType).getName();
+        TypedQuery<String> query = entityManager
+            .createQuery("select fhirResource from " + entityName + " where " + where, String.class);
+        for (int i = 0; i < params.length; i++) {
+            query.setParameter(i + 1, params[i]);
+        }
+        return query;
+    }
+}
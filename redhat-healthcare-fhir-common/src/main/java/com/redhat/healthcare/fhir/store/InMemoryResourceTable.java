@@ -0,0 +1,262 @@
+package com.redhat.healthcare.fhir.store;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A concurrent in-memory table of resource rows, the storage behind the in-memory stores. Rows are keyed by
+ * FHIR id and treated as immutable: a write replaces the row. Writes to the same id are serialized by one of a
+ * fixed set of striped locks, so unrelated writes do not contend. Hash indexes on extracted search columns map a
+ * column value to the ids holding it, and an optional ordered index keeps rows by a change sequence that the table
+ * assigns on every write. Reads take no locks and see each row either before or after a write, never half of it.
+ */
+public class InMemoryResourceTable<E> {
+
+    private final Function<E, String> idOf;
+    private final ReentrantLock[] idLocks;
+    private final ReentrantLock[] keyLocks;
+    private final Map<String, E> rows = new ConcurrentHashMap<>();
+    private final Map<String, Index<E>> indexes = new LinkedHashMap<>();
+    private ToLongFunction<E> sequenceOf;
+    private ObjLongConsumer<E> assignSequence;
+    private final ConcurrentSkipListMap<Long, String> bySequence = new ConcurrentSkipListMap<>();
+    // Sequences handed to writes that have not reached bySequence yet; guards lastSequence too
+    private final TreeSet<Long> pending = new TreeSet<>();
+    private long lastSequence;
+
+    public InMemoryResourceTable(Function<E, String> idOf, int stripes) {
+        this.idOf = idOf;
+        this.idLocks = locks(stripes);
+        this.keyLocks = locks(stripes);
+    }
+
+    /**
+     * Adds a hash index on a column. Rows whose column is null are not indexed. Register indexes before the
+     * first write.
+     */
+    public InMemoryResourceTable<E> index(String name, Function<E, ?> column) {
+        indexes.put(name, new Index<>(column));
+        return this;
+    }
+
+    /**
+     * Keeps rows ordered by a sequence that every write assigns anew through assign, for incremental sync reads.
+     */
+    public InMemoryResourceTable<E> orderedBy(ToLongFunction<E> sequence, ObjLongConsumer<E> assign) {
+        this.sequenceOf = sequence;
+        this.assignSequence = assign;
+        return this;
+    }
+
+    public Optional<E> get(String id) {
+        return Optional.ofNullable(rows.get(id));
+    }
+
+    public Stream<E> getAll(Collection<String> ids) {
+        return ids.stream().distinct().map(rows::get).filter(Objects::nonNull);
+    }
+
+    public Stream<E> scan() {
+        return rows.values().stream();
+    }
+
+    /**
+     * Rows whose indexed column equals key. The ids come from the index, and each row is checked again
+     * against the key, so a row rewritten in the meantime is never returned under its old value.
+     */
+    public Stream<E> lookup(String index, Object key) {
+        Index<E> idx = indexes.get(index);
+        if (idx == null) {
+            throw new IllegalArgumentException("No index " + index);
+        }
+        if (key == null) {
+            return Stream.empty();
+        }
+        Set<String> ids = idx.entries.get(key);
+        if (ids == null) {
+            return Stream.empty();
+        }
+        return ids.stream()
+            .map(rows::get)
+            .filter(row -> row != null && key.equals(idx.column.apply(row)));
+    }
+
+    /**
+     * Rows written after the given sequence, oldest first. Stops below the first write still in progress, so
+     * a reader that has seen a sequence never finds an earlier one appearing afterwards.
+     */
+    public Stream<E> changedAfter(long sequence) {
+        long published = publishedThrough();
+        if (published <= sequence) {
+            return Stream.empty();
+        }
+        return bySequence.subMap(sequence, false, published, true).values().stream()
+            .map(rows::get)
+            .filter(row -> row != null && sequenceOf.applyAsLong(row) <= published);
+    }
+
+    public void put(E row) {
+        String id = idOf.apply(row);
+        ReentrantLock lock = lockFor(idLocks, id);
+        lock.lock();
+        try {
+            replace(id, rows.get(id), row);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes row, inserting it or replacing the stored row with its id, unless another row with the same value
+     * in the given index matches conflict. Writes racing on one value are serialized, so at most one of them
+     * wins. Returns false when nothing was written.
+     */
+    public boolean putUnless(E row, String index, Predicate<E> conflict) {
+        Object key = indexes.get(index).column.apply(row);
+        if (key == null) {
+            put(row);
+            return true;
+        }
+        String id = idOf.apply(row);
+        ReentrantLock lock = lockFor(keyLocks, key);
+        lock.lock();
+        try {
+            if (lookup(index, key).anyMatch(other -> !idOf.apply(other).equals(id) && conflict.test(other))) {
+                return false;
+            }
+            put(row);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the row with change(row) atomically with respect to other writes of the id. Returns the new
+     * row, or empty when the id is absent or change returns null, in which case nothing is written.
+     */
+    public Optional<E> update(String id, UnaryOperator<E> change) {
+        ReentrantLock lock = lockFor(idLocks, id);
+        lock.lock();
+        try {
+            E current = rows.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            E changed = change.apply(current);
+            if (changed == null) {
+                return Optional.empty();
+            }
+            replace(id, current, changed);
+            return Optional.of(changed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    // Called with the id's lock held
+    private void replace(String id, E previous, E row) {
+        if (sequenceOf == null) {
+            store(id, previous, row);
+            return;
+        }
+        long sequence = claimSequence();
+        try {
+            assignSequence.accept(row, sequence);
+            store(id, previous, row);
+        } finally {
+            synchronized (pending) {
+                pending.remove(sequence);
+            }
+        }
+    }
+
+    private void store(String id, E previous, E row) {
+        rows.put(id, row);
+        for (Index<E> index : indexes.values()) {
+            Object oldKey = previous == null ? null : index.column.apply(previous);
+            Object newKey = index.column.apply(row);
+            if (oldKey != null && !oldKey.equals(newKey)) {
+                index.remove(oldKey, id);
+            }
+            if (newKey != null) {
+                index.add(newKey, id);
+            }
+        }
+        if (sequenceOf != null) {
+            if (previous != null) {
+                bySequence.remove(sequenceOf.applyAsLong(previous), id);
+            }
+            bySequence.put(sequenceOf.applyAsLong(row), id);
+        }
+    }
+
+    private long claimSequence() {
+        synchronized (pending) {
+            pending.add(++lastSequence);
+            return lastSequence;
+        }
+    }
+
+    private long publishedThrough() {
+        synchronized (pending) {
+            return pending.isEmpty() ? lastSequence : pending.first() - 1;
+        }
+    }
+
+    private static ReentrantLock lockFor(ReentrantLock[] locks, Object key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
+    private static ReentrantLock[] locks(int stripes) {
+        ReentrantLock[] locks = new ReentrantLock[Math.max(1, stripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private static final class Index<E> {
+
+        final Function<E, ?> column;
+        final Map<Object, Set<String>> entries = new ConcurrentHashMap<>();
+
+        Index(Function<E, ?> column) {
+            this.column = column;
+        }
+
+        // Both sides go through compute, so an id set is never dropped while another id is being added to it
+        void add(Object key, String id) {
+            entries.compute(key, (k, ids) -> {
+                Set<String> holders = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                holders.add(id);
+                return holders;
+            });
+        }
+
+        void remove(Object key, String id) {
+            entries.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.redhat.healthcare.fhir.store;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * How a service stores one resource type: the extraction rules that turn a resource into its row (searchable
+ * columns plus the encoded fhir_resource), and the way back from the stored JSON. Each service's mapper
+ * implements it; shared components such as {@link com.redhat.healthcare.fhir.config.FhirWarmup} work through it.
+ */
+public interface ResourceMapping<R extends IBaseResource, E> {
+
+    Class<R> resourceType();
+
+    E toEntity(R resource);
+
+    R toFhir(String fhirResource);
+}
@@ -0,0 +1,137 @@
+package com.redhat.healthcare.fhir.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Direct memory for one cache segment, carved from a few large slabs instead of one buffer per entry. Slabs are
+ * allocated on first need, up to maxBytes, and never released. A chunk is addressed by slab index in the high
+ * word and byte offset in the low word; each slab keeps its free ranges by offset, first fit, and merges a
+ * freed chunk with its free neighbours. Not thread-safe: the owning segment's lock guards every call.
+ */
+final class SlabArena {
+
+    static final long NONE = -1;
+
+    private static final int ALIGNMENT = 8;
+
+    private final int slabBytes;
+    private final int maxSlabs;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final List<TreeMap<Integer, Integer>> freeRanges = new ArrayList<>();
+    private long used;
+
+    SlabArena(int slabBytes, long maxBytes) {
+        this.slabBytes = Math.max(ALIGNMENT, (int) Math.min(slabBytes, maxBytes) & -ALIGNMENT);
+        this.maxSlabs = (int) Math.max(1, maxBytes / this.slabBytes);
+    }
+
+    /**
+     * The largest chunk the arena can ever hand out.
+     */
+    int maxChunk() {
+        return slabBytes;
+    }
+
+    /**
+     * Reserves length bytes, or returns {@link #NONE} when no slab has a free range that large and no further
+     * slab may be allocated.
+     */
+    long allocate(int length) {
+        int size = align(length);
+        for (int slab = 0; slab < slabs.size(); slab++) {
+            long address = take(slab, size);
+            if (address != NONE) {
+                return address;
+            }
+        }
+        if (size > slabBytes || slabs.size() == maxSlabs) {
+            return NONE;
+        }
+        slabs.add(ByteBuffer.allocateDirect(slabBytes));
+        TreeMap<Integer, Integer> free = new TreeMap<>();
+        free.put(0, slabBytes);
+        freeRanges.add(free);
+        return take(slabs.size() - 1, size);
+    }
+
+    /**
+     * Returns a chunk from {@link #allocate}, with the length it was allocated with, to its slab's free ranges.
+     */
+    void free(long address, int length) {
+        int size = align(length);
+        TreeMap<Integer, Integer> free = freeRanges.get(slab(address));
+        int start = offset(address);
+        int end = start + size;
+        Map.Entry<Integer, Integer> before = free.floorEntry(start);
+        if (before != null && before.getKey() + before.getValue() == start) {
+            start = before.getKey();
+            free.remove(start);
+        }
+        Integer after = free.get(end);
+        if (after != null) {
+            free.remove(end);
+            end += after;
+        }
+        free.put(start, end - start);
+        used -= size;
+    }
+
+    void write(long address, int at, byte[] bytes) {
+        slabs.get(slab(address)).put(offset(address) + at, bytes);
+    }
+
+    byte[] read(long address, int at, int length) {
+        byte[] bytes = new byte[length];
+        slabs.get(slab(address)).get(offset(address) + at, bytes);
+        return bytes;
+    }
+
+    /**
+     * Bytes handed out to live chunks, alignment included.
+     */
+    long usedBytes() {
+        return used;
+    }
+
+    /**
+     * Direct memory held by the slabs allocated so far.
+     */
+    long reservedBytes() {
+        return (long) slabs.size() * slabBytes;
+    }
+
+    private long take(int slab, int size) {
+        Iterator<Map.Entry<Integer, Integer>> ranges = freeRanges.get(slab).entrySet().iterator();
+        while (ranges.hasNext()) {
+            Map.Entry<Integer, Integer> range = ranges.next();
+            int offset = range.getKey();
+            int length = range.getValue();
+            if (length >= size) {
+                ranges.remove();
+                if (length > size) {
+                    freeRanges.get(slab).put(offset + size, length - size);
+                }
+                used += size;
+                return (long) slab << 32 | offset;
+            }
+        }
+        return NONE;
+    }
+
+    private static int align(int length) {
+        return Math.max(ALIGNMENT, (length + ALIGNMENT - 1) & -ALIGNMENT);
+    }
+
+    private static int slab(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
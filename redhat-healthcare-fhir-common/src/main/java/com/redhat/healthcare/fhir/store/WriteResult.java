@@ -0,0 +1,25 @@
+package com.redhat.healthcare.fhir.store;
+
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Outcome of a conditional create or update: the stored resource, and whether the request created it.
+ */
+public class WriteResult<R extends Resource> {
+
+    private final R resource;
+    private final boolean created;
+
+    public WriteResult(R resource, boolean created) {
+        this.resource = resource;
+        this.created = created;
+    }
+
+    public R getResource() {
+        return resource;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+}
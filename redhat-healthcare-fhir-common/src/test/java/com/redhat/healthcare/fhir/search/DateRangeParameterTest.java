@@ -0,0 +1,115 @@
+package com.redhat.healthcare.fhir.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateRangeParameterTest {
+
+    private final Map<String, Object> params = new HashMap<>();
+
+    @Test
+    void dayPrecisionEqualityIsContainment() {
+        String sql = parse("2025-03-01").toSql("period", "p", params);
+
+        assertEquals("period @> CAST(:pDay0 AS date)", sql);
+        assertEquals(Map.of("pDay0", LocalDate.of(2025, 3, 1)), params);
+    }
+
+    @Test
+    void dateTimeIsComparedAtDayPrecision() {
+        parse("eq2025-03-01T10:15:00Z").toSql("period", "p", params);
+
+        assertEquals(LocalDate.of(2025, 3, 1), params.get("pDay0"));
+    }
+
+    @Test
+    void monthAndYearEqualityOverlapTheirWholeRange() {
+        assertEquals("period && daterange(CAST(:pLower AS date), CAST(:pUpper AS date), '[]')",
+            parse("2024-02").toSql("period", "p", params));
+        assertEquals(LocalDate.of(2024, 2, 1), params.get("pLower"));
+        assertEquals(LocalDate.of(2024, 2, 29), params.get("pUpper"));
+
+        params.clear();
+        parse("2023").toSql("period", "p", params);
+        assertEquals(LocalDate.of(2023, 1, 1), params.get("pLower"));
+        assertEquals(LocalDate.of(2023, 12, 31), params.get("pUpper"));
+    }
+
+    @Test
+    void boundsNarrowOneWindow() {
+        String sql = parse("ge2025-01-01", "gt2025-01-31", "le2025-12-31", "lt2025-06").toSql("period", "p", params);
+
+        assertEquals("period && daterange(CAST(:pLower AS date), CAST(:pUpper AS date), '[]')", sql);
+        // gt is exclusive of the whole value; lt excludes from the first day of the month
+        assertEquals(LocalDate.of(2025, 2, 1), params.get("pLower"));
+        assertEquals(LocalDate.of(2025, 5, 31), params.get("pUpper"));
+    }
+
+    @Test
+    void openEndedWindowBindsOnlyOneBound() {
+        assertEquals("period && daterange(CAST(:pLower AS date), NULL, '[]')",
+            parse("ge2025-01-01").toSql("period", "p", params));
+        assertEquals(Map.of("pLower", LocalDate.of(2025, 1, 1)), params);
+    }
+
+    @Test
+    void emptyWindowMatchesNothing() {
+        assertEquals("false", parse("ge2025-06-01,le2025-01-01").toSql("period", "p", params));
+    }
+
+    @Test
+    void startsAfterAndEndsBeforeKeepTheTightestValue() {
+        String sql = parse("sa2024-12-31", "sa2025-01", "eb2026", "eb2025-12-15").toSql("period", "p", params);
+
+        assertEquals("period >> daterange(CAST(:pAfter AS date), CAST(:pAfter AS date), '[]') AND "
+            + "period << daterange(CAST(:pBefore AS date), CAST(:pBefore AS date), '[]')", sql);
+        assertEquals(LocalDate.of(2025, 1, 31), params.get("pAfter"));
+        assertEquals(LocalDate.of(2025, 12, 15), params.get("pBefore"));
+    }
+
+    @Test
+    void pointSqlFoldsEverythingIntoOneHalfOpenWindow() {
+        String sql = parse("ge2025-01-01", "2025-03-10", "eb2025-12-01").toPointSql("created", "c", params);
+
+        assertEquals("created >= :cFrom AND created < :cTo", sql);
+        assertEquals(LocalDate.of(2025, 3, 10).atStartOfDay(), params.get("cFrom"));
+        assertEquals(LocalDate.of(2025, 3, 11).atStartOfDay(), params.get("cTo"));
+    }
+
+    @Test
+    void pointSqlTreatsStartsAfterAsAStrictLowerBound() {
+        assertEquals("created >= :cFrom", parse("sa2025-01").toPointSql("created", "c", params));
+        assertEquals(LocalDate.of(2025, 2, 1).atStartOfDay(), params.get("cFrom"));
+
+        params.clear();
+        assertEquals("false", parse("sa2025-06-01", "le2025-06-01").toPointSql("created", "c", params));
+    }
+
+    @Test
+    void emptyOnlyWithoutValues() {
+        assertTrue(DateRangeParameter.parse("date", List.of()).isEmpty());
+        assertFalse(parse("sa2025-01-01").isEmpty());
+    }
+
+    @Test
+    void invalidValuesAndPrefixesAreRejected() {
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class, () -> parse("ge2025-13-01"));
+        assertEquals("Invalid date value 'ge2025-13-01'", invalid.getMessage());
+
+        IllegalArgumentException prefix = assertThrows(IllegalArgumentException.class, () -> parse("ne2025-01-01"));
+        assertEquals("Unsupported date prefix 'ne'", prefix.getMessage());
+    }
+
+    private static DateRangeParameter parse(String... values) {
+        return DateRangeParameter.parse("date", List.of(values));
+    }
+}
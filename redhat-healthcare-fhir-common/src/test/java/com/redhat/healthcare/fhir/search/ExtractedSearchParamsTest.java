@@ -0,0 +1,91 @@
+package com.redhat.healthcare.fhir.search;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtractedSearchParamsTest {
+
+    private final ExtractedSearchParams extracted = new ExtractedSearchParams();
+
+    @Test
+    void tokensSkipBlankCodesAndDuplicates() {
+        extracted.token("identifier", "http://npi", "123");
+        extracted.token("identifier", "http://npi", "123");
+        extracted.token("identifier", "http://npi", " ");
+        extracted.token("identifier", "http://npi", null);
+
+        assertEquals(List.of(new ExtractedSearchParams.Token("identifier", "http://npi", "123")),
+            List.copyOf(extracted.tokens()));
+    }
+
+    @Test
+    void codeableConceptIndexesEveryCoding() {
+        CodeableConcept concept = new CodeableConcept()
+            .addCoding(new Coding("http://loinc.org", "1234-5", null))
+            .addCoding(new Coding(null, "local", null));
+        concept.setText("free text is not a token");
+
+        extracted.token("code", concept);
+        extracted.token("code", (CodeableConcept) null);
+
+        assertEquals(List.of(
+            new ExtractedSearchParams.Token("code", "http://loinc.org", "1234-5"),
+            new ExtractedSearchParams.Token("code", null, "local")), List.copyOf(extracted.tokens()));
+    }
+
+    @Test
+    void stringsKeepTheTrimmedValueAndItsNormalizedForm() {
+        extracted.string("family", "  Ñúñez ");
+        extracted.string("family", "");
+
+        assertEquals(List.of(new ExtractedSearchParams.StringValue("family", "nunez", "Ñúñez")),
+            List.copyOf(extracted.strings()));
+    }
+
+    @Test
+    void normalizeFoldsCaseAndAccents() {
+        assertEquals("muller", ExtractedSearchParams.normalize("MÜLLER"));
+        assertEquals("francois", ExtractedSearchParams.normalize("François"));
+        assertEquals("istanbul", ExtractedSearchParams.normalize("İSTANBUL"));
+    }
+
+    @Test
+    void referencesKeepTypeAndIdOfLiteralReferences() {
+        extracted.reference("patient", new Reference("Patient/p1"));
+        extracted.reference("provider", new Reference("https://example.org/fhir/Practitioner/d7"));
+        extracted.reference("enterer", new Reference("Practitioner/d8/_history/3"));
+
+        assertEquals(List.of(
+            new ExtractedSearchParams.ResourceReference("patient", "Patient", "p1"),
+            new ExtractedSearchParams.ResourceReference("provider", "Practitioner", "d7"),
+            new ExtractedSearchParams.ResourceReference("enterer", "Practitioner", "d8")),
+            List.copyOf(extracted.references()));
+    }
+
+    @Test
+    void containedLogicalAndEmptyReferencesAreSkipped() {
+        extracted.reference("patient", new Reference("#contained"));
+        extracted.reference("patient", new Reference("just-an-id"));
+        extracted.reference("patient", new Reference().setDisplay("display only"));
+        extracted.reference("patient", null);
+
+        assertTrue(extracted.references().isEmpty());
+    }
+
+    @Test
+    void quantitiesKeepRepeatedValues() {
+        extracted.quantity("total", new BigDecimal("10.00"), "urn:iso:std:iso:4217", "USD");
+        extracted.quantity("total", new BigDecimal("10.00"), "urn:iso:std:iso:4217", "USD");
+        extracted.quantity("total", null, null, null);
+
+        assertEquals(2, extracted.quantities().size());
+    }
+}
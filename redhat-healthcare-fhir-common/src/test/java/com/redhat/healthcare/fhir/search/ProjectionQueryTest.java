@@ -0,0 +1,72 @@
+package com.redhat.healthcare.fhir.search;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Claim;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectionQueryTest {
+
+    private static final FhirContext FHIR = FhirContext.forR4Cached();
+
+    private final ProjectionQuery query = new ProjectionQuery(FHIR, Claim.class, "claims",
+        Map.of("status", "status", "patient", ProjectionQuery.reference("patient_reference", "patient_display")));
+    private final Map<String, Object> params = new HashMap<>();
+
+    @Test
+    void summaryKeepsTheSummaryElementsOfTheResourceDefinition() {
+        Set<String> summary = query.elements(ProjectionCriteria.parse("true", null));
+
+        assertTrue(summary.containsAll(List.of("status", "patient", "created", "provider", "insurance")));
+        assertFalse(summary.contains("patientResource"));
+        assertFalse(summary.contains("item"));
+        assertFalse(summary.contains("supportingInfo"));
+    }
+
+    @Test
+    void dataAndFullKeepTheWholeDocument() {
+        assertNull(query.elements(ProjectionCriteria.parse("data", null)));
+        assertNull(query.elements(ProjectionCriteria.parse(null, null)));
+    }
+
+    @Test
+    void columnElementsAreBuiltFromColumns() {
+        String sql = query.entriesSql(new LinkedHashSet<>(List.of("status", "patient")), "active = true",
+            "fhir_id", params);
+
+        assertTrue(sql.startsWith("SELECT CAST(jsonb_build_object('fullUrl', '/fhir/Claim/' || fhir_id"), sql);
+        assertTrue(sql.contains("jsonb_build_object('resourceType', 'Claim', 'id', fhir_id"), sql);
+        assertTrue(sql.contains("'status', status, 'patient', CASE WHEN patient_reference IS NULL"), sql);
+        assertFalse(sql.contains("jsonb_each(fhir_resource)"), sql);
+        assertTrue(sql.endsWith(" FROM claims WHERE active = true ORDER BY fhir_id"), sql);
+        assertEquals(Set.of("zone"), params.keySet());
+    }
+
+    @Test
+    void otherElementsAreCutFromTheDocumentAndTaggedSubsetted() {
+        String sql = query.entriesSql(Set.of("status", "item"), "active = true", "fhir_id", params);
+
+        assertTrue(sql.contains("jsonb_each(fhir_resource)"), sql);
+        assertTrue(sql.contains(ProjectionQuery.SUBSETTED_TAG), sql);
+        assertTrue(((String) params.get("elements")).startsWith("resourceType,id,meta,"));
+        assertTrue(((String) params.get("elements")).contains("item"));
+    }
+
+    @Test
+    void noElementsDropsOnlyTheNarrative() {
+        String sql = query.entriesSql(null, "active = true", "fhir_id", params);
+
+        assertTrue(sql.contains("'resource', fhir_resource - 'text')"), sql);
+        assertTrue(params.isEmpty());
+    }
+}
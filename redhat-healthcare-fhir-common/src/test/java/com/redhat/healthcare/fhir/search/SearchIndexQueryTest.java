@@ -0,0 +1,166 @@
+package com.redhat.healthcare.fhir.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchIndexQueryTest {
+
+    private final Map<String, Object> params = new HashMap<>();
+
+    @Test
+    void tokenFormsMatchValueSystemOrBoth() {
+        String sql = SearchIndexQuery.toSql("claim", "priority", SearchParamType.TOKEN,
+            List.of("normal,http://sys|stat,|urgent,http://sys|"), "p", params);
+
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_token WHERE param_name = :p0 AND ("
+            + "token_value = :p0_0 OR "
+            + "(token_system = :p0_1s AND token_value = :p0_1) OR "
+            + "(token_system IS NULL AND token_value = :p0_2) OR "
+            + "token_system = :p0_3s))", sql);
+        assertEquals("priority", params.get("p0"));
+        assertEquals("normal", params.get("p0_0"));
+        assertEquals("http://sys", params.get("p0_1s"));
+        assertEquals("stat", params.get("p0_1"));
+        assertEquals("urgent", params.get("p0_2"));
+        assertEquals("http://sys", params.get("p0_3s"));
+    }
+
+    @Test
+    void repeatedParameterIsAnAndOfSubqueries() {
+        String sql = SearchIndexQuery.toSql("practitioner", "communication", SearchParamType.TOKEN,
+            List.of("en", "fr"), "c", params);
+
+        assertEquals("fhir_id IN (SELECT fhir_id FROM practitioner_idx_token WHERE param_name = :c0 AND "
+            + "(token_value = :c0_0)) AND "
+            + "fhir_id IN (SELECT fhir_id FROM practitioner_idx_token WHERE param_name = :c1 AND "
+            + "(token_value = :c1_0))", sql);
+        assertEquals("en", params.get("c0_0"));
+        assertEquals("fr", params.get("c1_0"));
+    }
+
+    @Test
+    void stringMatchesNormalizedPrefixByDefault() {
+        String sql = SearchIndexQuery.toSql("practitioner", "family", SearchParamType.STRING,
+            List.of("Müller"), "f", params);
+
+        assertEquals("fhir_id IN (SELECT fhir_id FROM practitioner_idx_string WHERE param_name = :f0 AND "
+            + "(value_normalized LIKE :f0_0))", sql);
+        assertEquals("muller%", params.get("f0_0"));
+    }
+
+    @Test
+    void stringModifiersSelectExactOrContains() {
+        assertEquals("fhir_id IN (SELECT fhir_id FROM practitioner_idx_string WHERE param_name = :e0 AND "
+                + "(value_exact = :e0_0))",
+            SearchIndexQuery.toSql("practitioner", "family:exact", SearchParamType.STRING, List.of("Müller"), "e",
+                params));
+        assertEquals("Müller", params.get("e0_0"));
+        assertEquals("family", params.get("e0"));
+
+        SearchIndexQuery.toSql("practitioner", "address:contains", SearchParamType.STRING, List.of("Main"), "a",
+            params);
+        assertEquals("%main%", params.get("a0_0"));
+    }
+
+    @Test
+    void likeWildcardsInStringValuesAreEscaped() {
+        SearchIndexQuery.toSql("practitioner", "name", SearchParamType.STRING, List.of("50%_off\\"), "n", params);
+
+        assertEquals("50\\%\\_off\\\\%", params.get("n0_0"));
+    }
+
+    @Test
+    void referenceTakesItsTypeFromTheValueOrTheModifier() {
+        String sql = SearchIndexQuery.toSql("claim", "enterer:Practitioner", SearchParamType.REFERENCE,
+            List.of("p1,PractitionerRole/r2"), "r", params);
+
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_reference WHERE param_name = :r0 AND ("
+            + "(target_type = :r0_0t AND target_id = :r0_0) OR "
+            + "(target_type = :r0_1t AND target_id = :r0_1)))", sql);
+        assertEquals("Practitioner", params.get("r0_0t"));
+        assertEquals("PractitionerRole", params.get("r0_1t"));
+        assertEquals("r2", params.get("r0_1"));
+
+        params.clear();
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_reference WHERE param_name = :r0 AND "
+                + "(target_id = :r0_0))",
+            SearchIndexQuery.toSql("claim", "facility", SearchParamType.REFERENCE, List.of("loc-1"), "r", params));
+    }
+
+    @Test
+    void quantityEqualityUsesTheValuePrecision() {
+        String sql = SearchIndexQuery.toSql("claim", "total", SearchParamType.QUANTITY,
+            List.of("100.5|urn:iso:std:iso:4217|USD"), "q", params);
+
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_quantity WHERE param_name = :q0 AND ("
+            + "(quantity_value >= :q0_0l AND quantity_value < :q0_0h AND quantity_system = :q0_0s "
+            + "AND quantity_code = :q0_0c)))", sql);
+        assertEquals(new BigDecimal("100.45"), params.get("q0_0l"));
+        assertEquals(new BigDecimal("100.55"), params.get("q0_0h"));
+        assertEquals("USD", params.get("q0_0c"));
+    }
+
+    @Test
+    void quantityPrefixesCompare() {
+        String sql = SearchIndexQuery.toSql("claim", "total", SearchParamType.QUANTITY, List.of("ge100", "ne250"),
+            "q", params);
+
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_quantity WHERE param_name = :q0 AND ("
+            + "(quantity_value >= :q0_0))) AND "
+            + "fhir_id IN (SELECT fhir_id FROM claim_idx_quantity WHERE param_name = :q1 AND ("
+            + "(NOT (quantity_value >= :q1_0l AND quantity_value < :q1_0h))))", sql);
+        assertEquals(new BigDecimal("100"), params.get("q0_0"));
+        assertEquals(new BigDecimal("249.5"), params.get("q1_0l"));
+    }
+
+    @Test
+    void indexAndDatePredicatesCombineWithoutBindClashes() {
+        // As the claims search does: the date window on its own column, each indexed parameter with its prefix
+        String created = DateRangeParameter.parse("created", List.of("ge2025-01-01", "lt2025-02-01"))
+            .toPointSql("created_date", "created", params);
+        String priority = SearchIndexQuery.toSql("claim", "priority", SearchParamType.TOKEN, List.of("stat"),
+            "sp0", params);
+        String enterer = SearchIndexQuery.toSql("claim", "enterer", SearchParamType.REFERENCE,
+            List.of("Practitioner/p1"), "sp1", params);
+
+        assertEquals("created_date >= :createdFrom AND created_date < :createdTo", created);
+        assertEquals(LocalDate.of(2025, 1, 1).atStartOfDay(), params.get("createdFrom"));
+        assertEquals(LocalDate.of(2025, 2, 1).atStartOfDay(), params.get("createdTo"));
+        assertEquals("stat", params.get("sp00_0"));
+        assertEquals("priority", params.get("sp00"));
+        assertEquals("p1", params.get("sp10_0"));
+        assertEquals("enterer", params.get("sp10"));
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_token WHERE param_name = :sp00 AND "
+            + "(token_value = :sp00_0))", priority);
+        assertEquals("fhir_id IN (SELECT fhir_id FROM claim_idx_reference WHERE param_name = :sp10 AND "
+            + "((target_type = :sp10_0t AND target_id = :sp10_0)))", enterer);
+        assertEquals(7, params.size());
+    }
+
+    @Test
+    void unsupportedModifiersAndValuesAreRejected() {
+        IllegalArgumentException token = assertThrows(IllegalArgumentException.class, () ->
+            SearchIndexQuery.toSql("claim", "priority:text", SearchParamType.TOKEN, List.of("x"), "p", params));
+        assertEquals("Unsupported modifier 'text' on priority", token.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () ->
+            SearchIndexQuery.toSql("practitioner", "family:missing", SearchParamType.STRING, List.of("x"), "p",
+                params));
+
+        IllegalArgumentException number = assertThrows(IllegalArgumentException.class, () ->
+            SearchIndexQuery.toSql("claim", "total", SearchParamType.QUANTITY, List.of("lots"), "q", params));
+        assertEquals("Invalid total value 'lots'", number.getMessage());
+
+        IllegalArgumentException prefix = assertThrows(IllegalArgumentException.class, () ->
+            SearchIndexQuery.toSql("claim", "total", SearchParamType.QUANTITY, List.of("sa100"), "q", params));
+        assertEquals("Unsupported total prefix 'sa'", prefix.getMessage());
+    }
+}
@@ -0,0 +1,222 @@
+package com.redhat.healthcare.fhir.store;
+
+import com.redhat.healthcare.fhir.service.ResponseCompressionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static com.redhat.healthcare.fhir.service.ResponseCompressionService.GZIP;
+import static com.redhat.healthcare.fhir.service.ResponseCompressionService.IDENTITY;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EncodedResourceCacheTest {
+
+    private final Transactions transactions = new Transactions();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void repeatedReadsAreServedFromTheCache() {
+        EncodedResourceCache cache = cache(4, 100);
+
+        assertEquals("v1", body(cache.get("p1", IDENTITY, stored(1), loader(1, "v1"))));
+        assertEquals("v1", body(cache.get("p1", IDENTITY, stored(1), loader(1, "v1"))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void compressedCodingIsAddedToTheCachedEntry() throws IOException {
+        EncodedResourceCache cache = cache(4, 100);
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+
+        EncodedResource gzip = cache.get("p1", GZIP, stored(1), loader(1, "v1"));
+
+        assertEquals("v1", gunzip(gzip.bytesFor(GZIP)));
+        assertEquals("v1", gunzip(cache.get("p1", GZIP, stored(1), loader(1, "v1")).bytesFor(GZIP)));
+        assertEquals("v1", body(cache.get("p1", IDENTITY, stored(1), loader(1, "v1"))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidationEvictsAndRefusesOlderVersions() {
+        EncodedResourceCache cache = cache(4, 100);
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+
+        cache.invalidate("p1", 2);
+
+        // A stale read of version 1 is served but not cached
+        assertEquals("v1", body(cache.get("p1", IDENTITY, stored(1), loader(1, "v1"))));
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+        assertEquals(3, loads.get());
+
+        assertEquals("v2", body(cache.get("p1", IDENTITY, stored(2), loader(2, "v2"))));
+        assertEquals("v2", body(cache.get("p1", IDENTITY, stored(2), loader(2, "v2"))));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidationWhileLoadingIsNotOverwritten() {
+        // One segment holding one entry, so caching p2 evicts p1's tombstone
+        EncodedResourceCache cache = cache(1, 1);
+
+        cache.get("p1", IDENTITY, stored(1), () -> {
+            cache.invalidate("p1", 2);
+            cache.get("p2", IDENTITY, stored(1), loader(1, "other"));
+            return loader(1, "v1").get();
+        });
+
+        cache.get("p1", IDENTITY, stored(2), loader(2, "v2"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidationInATransactionEvictsAgainAfterCompletion() {
+        EncodedResourceCache cache = cache(4, 100);
+        transactions.status = Status.STATUS_ACTIVE;
+        cache.invalidate("p1", 2);
+        // Read of the uncommitted version before the transaction rolls back
+        cache.get("p1", IDENTITY, stored(2), loader(2, "v2"));
+        assertEquals(1, transactions.synchronizations.size());
+
+        transactions.synchronizations.get(0).afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        cache.get("p1", IDENTITY, stored(2), loader(2, "v2"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void leastRecentlyReadEntryIsEvicted() {
+        EncodedResourceCache cache = cache(1, 2);
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+        cache.get("p2", IDENTITY, stored(1), loader(1, "v1"));
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+
+        cache.get("p3", IDENTITY, stored(1), loader(1, "v1"));
+
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+        assertEquals(3, loads.get());
+        cache.get("p2", IDENTITY, stored(1), loader(1, "v1"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void hitOlderThanTheStoredVersionIsReencoded() {
+        // Another replica updated p1: nothing was invalidated here, but the row is at version 2
+        EncodedResourceCache cache = cache(4, 100);
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+
+        assertEquals("v2", body(cache.get("p1", IDENTITY, stored(2), loader(2, "v2"))));
+        assertEquals("v2", body(cache.get("p1", IDENTITY, stored(2), loader(2, "v2"))));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void hitWithoutAStoredRowGoesToTheLoader() {
+        EncodedResourceCache cache = cache(4, 100);
+        cache.get("p1", IDENTITY, stored(1), loader(1, "v1"));
+
+        assertThrows(IllegalStateException.class, () -> cache.get("p1", IDENTITY, () -> null, () -> {
+            throw new IllegalStateException("Patient/p1");
+        }));
+    }
+
+    @Test
+    void hitNewerThanTheStoredVersionIsDroppedAndTheStoredOneCached() {
+        // Version 2 was cached from inside an update that then rolled back
+        EncodedResourceCache cache = cache(4, 100);
+        cache.get("p1", IDENTITY, stored(2), loader(2, "v2"));
+
+        assertEquals("v1", body(cache.get("p1", IDENTITY, stored(1), loader(1, "v1"))));
+        assertEquals("v1", body(cache.get("p1", IDENTITY, stored(1), loader(1, "v1"))));
+        assertEquals(2, loads.get());
+    }
+
+    private EncodedResourceCache cache(int segments, int maxEntries) {
+        EncodedResourceCache cache = new EncodedResourceCache();
+        cache.enabled = true;
+        cache.maxEntries = maxEntries;
+        cache.maxBytes = 1 << 20;
+        cache.segmentCount = segments;
+        cache.slabBytes = 64 * 1024;
+        cache.transactionRegistry = transactions;
+        cache.registry = new SimpleMeterRegistry();
+        cache.compressionService = new ResponseCompressionService();
+        cache.init();
+        return cache;
+    }
+
+    private static Supplier<Long> stored(long version) {
+        return () -> version;
+    }
+
+    private Supplier<EncodedResource> loader(long version, String body) {
+        return () -> {
+            loads.incrementAndGet();
+            return new EncodedResource(String.valueOf(version), body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static String body(EncodedResource resource) {
+        return new String(resource.bytesFor(IDENTITY), StandardCharsets.UTF_8);
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Records the synchronizations registered while status is active, so a test can complete the transaction.
+     */
+    private static final class Transactions implements TransactionSynchronizationRegistry {
+
+        private final List<Synchronization> synchronizations = new ArrayList<>();
+        private int status = Status.STATUS_NO_TRANSACTION;
+
+        @Override
+        public int getTransactionStatus() {
+            return status;
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization sync) {
+            synchronizations.add(sync);
+        }
+
+        @Override
+        public Object getTransactionKey() {
+            return null;
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return null;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.redhat.healthcare.fhir.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryResourceTableTest {
+
+    private static final int THREADS = 16;
+
+    private final InMemoryResourceTable<Row> table = new InMemoryResourceTable<Row>(row -> row.id, 8)
+        .index("code", row -> row.code)
+        .orderedBy(row -> row.sequence, (row, sequence) -> row.sequence = sequence);
+
+    @Test
+    void lookupFindsTheRowsHoldingAValue() {
+        table.put(new Row("a", "x", true));
+        table.put(new Row("b", "x", true));
+        table.put(new Row("c", "y", true));
+        table.put(new Row("d", null, true));
+
+        assertEquals(List.of("a", "b"), sortedIds(table.lookup("code", "x")));
+        assertEquals(List.of("c"), sortedIds(table.lookup("code", "y")));
+        assertEquals(List.of(), sortedIds(table.lookup("code", null)));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    void replacedRowMovesToItsNewIndexValue() {
+        table.put(new Row("a", "x", true));
+        table.put(new Row("b", "x", true));
+
+        table.put(new Row("a", "y", true));
+
+        assertEquals(List.of("b"), sortedIds(table.lookup("code", "x")));
+        assertEquals(List.of("a"), sortedIds(table.lookup("code", "y")));
+
+        table.update("b", row -> new Row("b", null, true));
+        assertEquals(List.of(), sortedIds(table.lookup("code", "x")));
+        assertEquals(List.of("a"), sortedIds(table.lookup("code", "y")));
+    }
+
+    @Test
+    void deletedRowStaysIndexedUnderItsValue() {
+        table.put(new Row("a", "x", true));
+
+        table.update("a", row -> new Row("a", row.code, false));
+
+        List<Row> holders = table.lookup("code", "x").collect(Collectors.toList());
+        assertEquals(1, holders.size());
+        assertFalse(holders.get(0).active);
+    }
+
+    @Test
+    void updateOfAnAbsentIdOrToNullWritesNothing() {
+        table.put(new Row("a", "x", true));
+        long sequence = table.get("a").orElseThrow().sequence;
+
+        assertTrue(table.update("missing", row -> new Row("missing", "x", true)).isEmpty());
+        assertTrue(table.update("a", row -> null).isEmpty());
+
+        assertTrue(table.get("missing").isEmpty());
+        assertEquals(List.of(), ids(table.changedAfter(sequence)));
+    }
+
+    @Test
+    void putUnlessRejectsAnotherRowMatchingTheConflict() {
+        table.put(new Row("a", "x", true));
+
+        assertFalse(table.putUnless(new Row("b", "x", true), "code", row -> row.active));
+        assertTrue(table.get("b").isEmpty());
+
+        // The row itself never conflicts, so rewriting it keeps its value
+        assertTrue(table.putUnless(new Row("a", "x", true), "code", row -> row.active));
+        // Rows without a value are not checked
+        assertTrue(table.putUnless(new Row("c", null, true), "code", row -> row.active));
+    }
+
+    @Test
+    void putUnlessIgnoresHoldersOutsideTheConflict() {
+        table.put(new Row("a", "x", true));
+        table.update("a", row -> new Row("a", "x", false));
+
+        assertTrue(table.putUnless(new Row("b", "x", true), "code", row -> row.active));
+        assertEquals(List.of("a", "b"), sortedIds(table.lookup("code", "x")));
+    }
+
+    @Test
+    void putUnlessMovingARowOntoAHeldValueIsRejected() {
+        table.put(new Row("a", "x", true));
+        table.put(new Row("b", "y", true));
+
+        assertFalse(table.putUnless(new Row("b", "x", true), "code", row -> row.active));
+        assertEquals("y", table.get("b").orElseThrow().code);
+        assertEquals(List.of("a"), sortedIds(table.lookup("code", "x")));
+    }
+
+    @Test
+    void concurrentPutUnlessOnOneValueHasOneWinner() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            String code = "code-" + round;
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            try {
+                List<Future<Boolean>> writes = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    Row row = new Row(code + "-row-" + i, code, true);
+                    writes.add(pool.submit(() -> {
+                        start.await();
+                        return table.putUnless(row, "code", other -> other.active);
+                    }));
+                }
+                start.countDown();
+                int winners = 0;
+                for (Future<Boolean> write : writes) {
+                    winners += write.get(10, TimeUnit.SECONDS) ? 1 : 0;
+                }
+
+                assertEquals(1, winners, code);
+                assertEquals(1, table.lookup("code", code).count(), code);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void changedAfterReturnsEachRowOnceInWriteOrder() {
+        table.put(new Row("a", "x", true));
+        table.put(new Row("b", "x", true));
+        table.put(new Row("c", "x", true));
+        table.put(new Row("a", "y", true));
+
+        assertEquals(List.of("b", "c", "a"), ids(table.changedAfter(0)));
+        long afterB = table.get("b").orElseThrow().sequence;
+        assertEquals(List.of("c", "a"), ids(table.changedAfter(afterB)));
+        assertEquals(List.of(), ids(table.changedAfter(table.get("a").orElseThrow().sequence)));
+    }
+
+    @Test
+    void changedAfterStopsBelowAWriteInProgress() throws Exception {
+        CountDownLatch assigned = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryResourceTable<Row> blocking = new InMemoryResourceTable<Row>(row -> row.id, 64)
+            .orderedBy(row -> row.sequence, (row, sequence) -> {
+                row.sequence = sequence;
+                if (row.id.equals("slow")) {
+                    assigned.countDown();
+                    await(release);
+                }
+            });
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = pool.submit(() -> blocking.put(new Row("slow", null, true)));
+            assertTrue(assigned.await(10, TimeUnit.SECONDS));
+            String later = idOnAnotherStripe("slow", 64);
+            blocking.put(new Row(later, null, true));
+
+            // The later write is stored, but a reader must not see it before the earlier sequence
+            assertTrue(blocking.get(later).isPresent());
+            assertEquals(List.of(), ids(blocking.changedAfter(0)));
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            assertEquals(List.of("slow", later), ids(blocking.changedAfter(0)));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentWritesGetDistinctIncreasingSequences() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                String id = "row-" + (i % 500);
+                writes.add(pool.submit(() -> table.put(new Row(id, id, true))));
+            }
+            for (Future<?> write : writes) {
+                write.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Long> sequences = table.changedAfter(0).map(row -> row.sequence).collect(Collectors.toList());
+        assertEquals(500, sequences.size());
+        for (int i = 1; i < sequences.size(); i++) {
+            assertTrue(sequences.get(i - 1) < sequences.get(i));
+        }
+        assertEquals(2_000L, sequences.get(sequences.size() - 1));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(List.of("row-" + i), sortedIds(table.lookup("code", "row-" + i)));
+        }
+    }
+
+    private static String idOnAnotherStripe(String id, int stripes) {
+        int stripe = Math.floorMod(id.hashCode(), stripes);
+        for (int i = 0; ; i++) {
+            String other = "other-" + i;
+            if (Math.floorMod(other.hashCode(), stripes) != stripe) {
+                return other;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> ids(Stream<Row> rows) {
+        return rows.map(row -> row.id).collect(Collectors.toList());
+    }
+
+    // Index lookups have no order
+    private static List<String> sortedIds(Stream<Row> rows) {
+        return rows.map(row -> row.id).sorted().collect(Collectors.toList());
+    }
+
+    private static final class Row {
+
+        final String id;
+        final String code;
+        final boolean active;
+        long sequence;
+
+        Row(String id, String code, boolean active) {
+            this.id = id;
+            this.code = code;
+            this.active = active;
+        }
+    }
+}
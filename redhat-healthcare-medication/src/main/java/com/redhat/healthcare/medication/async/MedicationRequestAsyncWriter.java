@@ -0,0 +1,37 @@
+package com.redhat.healthcare.medication.async;
+
+import com.redhat.healthcare.fhir.async.AsyncWriter;
+import com.redhat.healthcare.medication.service.MedicationRequestService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.MedicationRequest;
+
+/**
+ * Prefer: respond-async writes of MedicationRequests, queued in medication_request_async_requests.
+ */
+@ApplicationScoped
+public class MedicationRequestAsyncWriter extends AsyncWriter<MedicationRequest> {
+
+    @Inject
+    MedicationRequestService medicationRequestService;
+
+    @Override
+    protected Class<MedicationRequest> resourceType() {
+        return MedicationRequest.class;
+    }
+
+    @Override
+    protected String table() {
+        return "medication_request_async_requests";
+    }
+
+    @Override
+    protected MedicationRequest create(MedicationRequest medicationRequest) {
+        return medicationRequestService.createValidatedMedicationRequest(medicationRequest);
+    }
+
+    @Override
+    protected MedicationRequest update(String id, MedicationRequest medicationRequest) {
+        return medicationRequestService.updateValidatedMedicationRequest(id, medicationRequest);
+    }
+}
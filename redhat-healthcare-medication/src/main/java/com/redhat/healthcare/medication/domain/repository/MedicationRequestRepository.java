@@ -1,47 +1,114 @@
 package com.redhat.healthcare.medication.domain.repository;
 
+import com.redhat.healthcare.fhir.store.FhirResourceStore;
 import com.redhat.healthcare.medication.domain.entity.MedicationRequestEntity;
+import com.redhat.healthcare.medication.dto.MedicationRequestSearchCriteria;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.TypedQuery;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class MedicationRequestRepository implements PanacheRepositoryBase<MedicationRequestEntity, String> {
 
+    private static final String SOFT_DELETE_SQL = FhirResourceStore.softDeleteSql("medication_requests");
+
+    @Inject
+    FhirResourceStore store;
+
     public Optional<MedicationRequestEntity> findByFhirId(String fhirId) {
         return find("fhirId", fhirId).firstResultOptional();
     }
 
-    public List<MedicationRequestEntity> findByPatient(String patientReference) {
-        return list("patientReference = ?1 and active = true order by authoredOn desc", patientReference);
+    /**
+     * The stored JSON of a medication request, for reads that only render it.
+     */
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        return firstResource("fhirId = ?1", fhirId);
+    }
+
+    /**
+     * Active medication requests matching every parameter set in criteria, most recently authored first.
+     */
+    public Stream<String> findMatching(MedicationRequestSearchCriteria criteria) {
+        Filter filter = filter(criteria);
+        return streamResources(filter.where() + " order by authoredOn desc", filter.params().toArray());
+    }
+
+    public long countMatching(MedicationRequestSearchCriteria criteria) {
+        Filter filter = filter(criteria);
+        return count(filter.where(), filter.params().toArray());
+    }
+
+    /**
+     * Counts the active medication requests matching criteria per reference in one grouped query, where groupBy
+     * is the reference search parameter (patient or requester). References without matches are absent.
+     */
+    public Map<String, Long> countMatchingBy(String groupBy, Collection<String> references,
+                                             MedicationRequestSearchCriteria criteria) {
+        Filter filter = filter(criteria);
+        String field = groupBy + "Reference";
+        TypedQuery<Object[]> query = getEntityManager().createQuery(
+            "select " + field + ", count(*) from MedicationRequestEntity where " + filter.where() +
+            " and " + field + " in ?" + (filter.params().size() + 1) + " group by " + field, Object[].class);
+        for (int i = 0; i < filter.params().size(); i++) {
+            query.setParameter(i + 1, filter.params().get(i));
+        }
+        query.setParameter(filter.params().size() + 1, references);
+        return query.getResultStream()
+            .collect(Collectors.toMap(row -> (String) row[0], row -> ((Number) row[1]).longValue()));
+    }
+
+    /**
+     * Soft-deletes the active medication requests among fhirIds in one statement: the UPDATE bumps version_id and keeps
+     * meta.versionId and meta.lastUpdated of fhir_resource in step; the history trigger records the new version in
+     * medication_request_history. Returns the new version of each deleted medication request; unknown or already
+     * deleted ids are absent.
+     */
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        return store.softDelete(getEntityManager(), SOFT_DELETE_SQL, fhirIds);
     }
 
-    public List<MedicationRequestEntity> findByRequester(String requesterReference) {
-        return list("requesterReference = ?1 and active = true order by authoredOn desc", requesterReference);
+    /**
+     * Makes the current transaction read-only; call it before the first query of a search.
+     */
+    public void readOnly() {
+        store.readOnly(getEntityManager());
     }
 
-    public List<MedicationRequestEntity> findByStatus(String status) {
-        return list("status = ?1 and active = true order by authoredOn desc", status);
+    private static Filter filter(MedicationRequestSearchCriteria criteria) {
+        StringBuilder where = new StringBuilder("active = true");
+        List<Object> params = new ArrayList<>();
+        and(where, params, "patientReference", criteria.getPatient());
+        and(where, params, "requesterReference", criteria.getRequester());
+        and(where, params, "status", criteria.getStatus());
+        and(where, params, "medicationCode", criteria.getMedication());
+        return new Filter(where.toString(), params);
     }
 
-    public List<MedicationRequestEntity> findByMedication(String medicationCode) {
-        return list("medicationCode = ?1 and active = true order by authoredOn desc", medicationCode);
+    private static void and(StringBuilder where, List<Object> params, String field, String value) {
+        if (value != null && !value.isEmpty()) {
+            params.add(value);
+            where.append(" and ").append(field).append(" = ?").append(params.size());
+        }
     }
 
-    public List<MedicationRequestEntity> findByPatientAndStatus(String patientReference, String status) {
-        return list("patientReference = ?1 and status = ?2 and active = true order by authoredOn desc",
-                    patientReference, status);
+    private record Filter(String where, List<Object> params) {
     }
 
-    public List<MedicationRequestEntity> findAllActive() {
-        return list("active = true order by authoredOn desc");
+    private Stream<String> streamResources(String where, Object... params) {
+        return store.streamResources(getEntityManager(), MedicationRequestEntity.class, where, params);
     }
 
-    public void softDelete(String fhirId) {
-        update("active = false, lastUpdated = ?1 where fhirId = ?2",
-               LocalDateTime.now(), fhirId);
+    private Optional<String> firstResource(String where, Object... params) {
+        return store.firstResource(getEntityManager(), MedicationRequestEntity.class, where, params);
     }
 }
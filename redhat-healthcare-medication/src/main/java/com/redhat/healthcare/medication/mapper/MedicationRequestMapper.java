@@ -1,6 +1,7 @@
 package com.redhat.healthcare.medication.mapper;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
 import com.redhat.healthcare.medication.domain.entity.MedicationRequestEntity;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -11,11 +12,17 @@ import java.time.ZoneId;
 import java.util.Date;
 
 @ApplicationScoped
-public class MedicationRequestMapper {
+public class MedicationRequestMapper implements ResourceMapping<MedicationRequest, MedicationRequestEntity> {
 
     @Inject
     IParser jsonParser;
 
+    @Override
+    public Class<MedicationRequest> resourceType() {
+        return MedicationRequest.class;
+    }
+
+    @Override
     public MedicationRequestEntity toEntity(MedicationRequest medicationRequest) {
         MedicationRequestEntity entity = new MedicationRequestEntity();
 
@@ -115,7 +122,12 @@ public class MedicationRequestMapper {
     }
 
     public MedicationRequest toFhir(MedicationRequestEntity entity) {
-        return jsonParser.parseResource(MedicationRequest.class, entity.fhirResource);
+        return toFhir(entity.fhirResource);
+    }
+
+    @Override
+    public MedicationRequest toFhir(String fhirResource) {
+        return jsonParser.parseResource(MedicationRequest.class, fhirResource);
     }
 
     private LocalDateTime convertToLocalDateTime(Date date) {
@@ -1,22 +1,34 @@
 package com.redhat.healthcare.medication.resource;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.async.AsyncRequestStatus;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.rest.FhirBinaryEncodingFilter;
+import com.redhat.healthcare.fhir.rest.ResourceResponses;
+import com.redhat.healthcare.fhir.rest.SearchBundleWriter;
+import com.redhat.healthcare.fhir.search.ProjectionCriteria;
+import com.redhat.healthcare.medication.async.MedicationRequestAsyncWriter;
 import com.redhat.healthcare.medication.dto.MedicationRequestSearchCriteria;
 import com.redhat.healthcare.medication.service.MedicationRequestService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Parameters;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Path("/fhir/MedicationRequest")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, FhirBinaryEncodingFilter.FHIR_CBOR, FhirBinaryEncodingFilter.FHIR_SMILE})
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "MedicationRequest", description = "FHIR MedicationRequest Resource Operations")
 public class MedicationRequestResource {
@@ -27,10 +39,19 @@ public class MedicationRequestResource {
     @Inject
     IParser jsonParser;
 
+    @Inject
+    MedicationRequestAsyncWriter asyncWriter;
+
     @POST
-    @Operation(summary = "Create a new MedicationRequest resource")
-    public Response create(String medicationRequestJson) {
+    @Operation(summary = "Create a new MedicationRequest resource",
+               description = "With Prefer: respond-async the request is validated, queued and answered with " +
+                             "202; Content-Location points at the status to poll")
+    public Response create(@HeaderParam("Prefer") String prefer, String medicationRequestJson) {
         MedicationRequest medicationRequest = jsonParser.parseResource(MedicationRequest.class, medicationRequestJson);
+        if (MedicationRequestAsyncWriter.prefersAsync(prefer) && asyncWriter.accepting()) {
+            String requestId = asyncWriter.submitCreate(medicationRequest);
+            return accepted(requestId, "create of MedicationRequest/" + medicationRequest.getIdElement().getIdPart());
+        }
         MedicationRequest created = medicationRequestService.createMedicationRequest(medicationRequest);
 
         String location = "/fhir/MedicationRequest/" + created.getIdElement().getIdPart();
@@ -51,14 +72,43 @@ public class MedicationRequestResource {
 
     @PUT
     @Path("/{id}")
-    @Operation(summary = "Update a MedicationRequest resource")
-    public Response update(@PathParam("id") String id, String medicationRequestJson) {
+    @Operation(summary = "Update a MedicationRequest resource",
+               description = "Prefer: respond-async answers with 202 once the update is queued")
+    public Response update(@PathParam("id") String id, @HeaderParam("Prefer") String prefer,
+                           String medicationRequestJson) {
         MedicationRequest medicationRequest = jsonParser.parseResource(MedicationRequest.class, medicationRequestJson);
+        if (MedicationRequestAsyncWriter.prefersAsync(prefer) && asyncWriter.accepting()) {
+            return accepted(asyncWriter.submitUpdate(id, medicationRequest), "update of MedicationRequest/" + id);
+        }
         MedicationRequest updated = medicationRequestService.updateMedicationRequest(id, medicationRequest);
 
         return Response.ok(jsonParser.encodeResourceToString(updated)).build();
     }
 
+    @GET
+    @Path("/$async-status/{requestId}")
+    @Operation(summary = "Status of a Prefer: respond-async write",
+               description = "202 while queued; then 200 with a batch-response Bundle carrying the write's " +
+                             "status, location or OperationOutcome")
+    public Response asyncStatus(@PathParam("requestId") String requestId) {
+        Optional<AsyncRequestStatus> status = asyncWriter.status(requestId);
+        if (status.isEmpty()) {
+            return Response.accepted().header("X-Progress", "queued").build();
+        }
+        return Response.ok(jsonParser.encodeResourceToString(status.get().toBundle())).build();
+    }
+
+    private Response accepted(String requestId, String description) {
+        OperationOutcome outcome = new OperationOutcome();
+        outcome.addIssue()
+            .setSeverity(OperationOutcome.IssueSeverity.INFORMATION)
+            .setCode(OperationOutcome.IssueType.INFORMATIONAL)
+            .setDiagnostics("Accepted for asynchronous " + description);
+        return Response.accepted(jsonParser.encodeResourceToString(outcome))
+            .header("Content-Location", "/fhir/MedicationRequest/$async-status/" + requestId)
+            .build();
+    }
+
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a MedicationRequest resource (soft delete)")
@@ -67,14 +117,47 @@ public class MedicationRequestResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/$delete")
+    @Operation(summary = "Delete many MedicationRequest resources (soft delete)",
+               description = "Deletes the medication requests named by the id parameters of a Parameters " +
+                             "resource in one statement. The batch-response Bundle has one entry per id: 204, or " +
+                             "404 when the medication request is unknown or already deleted.")
+    public Response deleteBatch(String parametersJson) {
+        List<String> ids = ResourceResponses.deleteIds(jsonParser.parseResource(Parameters.class, parametersJson));
+        Map<String, Long> deleted = medicationRequestService.deleteMedicationRequests(ids);
+        Bundle outcome = ResourceResponses.deleteOutcome("MedicationRequest", ids, deleted);
+        return Response.ok(jsonParser.encodeResourceToString(outcome)).build();
+    }
+
+    @POST
+    @Path("/$counts")
+    @Operation(summary = "Count MedicationRequest resources per patient or requester",
+               description = "Counts the active medication requests of each reference parameter of a Parameters " +
+                             "resource in one grouped query. group-by (patient or requester) names the reference " +
+                             "counted by and status narrows the medication requests counted. The answer has one " +
+                             "count parameter per reference, in request order, with reference and count parts.")
+    public Response counts(String parametersJson) {
+        Parameters parameters = jsonParser.parseResource(Parameters.class, parametersJson);
+        List<String> references = ResourceResponses.countReferences(parameters);
+        MedicationRequestSearchCriteria criteria = new MedicationRequestSearchCriteria();
+        criteria.setStatus(ResourceResponses.parameter(parameters, "status"));
+        Map<String, Long> counts = medicationRequestService.countMedicationRequestsBy(
+            ResourceResponses.parameter(parameters, "group-by"), references, criteria);
+        return Response.ok(jsonParser.encodeResourceToString(ResourceResponses.countsOutcome(references, counts)))
+            .build();
+    }
+
     @GET
     @Operation(summary = "Search for MedicationRequest resources",
-               description = "Search using FHIR parameters: patient, requester, status, medication")
+               description = "Search using FHIR parameters: patient, requester, status, medication, combined with " +
+                             "each other. _summary=count returns only the total")
     public Response search(
         @QueryParam("patient") String patient,
         @QueryParam("requester") String requester,
         @QueryParam("status") String status,
-        @QueryParam("medication") String medication
+        @QueryParam("medication") String medication,
+        @QueryParam("_summary") String summary
     ) {
         MedicationRequestSearchCriteria criteria = new MedicationRequestSearchCriteria();
         criteria.setPatient(patient);
@@ -82,18 +165,21 @@ public class MedicationRequestResource {
         criteria.setStatus(status);
         criteria.setMedication(medication);
 
-        List<MedicationRequest> medicationRequests = medicationRequestService.searchMedicationRequests(criteria);
-
-        Bundle bundle = new Bundle();
-        bundle.setType(Bundle.BundleType.SEARCHSET);
-        bundle.setTotal(medicationRequests.size());
-
-        medicationRequests.forEach(medicationRequest -> {
-            Bundle.BundleEntryComponent entry = bundle.addEntry();
-            entry.setResource(medicationRequest);
-            entry.setFullUrl("/fhir/MedicationRequest/" + medicationRequest.getIdElement().getIdPart());
-        });
-
-        return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        ProjectionCriteria.Mode mode = ProjectionCriteria.parse(summary, null).getMode();
+        if (mode == ProjectionCriteria.Mode.COUNT) {
+            Bundle bundle = new Bundle();
+            bundle.setType(Bundle.BundleType.SEARCHSET);
+            bundle.setTotal((int) medicationRequestService.countMedicationRequests(criteria));
+            return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        } else if (mode != ProjectionCriteria.Mode.FULL) {
+            throw new FhirValidationException("Unsupported _summary value for MedicationRequest: " + summary);
+        }
+
+        StreamingOutput body = out -> {
+            SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+            medicationRequestService.searchMedicationRequests(criteria, bundle::match);
+            bundle.finish();
+        };
+        return Response.ok(body).build();
     }
 }
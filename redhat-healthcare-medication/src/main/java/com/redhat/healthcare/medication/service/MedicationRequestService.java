@@ -1,19 +1,25 @@
 package com.redhat.healthcare.medication.service;
 
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
 import com.redhat.healthcare.medication.domain.entity.MedicationRequestEntity;
 import com.redhat.healthcare.medication.domain.repository.MedicationRequestRepository;
 import com.redhat.healthcare.medication.dto.MedicationRequestSearchCriteria;
-import com.redhat.healthcare.medication.exception.ResourceNotFoundException;
 import com.redhat.healthcare.medication.mapper.MedicationRequestMapper;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hl7.fhir.r4.model.MedicationRequest;
 
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class MedicationRequestService {
@@ -30,9 +36,24 @@ public class MedicationRequestService {
     @Inject
     MedicationRequestMapper mapper;
 
+    @ConfigProperty(name = "fhir.delete.max-ids", defaultValue = "1000")
+    int deleteMaxIds;
+
+    @ConfigProperty(name = "fhir.counts.max-references", defaultValue = "1000")
+    int countsMaxReferences;
+
     @Transactional
     public MedicationRequest createMedicationRequest(MedicationRequest medicationRequest) {
         validationService.validateOrThrow(medicationRequest);
+        return createValidatedMedicationRequest(medicationRequest);
+    }
+
+    /**
+     * Creates a medication request that already passed FHIR validation, e.g. one accepted earlier for an
+     * asynchronous write.
+     */
+    @Transactional
+    public MedicationRequest createValidatedMedicationRequest(MedicationRequest medicationRequest) {
 
         if (medicationRequest.getId() == null || medicationRequest.getId().isEmpty()) {
             medicationRequest.setId(parserService.generateId());
@@ -60,8 +81,22 @@ public class MedicationRequestService {
             .orElseThrow(() -> new ResourceNotFoundException("MedicationRequest/" + id));
 
         validationService.validateOrThrow(medicationRequest);
+        return update(existing, medicationRequest);
+    }
+
+    /**
+     * Updates MedicationRequest/id with a medication request that already passed FHIR validation.
+     */
+    @Transactional
+    public MedicationRequest updateValidatedMedicationRequest(String id, MedicationRequest medicationRequest) {
+        MedicationRequestEntity existing = repository.findByFhirId(id)
+            .orElseThrow(() -> new ResourceNotFoundException("MedicationRequest/" + id));
+
+        return update(existing, medicationRequest);
+    }
 
-        medicationRequest.setId(id);
+    private MedicationRequest update(MedicationRequestEntity existing, MedicationRequest medicationRequest) {
+        medicationRequest.setId(existing.fhirId);
 
         Long newVersion = existing.versionId + 1;
         if (medicationRequest.getMeta() == null) {
@@ -81,43 +116,62 @@ public class MedicationRequestService {
     }
 
     public MedicationRequest getMedicationRequest(String id) {
-        MedicationRequestEntity entity = repository.findByFhirId(id)
+        String resource = repository.findResourceByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("MedicationRequest/" + id));
 
-        return mapper.toFhir(entity);
+        return mapper.toFhir(resource);
     }
 
     @Transactional
     public void deleteMedicationRequest(String id) {
-        if (!repository.findByFhirId(id).isPresent()) {
+        if (repository.softDelete(List.of(id)).isEmpty()) {
             throw new ResourceNotFoundException("MedicationRequest/" + id);
         }
-        repository.softDelete(id);
     }
 
-    public List<MedicationRequest> searchMedicationRequests(MedicationRequestSearchCriteria criteria) {
-        List<MedicationRequestEntity> entities;
-
-        if (criteria.getPatient() != null && !criteria.getPatient().isEmpty() &&
-            criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
-            entities = repository.findByPatientAndStatus(
-                criteria.getPatient(),
-                criteria.getStatus()
-            );
-        } else if (criteria.getPatient() != null && !criteria.getPatient().isEmpty()) {
-            entities = repository.findByPatient(criteria.getPatient());
-        } else if (criteria.getRequester() != null && !criteria.getRequester().isEmpty()) {
-            entities = repository.findByRequester(criteria.getRequester());
-        } else if (criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
-            entities = repository.findByStatus(criteria.getStatus());
-        } else if (criteria.getMedication() != null && !criteria.getMedication().isEmpty()) {
-            entities = repository.findByMedication(criteria.getMedication());
-        } else {
-            entities = repository.findAllActive();
+    /**
+     * Deletes many medication requests with one statement. Returns the new version of each deleted medication request;
+     * ids that are unknown or already deleted are absent.
+     */
+    @Transactional
+    public Map<String, Long> deleteMedicationRequests(List<String> ids) {
+        if (ids.size() > deleteMaxIds) {
+            throw new FhirValidationException("At most " + deleteMaxIds + " ids can be deleted at once");
+        }
+        return repository.softDelete(ids);
+    }
+
+    /**
+     * Passes each match to matches as it is fetched. Runs in a read-only transaction so the driver can fetch
+     * the matches through a cursor while they are parsed.
+     */
+    @Transactional
+    public void searchMedicationRequests(MedicationRequestSearchCriteria criteria, Consumer<MedicationRequest> matches) {
+        repository.readOnly();
+        try (Stream<String> resources = repository.findMatching(criteria)) {
+            resources.map(mapper::toFhir).forEach(matches);
         }
+    }
 
-        return entities.stream()
-            .map(mapper::toFhir)
-            .collect(Collectors.toList());
+    public long countMedicationRequests(MedicationRequestSearchCriteria criteria) {
+        return repository.countMatching(criteria);
+    }
+
+    /**
+     * Counts the medication requests matching criteria for each patient or requester reference with one grouped
+     * query. References without medication requests are absent.
+     */
+    @Transactional
+    public Map<String, Long> countMedicationRequestsBy(String groupBy, List<String> references,
+                                                       MedicationRequestSearchCriteria criteria) {
+        if (!"patient".equals(groupBy) && !"requester".equals(groupBy)) {
+            throw new FhirValidationException("$counts group-by must be patient or requester");
+        }
+        if (references.size() > countsMaxReferences) {
+            throw new FhirValidationException(
+                "At most " + countsMaxReferences + " references can be counted at once");
+        }
+        repository.readOnly();
+        return repository.countMatchingBy(groupBy, references, criteria);
     }
 }
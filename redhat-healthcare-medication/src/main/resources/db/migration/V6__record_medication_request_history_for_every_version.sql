@@ -0,0 +1,35 @@
+-- medication_request_history only received a marker row per delete. Every version is now recorded with its resource, by a
+-- trigger on create, on each update that bumps version_id and on the soft delete, whichever path wrote it.
+ALTER TABLE medication_request_history ADD COLUMN fhir_resource JSONB;
+
+-- Earlier versions are gone; keep what is still known: the current version of every MedicationRequest
+UPDATE medication_request_history h SET fhir_resource = t.fhir_resource
+FROM medication_requests t
+WHERE t.fhir_id = h.fhir_id AND t.version_id = h.version_id;
+
+INSERT INTO medication_request_history (fhir_id, version_id, operation, recorded_at, fhir_resource)
+SELECT fhir_id, version_id, CASE WHEN active THEN 'UPDATE' ELSE 'DELETE' END, last_updated, fhir_resource
+FROM medication_requests
+ON CONFLICT (fhir_id, version_id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION medication_requests_record_history() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO medication_request_history (fhir_id, version_id, operation, recorded_at, fhir_resource)
+    VALUES (NEW.fhir_id, NEW.version_id,
+            CASE WHEN TG_OP = 'INSERT' THEN 'CREATE' WHEN NEW.active IS FALSE THEN 'DELETE' ELSE 'UPDATE' END,
+            NEW.last_updated, NEW.fhir_resource)
+    ON CONFLICT (fhir_id, version_id) DO NOTHING;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER medication_requests_history_on_insert
+    AFTER INSERT ON medication_requests
+    FOR EACH ROW EXECUTE FUNCTION medication_requests_record_history();
+
+CREATE TRIGGER medication_requests_history_on_update
+    AFTER UPDATE ON medication_requests
+    FOR EACH ROW WHEN (OLD.version_id IS DISTINCT FROM NEW.version_id)
+    EXECUTE FUNCTION medication_requests_record_history();
+
+COMMENT ON TABLE medication_request_history IS 'Every MedicationRequest version with its resource; versions before V6 only where they were current';
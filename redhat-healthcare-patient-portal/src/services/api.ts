@@ -10,6 +10,7 @@ export const CLAIMS_API_URL = isProduction ? '/api/claims' : 'http://localhost:8
 export const PRACTITIONER_API_URL = isProduction ? '/api/practitioners' : 'http://localhost:8083/fhir'
 export const APPOINTMENT_API_URL = isProduction ? '/api/appointments' : 'http://localhost:8084/fhir'
 export const MEDICATION_API_URL = isProduction ? '/api/medications' : 'http://localhost:8085/fhir'
+export const BFF_API_URL = isProduction ? '/api/bff' : 'http://localhost:8086/bff'
 
 // Create axios instances for each service
 export const patientApi = axios.create({
@@ -59,3 +60,11 @@ export const medicationApi = axios.create({
     'Accept': 'application/json'
   }
 })
+
+export const bffApi = axios.create({
+  baseURL: BFF_API_URL,
+  headers: {
+    'Content-Type': 'application/json',
+    'Accept': 'application/json'
+  }
+})
@@ -1,4 +1,4 @@
-import { patientApi, coverageApi, claimsApi, practitionerApi, appointmentApi, medicationApi } from './api'
+import { patientApi, coverageApi, claimsApi, practitionerApi, appointmentApi, medicationApi, bffApi } from './api'
 
 export interface FhirResource {
   resourceType: string
@@ -16,6 +16,17 @@ export interface FhirBundle {
   }>
 }
 
+export interface CountyStats {
+  state?: string
+  total: number
+  counties: Array<{
+    county: string
+    count: number
+    gender?: Record<string, number>
+    ageBands?: Record<string, number>
+  }>
+}
+
 // Patient Service
 export const patientService = {
   async getPatient(id: string): Promise<FhirResource> {
@@ -31,6 +42,15 @@ export const patientService = {
   async getAllPatients(): Promise<FhirResource[]> {
     const bundle = await this.searchPatients()
     return bundle.entry?.map(entry => entry.resource) || []
+  },
+
+  // Pre-aggregated active patient counts per county (maintained server-side at write time)
+  async getCountyStats(state?: string, breakdown?: string): Promise<CountyStats> {
+    const params: Record<string, string> = {}
+    if (state) params.state = state
+    if (breakdown) params.breakdown = breakdown
+    const response = await patientApi.get('/Patient/$county-stats', { params })
+    return response.data
   }
 }
 
@@ -158,3 +178,50 @@ export const medicationService = {
     return bundle.entry?.map(entry => entry.resource) || []
   }
 }
+
+// Portal BFF - pre-aggregated view payloads
+export interface PatientSummary {
+  id: string
+  upcomingAppointments: number
+  pendingClaims: number
+  activeMedications: number
+}
+
+export interface ProviderSummary {
+  id: string
+  upcomingAppointments: number
+  activeMedications: number
+  claims: number
+}
+
+export interface FinancialSummary {
+  patientId: string
+  currency: string
+  total: number
+  byStatus: Record<string, { total: number; count: number }>
+  outOfPocketSpent?: number
+  outOfPocketMax?: number
+  outOfPocketRemaining?: number
+  coverageOutOfPocketMax?: number
+  pendingPatientPayments: number
+  generatedAt: string
+}
+
+export const bffService = {
+  // Counters for the listed patients, one row per id
+  async getPatientDashboard(patientIds: string[]): Promise<{ patients: PatientSummary[]; generatedAt: string }> {
+    const response = await bffApi.post('/patient-dashboard', patientIds)
+    return response.data
+  },
+
+  // Counters for the listed practitioners, one row per id
+  async getProviderDirectory(practitionerIds: string[]): Promise<{ providers: ProviderSummary[]; generatedAt: string }> {
+    const response = await bffApi.post('/provider-directory', practitionerIds)
+    return response.data
+  },
+
+  async getFinancialSummary(patientId: string): Promise<FinancialSummary> {
+    const response = await bffApi.get(`/patients/${patientId}/financial-summary`)
+    return response.data
+  }
+}
@@ -1,13 +1,14 @@
 import { defineStore } from 'pinia'
 import { ref, computed } from 'vue'
-import type { FhirResource } from '@/services/fhirService'
+import type { FhirResource, PatientSummary, ProviderSummary } from '@/services/fhirService'
 import {
   patientService,
   coverageService,
   claimsService,
   practitionerService,
   appointmentService,
-  medicationService
+  medicationService,
+  bffService
 } from '@/services/fhirService'
 
 export const usePatientStore = defineStore('patient', () => {
@@ -19,9 +20,8 @@ export const usePatientStore = defineStore('patient', () => {
   const practitioners = ref<FhirResource[]>([])
   const appointments = ref<FhirResource[]>([])
   const medications = ref<FhirResource[]>([])
-  const allAppointments = ref<FhirResource[]>([])  // All appointments for all patients
-  const allClaims = ref<FhirResource[]>([])  // All claims for all patients
-  const allMedications = ref<FhirResource[]>([])  // All medications for all patients
+  const patientSummaries = ref<Record<string, PatientSummary>>({})  // BFF counters keyed by patient id
+  const providerSummaries = ref<Record<string, ProviderSummary>>({})  // BFF counters keyed by practitioner id
   const loading = ref(false)
   const error = ref<string | null>(null)
 
@@ -42,6 +42,7 @@ export const usePatientStore = defineStore('patient', () => {
     error.value = null
     try {
       patients.value = await patientService.getAllPatients()
+      await loadPatientCounters()
     } catch (err: any) {
       error.value = err.message || 'Failed to load patients'
       console.error('Error loading patients:', err)
@@ -94,6 +95,7 @@ export const usePatientStore = defineStore('patient', () => {
     error.value = null
     try {
       practitioners.value = await practitionerService.getAllPractitioners()
+      await loadProviderCounters()
     } catch (err: any) {
       error.value = err.message || 'Failed to load practitioners'
       console.error('Error loading practitioners:', err)
@@ -112,6 +114,7 @@ export const usePatientStore = defineStore('patient', () => {
       }
       // Try searching by name first
       practitioners.value = await practitionerService.searchByName(query)
+      await loadProviderCounters()
     } catch (err: any) {
       error.value = err.message || 'Failed to search practitioners'
       console.error('Error searching practitioners:', err)
@@ -120,82 +123,47 @@ export const usePatientStore = defineStore('patient', () => {
     }
   }
 
-  async function loadAllAppointmentsAndClaims() {
+  // The BFF counts server-side for exactly the rows listed, so only one row of counters per id is transferred
+  async function loadPatientCounters() {
+    const ids = patients.value.map(patient => patient.id).filter((id): id is string => !!id)
+    if (ids.length === 0) return
     try {
-      const [appointmentsData, claimsData, medicationsData] = await Promise.all([
-        appointmentService.searchAppointments({ _count: '1000' }),
-        claimsService.searchClaims({ _count: '5000' }),
-        medicationService.searchMedicationRequests({ _count: '1000' })
-      ])
-      allAppointments.value = appointmentsData.entry?.map(entry => entry.resource) || []
-      allClaims.value = claimsData.entry?.map(entry => entry.resource) || []
-      allMedications.value = medicationsData.entry?.map(entry => entry.resource) || []
+      const dashboard = await bffService.getPatientDashboard(ids)
+      patientSummaries.value = Object.fromEntries(dashboard.patients.map(row => [row.id, row]))
+    } catch (err: any) {
+      console.error('Error loading patient counters:', err)
+    }
+  }
+
+  async function loadProviderCounters() {
+    const ids = practitioners.value.map(practitioner => practitioner.id).filter((id): id is string => !!id)
+    if (ids.length === 0) return
+    try {
+      const directory = await bffService.getProviderDirectory(ids)
+      providerSummaries.value = Object.fromEntries(directory.providers.map(row => [row.id, row]))
     } catch (err: any) {
-      console.error('Error loading all appointments, claims, and medications:', err)
+      console.error('Error loading practitioner counters:', err)
     }
   }
 
   function getUpcomingAppointmentCount(patientId: string): number {
-    const now = new Date()
-    return allAppointments.value.filter(appt => {
-      // Check if this appointment belongs to the patient
-      const isPatientAppt = appt.participant?.some((p: any) =>
-        p.actor?.reference === `Patient/${patientId}`
-      )
-      if (!isPatientAppt) return false
-
-      // Check if appointment is in the future
-      const startTime = appt.start ? new Date(appt.start) : null
-      return startTime && startTime >= now
-    }).length
+    return patientSummaries.value[patientId]?.upcomingAppointments || 0
   }
 
   function getPendingClaimsCount(patientId: string): number {
-    return allClaims.value.filter(claim => {
-      // Check if this claim belongs to the patient
-      const isPatientClaim = claim.patient?.reference === `Patient/${patientId}`
-      if (!isPatientClaim) return false
-
-      // Check if status is active (pending)
-      return claim.status === 'active'
-    }).length
+    return patientSummaries.value[patientId]?.pendingClaims || 0
   }
 
   function getActiveMedicationCount(patientId: string): number {
-    return allMedications.value.filter(medication => {
-      // Check if this medication belongs to the patient
-      const isPatientMedication = medication.subject?.reference === `Patient/${patientId}`
-      if (!isPatientMedication) return false
-
-      // Check if status is active
-      return medication.status === 'active'
-    }).length
+    return patientSummaries.value[patientId]?.activeMedications || 0
   }
 
   function getProviderUpcomingAppointmentCount(practitionerId: string): number {
-    const now = new Date()
-    return allAppointments.value.filter(appt => {
-      // Check if this appointment is for this practitioner
-      const isPractitionerAppt = appt.participant?.some((p: any) =>
-        p.actor?.reference === `Practitioner/${practitionerId}`
-      )
-      if (!isPractitionerAppt) return false
-
-      // Check if appointment is in the future
-      const startTime = appt.start ? new Date(appt.start) : null
-      return startTime && startTime >= now
-    }).length
+    return providerSummaries.value[practitionerId]?.upcomingAppointments || 0
   }
 
   function getProviderMedicationCount(practitionerId: string): number {
-    return allMedications.value.filter(medication => {
-      // Check if this medication was prescribed by this practitioner
-      const isPractitionerMedication = medication.requester?.reference === `Practitioner/${practitionerId}`
-      if (!isPractitionerMedication) return false
-
-      // Count active medications only
-      return medication.status === 'active'
-    }).length
+    return providerSummaries.value[practitionerId]?.activeMedications || 0
   }
 
   function clearError() {
@@ -211,9 +179,8 @@ export const usePatientStore = defineStore('patient', () => {
     practitioners,
     appointments,
     medications,
-    allAppointments,
-    allClaims,
-    allMedications,
+    patientSummaries,
+    providerSummaries,
     loading,
     error,
     // Getters
@@ -225,7 +192,8 @@ export const usePatientStore = defineStore('patient', () => {
     loadPatientData,
     loadAllPractitioners,
     searchPractitioners,
-    loadAllAppointmentsAndClaims,
+    loadPatientCounters,
+    loadProviderCounters,
     getUpcomingAppointmentCount,
     getPendingClaimsCount,
     getActiveMedicationCount,
@@ -15,7 +15,6 @@ import java.time.LocalDateTime;
     @Index(name = "idx_coverage_subscriber", columnList = "subscriber_reference"),
     @Index(name = "idx_coverage_payor", columnList = "payor_reference"),
     @Index(name = "idx_coverage_status", columnList = "status"),
-    @Index(name = "idx_coverage_period", columnList = "period_start, period_end"),
     @Index(name = "idx_coverage_active", columnList = "active"),
     @Index(name = "idx_coverage_last_updated", columnList = "last_updated")
 })
@@ -55,6 +54,7 @@ public class CoverageEntity extends PanacheEntityBase {
     @Column(name = "payor_display", length = 255)
     public String payorDisplay;
 
+    // period_range (daterange, GiST-indexed) is generated from these two columns by the database
     @Column(name = "period_start")
     public LocalDate periodStart;
 
@@ -1,51 +1,184 @@
 package com.redhat.healthcare.coverage.domain.repository;
 
 import com.redhat.healthcare.coverage.domain.entity.CoverageEntity;
+import com.redhat.healthcare.coverage.dto.CoverageSearchCriteria;
+import com.redhat.healthcare.fhir.store.FhirResourceStore;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
-import java.time.LocalDateTime;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class CoverageRepository implements PanacheRepositoryBase<CoverageEntity, String> {
 
+    private static final String SOFT_DELETE_SQL = FhirResourceStore.softDeleteSql("coverage");
+
+    @Inject
+    FhirResourceStore store;
+
     public Optional<CoverageEntity> findByFhirId(String fhirId) {
         return find("fhirId", fhirId).firstResultOptional();
     }
 
-    public List<CoverageEntity> findByIdentifier(String system, String value) {
+    /**
+     * The stored JSON of a coverage, for reads that only render it.
+     */
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        return firstResource("fhirId = ?1", fhirId);
+    }
+
+    /**
+     * Active coverages with the identifier, at most two: enough for a conditional request to tell one match
+     * from several. Without a system the value alone is matched.
+     */
+    public List<CoverageEntity> findActiveByIdentifier(String system, String value) {
+        if (system != null) {
+            return find("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value)
+                .range(0, 1).list();
+        }
+        return find("identifierValue = ?1 and active = true", value).range(0, 1).list();
+    }
+
+    /**
+     * The active coverage holding exactly this identifier, a missing system matching only a missing system: the
+     * row uq_coverage_active_identifier keeps any other active coverage from taking the identifier.
+     */
+    public Optional<CoverageEntity> findActiveHolder(String system, String value) {
+        return find("coalesce(identifierSystem, '') = ?1 and identifierValue = ?2 and active = true",
+            system != null ? system : "", value).firstResultOptional();
+    }
+
+    /**
+     * Inserts the coverage unless an active coverage already holds its identifier system and value, in one
+     * INSERT ... ON CONFLICT on uq_coverage_active_identifier. Returns false when nothing was inserted.
+     */
+    public boolean insertIfIdentifierFree(CoverageEntity entity) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO coverage (fhir_id, version_id, identifier_system, identifier_value, " +
+                    "subscriber_reference, beneficiary_reference, status, type_code, type_display, payor_reference, " +
+                    "payor_display, period_start, period_end, fhir_resource, active, last_updated, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?) " +
+                    "ON CONFLICT ((COALESCE(identifier_system, '')), identifier_value) WHERE active = true " +
+                    "DO NOTHING")) {
+                insert.setString(1, entity.fhirId);
+                insert.setObject(2, entity.versionId);
+                insert.setString(3, entity.identifierSystem);
+                insert.setString(4, entity.identifierValue);
+                insert.setString(5, entity.subscriberReference);
+                insert.setString(6, entity.beneficiaryReference);
+                insert.setString(7, entity.status);
+                insert.setString(8, entity.typeCode);
+                insert.setString(9, entity.typeDisplay);
+                insert.setString(10, entity.payorReference);
+                insert.setString(11, entity.payorDisplay);
+                insert.setObject(12, entity.periodStart);
+                insert.setObject(13, entity.periodEnd);
+                insert.setString(14, entity.fhirResource);
+                insert.setObject(15, entity.active);
+                insert.setObject(16, entity.lastUpdated);
+                insert.setObject(17, entity.createdAt);
+                return insert.executeUpdate() == 1;
+            }
+        });
+    }
+
+    public Stream<String> findByIdentifier(String system, String value) {
         if (system != null && value != null) {
-            return list("identifierSystem = ?1 and identifierValue = ?2", system, value);
+            return streamResources("identifierSystem = ?1 and identifierValue = ?2", system, value);
         } else if (value != null) {
-            return list("identifierValue = ?1", value);
+            return streamResources("identifierValue = ?1", value);
         }
-        return List.of();
+        return Stream.empty();
+    }
+
+    public Stream<String> findByBeneficiary(String beneficiaryReference) {
+        return streamResources("beneficiaryReference = ?1 and active = true", beneficiaryReference);
+    }
+
+    public Stream<String> findBySubscriber(String subscriberReference) {
+        return streamResources("subscriberReference = ?1 and active = true", subscriberReference);
+    }
+
+    public Stream<String> findByPayor(String payorReference) {
+        return streamResources("payorReference = ?1 and active = true", payorReference);
+    }
+
+    public Stream<String> findByStatus(String status) {
+        return streamResources("status = ?1 and active = true", status);
     }
 
-    public List<CoverageEntity> findByBeneficiary(String beneficiaryReference) {
-        return list("beneficiaryReference = ?1 and active = true", beneficiaryReference);
+    /**
+     * Soft-deletes the active coverages among fhirIds in one statement: the UPDATE bumps version_id and keeps
+     * meta.versionId and meta.lastUpdated of fhir_resource in step; the history trigger records the new version in
+     * coverage_history. Returns the new version of each deleted coverage; unknown or already deleted ids are absent.
+     */
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        return store.softDelete(getEntityManager(), SOFT_DELETE_SQL, fhirIds);
+    }
+
+    /**
+     * Period search over the GiST-indexed period_range column, narrowed by beneficiary, payor and status when given.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> findByPeriod(CoverageSearchCriteria criteria) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> where = new ArrayList<>();
+        where.add("active = true");
+        where.add(criteria.getPeriod().toSql("period_range", "period", params));
+        if (notEmpty(criteria.getBeneficiary())) {
+            where.add("beneficiary_reference = :beneficiary");
+            params.put("beneficiary", criteria.getBeneficiary());
+        }
+        if (notEmpty(criteria.getPayor())) {
+            where.add("payor_reference = :payor");
+            params.put("payor", criteria.getPayor());
+        }
+        if (notEmpty(criteria.getStatus())) {
+            where.add("status = :status");
+            params.put("status", criteria.getStatus());
+        }
+
+        Query query = getEntityManager().createNativeQuery(
+            "SELECT CAST(fhir_resource AS text) FROM coverage WHERE " + String.join(" AND ", where) +
+            " ORDER BY period_start, fhir_id")
+            .setHint(HibernateHints.HINT_FETCH_SIZE, store.fetchSize());
+        params.forEach(query::setParameter);
+        return query.getResultStream();
     }
 
-    public List<CoverageEntity> findBySubscriber(String subscriberReference) {
-        return list("subscriberReference = ?1 and active = true", subscriberReference);
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
     }
 
-    public List<CoverageEntity> findByPayor(String payorReference) {
-        return list("payorReference = ?1 and active = true", payorReference);
+    public Stream<String> findAllActive() {
+        return streamResources("active = true");
     }
 
-    public List<CoverageEntity> findByStatus(String status) {
-        return list("status = ?1 and active = true", status);
+    /**
+     * Makes the current transaction read-only; call it before the first query of a search.
+     */
+    public void readOnly() {
+        store.readOnly(getEntityManager());
     }
 
-    public void softDelete(String fhirId) {
-        update("active = false, lastUpdated = ?1 where fhirId = ?2",
-               LocalDateTime.now(), fhirId);
+    private Stream<String> streamResources(String where, Object... params) {
+        return store.streamResources(getEntityManager(), CoverageEntity.class, where, params);
     }
 
-    public List<CoverageEntity> findAllActive() {
-        return list("active = true");
+    private Optional<String> firstResource(String where, Object... params) {
+        return store.firstResource(getEntityManager(), CoverageEntity.class, where, params);
     }
 }
@@ -1,5 +1,7 @@
 package com.redhat.healthcare.coverage.dto;
 
+import com.redhat.healthcare.fhir.search.DateRangeParameter;
+
 public class CoverageSearchCriteria {
 
     private String identifierSystem;
@@ -8,6 +10,7 @@ public class CoverageSearchCriteria {
     private String subscriber;
     private String payor;
     private String status;
+    private DateRangeParameter period;
 
     public String getIdentifierSystem() {
         return identifierSystem;
@@ -56,4 +59,12 @@ public class CoverageSearchCriteria {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public DateRangeParameter getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(DateRangeParameter period) {
+        this.period = period;
+    }
 }
@@ -2,6 +2,7 @@ package com.redhat.healthcare.coverage.mapper;
 
 import ca.uhn.fhir.parser.IParser;
 import com.redhat.healthcare.coverage.domain.entity.CoverageEntity;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.hl7.fhir.r4.model.CodeableConcept;
@@ -16,11 +17,17 @@ import java.time.ZoneId;
 import java.util.Date;
 
 @ApplicationScoped
-public class CoverageMapper {
+public class CoverageMapper implements ResourceMapping<Coverage, CoverageEntity> {
 
     @Inject
     IParser jsonParser;
 
+    @Override
+    public Class<Coverage> resourceType() {
+        return Coverage.class;
+    }
+
+    @Override
     public CoverageEntity toEntity(Coverage coverage) {
         CoverageEntity entity = new CoverageEntity();
 
@@ -76,7 +83,12 @@ public class CoverageMapper {
     }
 
     public Coverage toFhir(CoverageEntity entity) {
-        return jsonParser.parseResource(Coverage.class, entity.fhirResource);
+        return toFhir(entity.fhirResource);
+    }
+
+    @Override
+    public Coverage toFhir(String fhirResource) {
+        return jsonParser.parseResource(Coverage.class, fhirResource);
     }
 
     private LocalDate convertToLocalDate(Date date) {
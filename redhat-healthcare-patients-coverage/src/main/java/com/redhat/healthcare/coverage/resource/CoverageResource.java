@@ -3,20 +3,30 @@ package com.redhat.healthcare.coverage.resource;
 import ca.uhn.fhir.parser.IParser;
 import com.redhat.healthcare.coverage.dto.CoverageSearchCriteria;
 import com.redhat.healthcare.coverage.service.CoverageService;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.rest.FhirBinaryEncodingFilter;
+import com.redhat.healthcare.fhir.rest.ResourceResponses;
+import com.redhat.healthcare.fhir.rest.SearchBundleWriter;
+import com.redhat.healthcare.fhir.search.DateRangeParameter;
+import com.redhat.healthcare.fhir.search.IdentifierCondition;
+import com.redhat.healthcare.fhir.store.WriteResult;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Coverage;
+import org.hl7.fhir.r4.model.Parameters;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 @Path("/fhir/Coverage")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, FhirBinaryEncodingFilter.FHIR_CBOR, FhirBinaryEncodingFilter.FHIR_SMILE})
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "Coverage", description = "FHIR Coverage Resource Operations")
 public class CoverageResource {
@@ -28,10 +38,18 @@ public class CoverageResource {
     IParser jsonParser;
 
     @POST
-    @Operation(summary = "Create a new Coverage resource")
-    public Response create(String coverageJson) {
+    @Operation(summary = "Create a new Coverage resource",
+               description = "With If-None-Exist: identifier=[system|]value, returns the matching coverage (200) " +
+                             "instead of creating a duplicate. A create whose identifier an active coverage " +
+                             "already holds fails with 409.")
+    public Response create(@HeaderParam("If-None-Exist") String ifNoneExist, String coverageJson) {
         Coverage coverage = jsonParser.parseResource(Coverage.class, coverageJson);
-        Coverage created = coverageService.createCoverage(coverage);
+        if (ifNoneExist != null && !ifNoneExist.isBlank()) {
+            WriteResult<Coverage> result = coverageService.createIfNoneExist(coverage,
+                IdentifierCondition.fromQuery(ifNoneExist));
+            return ResourceResponses.written(jsonParser, result);
+        }
+        Coverage created = coverageService.create(coverage);
 
         String location = "/fhir/Coverage/" + created.getIdElement().getIdPart();
 
@@ -54,11 +72,24 @@ public class CoverageResource {
     @Operation(summary = "Update a Coverage resource")
     public Response update(@PathParam("id") String id, String coverageJson) {
         Coverage coverage = jsonParser.parseResource(Coverage.class, coverageJson);
-        Coverage updated = coverageService.updateCoverage(id, coverage);
+        Coverage updated = coverageService.update(id, coverage);
 
         return Response.ok(jsonParser.encodeResourceToString(updated)).build();
     }
 
+    @PUT
+    @Operation(summary = "Conditionally update a Coverage resource",
+               description = "Updates the coverage found by identifier=[system|]value, creates it when none " +
+                             "matches, and fails with 412 when several do")
+    public Response conditionalUpdate(@QueryParam("identifier") String identifier, String coverageJson) {
+        if (identifier == null || identifier.isBlank()) {
+            throw new FhirValidationException("Conditional update requires an identifier search parameter");
+        }
+        Coverage coverage = jsonParser.parseResource(Coverage.class, coverageJson);
+        IdentifierCondition condition = IdentifierCondition.fromToken(identifier);
+        return ResourceResponses.written(jsonParser, coverageService.conditionalUpdate(condition, coverage));
+    }
+
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a Coverage resource (soft delete)")
@@ -67,16 +98,31 @@ public class CoverageResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/$delete")
+    @Operation(summary = "Delete many Coverage resources (soft delete)",
+               description = "Deletes the coverages named by the id parameters of a Parameters resource in one " +
+                             "statement. The batch-response Bundle has one entry per id: 204, or 404 when the " +
+                             "coverage is unknown or already deleted.")
+    public Response deleteBatch(String parametersJson) {
+        List<String> ids = ResourceResponses.deleteIds(jsonParser.parseResource(Parameters.class, parametersJson));
+        Map<String, Long> deleted = coverageService.deleteCoverages(ids);
+        Bundle outcome = ResourceResponses.deleteOutcome("Coverage", ids, deleted);
+        return Response.ok(jsonParser.encodeResourceToString(outcome)).build();
+    }
+
     @GET
     @Operation(summary = "Search for Coverage resources",
-               description = "Search using FHIR parameters: identifier, patient, beneficiary, subscriber, payor, status")
+               description = "Search using FHIR parameters: identifier, patient, beneficiary, subscriber, payor, status, " +
+                             "period (date prefixes eq, ge, gt, le, lt, sa, eb; combinable with beneficiary, payor, status)")
     public Response search(
         @QueryParam("identifier") String identifier,
         @QueryParam("patient") String patient,
         @QueryParam("beneficiary") String beneficiary,
         @QueryParam("subscriber") String subscriber,
         @QueryParam("payor") String payor,
-        @QueryParam("status") String status
+        @QueryParam("status") String status,
+        @QueryParam("period") List<String> period
     ) {
         CoverageSearchCriteria criteria = new CoverageSearchCriteria();
         criteria.setIdentifier(identifier);
@@ -85,19 +131,19 @@ public class CoverageResource {
         criteria.setSubscriber(subscriber);
         criteria.setPayor(payor);
         criteria.setStatus(status);
-
-        List<Coverage> coverageList = coverageService.searchCoverage(criteria);
-
-        Bundle bundle = new Bundle();
-        bundle.setType(Bundle.BundleType.SEARCHSET);
-        bundle.setTotal(coverageList.size());
-
-        coverageList.forEach(coverage -> {
-            Bundle.BundleEntryComponent entry = bundle.addEntry();
-            entry.setResource(coverage);
-            entry.setFullUrl("/fhir/Coverage/" + coverage.getIdElement().getIdPart());
-        });
-
-        return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        if (period != null && !period.isEmpty()) {
+            try {
+                criteria.setPeriod(DateRangeParameter.parse("period", period));
+            } catch (IllegalArgumentException e) {
+                throw new FhirValidationException(e.getMessage());
+            }
+        }
+
+        StreamingOutput body = out -> {
+            SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+            coverageService.searchCoverage(criteria, bundle::match);
+            bundle.finish();
+        };
+        return Response.ok(body).build();
     }
 }
@@ -3,20 +3,29 @@ package com.redhat.healthcare.coverage.service;
 import com.redhat.healthcare.coverage.domain.entity.CoverageEntity;
 import com.redhat.healthcare.coverage.domain.repository.CoverageRepository;
 import com.redhat.healthcare.coverage.dto.CoverageSearchCriteria;
-import com.redhat.healthcare.coverage.exception.ResourceNotFoundException;
 import com.redhat.healthcare.coverage.mapper.CoverageMapper;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.integrity.ReferenceValidator;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
+import com.redhat.healthcare.fhir.service.IdentifierKeyedService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.hl7.fhir.r4.model.Coverage;
+import org.hl7.fhir.r4.model.Identifier;
 
 import java.time.LocalDateTime;
-import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
-public class CoverageService {
+public class CoverageService extends IdentifierKeyedService<Coverage, CoverageEntity> {
 
     @Inject
     CoverageRepository repository;
@@ -30,45 +39,80 @@ public class CoverageService {
     @Inject
     CoverageMapper mapper;
 
-    @Transactional
-    public Coverage createCoverage(Coverage coverage) {
+    @Inject
+    ReferenceValidator referenceValidator;
+
+    @ConfigProperty(name = "fhir.delete.max-ids", defaultValue = "1000")
+    int deleteMaxIds;
+
+    @Override
+    protected String resourceType() {
+        return "Coverage";
+    }
+
+    @Override
+    protected Identifier identifier(Coverage coverage) {
+        return coverage.hasIdentifier() ? coverage.getIdentifierFirstRep() : null;
+    }
+
+    @Override
+    protected List<CoverageEntity> findActiveByIdentifier(String system, String value) {
+        return repository.findActiveByIdentifier(system, value);
+    }
+
+    @Override
+    protected Optional<CoverageEntity> findActiveHolder(String system, String value) {
+        return repository.findActiveHolder(system, value);
+    }
+
+    @Override
+    protected String fhirId(CoverageEntity entity) {
+        return entity.fhirId;
+    }
+
+    @Override
+    protected Coverage toFhir(CoverageEntity entity) {
+        return mapper.toFhir(entity);
+    }
+
+    @Override
+    protected CoverageEntity prepareCreate(Coverage coverage) {
         validationService.validateOrThrow(coverage);
+        referenceValidator.validate(coverage.getBeneficiary().getReference(), coverage.getSubscriber().getReference(),
+            coverage.getPolicyHolder().getReference());
 
         if (coverage.getId() == null || coverage.getId().isEmpty()) {
             coverage.setId(parserService.generateId());
         }
-
-        if (coverage.getMeta() == null) {
-            coverage.setMeta(new org.hl7.fhir.r4.model.Meta());
-        }
-        coverage.getMeta().setVersionId("1");
-        coverage.getMeta().setLastUpdated(new Date());
+        stamp(coverage, 1L);
 
         CoverageEntity entity = mapper.toEntity(coverage);
         entity.versionId = 1L;
         entity.createdAt = LocalDateTime.now();
         entity.lastUpdated = LocalDateTime.now();
+        return entity;
+    }
 
-        repository.persist(entity);
-
-        return coverage;
+    @Override
+    protected boolean insert(CoverageEntity entity, Coverage coverage) {
+        return repository.insertIfIdentifierFree(entity);
     }
 
+    @Override
     @Transactional
-    public Coverage updateCoverage(String id, Coverage coverage) {
+    public Coverage update(String id, Coverage coverage) {
         CoverageEntity existing = repository.findByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Coverage/" + id));
 
         validationService.validateOrThrow(coverage);
+        referenceValidator.validate(coverage.getBeneficiary().getReference(), coverage.getSubscriber().getReference(),
+            coverage.getPolicyHolder().getReference());
 
         coverage.setId(id);
+        rejectIdentifierHeldByAnother(id, coverage);
 
         Long newVersion = existing.versionId + 1;
-        if (coverage.getMeta() == null) {
-            coverage.setMeta(new org.hl7.fhir.r4.model.Meta());
-        }
-        coverage.getMeta().setVersionId(newVersion.toString());
-        coverage.getMeta().setLastUpdated(new Date());
+        stamp(coverage, newVersion);
 
         CoverageEntity updated = mapper.toEntity(coverage);
         updated.versionId = newVersion;
@@ -81,42 +125,60 @@ public class CoverageService {
     }
 
     public Coverage getCoverage(String id) {
-        CoverageEntity entity = repository.findByFhirId(id)
+        String resource = repository.findResourceByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Coverage/" + id));
 
-        return mapper.toFhir(entity);
+        return mapper.toFhir(resource);
     }
 
     @Transactional
     public void deleteCoverage(String id) {
-        if (!repository.findByFhirId(id).isPresent()) {
+        if (repository.softDelete(List.of(id)).isEmpty()) {
             throw new ResourceNotFoundException("Coverage/" + id);
         }
-        repository.softDelete(id);
     }
 
-    public List<Coverage> searchCoverage(CoverageSearchCriteria criteria) {
-        List<CoverageEntity> entities;
+    /**
+     * Deletes many coverages with one statement. Returns the new version of each deleted coverage; ids that are unknown
+     * or already deleted are absent.
+     */
+    @Transactional
+    public Map<String, Long> deleteCoverages(List<String> ids) {
+        if (ids.size() > deleteMaxIds) {
+            throw new FhirValidationException("At most " + deleteMaxIds + " ids can be deleted at once");
+        }
+        return repository.softDelete(ids);
+    }
+
+    /**
+     * Passes each match to matches as it is fetched. Runs in a read-only transaction so the driver can fetch
+     * the matches through a cursor while they are parsed.
+     */
+    @Transactional
+    public void searchCoverage(CoverageSearchCriteria criteria, Consumer<Coverage> matches) {
+        repository.readOnly();
+        try (Stream<String> resources = findResources(criteria)) {
+            resources.map(mapper::toFhir).forEach(matches);
+        }
+    }
 
-        if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
-            entities = repository.findByIdentifier(
+    private Stream<String> findResources(CoverageSearchCriteria criteria) {
+        if (criteria.getPeriod() != null && !criteria.getPeriod().isEmpty()) {
+            return repository.findByPeriod(criteria);
+        } else if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
+            return repository.findByIdentifier(
                 criteria.getIdentifierSystem(),
                 criteria.getIdentifier()
             );
         } else if (criteria.getBeneficiary() != null && !criteria.getBeneficiary().isEmpty()) {
-            entities = repository.findByBeneficiary(criteria.getBeneficiary());
+            return repository.findByBeneficiary(criteria.getBeneficiary());
         } else if (criteria.getSubscriber() != null && !criteria.getSubscriber().isEmpty()) {
-            entities = repository.findBySubscriber(criteria.getSubscriber());
+            return repository.findBySubscriber(criteria.getSubscriber());
         } else if (criteria.getPayor() != null && !criteria.getPayor().isEmpty()) {
-            entities = repository.findByPayor(criteria.getPayor());
+            return repository.findByPayor(criteria.getPayor());
         } else if (criteria.getStatus() != null && !criteria.getStatus().isEmpty()) {
-            entities = repository.findByStatus(criteria.getStatus());
-        } else {
-            entities = repository.findAllActive();
+            return repository.findByStatus(criteria.getStatus());
         }
-
-        return entities.stream()
-            .map(mapper::toFhir)
-            .collect(Collectors.toList());
+        return repository.findAllActive();
     }
 }
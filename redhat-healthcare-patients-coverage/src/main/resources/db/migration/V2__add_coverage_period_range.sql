@@ -0,0 +1,11 @@
+-- Coverage.period as a daterange so "period overlaps / contains date" uses a GiST index.
+-- NULL bounds are unbounded; an inverted period (end before start) has no range.
+ALTER TABLE coverage ADD COLUMN period_range DATERANGE GENERATED ALWAYS AS (
+    CASE WHEN period_end < period_start THEN NULL
+         ELSE daterange(period_start, period_end, '[]') END
+) STORED;
+
+DROP INDEX IF EXISTS idx_coverage_period;
+CREATE INDEX idx_coverage_period_range ON coverage USING GIST (period_range);
+
+COMMENT ON COLUMN coverage.period_range IS 'Inclusive daterange of period_start..period_end, generated; searched with && and @>';
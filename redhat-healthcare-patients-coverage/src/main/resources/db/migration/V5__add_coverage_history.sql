@@ -0,0 +1,11 @@
+-- Version history written by the single-statement soft delete (CoverageRepository.softDelete):
+-- one row per deleted version, in the same statement that deactivates the coverage
+CREATE TABLE coverage_history (
+    fhir_id VARCHAR(64) NOT NULL,
+    version_id BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    recorded_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (fhir_id, version_id)
+);
+
+COMMENT ON TABLE coverage_history IS 'One row per Coverage version created by a delete';
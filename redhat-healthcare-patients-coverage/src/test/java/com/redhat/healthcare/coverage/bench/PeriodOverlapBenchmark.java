@@ -0,0 +1,175 @@
+package com.redhat.healthcare.coverage.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares "period overlaps / contains date" queries on a composite B-tree over (period_start, period_end)
+ * with the same queries on a GiST-indexed daterange, over a generated table of coverage periods. The table is
+ * created in the target database as coverage_period_bench by the first fork and reused by the others while it
+ * holds the requested number of rows; drop it when done.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main PeriodOverlapBenchmark \
+ *         -p url=jdbc:postgresql://localhost:5433/healthcare_coverage -p rows=10000000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PeriodOverlapBenchmark {
+
+    private static final String BTREE_RANGE = "SELECT count(*) FROM coverage_period_bench WHERE period_start <= ? "
+        + "AND (period_end IS NULL OR period_end >= ?)";
+
+    @Param("jdbc:postgresql://localhost:5433/healthcare_coverage")
+    public String url;
+
+    @Param("healthcare")
+    public String user;
+
+    @Param("healthcare")
+    public String password;
+
+    @Param("10000000")
+    public long rows;
+
+    private Connection connection;
+    private PreparedStatement btreeContains;
+    private PreparedStatement gistContains;
+    private PreparedStatement btreeOverlaps;
+    private PreparedStatement gistOverlaps;
+    private final LocalDate[] days = new LocalDate[1024];
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(url, user, password);
+        if (existingRows() != rows) {
+            createTable();
+        }
+        btreeContains = connection.prepareStatement(BTREE_RANGE);
+        gistContains = connection.prepareStatement(
+            "SELECT count(*) FROM coverage_period_bench WHERE period_range @> CAST(? AS date)");
+        btreeOverlaps = connection.prepareStatement(BTREE_RANGE);
+        gistOverlaps = connection.prepareStatement(
+            "SELECT count(*) FROM coverage_period_bench WHERE period_range && "
+            + "daterange(CAST(? AS date), CAST(? AS date), '[]')");
+
+        Random random = new Random(42);
+        for (int i = 0; i < days.length; i++) {
+            days[i] = LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3650));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    // "in force on day X": contains
+
+    @Benchmark
+    public long containsDayBtree() throws SQLException {
+        LocalDate day = nextDay();
+        btreeContains.setObject(1, day);
+        btreeContains.setObject(2, day);
+        return count(btreeContains);
+    }
+
+    @Benchmark
+    public long containsDayGist() throws SQLException {
+        gistContains.setObject(1, nextDay());
+        return count(gistContains);
+    }
+
+    // "any overlap with a 30-day window": starts on/before the window end, ends on/after its start
+
+    @Benchmark
+    public long overlaps30DaysBtree() throws SQLException {
+        LocalDate day = nextDay();
+        btreeOverlaps.setObject(1, day.plusDays(30));
+        btreeOverlaps.setObject(2, day);
+        return count(btreeOverlaps);
+    }
+
+    @Benchmark
+    public long overlaps30DaysGist() throws SQLException {
+        LocalDate day = nextDay();
+        gistOverlaps.setObject(1, day);
+        gistOverlaps.setObject(2, day.plusDays(30));
+        return count(gistOverlaps);
+    }
+
+    private LocalDate nextDay() {
+        LocalDate day = days[next];
+        next = (next + 1) % days.length;
+        return day;
+    }
+
+    private static long count(PreparedStatement statement) throws SQLException {
+        try (ResultSet result = statement.executeQuery()) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private long existingRows() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet table = statement.executeQuery("SELECT to_regclass('coverage_period_bench') IS NOT NULL")) {
+            table.next();
+            if (!table.getBoolean(1)) {
+                return -1;
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT count(*) FROM coverage_period_bench")) {
+            count.next();
+            return count.getLong(1);
+        }
+    }
+
+    private void createTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS coverage_period_bench");
+            // Mostly one-year policies over ten years, some multi-year, ~5% open-ended
+            statement.execute(
+                "CREATE TABLE coverage_period_bench AS " +
+                "SELECT g AS id, s AS period_start, " +
+                "       CASE WHEN random() < 0.05 THEN NULL " +
+                "            ELSE s + (CASE WHEN random() < 0.8 THEN 364 ELSE (random() * 1500)::int END) END AS period_end " +
+                "FROM (SELECT g, DATE '2015-01-01' + (random() * 3650)::int AS s " +
+                "      FROM generate_series(1, " + rows + ") g) seed");
+            statement.execute(
+                "ALTER TABLE coverage_period_bench ADD COLUMN period_range DATERANGE GENERATED ALWAYS AS " +
+                "(daterange(period_start, period_end, '[]')) STORED");
+            statement.execute("CREATE INDEX ON coverage_period_bench (period_start, period_end)");
+            statement.execute("CREATE INDEX ON coverage_period_bench USING GIST (period_range)");
+            statement.execute("VACUUM ANALYZE coverage_period_bench");
+        }
+    }
+}
@@ -14,7 +14,10 @@ import java.time.LocalDateTime;
     @Index(name = "idx_patient_family_name", columnList = "family_name"),
     @Index(name = "idx_patient_birth_date", columnList = "birth_date"),
     @Index(name = "idx_patient_active", columnList = "active"),
-    @Index(name = "idx_patient_last_updated", columnList = "last_updated")
+    @Index(name = "idx_patient_last_updated", columnList = "last_updated"),
+    @Index(name = "idx_patient_change_seq", columnList = "change_seq", unique = true),
+    @Index(name = "idx_patient_county", columnList = "address_state, address_county"),
+    @Index(name = "idx_patient_postal_code", columnList = "postal_code")
 })
 public class PatientEntity extends PanacheEntityBase {
 
@@ -43,6 +46,15 @@ public class PatientEntity extends PanacheEntityBase {
     @Column(name = "gender", length = 20)
     public String gender;
 
+    @Column(name = "address_state", length = 50)
+    public String addressState;
+
+    @Column(name = "address_county", length = 100)
+    public String addressCounty;
+
+    @Column(name = "postal_code", length = 10)
+    public String postalCode;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "fhir_resource", columnDefinition = "jsonb")
     public String fhirResource;
@@ -55,4 +67,8 @@ public class PatientEntity extends PanacheEntityBase {
 
     @Column(name = "created_at")
     public LocalDateTime createdAt;
+
+    // Assigned by the trg_patients_change_seq trigger on every insert and update
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    public Long changeSeq;
 }
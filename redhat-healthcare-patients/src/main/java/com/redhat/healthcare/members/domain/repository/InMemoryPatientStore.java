@@ -0,0 +1,248 @@
+package com.redhat.healthcare.members.domain.repository;
+
+import com.redhat.healthcare.fhir.exception.DuplicateResourceException;
+import com.redhat.healthcare.fhir.store.InMemoryResourceTable;
+import com.redhat.healthcare.members.domain.entity.PatientEntity;
+import com.redhat.healthcare.members.dto.ChangeCursor;
+import com.redhat.healthcare.members.mapper.PatientMapper;
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hl7.fhir.r4.model.Patient;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps patients in memory instead of PostgreSQL, for benchmarks that profile the HTTP, parse and validate
+ * layers on their own and for demo stacks without a database. Data is lost on restart and patient_history is
+ * not kept. Searches use the table's indexes on identifier, birth date and change sequence; name searches and
+ * county counts scan the active rows. Change feed positions carry transaction 0, as the table only publishes
+ * sequences in order.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "fhir.storage.engine", stringValue = "memory")
+public class InMemoryPatientStore implements PatientStore {
+
+    private static final String IDENTIFIER = "identifier";
+    private static final String IDENTIFIER_VALUE = "identifierValue";
+    private static final String BIRTH_DATE = "birthDate";
+
+    @ConfigProperty(name = "fhir.storage.memory.lock-stripes", defaultValue = "64")
+    int lockStripes;
+
+    @Inject
+    PatientMapper mapper;
+
+    private InMemoryResourceTable<PatientEntity> patients;
+
+    @PostConstruct
+    void init() {
+        patients = new InMemoryResourceTable<PatientEntity>(entity -> entity.fhirId, lockStripes)
+            .index(IDENTIFIER, InMemoryPatientStore::identifierKey)
+            .index(IDENTIFIER_VALUE, entity -> entity.identifierValue)
+            .index(BIRTH_DATE, entity -> entity.birthDate)
+            .orderedBy(entity -> entity.changeSeq, (entity, sequence) -> entity.changeSeq = sequence);
+    }
+
+    @Override
+    public Optional<PatientEntity> findByFhirId(String fhirId) {
+        return patients.get(fhirId);
+    }
+
+    @Override
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        return patients.get(fhirId).map(entity -> entity.fhirResource);
+    }
+
+    @Override
+    public Optional<Long> findVersionByFhirId(String fhirId) {
+        return patients.get(fhirId).map(entity -> entity.versionId);
+    }
+
+    @Override
+    public Stream<String> findByFhirIds(Collection<String> fhirIds) {
+        return resources(patients.getAll(fhirIds).filter(InMemoryPatientStore::isActive));
+    }
+
+    @Override
+    public Stream<String> findByIdentifier(String system, String value) {
+        if (system != null && value != null) {
+            return resources(patients.lookup(IDENTIFIER, List.of(system, value)));
+        } else if (value != null) {
+            return resources(patients.lookup(IDENTIFIER_VALUE, value));
+        }
+        return Stream.empty();
+    }
+
+    @Override
+    public List<PatientEntity> findActiveByIdentifier(String system, String value) {
+        if (value == null) {
+            return List.of();
+        }
+        Stream<PatientEntity> matches = system != null
+            ? patients.lookup(IDENTIFIER, List.of(system, value))
+            : patients.lookup(IDENTIFIER_VALUE, value);
+        return matches.filter(InMemoryPatientStore::isActive).limit(2).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<PatientEntity> findActiveHolder(String system, String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        return patients.lookup(IDENTIFIER, List.of(system != null ? system : "", value))
+            .filter(InMemoryPatientStore::isActive)
+            .findFirst();
+    }
+
+    @Override
+    public boolean insertIfIdentifierFree(PatientEntity entity) {
+        if (patients.get(entity.fhirId).isPresent()) {
+            throw new DuplicateResourceException("Patient/" + entity.fhirId + " already exists");
+        }
+        return patients.putUnless(entity, IDENTIFIER, InMemoryPatientStore::isActive);
+    }
+
+    /**
+     * Checked against the identifier index like an insert, so an update racing a create or another update
+     * cannot leave two active patients with one identifier, which uq_patient_active_identifier rejects.
+     */
+    @Override
+    public void save(PatientEntity entity) {
+        if (!patients.putUnless(entity, IDENTIFIER, InMemoryPatientStore::isActive)) {
+            throw new DuplicateResourceException("An active Patient already has identifier " +
+                entity.identifierSystem + "|" + entity.identifierValue);
+        }
+    }
+
+    @Override
+    public Stream<String> searchByName(String family, String given) {
+        Stream<PatientEntity> matches = active();
+        if (family != null && !family.isEmpty()) {
+            matches = matches.filter(entity -> contains(entity.familyName, family));
+        }
+        if (given != null && !given.isEmpty()) {
+            matches = matches.filter(entity -> contains(entity.givenName, given));
+        }
+        return resources(matches);
+    }
+
+    @Override
+    public Stream<String> searchByBirthDate(LocalDate birthDate) {
+        return resources(patients.lookup(BIRTH_DATE, birthDate).filter(InMemoryPatientStore::isActive));
+    }
+
+    /**
+     * Each patient is replaced by a copy with active = false, the next version, and meta.versionId and
+     * meta.lastUpdated of fhir_resource in step, the same result as the SQL soft delete.
+     */
+    @Override
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> deleted = new HashMap<>();
+        for (String fhirId : fhirIds) {
+            patients.update(fhirId, current -> isActive(current) ? deletedCopy(current, now) : null)
+                .ifPresent(entity -> deleted.put(entity.fhirId, entity.versionId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public Stream<String> findAllActive() {
+        return resources(active());
+    }
+
+    @Override
+    public void readOnly() {
+        // Nothing to do: reads never write, and there is no database transaction to mark
+    }
+
+    @Override
+    public List<Object[]> findChanged(LocalDateTime after, boolean afterInclusive,
+                                      LocalDateTime before, boolean beforeInclusive,
+                                      ChangeCursor position, int limit) {
+        return patients.changedAfter(position != null ? position.getSequence() : 0L)
+            .filter(entity -> after == null ||
+                (afterInclusive ? !entity.lastUpdated.isBefore(after) : entity.lastUpdated.isAfter(after)))
+            .filter(entity -> before == null ||
+                (beforeInclusive ? !entity.lastUpdated.isAfter(before) : entity.lastUpdated.isBefore(before)))
+            .limit(limit)
+            .map(entity -> new Object[] {0L, entity.changeSeq, entity.active, entity.fhirResource})
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Counted from the active rows on each call, with the same defaults for missing columns as the
+     * patient_county_stats trigger.
+     */
+    @Override
+    public List<Object[]> findCountyStats(String state) {
+        Function<PatientEntity, List<Object>> group = entity -> List.of(
+            entity.addressState != null ? entity.addressState : "",
+            entity.addressCounty != null ? entity.addressCounty : "Unknown",
+            entity.gender != null ? entity.gender : "unknown",
+            entity.birthDate != null ? entity.birthDate.getYear() : 0);
+        return active()
+            .filter(entity -> state == null || state.equals(entity.addressState))
+            .collect(Collectors.groupingBy(group, Collectors.counting()))
+            .entrySet().stream()
+            .map(counted -> new Object[] {
+                counted.getKey().get(0), counted.getKey().get(1), counted.getKey().get(2), counted.getKey().get(3),
+                counted.getValue()})
+            .sorted(Comparator.comparing((Object[] row) -> (String) row[1]).thenComparing(row -> (String) row[0]))
+            .collect(Collectors.toList());
+    }
+
+    private PatientEntity deletedCopy(PatientEntity current, LocalDateTime now) {
+        long version = current.versionId + 1;
+        Patient patient = mapper.toFhir(current.fhirResource);
+        patient.getMeta().setVersionId(Long.toString(version));
+        patient.getMeta().setLastUpdated(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()));
+
+        PatientEntity deleted = mapper.toEntity(patient);
+        deleted.active = false;
+        deleted.versionId = version;
+        deleted.lastUpdated = now;
+        deleted.createdAt = current.createdAt;
+        return deleted;
+    }
+
+    private Stream<PatientEntity> active() {
+        return patients.scan().filter(InMemoryPatientStore::isActive);
+    }
+
+    private static Stream<String> resources(Stream<PatientEntity> entities) {
+        return entities.map(entity -> entity.fhirResource);
+    }
+
+    private static boolean isActive(PatientEntity entity) {
+        return Boolean.TRUE.equals(entity.active);
+    }
+
+    private static boolean contains(String column, String term) {
+        return column != null && column.toLowerCase(Locale.ROOT).contains(term.toLowerCase(Locale.ROOT));
+    }
+
+    // Like uq_patient_active_identifier, a missing system is a value of its own rather than exempt from the check
+    private static List<String> identifierKey(PatientEntity entity) {
+        if (entity.identifierValue == null) {
+            return null;
+        }
+        return List.of(entity.identifierSystem != null ? entity.identifierSystem : "", entity.identifierValue);
+    }
+}
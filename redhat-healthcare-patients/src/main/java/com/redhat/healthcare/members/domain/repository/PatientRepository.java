@@ -1,58 +1,237 @@
 package com.redhat.healthcare.members.domain.repository;
 
+import com.redhat.healthcare.fhir.store.FhirResourceStore;
 import com.redhat.healthcare.members.domain.entity.PatientEntity;
+import com.redhat.healthcare.members.dto.ChangeCursor;
+import io.quarkus.arc.properties.UnlessBuildProperty;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @ApplicationScoped
-public class PatientRepository implements PanacheRepositoryBase<PatientEntity, String> {
+@UnlessBuildProperty(name = "fhir.storage.engine", stringValue = "memory", enableIfMissing = true)
+public class PatientRepository implements PanacheRepositoryBase<PatientEntity, String>, PatientStore {
 
+    private static final String SOFT_DELETE_SQL = FhirResourceStore.softDeleteSql("patients");
+
+    @Inject
+    FhirResourceStore store;
+
+    @Override
     public Optional<PatientEntity> findByFhirId(String fhirId) {
         return find("fhirId", fhirId).firstResultOptional();
     }
 
-    public List<PatientEntity> findByIdentifier(String system, String value) {
+    /**
+     * The stored JSON of a patient, for reads that only render it.
+     */
+    @Override
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        return store.firstResource(getEntityManager(), PatientEntity.class, "fhirId = ?1", fhirId);
+    }
+
+    @Override
+    public Optional<Long> findVersionByFhirId(String fhirId) {
+        return store.currentVersion(getEntityManager(), PatientEntity.class, fhirId);
+    }
+
+    /**
+     * Batched read for _id searches, e.g. resolving the patients included in another service's Bundle.
+     */
+    @Override
+    public Stream<String> findByFhirIds(Collection<String> fhirIds) {
+        return streamResources("fhirId in ?1 and active = true", fhirIds);
+    }
+
+    @Override
+    public Stream<String> findByIdentifier(String system, String value) {
         if (system != null && value != null) {
-            return list("identifierSystem = ?1 and identifierValue = ?2", system, value);
+            return streamResources("identifierSystem = ?1 and identifierValue = ?2", system, value);
         } else if (value != null) {
-            return list("identifierValue = ?1", value);
+            return streamResources("identifierValue = ?1", value);
         }
-        return List.of();
+        return Stream.empty();
     }
 
-    public List<PatientEntity> searchByName(String family, String given) {
+    /**
+     * Active patients with the identifier, at most two: enough for a conditional request to tell one match
+     * from several. Without a system the value alone is matched.
+     */
+    @Override
+    public List<PatientEntity> findActiveByIdentifier(String system, String value) {
+        if (system != null) {
+            return find("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value)
+                .range(0, 1).list();
+        }
+        return find("identifierValue = ?1 and active = true", value).range(0, 1).list();
+    }
+
+    /**
+     * The active patient holding exactly this identifier, a missing system matching only a missing system: the
+     * row uq_patient_active_identifier keeps any other active patient from taking the identifier.
+     */
+    @Override
+    public Optional<PatientEntity> findActiveHolder(String system, String value) {
+        return find("coalesce(identifierSystem, '') = ?1 and identifierValue = ?2 and active = true",
+            system != null ? system : "", value).firstResultOptional();
+    }
+
+    /**
+     * Inserts the patient unless an active patient already holds its identifier system and value. The check
+     * and the write are one INSERT ... ON CONFLICT on uq_patient_active_identifier, so concurrent retries of
+     * the same create cannot both succeed. Returns false when nothing was inserted.
+     */
+    @Override
+    public boolean insertIfIdentifierFree(PatientEntity entity) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO patients (fhir_id, version_id, identifier_system, identifier_value, family_name, " +
+                    "given_name, birth_date, gender, address_state, address_county, postal_code, fhir_resource, " +
+                    "active, last_updated, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?) " +
+                    "ON CONFLICT ((COALESCE(identifier_system, '')), identifier_value) WHERE active = true " +
+                    "DO NOTHING")) {
+                insert.setString(1, entity.fhirId);
+                insert.setObject(2, entity.versionId);
+                insert.setString(3, entity.identifierSystem);
+                insert.setString(4, entity.identifierValue);
+                insert.setString(5, entity.familyName);
+                insert.setString(6, entity.givenName);
+                insert.setObject(7, entity.birthDate);
+                insert.setString(8, entity.gender);
+                insert.setString(9, entity.addressState);
+                insert.setString(10, entity.addressCounty);
+                insert.setString(11, entity.postalCode);
+                insert.setString(12, entity.fhirResource);
+                insert.setObject(13, entity.active);
+                insert.setObject(14, entity.lastUpdated);
+                insert.setObject(15, entity.createdAt);
+                return insert.executeUpdate() == 1;
+            }
+        });
+    }
+
+    // The entity is a new instance for a row that already exists, so it is merged rather than persisted
+    @Override
+    public void save(PatientEntity entity) {
+        getEntityManager().merge(entity);
+    }
+
+    @Override
+    public Stream<String> searchByName(String family, String given) {
         StringBuilder query = new StringBuilder("active = true");
 
         if (family != null && !family.isEmpty()) {
             query.append(" and lower(familyName) like lower(?1)");
             if (given != null && !given.isEmpty()) {
                 query.append(" and lower(givenName) like lower(?2)");
-                return list(query.toString(), "%" + family + "%", "%" + given + "%");
+                return streamResources(query.toString(), "%" + family + "%", "%" + given + "%");
             }
-            return list(query.toString(), "%" + family + "%");
+            return streamResources(query.toString(), "%" + family + "%");
         } else if (given != null && !given.isEmpty()) {
             query.append(" and lower(givenName) like lower(?1)");
-            return list(query.toString(), "%" + given + "%");
+            return streamResources(query.toString(), "%" + given + "%");
+        }
+
+        return streamResources("active = true");
+    }
+
+    @Override
+    public Stream<String> searchByBirthDate(LocalDate birthDate) {
+        return streamResources("birthDate = ?1 and active = true", birthDate);
+    }
+
+    /**
+     * Soft-deletes the active patients among fhirIds in one statement: the UPDATE bumps version_id and keeps
+     * meta.versionId and meta.lastUpdated of fhir_resource in step; the history trigger records the new version in
+     * patient_history. Returns the new version of each deleted patient; unknown or already deleted ids are absent.
+     */
+    @Override
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        return store.softDelete(getEntityManager(), SOFT_DELETE_SQL, fhirIds);
+    }
+
+    @Override
+    public Stream<String> findAllActive() {
+        return streamResources("active = true");
+    }
+
+    /**
+     * Incremental sync query: patients changed within the given bounds, soft-deleted ones included, after the
+     * given position in (change_xid, change_seq) order. Rows written by a transaction that is still running, or
+     * newer than one that is, are held back until it completes, so a later commit never lands behind a cursor
+     * already handed out. Rows are [change_xid, change_seq, active, fhir_resource].
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findChanged(LocalDateTime after, boolean afterInclusive,
+                                      LocalDateTime before, boolean beforeInclusive,
+                                      ChangeCursor position, int limit) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT CAST(CAST(change_xid AS text) AS bigint), change_seq, active, CAST(fhir_resource AS text) " +
+            "FROM patients WHERE change_xid < pg_snapshot_xmin(pg_current_snapshot())");
+        List<Object> params = new ArrayList<>();
+
+        if (after != null) {
+            params.add(after);
+            sql.append(" AND last_updated ").append(afterInclusive ? ">=" : ">").append(" ?").append(params.size());
         }
+        if (before != null) {
+            params.add(before);
+            sql.append(" AND last_updated ").append(beforeInclusive ? "<=" : "<").append(" ?").append(params.size());
+        }
+        if (position != null) {
+            params.add(Long.toString(position.getTransaction()));
+            params.add(position.getSequence());
+            sql.append(" AND (change_xid, change_seq) > (CAST(?").append(params.size() - 1)
+                .append(" AS xid8), ?").append(params.size()).append(")");
+        }
+        sql.append(" ORDER BY change_xid, change_seq");
 
-        return list("active = true");
+        Query changed = getEntityManager().createNativeQuery(sql.toString()).setMaxResults(limit);
+        for (int i = 0; i < params.size(); i++) {
+            changed.setParameter(i + 1, params.get(i));
+        }
+        return changed.getResultList();
     }
 
-    public List<PatientEntity> searchByBirthDate(LocalDate birthDate) {
-        return list("birthDate = ?1 and active = true", birthDate);
+    /**
+     * Buckets of the trigger-maintained patient_county_stats table, each summed over its shards:
+     * [address_state, address_county, gender, birth_year, patient_count].
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findCountyStats(String state) {
+        String sql = "SELECT address_state, address_county, gender, birth_year, SUM(patient_count) " +
+            "FROM patient_county_stats" +
+            (state != null ? " WHERE address_state = :state" : "") +
+            " GROUP BY address_state, address_county, gender, birth_year HAVING SUM(patient_count) > 0" +
+            " ORDER BY address_county, address_state";
+        Query query = getEntityManager().createNativeQuery(sql);
+        if (state != null) {
+            query.setParameter("state", state);
+        }
+        return query.getResultList();
     }
 
-    public void softDelete(String fhirId) {
-        update("active = false, lastUpdated = ?1 where fhirId = ?2",
-               LocalDateTime.now(), fhirId);
+    @Override
+    public void readOnly() {
+        store.readOnly(getEntityManager());
     }
 
-    public List<PatientEntity> findAllActive() {
-        return list("active = true");
+    private Stream<String> streamResources(String where, Object... params) {
+        return store.streamResources(getEntityManager(), PatientEntity.class, where, params);
     }
 }
@@ -0,0 +1,87 @@
+package com.redhat.healthcare.members.domain.repository;
+
+import com.redhat.healthcare.members.domain.entity.PatientEntity;
+import com.redhat.healthcare.members.dto.ChangeCursor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind PatientService. The build property fhir.storage.engine selects the implementation:
+ * PatientRepository on PostgreSQL (the default) or InMemoryPatientStore ("memory"). Streams must be closed.
+ */
+public interface PatientStore {
+
+    Optional<PatientEntity> findByFhirId(String fhirId);
+
+    /**
+     * The stored JSON of a patient, for reads that only render it.
+     */
+    Optional<String> findResourceByFhirId(String fhirId);
+
+    /**
+     * The stored version_id of a patient, deleted ones included, to check a cached encoding against.
+     */
+    Optional<Long> findVersionByFhirId(String fhirId);
+
+    Stream<String> findByFhirIds(Collection<String> fhirIds);
+
+    Stream<String> findByIdentifier(String system, String value);
+
+    /**
+     * Active patients with the identifier, at most two. Without a system the value alone is matched.
+     */
+    List<PatientEntity> findActiveByIdentifier(String system, String value);
+
+    /**
+     * The active patient holding exactly this identifier; a missing system only matches a missing system.
+     */
+    Optional<PatientEntity> findActiveHolder(String system, String value);
+
+    /**
+     * Inserts the patient unless an active patient already holds its identifier system and value. Returns
+     * false when nothing was inserted.
+     */
+    boolean insertIfIdentifierFree(PatientEntity entity);
+
+    /**
+     * Replaces the stored version of an existing patient.
+     */
+    void save(PatientEntity entity);
+
+    Stream<String> searchByName(String family, String given);
+
+    Stream<String> searchByBirthDate(LocalDate birthDate);
+
+    /**
+     * Soft-deletes the active patients among fhirIds. Returns the new version of each deleted patient; unknown
+     * or already deleted ids are absent.
+     */
+    Map<String, Long> softDelete(Collection<String> fhirIds);
+
+    Stream<String> findAllActive();
+
+    /**
+     * Makes the current transaction read-only; called before the first query of a search.
+     */
+    void readOnly();
+
+    /**
+     * Patients changed within the given bounds after the given position, soft-deleted ones included, in feed
+     * order. Rows are [transaction, change_seq, active, fhir_resource].
+     */
+    List<Object[]> findChanged(LocalDateTime after, boolean afterInclusive,
+                               LocalDateTime before, boolean beforeInclusive,
+                               ChangeCursor position, int limit);
+
+    /**
+     * Active patient counts: [address_state, address_county, gender, birth_year, patient_count], ordered by
+     * county, then state.
+     */
+    List<Object[]> findCountyStats(String state);
+}
@@ -0,0 +1,51 @@
+package com.redhat.healthcare.members.dto;
+
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+
+/**
+ * Position in the patient change feed: the transaction and change sequence of the last row returned. Rendered
+ * as {@code <transaction>.<sequence>} in {@code _cursor} and the X-Change-Sequence header; clients treat it as
+ * an opaque token.
+ */
+public class ChangeCursor {
+
+    public static final ChangeCursor START = new ChangeCursor(0, 0);
+
+    private final long transaction;
+    private final long sequence;
+
+    public ChangeCursor(long transaction, long sequence) {
+        this.transaction = transaction;
+        this.sequence = sequence;
+    }
+
+    public static ChangeCursor parse(String token) {
+        int dot = token.indexOf('.');
+        try {
+            if (dot > 0) {
+                long transaction = Long.parseLong(token.substring(0, dot));
+                long sequence = Long.parseLong(token.substring(dot + 1));
+                // Positions come from xid8 and identity values, which are never negative
+                if (transaction >= 0 && sequence >= 0) {
+                    return new ChangeCursor(transaction, sequence);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new FhirValidationException("Invalid _cursor value: " + token, e);
+        }
+        throw new FhirValidationException("Invalid _cursor value: " + token);
+    }
+
+    public long getTransaction() {
+        return transaction;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return transaction + "." + sequence;
+    }
+}
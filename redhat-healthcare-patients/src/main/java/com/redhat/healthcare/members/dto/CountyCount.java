@@ -0,0 +1,55 @@
+package com.redhat.healthcare.members.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CountyCount {
+
+    private String state;
+    private String county;
+    private long count;
+    private Map<String, Long> gender;
+    private Map<String, Long> ageBands;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getCounty() {
+        return county;
+    }
+
+    public void setCounty(String county) {
+        this.county = county;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Map<String, Long> getGender() {
+        return gender;
+    }
+
+    public void setGender(Map<String, Long> gender) {
+        this.gender = gender;
+    }
+
+    public Map<String, Long> getAgeBands() {
+        return ageBands;
+    }
+
+    public void setAgeBands(Map<String, Long> ageBands) {
+        this.ageBands = ageBands;
+    }
+}
@@ -0,0 +1,37 @@
+package com.redhat.healthcare.members.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CountyStats {
+
+    private String state;
+    private long total;
+    private List<CountyCount> counties;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public List<CountyCount> getCounties() {
+        return counties;
+    }
+
+    public void setCounties(List<CountyCount> counties) {
+        this.counties = counties;
+    }
+}
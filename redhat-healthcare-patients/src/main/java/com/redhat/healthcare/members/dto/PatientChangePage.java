@@ -0,0 +1,52 @@
+package com.redhat.healthcare.members.dto;
+
+import org.hl7.fhir.r4.model.Patient;
+
+import java.util.List;
+
+public class PatientChangePage {
+
+    private final List<Change> changes;
+    private final ChangeCursor lastPosition;
+    private final boolean hasMore;
+
+    public PatientChangePage(List<Change> changes, ChangeCursor lastPosition, boolean hasMore) {
+        this.changes = changes;
+        this.lastPosition = lastPosition;
+        this.hasMore = hasMore;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public ChangeCursor getLastPosition() {
+        return lastPosition;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * The latest version of one patient; deleted when that version is the soft delete.
+     */
+    public static class Change {
+
+        private final Patient patient;
+        private final boolean deleted;
+
+        public Change(Patient patient, boolean deleted) {
+            this.patient = patient;
+            this.deleted = deleted;
+        }
+
+        public Patient getPatient() {
+            return patient;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package com.redhat.healthcare.members.dto;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public class PatientSearchCriteria {
 
+    private List<String> ids;
     private String identifierSystem;
     private String identifier;
     private String family;
     private String given;
     private LocalDate birthDate;
+    private LocalDateTime lastUpdatedFrom;
+    private boolean lastUpdatedFromInclusive;
+    private LocalDateTime lastUpdatedTo;
+    private boolean lastUpdatedToInclusive;
+    private ChangeCursor cursor;
+    private Integer count;
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
 
     public String getIdentifierSystem() {
         return identifierSystem;
@@ -49,4 +66,52 @@ public class PatientSearchCriteria {
     public void setBirthDate(LocalDate birthDate) {
         this.birthDate = birthDate;
     }
+
+    public LocalDateTime getLastUpdatedFrom() {
+        return lastUpdatedFrom;
+    }
+
+    public void setLastUpdatedFrom(LocalDateTime lastUpdatedFrom) {
+        this.lastUpdatedFrom = lastUpdatedFrom;
+    }
+
+    public boolean isLastUpdatedFromInclusive() {
+        return lastUpdatedFromInclusive;
+    }
+
+    public void setLastUpdatedFromInclusive(boolean lastUpdatedFromInclusive) {
+        this.lastUpdatedFromInclusive = lastUpdatedFromInclusive;
+    }
+
+    public LocalDateTime getLastUpdatedTo() {
+        return lastUpdatedTo;
+    }
+
+    public void setLastUpdatedTo(LocalDateTime lastUpdatedTo) {
+        this.lastUpdatedTo = lastUpdatedTo;
+    }
+
+    public boolean isLastUpdatedToInclusive() {
+        return lastUpdatedToInclusive;
+    }
+
+    public void setLastUpdatedToInclusive(boolean lastUpdatedToInclusive) {
+        this.lastUpdatedToInclusive = lastUpdatedToInclusive;
+    }
+
+    public ChangeCursor getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(ChangeCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
 }
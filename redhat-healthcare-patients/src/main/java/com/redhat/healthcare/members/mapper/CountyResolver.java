@@ -0,0 +1,57 @@
+package com.redhat.healthcare.members.mapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves a county from state and city using the bundled county-lookup.csv,
+ * for addresses that do not carry Address.district.
+ */
+@ApplicationScoped
+public class CountyResolver {
+
+    private final Map<String, String> countiesByCity = new HashMap<>();
+
+    @PostConstruct
+    void load() {
+        InputStream csv = getClass().getClassLoader().getResourceAsStream("county-lookup.csv");
+        if (csv == null) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",", 3);
+                if (parts.length == 3) {
+                    countiesByCity.put(key(parts[0], parts[1]), parts[2].trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load county-lookup.csv", e);
+        }
+    }
+
+    public String resolve(String state, String city) {
+        if (state == null || city == null) {
+            return null;
+        }
+        return countiesByCity.get(key(state, city));
+    }
+
+    private String key(String state, String city) {
+        return state.trim().toUpperCase(Locale.ROOT) + "|" + city.trim().toLowerCase(Locale.ROOT);
+    }
+}
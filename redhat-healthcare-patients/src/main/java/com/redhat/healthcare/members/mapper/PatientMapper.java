@@ -1,9 +1,11 @@
 package com.redhat.healthcare.members.mapper;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
 import com.redhat.healthcare.members.domain.entity.PatientEntity;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Address;
 import org.hl7.fhir.r4.model.HumanName;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Patient;
@@ -12,13 +14,23 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.Locale;
 
 @ApplicationScoped
-public class PatientMapper {
+public class PatientMapper implements ResourceMapping<Patient, PatientEntity> {
 
     @Inject
     IParser jsonParser;
 
+    @Inject
+    CountyResolver countyResolver;
+
+    @Override
+    public Class<Patient> resourceType() {
+        return Patient.class;
+    }
+
+    @Override
     public PatientEntity toEntity(Patient patient) {
         PatientEntity entity = new PatientEntity();
 
@@ -48,13 +60,35 @@ public class PatientMapper {
             entity.gender = patient.getGender().toCode();
         }
 
+        if (patient.hasAddress() && !patient.getAddress().isEmpty()) {
+            Address address = patient.getAddress().get(0);
+            if (address.hasState()) {
+                entity.addressState = address.getState().trim().toUpperCase(Locale.ROOT);
+            }
+            if (address.hasPostalCode()) {
+                String postalCode = address.getPostalCode().trim();
+                entity.postalCode = postalCode.length() > 5 ? postalCode.substring(0, 5) : postalCode;
+            }
+            // Address.district carries the county; fall back to the city lookup
+            if (address.hasDistrict()) {
+                entity.addressCounty = address.getDistrict().trim().replaceAll("(?i)\\s+County$", "");
+            } else {
+                entity.addressCounty = countyResolver.resolve(address.getState(), address.getCity());
+            }
+        }
+
         entity.lastUpdated = LocalDateTime.now();
 
         return entity;
     }
 
     public Patient toFhir(PatientEntity entity) {
-        return jsonParser.parseResource(Patient.class, entity.fhirResource);
+        return toFhir(entity.fhirResource);
+    }
+
+    @Override
+    public Patient toFhir(String fhirResource) {
+        return jsonParser.parseResource(Patient.class, fhirResource);
     }
 
     private LocalDate convertToLocalDate(Date date) {
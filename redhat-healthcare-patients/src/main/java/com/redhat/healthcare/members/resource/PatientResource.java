@@ -1,23 +1,47 @@
 package com.redhat.healthcare.members.resource;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.rest.FhirBinaryEncodingFilter;
+import com.redhat.healthcare.fhir.rest.ResourceResponses;
+import com.redhat.healthcare.fhir.rest.SearchBundleWriter;
+import com.redhat.healthcare.fhir.search.IdentifierCondition;
+import com.redhat.healthcare.fhir.service.ResponseCompressionService;
+import com.redhat.healthcare.fhir.store.EncodedResource;
+import com.redhat.healthcare.fhir.store.WriteResult;
+import com.redhat.healthcare.members.dto.ChangeCursor;
+import com.redhat.healthcare.members.dto.CountyStats;
+import com.redhat.healthcare.members.dto.PatientChangePage;
 import com.redhat.healthcare.members.dto.PatientSearchCriteria;
 import com.redhat.healthcare.members.service.PatientService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Patient;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Path("/fhir/Patient")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, FhirBinaryEncodingFilter.FHIR_CBOR, FhirBinaryEncodingFilter.FHIR_SMILE})
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "Patient", description = "FHIR Patient Resource Operations")
 public class PatientResource {
@@ -28,11 +52,22 @@ public class PatientResource {
     @Inject
     IParser jsonParser;
 
+    @Inject
+    ResponseCompressionService compressionService;
+
     @POST
-    @Operation(summary = "Create a new Patient resource")
-    public Response create(String patientJson) {
+    @Operation(summary = "Create a new Patient resource",
+               description = "With If-None-Exist: identifier=[system|]value, returns the matching patient (200) " +
+                             "instead of creating a duplicate. A create whose identifier an active patient " +
+                             "already holds fails with 409.")
+    public Response create(@HeaderParam("If-None-Exist") String ifNoneExist, String patientJson) {
         Patient patient = jsonParser.parseResource(Patient.class, patientJson);
-        Patient created = patientService.createPatient(patient);
+        if (ifNoneExist != null && !ifNoneExist.isBlank()) {
+            WriteResult<Patient> result = patientService.createIfNoneExist(patient,
+                IdentifierCondition.fromQuery(ifNoneExist));
+            return ResourceResponses.written(jsonParser, result);
+        }
+        Patient created = patientService.create(patient);
 
         String location = "/fhir/Patient/" + created.getIdElement().getIdPart();
 
@@ -42,12 +77,51 @@ public class PatientResource {
             .build();
     }
 
+    @GET
+    @Path("/$county-stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Active patient counts per county",
+               description = "Pre-aggregated counts maintained at write time. breakdown=gender,age adds per-county " +
+                             "gender and age band counts.")
+    public CountyStats countyStats(@QueryParam("state") String state,
+                                   @QueryParam("breakdown") String breakdown) {
+        boolean byGender = false;
+        boolean byAgeBand = false;
+        if (breakdown != null && !breakdown.isBlank()) {
+            for (String part : breakdown.split(",")) {
+                switch (part.trim()) {
+                    case "gender" -> byGender = true;
+                    case "age" -> byAgeBand = true;
+                    default -> throw new FhirValidationException(
+                        "Unsupported breakdown '" + part.trim() + "'; expected gender and/or age");
+                }
+            }
+        }
+        return patientService.getCountyStats(state, byGender, byAgeBand);
+    }
+
     @GET
     @Path("/{id}")
     @Operation(summary = "Read a Patient resource by ID")
-    public Response read(@PathParam("id") String id) {
-        Patient patient = patientService.getPatient(id);
-        return Response.ok(jsonParser.encodeResourceToString(patient)).build();
+    public Response read(@PathParam("id") String id,
+                         @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+                         @Context HttpHeaders headers) {
+        boolean binary = FhirBinaryEncodingFilter.prefersBinary(headers);
+        String coding = binary ? ResponseCompressionService.IDENTITY : compressionService.negotiate(acceptEncoding);
+        EncodedResource encoded = patientService.getPatientEncoded(id, coding);
+        if (!encoded.has(coding)) {
+            coding = ResponseCompressionService.IDENTITY;
+        }
+        // Binary encodings are transcoded from the identity bytes by FhirBinaryEncodingFilter
+        Response.ResponseBuilder response = Response.ok(encoded.bytesFor(coding))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.getVersionId() != null) {
+            response.tag(new EntityTag(encoded.getVersionId(), true));
+        }
+        if (!ResponseCompressionService.IDENTITY.equals(coding)) {
+            response.header(HttpHeaders.CONTENT_ENCODING, coding);
+        }
+        return response.build();
     }
 
     @PUT
@@ -55,11 +129,24 @@ public class PatientResource {
     @Operation(summary = "Update a Patient resource")
     public Response update(@PathParam("id") String id, String patientJson) {
         Patient patient = jsonParser.parseResource(Patient.class, patientJson);
-        Patient updated = patientService.updatePatient(id, patient);
+        Patient updated = patientService.update(id, patient);
 
         return Response.ok(jsonParser.encodeResourceToString(updated)).build();
     }
 
+    @PUT
+    @Operation(summary = "Conditionally update a Patient resource",
+               description = "Updates the patient found by identifier=[system|]value, creates it when none " +
+                             "matches, and fails with 412 when several do")
+    public Response conditionalUpdate(@QueryParam("identifier") String identifier, String patientJson) {
+        if (identifier == null || identifier.isBlank()) {
+            throw new FhirValidationException("Conditional update requires an identifier search parameter");
+        }
+        Patient patient = jsonParser.parseResource(Patient.class, patientJson);
+        IdentifierCondition condition = IdentifierCondition.fromToken(identifier);
+        return ResourceResponses.written(jsonParser, patientService.conditionalUpdate(condition, patient));
+    }
+
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a Patient resource (soft delete)")
@@ -68,35 +155,174 @@ public class PatientResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/$delete")
+    @Operation(summary = "Delete many Patient resources (soft delete)",
+               description = "Deletes the patients named by the id parameters of a Parameters resource in one " +
+                             "statement. The batch-response Bundle has one entry per id: 204, or 404 when the " +
+                             "patient is unknown or already deleted.")
+    public Response deleteBatch(String parametersJson) {
+        List<String> ids = ResourceResponses.deleteIds(jsonParser.parseResource(Parameters.class, parametersJson));
+        Map<String, Long> deleted = patientService.deletePatients(ids);
+        Bundle outcome = ResourceResponses.deleteOutcome("Patient", ids, deleted);
+        return Response.ok(jsonParser.encodeResourceToString(outcome)).build();
+    }
+
     @GET
     @Operation(summary = "Search for Patient resources",
-               description = "Search using FHIR parameters: identifier, family, given, birthdate")
+               description = "Search using FHIR parameters: _id (comma-separated), identifier, family, given, " +
+                             "birthdate; _count caps the matches returned. " +
+                             "_lastUpdated (gt, ge, lt, le, eq) and _cursor switch to incremental sync mode: " +
+                             "a history Bundle paged in change order with _count, deletions as DELETE entries")
     public Response search(
+        @QueryParam("_id") String ids,
         @QueryParam("identifier") String identifier,
         @QueryParam("family") String family,
         @QueryParam("given") String given,
-        @QueryParam("birthdate") String birthdate
+        @QueryParam("birthdate") String birthdate,
+        @QueryParam("_lastUpdated") List<String> lastUpdated,
+        @QueryParam("_cursor") String cursor,
+        @QueryParam("_count") Integer count,
+        @Context UriInfo uriInfo
     ) {
+        if ((lastUpdated != null && !lastUpdated.isEmpty()) || cursor != null) {
+            return searchChanges(lastUpdated, cursor, count, uriInfo);
+        }
+
         PatientSearchCriteria criteria = new PatientSearchCriteria();
+        if (ids != null && !ids.isBlank()) {
+            criteria.setIds(splitIds(ids));
+        }
         criteria.setIdentifier(identifier);
         criteria.setFamily(family);
         criteria.setGiven(given);
         if (birthdate != null && !birthdate.isEmpty()) {
             criteria.setBirthDate(LocalDate.parse(birthdate));
         }
+        criteria.setCount(count);
 
-        List<Patient> patients = patientService.searchPatients(criteria);
+        StreamingOutput body = out -> {
+            SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+            patientService.searchPatients(criteria, bundle::match);
+            bundle.finish();
+        };
+        return Response.ok(body).build();
+    }
 
+    private Response searchChanges(List<String> lastUpdated, String cursor, Integer count, UriInfo uriInfo) {
+        PatientSearchCriteria criteria = new PatientSearchCriteria();
+        if (cursor != null) {
+            criteria.setCursor(ChangeCursor.parse(cursor));
+        }
+        criteria.setCount(count);
+        if (lastUpdated != null) {
+            lastUpdated.forEach(value -> parseLastUpdatedParameter(value, criteria));
+        }
+
+        PatientChangePage page = patientService.searchPatientChanges(criteria);
+
+        // A history Bundle, so that soft-deleted patients can be sent as DELETE entries without a resource
         Bundle bundle = new Bundle();
-        bundle.setType(Bundle.BundleType.SEARCHSET);
-        bundle.setTotal(patients.size());
+        bundle.setType(Bundle.BundleType.HISTORY);
+        bundle.addLink()
+            .setRelation("self")
+            .setUrl(uriInfo.getRequestUri().toString());
 
-        patients.forEach(patient -> {
+        if (page.hasMore()) {
+            bundle.addLink()
+                .setRelation("next")
+                .setUrl(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("_cursor", page.getLastPosition().toString())
+                    .build()
+                    .toString());
+        }
+
+        page.getChanges().forEach(change -> {
+            Patient patient = change.getPatient();
+            String id = patient.getIdElement().getIdPart();
             Bundle.BundleEntryComponent entry = bundle.addEntry();
-            entry.setResource(patient);
-            entry.setFullUrl("/fhir/Patient/" + patient.getIdElement().getIdPart());
+            entry.setFullUrl("/fhir/Patient/" + id);
+            entry.getResponse().setEtag("W/\"" + patient.getMeta().getVersionId() + "\"");
+            if (change.isDeleted()) {
+                entry.getRequest().setMethod(Bundle.HTTPVerb.DELETE).setUrl("Patient/" + id);
+                entry.getResponse().setStatus("204 No Content");
+            } else {
+                entry.setResource(patient);
+                entry.getRequest().setMethod(Bundle.HTTPVerb.PUT).setUrl("Patient/" + id);
+                entry.getResponse().setStatus("200 OK");
+            }
         });
 
-        return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
+        Response.ResponseBuilder response = Response.ok(jsonParser.encodeResourceToString(bundle));
+        if (page.getLastPosition() != null) {
+            // Clients persist this value and resume the next pull with _cursor
+            response.header("X-Change-Sequence", page.getLastPosition().toString());
+        }
+        return response.build();
+    }
+
+    private static List<String> splitIds(String ids) {
+        return Arrays.stream(ids.split(","))
+            .map(String::trim)
+            .filter(id -> !id.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    static void parseLastUpdatedParameter(String value, PatientSearchCriteria criteria) {
+        String prefix = "eq";
+        String dateStr = value;
+        if (value.length() > 2 && Character.isLetter(value.charAt(0)) && Character.isLetter(value.charAt(1))) {
+            prefix = value.substring(0, 2);
+            dateStr = value.substring(2);
+        }
+
+        boolean dateOnly = !dateStr.contains("T");
+        LocalDateTime instant;
+        try {
+            instant = parseDateTime(dateStr);
+        } catch (DateTimeParseException e) {
+            throw new FhirValidationException("Invalid _lastUpdated value: " + value, e);
+        }
+
+        // A date without time covers the whole day, so gt/le move past its end
+        switch (prefix) {
+            case "gt" -> {
+                criteria.setLastUpdatedFrom(dateOnly ? instant.plusDays(1) : instant);
+                criteria.setLastUpdatedFromInclusive(dateOnly);
+            }
+            case "ge" -> {
+                criteria.setLastUpdatedFrom(instant);
+                criteria.setLastUpdatedFromInclusive(true);
+            }
+            case "lt" -> {
+                criteria.setLastUpdatedTo(instant);
+                criteria.setLastUpdatedToInclusive(false);
+            }
+            case "le" -> {
+                criteria.setLastUpdatedTo(dateOnly ? instant.plusDays(1) : instant);
+                criteria.setLastUpdatedToInclusive(!dateOnly);
+            }
+            case "eq" -> {
+                criteria.setLastUpdatedFrom(instant);
+                criteria.setLastUpdatedFromInclusive(true);
+                criteria.setLastUpdatedTo(dateOnly ? instant.plusDays(1) : instant);
+                criteria.setLastUpdatedToInclusive(!dateOnly);
+            }
+            default -> throw new FhirValidationException("Unsupported _lastUpdated prefix: " + prefix);
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String dateStr) {
+        if (!dateStr.contains("T")) {
+            return LocalDate.parse(dateStr).atStartOfDay();
+        }
+        // last_updated is stored in server local time
+        if (dateStr.endsWith("Z") || dateStr.lastIndexOf('+') > 0 || dateStr.lastIndexOf('-') > dateStr.indexOf('T')) {
+            return OffsetDateTime.parse(dateStr)
+                .atZoneSameInstant(ZoneId.systemDefault())
+                .toLocalDateTime();
+        }
+        return LocalDateTime.parse(dateStr);
     }
 }
@@ -1,25 +1,46 @@
 package com.redhat.healthcare.members.service;
 
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
+import com.redhat.healthcare.fhir.service.IdentifierKeyedService;
+import com.redhat.healthcare.fhir.store.EncodedResource;
+import com.redhat.healthcare.fhir.store.EncodedResourceCache;
 import com.redhat.healthcare.members.domain.entity.PatientEntity;
-import com.redhat.healthcare.members.domain.repository.PatientRepository;
+import com.redhat.healthcare.members.domain.repository.PatientStore;
+import com.redhat.healthcare.members.dto.ChangeCursor;
+import com.redhat.healthcare.members.dto.CountyCount;
+import com.redhat.healthcare.members.dto.CountyStats;
+import com.redhat.healthcare.members.dto.PatientChangePage;
 import com.redhat.healthcare.members.dto.PatientSearchCriteria;
-import com.redhat.healthcare.members.exception.ResourceNotFoundException;
 import com.redhat.healthcare.members.mapper.PatientMapper;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Patient;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Date;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
-public class PatientService {
+public class PatientService extends IdentifierKeyedService<Patient, PatientEntity> {
 
     @Inject
-    PatientRepository repository;
+    PatientStore repository;
 
     @Inject
     FhirParserService parserService;
@@ -30,93 +51,267 @@ public class PatientService {
     @Inject
     PatientMapper mapper;
 
-    @Transactional
-    public Patient createPatient(Patient patient) {
+    @Inject
+    IParser jsonParser;
+
+    @Inject
+    EncodedResourceCache encodedCache;
+
+    @ConfigProperty(name = "fhir.sync.page-size", defaultValue = "100")
+    int syncPageSize;
+
+    @ConfigProperty(name = "fhir.sync.max-page-size", defaultValue = "1000")
+    int syncMaxPageSize;
+
+    @ConfigProperty(name = "fhir.delete.max-ids", defaultValue = "1000")
+    int deleteMaxIds;
+
+    @Override
+    protected String resourceType() {
+        return "Patient";
+    }
+
+    @Override
+    protected Identifier identifier(Patient patient) {
+        return patient.hasIdentifier() ? patient.getIdentifierFirstRep() : null;
+    }
+
+    @Override
+    protected List<PatientEntity> findActiveByIdentifier(String system, String value) {
+        return repository.findActiveByIdentifier(system, value);
+    }
+
+    @Override
+    protected Optional<PatientEntity> findActiveHolder(String system, String value) {
+        return repository.findActiveHolder(system, value);
+    }
+
+    @Override
+    protected String fhirId(PatientEntity entity) {
+        return entity.fhirId;
+    }
+
+    @Override
+    protected Patient toFhir(PatientEntity entity) {
+        return mapper.toFhir(entity);
+    }
+
+    @Override
+    protected PatientEntity prepareCreate(Patient patient) {
         validationService.validateOrThrow(patient);
 
         if (patient.getId() == null || patient.getId().isEmpty()) {
             patient.setId(parserService.generateId());
         }
-
-        if (patient.getMeta() == null) {
-            patient.setMeta(new org.hl7.fhir.r4.model.Meta());
-        }
-        patient.getMeta().setVersionId("1");
-        patient.getMeta().setLastUpdated(new Date());
+        stamp(patient, 1L);
 
         PatientEntity entity = mapper.toEntity(patient);
         entity.versionId = 1L;
         entity.createdAt = LocalDateTime.now();
         entity.lastUpdated = LocalDateTime.now();
+        return entity;
+    }
 
-        repository.persist(entity);
-
-        return patient;
+    @Override
+    protected boolean insert(PatientEntity entity, Patient patient) {
+        return repository.insertIfIdentifierFree(entity);
     }
 
+    @Override
     @Transactional
-    public Patient updatePatient(String id, Patient patient) {
+    public Patient update(String id, Patient patient) {
         PatientEntity existing = repository.findByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Patient/" + id));
 
         validationService.validateOrThrow(patient);
 
         patient.setId(id);
+        rejectIdentifierHeldByAnother(id, patient);
 
         Long newVersion = existing.versionId + 1;
-        if (patient.getMeta() == null) {
-            patient.setMeta(new org.hl7.fhir.r4.model.Meta());
-        }
-        patient.getMeta().setVersionId(newVersion.toString());
-        patient.getMeta().setLastUpdated(new Date());
+        stamp(patient, newVersion);
 
         PatientEntity updated = mapper.toEntity(patient);
         updated.versionId = newVersion;
         updated.lastUpdated = LocalDateTime.now();
         updated.createdAt = existing.createdAt;
 
-        repository.persist(updated);
+        repository.save(updated);
+        encodedCache.invalidate(id, newVersion);
 
         return patient;
     }
 
     public Patient getPatient(String id) {
-        PatientEntity entity = repository.findByFhirId(id)
+        String resource = repository.findResourceByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Patient/" + id));
 
-        return mapper.toFhir(entity);
+        return mapper.toFhir(resource);
+    }
+
+    /**
+     * Returns the encoded Patient holding the bytes for the negotiated coding, encoding and compressing only what
+     * the cache does not hold yet. A cached encoding is only served while its version is still the stored one.
+     */
+    public EncodedResource getPatientEncoded(String id, String coding) {
+        return encodedCache.get(id, coding, () -> repository.findVersionByFhirId(id).orElse(null), () -> {
+            Patient patient = getPatient(id);
+            byte[] json = jsonParser.encodeResourceToString(patient).getBytes(StandardCharsets.UTF_8);
+            return new EncodedResource(patient.getMeta().getVersionId(), json);
+        });
     }
 
     @Transactional
     public void deletePatient(String id) {
-        if (!repository.findByFhirId(id).isPresent()) {
+        Map<String, Long> deleted = repository.softDelete(List.of(id));
+        if (deleted.isEmpty()) {
             throw new ResourceNotFoundException("Patient/" + id);
         }
-        repository.softDelete(id);
+        deleted.forEach(encodedCache::invalidate);
     }
 
-    public List<Patient> searchPatients(PatientSearchCriteria criteria) {
-        List<PatientEntity> entities;
+    /**
+     * Deletes many patients with one statement. Returns the new version of each deleted patient; ids that are unknown
+     * or already deleted are absent.
+     */
+    @Transactional
+    public Map<String, Long> deletePatients(List<String> ids) {
+        if (ids.size() > deleteMaxIds) {
+            throw new FhirValidationException("At most " + deleteMaxIds + " ids can be deleted at once");
+        }
+        Map<String, Long> deleted = repository.softDelete(ids);
+        deleted.forEach(encodedCache::invalidate);
+        return deleted;
+    }
+
+    /**
+     * Passes each match to matches as it is fetched, stopping after criteria's count when one is given. Runs in a
+     * read-only transaction so the driver can fetch the matches through a cursor while they are parsed.
+     */
+    @Transactional
+    public void searchPatients(PatientSearchCriteria criteria, Consumer<Patient> matches) {
+        repository.readOnly();
+        try (Stream<String> resources = findResources(criteria)) {
+            Stream<String> page = criteria.getCount() != null ? resources.limit(Math.max(0, criteria.getCount()))
+                : resources;
+            page.map(mapper::toFhir).forEach(matches);
+        }
+    }
 
-        if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
-            entities = repository.findByIdentifier(
+    private Stream<String> findResources(PatientSearchCriteria criteria) {
+        if (criteria.getIds() != null && !criteria.getIds().isEmpty()) {
+            return repository.findByFhirIds(criteria.getIds());
+        } else if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
+            return repository.findByIdentifier(
                 criteria.getIdentifierSystem(),
                 criteria.getIdentifier()
             );
         } else if ((criteria.getFamily() != null && !criteria.getFamily().isEmpty()) ||
                    (criteria.getGiven() != null && !criteria.getGiven().isEmpty())) {
-            entities = repository.searchByName(
+            return repository.searchByName(
                 criteria.getFamily(),
                 criteria.getGiven()
             );
         } else if (criteria.getBirthDate() != null) {
-            entities = repository.searchByBirthDate(criteria.getBirthDate());
-        } else {
-            entities = repository.findAllActive();
+            return repository.searchByBirthDate(criteria.getBirthDate());
+        }
+        return repository.findAllActive();
+    }
+
+    public PatientChangePage searchPatientChanges(PatientSearchCriteria criteria) {
+        int pageSize = criteria.getCount() == null
+            ? syncPageSize
+            : Math.max(1, Math.min(criteria.getCount(), syncMaxPageSize));
+
+        // Fetch one extra row to know whether another page follows
+        List<Object[]> rows = repository.findChanged(
+            criteria.getLastUpdatedFrom(),
+            criteria.isLastUpdatedFromInclusive(),
+            criteria.getLastUpdatedTo(),
+            criteria.isLastUpdatedToInclusive(),
+            criteria.getCursor(),
+            pageSize + 1
+        );
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
         }
 
-        return entities.stream()
-            .map(mapper::toFhir)
+        ChangeCursor lastPosition = criteria.getCursor();
+        if (!rows.isEmpty()) {
+            Object[] last = rows.get(rows.size() - 1);
+            lastPosition = new ChangeCursor(((Number) last[0]).longValue(), ((Number) last[1]).longValue());
+        }
+
+        List<PatientChangePage.Change> changes = rows.stream()
+            .map(row -> new PatientChangePage.Change(mapper.toFhir((String) row[3]), !Boolean.TRUE.equals(row[2])))
             .collect(Collectors.toList());
+
+        return new PatientChangePage(changes, lastPosition, hasMore);
+    }
+
+    /**
+     * Active patient counts per county from the pre-aggregated stats table, optionally broken
+     * down by gender and by age band (age reached in the current year).
+     */
+    public CountyStats getCountyStats(String state, boolean byGender, boolean byAgeBand) {
+        String normalizedState = state != null && !state.isBlank() ? state.trim().toUpperCase(Locale.ROOT) : null;
+        int currentYear = Year.now().getValue();
+
+        // Keyed by state and county: county names repeat across states
+        Map<List<String>, CountyCount> counties = new LinkedHashMap<>();
+        long total = 0;
+        for (Object[] row : repository.findCountyStats(normalizedState)) {
+            String countyState = (String) row[0];
+            String county = (String) row[1];
+            String gender = (String) row[2];
+            int birthYear = ((Number) row[3]).intValue();
+            long count = ((Number) row[4]).longValue();
+
+            CountyCount countyCount = counties.computeIfAbsent(List.of(countyState, county), key -> {
+                CountyCount created = new CountyCount();
+                created.setState(countyState);
+                created.setCounty(county);
+                if (byGender) {
+                    created.setGender(new LinkedHashMap<>());
+                }
+                if (byAgeBand) {
+                    created.setAgeBands(new LinkedHashMap<>());
+                }
+                return created;
+            });
+            countyCount.setCount(countyCount.getCount() + count);
+            if (byGender) {
+                countyCount.getGender().merge(gender, count, Long::sum);
+            }
+            if (byAgeBand) {
+                countyCount.getAgeBands().merge(ageBand(birthYear, currentYear), count, Long::sum);
+            }
+            total += count;
+        }
+
+        CountyStats stats = new CountyStats();
+        stats.setState(normalizedState);
+        stats.setTotal(total);
+        stats.setCounties(new ArrayList<>(counties.values()));
+        return stats;
+    }
+
+    private String ageBand(int birthYear, int currentYear) {
+        if (birthYear <= 0) {
+            return "unknown";
+        }
+        int age = currentYear - birthYear;
+        if (age < 18) {
+            return "0-17";
+        } else if (age < 35) {
+            return "18-34";
+        } else if (age < 50) {
+            return "35-49";
+        } else if (age < 65) {
+            return "50-64";
+        }
+        return "65+";
     }
 }
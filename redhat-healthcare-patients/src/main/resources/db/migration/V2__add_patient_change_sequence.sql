@@ -0,0 +1,34 @@
+-- Monotonic change sequence for incremental sync (_lastUpdated + _cursor paging)
+CREATE SEQUENCE patient_change_seq;
+
+ALTER TABLE patients ADD COLUMN change_seq BIGINT;
+
+-- Backfill existing rows in last_updated order so the first delta pull is stable
+WITH ordered AS (
+    SELECT fhir_id, row_number() OVER (ORDER BY last_updated, fhir_id) AS rn
+    FROM patients
+)
+UPDATE patients p SET change_seq = o.rn FROM ordered o WHERE p.fhir_id = o.fhir_id;
+
+SELECT setval('patient_change_seq', COALESCE((SELECT MAX(change_seq) FROM patients), 0) + 1, false);
+
+ALTER TABLE patients ALTER COLUMN change_seq SET NOT NULL;
+
+-- Every insert and update (including soft deletes) takes the next sequence value.
+-- The transaction-scoped advisory lock makes sequence order equal commit order,
+-- so a reader that has seen change_seq N can never later find a committed row below N.
+CREATE OR REPLACE FUNCTION patients_assign_change_seq() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('patients.change_seq'));
+    NEW.change_seq := nextval('patient_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_patients_change_seq
+    BEFORE INSERT OR UPDATE ON patients
+    FOR EACH ROW EXECUTE FUNCTION patients_assign_change_seq();
+
+CREATE UNIQUE INDEX idx_patient_change_seq ON patients(change_seq);
+
+COMMENT ON COLUMN patients.change_seq IS 'Monotonic change sequence, reassigned on every write; used as the incremental sync cursor';
@@ -0,0 +1,80 @@
+-- Geographic columns extracted from Patient.address[0] at write time (see PatientMapper.toEntity)
+ALTER TABLE patients ADD COLUMN address_state VARCHAR(50);
+ALTER TABLE patients ADD COLUMN address_county VARCHAR(100);
+ALTER TABLE patients ADD COLUMN postal_code VARCHAR(10);
+
+-- Backfill existing rows: Address.district is the county; otherwise fall back to the known city/county pairs
+-- (same pairs as county-lookup.csv)
+WITH city_county(state, city, county) AS (
+    VALUES ('NC', 'charlotte', 'Mecklenburg'),
+           ('NC', 'raleigh', 'Wake'),
+           ('NC', 'durham', 'Durham'),
+           ('NC', 'greensboro', 'Guilford'),
+           ('NC', 'winston-salem', 'Forsyth'),
+           ('NC', 'fayetteville', 'Cumberland'),
+           ('NC', 'cary', 'Wake'),
+           ('NC', 'wilmington', 'New Hanover'),
+           ('NC', 'asheville', 'Buncombe'),
+           ('NC', 'chapel hill', 'Orange')
+)
+UPDATE patients p SET
+    address_state = upper(p.fhir_resource -> 'address' -> 0 ->> 'state'),
+    postal_code = left(p.fhir_resource -> 'address' -> 0 ->> 'postalCode', 5),
+    address_county = COALESCE(
+        NULLIF(regexp_replace(p.fhir_resource -> 'address' -> 0 ->> 'district', '\s+County$', '', 'i'), ''),
+        (SELECT c.county FROM city_county c
+         WHERE c.state = upper(p.fhir_resource -> 'address' -> 0 ->> 'state')
+           AND c.city = lower(p.fhir_resource -> 'address' -> 0 ->> 'city'))
+    )
+WHERE p.fhir_resource -> 'address' IS NOT NULL;
+
+CREATE INDEX idx_patient_county ON patients(address_state, address_county);
+CREATE INDEX idx_patient_postal_code ON patients(postal_code);
+
+-- Pre-aggregated active patient counts per county, gender and birth year.
+-- Age bands are derived from birth_year when queried, so the table never needs re-aging.
+CREATE TABLE patient_county_stats (
+    address_state VARCHAR(50) NOT NULL,
+    address_county VARCHAR(100) NOT NULL,
+    gender VARCHAR(20) NOT NULL,
+    birth_year INTEGER NOT NULL,
+    patient_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (address_state, address_county, gender, birth_year)
+);
+
+INSERT INTO patient_county_stats (address_state, address_county, gender, birth_year, patient_count)
+SELECT COALESCE(address_state, ''), COALESCE(address_county, 'Unknown'), COALESCE(gender, 'unknown'),
+       COALESCE(EXTRACT(YEAR FROM birth_date)::int, 0), count(*)
+FROM patients
+WHERE active IS NOT FALSE
+GROUP BY 1, 2, 3, 4;
+
+-- Incremental maintenance: move the row's contribution from its old bucket to its new one
+CREATE OR REPLACE FUNCTION patients_maintain_county_stats() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.active IS NOT FALSE THEN
+        UPDATE patient_county_stats SET patient_count = patient_count - 1
+        WHERE address_state = COALESCE(OLD.address_state, '')
+          AND address_county = COALESCE(OLD.address_county, 'Unknown')
+          AND gender = COALESCE(OLD.gender, 'unknown')
+          AND birth_year = COALESCE(EXTRACT(YEAR FROM OLD.birth_date)::int, 0);
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.active IS NOT FALSE THEN
+        INSERT INTO patient_county_stats (address_state, address_county, gender, birth_year, patient_count)
+        VALUES (COALESCE(NEW.address_state, ''), COALESCE(NEW.address_county, 'Unknown'),
+                COALESCE(NEW.gender, 'unknown'), COALESCE(EXTRACT(YEAR FROM NEW.birth_date)::int, 0), 1)
+        ON CONFLICT (address_state, address_county, gender, birth_year)
+        DO UPDATE SET patient_count = patient_county_stats.patient_count + 1;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_patients_county_stats
+    AFTER INSERT OR UPDATE OR DELETE ON patients
+    FOR EACH ROW EXECUTE FUNCTION patients_maintain_county_stats();
+
+COMMENT ON TABLE patient_county_stats IS 'Active patient counts by county, gender and birth year; maintained by trg_patients_county_stats';
+COMMENT ON COLUMN patients.address_county IS 'County from Patient.address[0].district, or derived from city/state';
@@ -0,0 +1,3 @@
+-- Nothing queries the whole document with @> or ?; searches use the typed columns, and the GIN index
+-- made every write rewrite posting lists for each key and value in the resource
+DROP INDEX IF EXISTS idx_patient_fhir_resource;
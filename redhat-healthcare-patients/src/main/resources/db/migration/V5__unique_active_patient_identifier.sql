@@ -0,0 +1,18 @@
+-- At most one active patient per identifier, so retried creates cannot store the same member twice.
+-- Existing duplicates keep their earliest row active; the later copies are retired like a delete.
+UPDATE patients p
+SET active = false, last_updated = localtimestamp
+WHERE p.active = true
+  AND p.identifier_system IS NOT NULL
+  AND p.identifier_value IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM patients o
+      WHERE o.active = true
+        AND o.identifier_system = p.identifier_system
+        AND o.identifier_value = p.identifier_value
+        AND (o.created_at, o.fhir_id) < (p.created_at, p.fhir_id)
+  );
+
+-- The arbiter index of PatientRepository.insertIfIdentifierFree's INSERT ... ON CONFLICT
+CREATE UNIQUE INDEX uq_patient_active_identifier ON patients(identifier_system, identifier_value)
+    WHERE active = true;
@@ -0,0 +1,23 @@
+-- Writes no longer queue on one advisory lock to make change_seq follow commit order. Each row records the
+-- transaction that wrote it instead, and the change feed orders by (change_xid, change_seq) and only returns
+-- rows whose transaction is older than every transaction still running: any row committed later then sorts
+-- after everything already returned, so a cursor can never skip it.
+ALTER TABLE patients ADD COLUMN change_xid xid8;
+
+-- Rows written before this migration sort first, in their existing sequence order
+UPDATE patients SET change_xid = '0'::xid8;
+
+ALTER TABLE patients ALTER COLUMN change_xid SET NOT NULL;
+
+CREATE OR REPLACE FUNCTION patients_assign_change_seq() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.change_seq := nextval('patient_change_seq');
+    NEW.change_xid := pg_current_xact_id();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE INDEX idx_patient_change_position ON patients(change_xid, change_seq);
+
+COMMENT ON COLUMN patients.change_seq IS 'Change sequence, reassigned on every write; orders rows within a transaction';
+COMMENT ON COLUMN patients.change_xid IS 'Transaction of the latest write; the first key of the incremental sync cursor';
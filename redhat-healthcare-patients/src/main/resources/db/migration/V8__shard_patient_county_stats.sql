@@ -0,0 +1,46 @@
+-- Concurrent writes to patients in the same county, gender and birth year all upserted one stats row and so
+-- queued on its row lock until the earlier writer committed. Each bucket is now split into 16 shard rows; a
+-- write adjusts a shard picked at random (decrements too, so a single shard may go negative) and readers sum
+-- the shards of a bucket.
+ALTER TABLE patient_county_stats ADD COLUMN shard SMALLINT NOT NULL DEFAULT 0;
+
+ALTER TABLE patient_county_stats DROP CONSTRAINT patient_county_stats_pkey;
+ALTER TABLE patient_county_stats ADD PRIMARY KEY (address_state, address_county, gender, birth_year, shard);
+
+CREATE OR REPLACE FUNCTION patients_maintain_county_stats() RETURNS TRIGGER AS $$
+DECLARE
+    old_counted BOOLEAN := TG_OP IN ('UPDATE', 'DELETE') AND OLD.active IS NOT FALSE;
+    new_counted BOOLEAN := TG_OP IN ('INSERT', 'UPDATE') AND NEW.active IS NOT FALSE;
+BEGIN
+    -- Most updates leave the bucket alone; they need not touch the stats at all
+    IF old_counted AND new_counted
+       AND COALESCE(OLD.address_state, '') = COALESCE(NEW.address_state, '')
+       AND COALESCE(OLD.address_county, 'Unknown') = COALESCE(NEW.address_county, 'Unknown')
+       AND COALESCE(OLD.gender, 'unknown') = COALESCE(NEW.gender, 'unknown')
+       AND EXTRACT(YEAR FROM OLD.birth_date) IS NOT DISTINCT FROM EXTRACT(YEAR FROM NEW.birth_date) THEN
+        RETURN NULL;
+    END IF;
+
+    IF old_counted THEN
+        INSERT INTO patient_county_stats (address_state, address_county, gender, birth_year, shard, patient_count)
+        VALUES (COALESCE(OLD.address_state, ''), COALESCE(OLD.address_county, 'Unknown'),
+                COALESCE(OLD.gender, 'unknown'), COALESCE(EXTRACT(YEAR FROM OLD.birth_date)::int, 0),
+                floor(random() * 16)::int, -1)
+        ON CONFLICT (address_state, address_county, gender, birth_year, shard)
+        DO UPDATE SET patient_count = patient_county_stats.patient_count - 1;
+    END IF;
+
+    IF new_counted THEN
+        INSERT INTO patient_county_stats (address_state, address_county, gender, birth_year, shard, patient_count)
+        VALUES (COALESCE(NEW.address_state, ''), COALESCE(NEW.address_county, 'Unknown'),
+                COALESCE(NEW.gender, 'unknown'), COALESCE(EXTRACT(YEAR FROM NEW.birth_date)::int, 0),
+                floor(random() * 16)::int, 1)
+        ON CONFLICT (address_state, address_county, gender, birth_year, shard)
+        DO UPDATE SET patient_count = patient_county_stats.patient_count + 1;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON COLUMN patient_county_stats.shard IS 'One of 16 partial counters; a bucket''s count is the sum of its shards';
@@ -0,0 +1,204 @@
+package com.redhat.healthcare.members.domain.repository;
+
+import com.redhat.healthcare.fhir.exception.DuplicateResourceException;
+import com.redhat.healthcare.members.domain.entity.PatientEntity;
+import com.redhat.healthcare.members.dto.ChangeCursor;
+import com.redhat.healthcare.members.mapper.PatientMapper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@TestProfile(InMemoryPatientStoreTest.MemoryStorage.class)
+class InMemoryPatientStoreTest {
+
+    private static final String MRN = "http://hospital.example.org/mrn";
+    private static final int THREADS = 16;
+
+    @Inject
+    PatientStore store;
+
+    @Inject
+    PatientMapper mapper;
+
+    @Test
+    void concurrentInsertsOfOneIdentifierHaveOneWinner() throws Exception {
+        String value = unique();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> inserts = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                PatientEntity entity = entity(unique(), MRN, value);
+                inserts.add(pool.submit(() -> {
+                    start.await();
+                    return store.insertIfIdentifierFree(entity);
+                }));
+            }
+            start.countDown();
+            int inserted = 0;
+            for (Future<Boolean> insert : inserts) {
+                inserted += insert.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertEquals(1, inserted);
+            assertEquals(1, store.findActiveByIdentifier(MRN, value).size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void missingSystemIsAnIdentifierOfItsOwn() {
+        String value = unique();
+        assertTrue(store.insertIfIdentifierFree(entity(unique(), null, value)));
+
+        assertFalse(store.insertIfIdentifierFree(entity(unique(), null, value)));
+        assertTrue(store.insertIfIdentifierFree(entity(unique(), MRN, value)));
+        assertTrue(store.findActiveHolder(null, value).isPresent());
+        assertEquals(2, store.findActiveByIdentifier(null, value).size());
+    }
+
+    @Test
+    void updateOntoAHeldIdentifierIsRejected() {
+        String held = unique();
+        String other = unique();
+        assertTrue(store.insertIfIdentifierFree(entity(unique(), MRN, held)));
+        PatientEntity second = entity(unique(), MRN, other);
+        assertTrue(store.insertIfIdentifierFree(second));
+
+        assertThrows(DuplicateResourceException.class, () -> store.save(entity(second.fhirId, MRN, held)));
+
+        assertEquals(other, store.findByFhirId(second.fhirId).orElseThrow().identifierValue);
+        assertEquals(1, store.findActiveByIdentifier(MRN, held).size());
+    }
+
+    @Test
+    void changedIdentifierIsOnlyFoundUnderItsNewValue() {
+        String before = unique();
+        String after = unique();
+        PatientEntity entity = entity(unique(), MRN, before);
+        assertTrue(store.insertIfIdentifierFree(entity));
+
+        store.save(entity(entity.fhirId, MRN, after));
+
+        assertEquals(0, store.findByIdentifier(MRN, before).count());
+        assertEquals(0, store.findByIdentifier(null, before).count());
+        assertEquals(1, store.findByIdentifier(MRN, after).count());
+        // The old value is free again
+        assertTrue(store.insertIfIdentifierFree(entity(unique(), MRN, before)));
+    }
+
+    @Test
+    void softDeleteFreesTheIdentifier() {
+        String value = unique();
+        PatientEntity entity = entity(unique(), MRN, value);
+        assertTrue(store.insertIfIdentifierFree(entity));
+
+        Map<String, Long> deleted = store.softDelete(List.of(entity.fhirId, "no-such-patient"));
+
+        assertEquals(Map.of(entity.fhirId, 2L), deleted);
+        assertEquals(Map.of(), store.softDelete(List.of(entity.fhirId)));
+        PatientEntity stored = store.findByFhirId(entity.fhirId).orElseThrow();
+        assertFalse(stored.active);
+        assertEquals(2L, mapper.toFhir(stored.fhirResource).getMeta().getVersionIdElement().getIdPartAsLong());
+        assertTrue(store.findActiveByIdentifier(MRN, value).isEmpty());
+        assertTrue(store.findActiveHolder(MRN, value).isEmpty());
+        assertTrue(store.insertIfIdentifierFree(entity(unique(), MRN, value)));
+    }
+
+    @Test
+    void changeFeedPagesInWriteOrderAndIncludesDeletes() {
+        ChangeCursor start = lastPosition();
+        PatientEntity first = entity(unique(), MRN, unique());
+        PatientEntity second = entity(unique(), MRN, unique());
+        assertTrue(store.insertIfIdentifierFree(first));
+        assertTrue(store.insertIfIdentifierFree(second));
+        store.softDelete(List.of(first.fhirId));
+
+        List<Object[]> page = store.findChanged(null, false, null, false, start, 2);
+        assertEquals(List.of(second.fhirId, first.fhirId), ids(page));
+        assertEquals(List.of(true, false), page.stream().map(row -> row[2]).collect(Collectors.toList()));
+        assertTrue((Long) page.get(0)[1] < (Long) page.get(1)[1]);
+        assertEquals(0L, page.get(0)[0]);
+
+        ChangeCursor next = new ChangeCursor(0, (Long) page.get(1)[1]);
+        assertTrue(store.findChanged(null, false, null, false, next, 2).isEmpty());
+
+        List<Object[]> firstOnly = store.findChanged(null, false, null, false, start, 1);
+        assertEquals(List.of(second.fhirId), ids(firstOnly));
+        ChangeCursor afterFirst = new ChangeCursor(0, (Long) firstOnly.get(0)[1]);
+        assertEquals(List.of(first.fhirId), ids(store.findChanged(null, false, null, false, afterFirst, 2)));
+    }
+
+    @Test
+    void changeFeedBoundsOnLastUpdated() {
+        ChangeCursor start = lastPosition();
+        PatientEntity entity = entity(unique(), MRN, unique());
+        assertTrue(store.insertIfIdentifierFree(entity));
+        LocalDateTime written = store.findByFhirId(entity.fhirId).orElseThrow().lastUpdated;
+
+        assertEquals(1, store.findChanged(written, true, null, false, start, 10).size());
+        assertEquals(0, store.findChanged(written, false, null, false, start, 10).size());
+        assertEquals(1, store.findChanged(null, false, written, true, start, 10).size());
+        assertEquals(0, store.findChanged(null, false, written, false, start, 10).size());
+    }
+
+    // Tests share the store, so each feed check starts after everything written so far
+    private ChangeCursor lastPosition() {
+        List<Object[]> all = store.findChanged(null, false, null, false, ChangeCursor.START, Integer.MAX_VALUE);
+        return all.isEmpty() ? ChangeCursor.START : new ChangeCursor(0, (Long) all.get(all.size() - 1)[1]);
+    }
+
+    private PatientEntity entity(String fhirId, String system, String value) {
+        Patient patient = new Patient();
+        patient.setId(fhirId);
+        patient.setActive(true);
+        patient.addIdentifier(new Identifier().setSystem(system).setValue(value));
+        patient.addName().setFamily("Store").addGiven("Test");
+        patient.getMeta().setVersionId("1");
+        PatientEntity entity = mapper.toEntity(patient);
+        entity.versionId = 1L;
+        entity.createdAt = entity.lastUpdated;
+        return entity;
+    }
+
+    private List<String> ids(List<Object[]> changes) {
+        return changes.stream()
+            .map(row -> mapper.toFhir((String) row[3]).getIdElement().getIdPart())
+            .collect(Collectors.toList());
+    }
+
+    private static String unique() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static class MemoryStorage implements QuarkusTestProfile {
+
+        @Override
+        public String getConfigProfile() {
+            return "memory";
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.redhat.healthcare.members.dto;
+
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChangeCursorTest {
+
+    @Test
+    void tokenRoundTrips() {
+        ChangeCursor cursor = new ChangeCursor(9_876_543_210L, 42);
+
+        assertEquals("9876543210.42", cursor.toString());
+        ChangeCursor parsed = ChangeCursor.parse(cursor.toString());
+        assertEquals(9_876_543_210L, parsed.getTransaction());
+        assertEquals(42, parsed.getSequence());
+    }
+
+    @Test
+    void startIsBeforeEveryChange() {
+        assertEquals("0.0", ChangeCursor.START.toString());
+        assertEquals(0, ChangeCursor.parse("0.0").getSequence());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        String[] tokens = {"", "42", ".42", "42.", "a.1", "1.b", "1.2.3", "-", "1..2", "-1.5", "1.-5"};
+        for (String token : tokens) {
+            FhirValidationException error = assertThrows(FhirValidationException.class,
+                () -> ChangeCursor.parse(token), token);
+            assertEquals("Invalid _cursor value: " + token, error.getMessage());
+        }
+    }
+}
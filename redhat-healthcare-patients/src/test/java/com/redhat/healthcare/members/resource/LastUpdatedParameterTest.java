@@ -0,0 +1,126 @@
+package com.redhat.healthcare.members.resource;
+
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.members.dto.PatientSearchCriteria;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LastUpdatedParameterTest {
+
+    private static final LocalDateTime MARCH_1 = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final LocalDateTime MARCH_2 = LocalDateTime.of(2025, 3, 2, 0, 0);
+    private static final LocalDateTime TEN_AM = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    private final PatientSearchCriteria criteria = new PatientSearchCriteria();
+
+    @Test
+    void greaterThanADateStartsAfterTheWholeDay() {
+        parse("gt2025-03-01");
+
+        assertEquals(MARCH_2, criteria.getLastUpdatedFrom());
+        assertTrue(criteria.isLastUpdatedFromInclusive());
+        assertNull(criteria.getLastUpdatedTo());
+    }
+
+    @Test
+    void greaterOrEqualADateIncludesItsStart() {
+        parse("ge2025-03-01");
+
+        assertEquals(MARCH_1, criteria.getLastUpdatedFrom());
+        assertTrue(criteria.isLastUpdatedFromInclusive());
+    }
+
+    @Test
+    void lessThanADateEndsBeforeItsStart() {
+        parse("lt2025-03-01");
+
+        assertEquals(MARCH_1, criteria.getLastUpdatedTo());
+        assertFalse(criteria.isLastUpdatedToInclusive());
+        assertNull(criteria.getLastUpdatedFrom());
+    }
+
+    @Test
+    void lessOrEqualADateIncludesTheWholeDay() {
+        parse("le2025-03-01");
+
+        assertEquals(MARCH_2, criteria.getLastUpdatedTo());
+        assertFalse(criteria.isLastUpdatedToInclusive());
+    }
+
+    @Test
+    void dateWithoutPrefixIsTheWholeDay() {
+        parse("2025-03-01");
+
+        assertEquals(MARCH_1, criteria.getLastUpdatedFrom());
+        assertTrue(criteria.isLastUpdatedFromInclusive());
+        assertEquals(MARCH_2, criteria.getLastUpdatedTo());
+        assertFalse(criteria.isLastUpdatedToInclusive());
+    }
+
+    @Test
+    void instantBoundsKeepTheirPrefix() {
+        parse("gt2025-03-01T10:00:00");
+        assertEquals(TEN_AM, criteria.getLastUpdatedFrom());
+        assertFalse(criteria.isLastUpdatedFromInclusive());
+
+        parse("ge2025-03-01T10:00:00");
+        assertTrue(criteria.isLastUpdatedFromInclusive());
+
+        parse("le2025-03-01T10:00:00");
+        assertEquals(TEN_AM, criteria.getLastUpdatedTo());
+        assertTrue(criteria.isLastUpdatedToInclusive());
+
+        parse("lt2025-03-01T10:00:00");
+        assertFalse(criteria.isLastUpdatedToInclusive());
+
+        parse("eq2025-03-01T10:00:00");
+        assertEquals(TEN_AM, criteria.getLastUpdatedFrom());
+        assertEquals(TEN_AM, criteria.getLastUpdatedTo());
+        assertTrue(criteria.isLastUpdatedFromInclusive());
+        assertTrue(criteria.isLastUpdatedToInclusive());
+    }
+
+    @Test
+    void instantsWithAnOffsetAreConvertedToServerTime() {
+        parse("ge2025-03-01T10:00:00Z");
+        assertEquals(OffsetDateTime.parse("2025-03-01T10:00:00Z")
+            .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime(), criteria.getLastUpdatedFrom());
+
+        parse("lt2025-03-01T10:00:00-05:00");
+        assertEquals(OffsetDateTime.parse("2025-03-01T10:00:00-05:00")
+            .atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime(), criteria.getLastUpdatedTo());
+    }
+
+    @Test
+    void lowerAndUpperBoundsCombine() {
+        parse("ge2025-03-01");
+        parse("lt2025-03-02");
+
+        assertEquals(MARCH_1, criteria.getLastUpdatedFrom());
+        assertEquals(MARCH_2, criteria.getLastUpdatedTo());
+        assertTrue(criteria.isLastUpdatedFromInclusive());
+        assertFalse(criteria.isLastUpdatedToInclusive());
+    }
+
+    @Test
+    void unsupportedPrefixesAndValuesAreRejected() {
+        FhirValidationException prefix = assertThrows(FhirValidationException.class, () -> parse("sa2025-03-01"));
+        assertEquals("Unsupported _lastUpdated prefix: sa", prefix.getMessage());
+
+        FhirValidationException value = assertThrows(FhirValidationException.class, () -> parse("ge2025-13-01"));
+        assertEquals("Invalid _lastUpdated value: ge2025-13-01", value.getMessage());
+    }
+
+    private void parse(String value) {
+        PatientResource.parseLastUpdatedParameter(value, criteria);
+    }
+}
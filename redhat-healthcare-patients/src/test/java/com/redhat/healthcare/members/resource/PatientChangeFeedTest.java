@@ -0,0 +1,167 @@
+package com.redhat.healthcare.members.resource;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The incremental sync feed: a history Bundle in (change_xid, change_seq) order, paged by _cursor, with the
+ * latest state of each changed patient exactly once.
+ */
+@QuarkusTest
+class PatientChangeFeedTest {
+
+    @Test
+    void pagesEachChangeOnceInCommitOrder() {
+        String since = now();
+        String a = create();
+        String b = create();
+        String c = create();
+        update(a);
+        delete(b);
+
+        List<String> changes = pull("/fhir/Patient?_lastUpdated=ge" + since + "&_count=1", 1);
+
+        assertEquals(List.of("PUT Patient/" + c, "PUT Patient/" + a, "DELETE Patient/" + b), changes);
+    }
+
+    @Test
+    void rowsOfOneTransactionArePagedBySequence() {
+        String since = now();
+        String a = create();
+        String b = create();
+        String c = create();
+        // One $delete is one transaction, so its rows share change_xid and only change_seq orders them.
+        // Unencoded, as RestAssured would send $delete as %24delete
+        given().urlEncodingEnabled(false).contentType("application/json")
+            .body("{\"resourceType\":\"Parameters\",\"parameter\":[" +
+                  "{\"name\":\"id\",\"valueId\":\"" + a + "\"},{\"name\":\"id\",\"valueId\":\"" + c + "\"}]}")
+            .post("/fhir/Patient/$delete")
+            .then().statusCode(200);
+
+        List<String> changes = pull("/fhir/Patient?_lastUpdated=ge" + since + "&_count=1", 1);
+
+        assertEquals(3, changes.size());
+        assertEquals("PUT Patient/" + b, changes.get(0));
+        assertTrue(changes.containsAll(List.of("DELETE Patient/" + a, "DELETE Patient/" + c)), changes.toString());
+    }
+
+    @Test
+    void cursorResumesAfterTheLastChangeSeen() {
+        String since = now();
+        String a = create();
+        Response first = given().get("/fhir/Patient?_lastUpdated=ge" + since);
+        first.then().statusCode(200);
+        String position = first.header("X-Change-Sequence");
+        assertNotNull(position);
+        assertEquals(List.of("PUT Patient/" + a), entries(first.jsonPath()));
+
+        // Nothing new: an empty page that keeps the position
+        Response empty = given().get("/fhir/Patient?_cursor=" + position);
+        assertEquals(List.of(), entries(empty.jsonPath()));
+        assertEquals(position, empty.header("X-Change-Sequence"));
+        assertNull(link(empty.jsonPath(), "next"));
+
+        String b = create();
+        update(a);
+        assertEquals(List.of("PUT Patient/" + b, "PUT Patient/" + a),
+            entries(given().get("/fhir/Patient?_cursor=" + position).jsonPath()));
+    }
+
+    @Test
+    void deletedPatientIsAnEntryWithoutResource() {
+        String since = now();
+        String a = create();
+        delete(a);
+
+        JsonPath bundle = given().get("/fhir/Patient?_lastUpdated=ge" + since).then().statusCode(200)
+            .extract().jsonPath();
+
+        assertEquals("history", bundle.getString("type"));
+        assertEquals(1, bundle.getList("entry").size());
+        assertEquals("DELETE", bundle.getString("entry[0].request.method"));
+        assertEquals("204 No Content", bundle.getString("entry[0].response.status"));
+        assertEquals("W/\"2\"", bundle.getString("entry[0].response.etag"));
+        assertNull(bundle.get("entry[0].resource"));
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        given().get("/fhir/Patient?_cursor=not-a-cursor").then().statusCode(400);
+        given().get("/fhir/Patient?_cursor=-1.5").then().statusCode(400);
+        given().get("/fhir/Patient?_lastUpdated=sa2025-01-01").then().statusCode(400);
+    }
+
+    // Follows next links to the end; every page but the last is full and ends where the next one resumes.
+    // The links are already encoded, so RestAssured must not encode them again
+    private static List<String> pull(String url, int pageSize) {
+        List<String> changes = new ArrayList<>();
+        String next = url;
+        for (int pages = 0; next != null; pages++) {
+            assertTrue(pages < 100, "next links do not end");
+            Response response = given().urlEncodingEnabled(false).get(next);
+            response.then().statusCode(200);
+            JsonPath bundle = response.jsonPath();
+            List<String> page = entries(bundle);
+            next = link(bundle, "next");
+            if (next != null) {
+                assertEquals(pageSize, page.size());
+                assertTrue(next.endsWith("_cursor=" + response.header("X-Change-Sequence")), next);
+            }
+            changes.addAll(page);
+        }
+        return changes;
+    }
+
+    private static List<String> entries(JsonPath bundle) {
+        List<String> entries = new ArrayList<>();
+        List<Object> list = bundle.getList("entry");
+        for (int i = 0; list != null && i < list.size(); i++) {
+            entries.add(bundle.getString("entry[" + i + "].request.method") + " " +
+                        bundle.getString("entry[" + i + "].request.url"));
+        }
+        return entries;
+    }
+
+    private static String link(JsonPath bundle, String relation) {
+        return bundle.getString("link.find { it.relation == '" + relation + "' }.url");
+    }
+
+    private static String create() {
+        String body = "{\"resourceType\":\"Patient\",\"active\":true," +
+                      "\"identifier\":[{\"system\":\"http://hospital.example.org/mrn\",\"value\":\"" +
+                      UUID.randomUUID() + "\"}],\"name\":[{\"family\":\"Feed\",\"given\":[\"Test\"]}]}";
+        return given().contentType("application/json").body(body)
+            .post("/fhir/Patient")
+            .then().statusCode(201)
+            .extract().jsonPath().getString("id");
+    }
+
+    private static void update(String id) {
+        String body = given().get("/fhir/Patient/" + id).then().statusCode(200).extract().asString();
+        given().contentType("application/json").body(body.replace("\"Feed\"", "\"Feed-updated\""))
+            .put("/fhir/Patient/" + id)
+            .then().statusCode(200);
+    }
+
+    // Server time, which last_updated is stored in; earlier tests' changes fall before it
+    private static String now() {
+        return LocalDateTime.now().toString();
+    }
+
+    private static void delete(String id) {
+        given().delete("/fhir/Patient/" + id).then().statusCode(204);
+    }
+}
@@ -0,0 +1,26 @@
+package com.redhat.healthcare.bff.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+@RegisterProvider(FhirBinaryAcceptFilter.class)
+@RegisterProvider(FhirBinaryJsonNodeReader.class)
+@RegisterRestClient(configKey = "appointment-api")
+@Path("/Appointment")
+@Produces(MediaType.APPLICATION_JSON)
+public interface AppointmentApi {
+
+    /**
+     * The number of matching appointments per reference of a $counts request, as Parameters.
+     */
+    @POST
+    @Path("/$counts")
+    @Consumes(MediaType.APPLICATION_JSON)
+    JsonNode counts(JsonNode parameters);
+}
@@ -0,0 +1,21 @@
+package com.redhat.healthcare.bff.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+@RegisterProvider(FhirBinaryAcceptFilter.class)
+@RegisterProvider(FhirBinaryJsonNodeReader.class)
+@RegisterRestClient(configKey = "coverage-api")
+@Path("/Coverage")
+@Produces(MediaType.APPLICATION_JSON)
+public interface CoverageApi {
+
+    @GET
+    JsonNode searchByBeneficiary(@QueryParam("beneficiary") String beneficiary);
+}
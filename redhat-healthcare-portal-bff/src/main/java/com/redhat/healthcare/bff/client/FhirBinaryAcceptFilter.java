@@ -0,0 +1,26 @@
+package com.redhat.healthcare.bff.client;
+
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Asks upstream services for the configured binary encoding ({@code bff.upstream.encoding}),
+ * keeping JSON as a lower-priority fallback for services that do not offer it.
+ */
+public class FhirBinaryAcceptFilter implements ClientRequestFilter {
+
+    private final FhirBinaryEncoding encoding = FhirBinaryEncoding.fromConfig(
+        ConfigProvider.getConfig().getOptionalValue("bff.upstream.encoding", String.class).orElse("json"));
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        if (encoding == FhirBinaryEncoding.JSON) {
+            return;
+        }
+        request.getHeaders().putSingle(HttpHeaders.ACCEPT,
+            encoding.mediaType() + ", " + MediaType.APPLICATION_JSON + ";q=0.5");
+    }
+}
@@ -0,0 +1,49 @@
+package com.redhat.healthcare.bff.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Wire encodings the FHIR services can negotiate for the same FHIR JSON structure.
+ */
+public enum FhirBinaryEncoding {
+
+    JSON(MediaType.APPLICATION_JSON, new ObjectMapper()),
+    CBOR("application/fhir+cbor", new CBORMapper()),
+    SMILE("application/fhir+smile", new SmileMapper());
+
+    private final String mediaType;
+    private final ObjectMapper mapper;
+
+    FhirBinaryEncoding(String mediaType, ObjectMapper mapper) {
+        this.mediaType = mediaType;
+        // FHIR decimals keep their precision (e.g. 150.00) in every encoding
+        this.mapper = mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public static FhirBinaryEncoding fromConfig(String value) {
+        return value == null ? JSON : valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public static FhirBinaryEncoding forMediaType(MediaType mediaType) {
+        for (FhirBinaryEncoding encoding : values()) {
+            if (mediaType != null && mediaType.isCompatible(MediaType.valueOf(encoding.mediaType))) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.redhat.healthcare.bff.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Reads CBOR and Smile response bodies into the same Jackson tree a JSON body would produce.
+ */
+@Consumes({"application/fhir+cbor", "application/fhir+smile"})
+public class FhirBinaryJsonNodeReader implements MessageBodyReader<JsonNode> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return JsonNode.class.isAssignableFrom(type) && binaryEncoding(mediaType) != null;
+    }
+
+    @Override
+    public JsonNode readFrom(Class<JsonNode> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                             MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        return binaryEncoding(mediaType).mapper().readTree(entityStream);
+    }
+
+    private FhirBinaryEncoding binaryEncoding(MediaType mediaType) {
+        FhirBinaryEncoding encoding = FhirBinaryEncoding.forMediaType(mediaType);
+        return encoding == FhirBinaryEncoding.JSON ? null : encoding;
+    }
+}
@@ -0,0 +1,102 @@
+package com.redhat.healthcare.bff.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Aggregated payload for a patient's financial view: claim totals and out-of-pocket tracking.
+ */
+public class FinancialSummary {
+
+    private String patientId;
+    private String currency;
+    private BigDecimal total;
+    private Map<String, StatusTotal> byStatus;
+    private BigDecimal outOfPocketSpent;
+    private BigDecimal outOfPocketMax;
+    private BigDecimal outOfPocketRemaining;
+    private BigDecimal coverageOutOfPocketMax;
+    private BigDecimal pendingPatientPayments;
+    private OffsetDateTime generatedAt;
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(String patientId) {
+        this.patientId = patientId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public Map<String, StatusTotal> getByStatus() {
+        return byStatus;
+    }
+
+    public void setByStatus(Map<String, StatusTotal> byStatus) {
+        this.byStatus = byStatus;
+    }
+
+    public BigDecimal getOutOfPocketSpent() {
+        return outOfPocketSpent;
+    }
+
+    public void setOutOfPocketSpent(BigDecimal outOfPocketSpent) {
+        this.outOfPocketSpent = outOfPocketSpent;
+    }
+
+    public BigDecimal getOutOfPocketMax() {
+        return outOfPocketMax;
+    }
+
+    public void setOutOfPocketMax(BigDecimal outOfPocketMax) {
+        this.outOfPocketMax = outOfPocketMax;
+    }
+
+    public BigDecimal getOutOfPocketRemaining() {
+        return outOfPocketRemaining;
+    }
+
+    public void setOutOfPocketRemaining(BigDecimal outOfPocketRemaining) {
+        this.outOfPocketRemaining = outOfPocketRemaining;
+    }
+
+    public BigDecimal getCoverageOutOfPocketMax() {
+        return coverageOutOfPocketMax;
+    }
+
+    public void setCoverageOutOfPocketMax(BigDecimal coverageOutOfPocketMax) {
+        this.coverageOutOfPocketMax = coverageOutOfPocketMax;
+    }
+
+    public BigDecimal getPendingPatientPayments() {
+        return pendingPatientPayments;
+    }
+
+    public void setPendingPatientPayments(BigDecimal pendingPatientPayments) {
+        this.pendingPatientPayments = pendingPatientPayments;
+    }
+
+    public OffsetDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(OffsetDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+}
@@ -0,0 +1,29 @@
+package com.redhat.healthcare.bff.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Aggregated payload for the home (patient list) view.
+ */
+public class PatientDashboard {
+
+    private List<PatientSummary> patients;
+    private OffsetDateTime generatedAt;
+
+    public List<PatientSummary> getPatients() {
+        return patients;
+    }
+
+    public void setPatients(List<PatientSummary> patients) {
+        this.patients = patients;
+    }
+
+    public OffsetDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(OffsetDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+}
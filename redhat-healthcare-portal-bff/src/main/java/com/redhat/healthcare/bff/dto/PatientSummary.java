@@ -0,0 +1,44 @@
+package com.redhat.healthcare.bff.dto;
+
+/**
+ * One row of the home view: the counters shown on a patient's card; the portal already has the demographics.
+ */
+public class PatientSummary {
+
+    private String id;
+    private int upcomingAppointments;
+    private int pendingClaims;
+    private int activeMedications;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getUpcomingAppointments() {
+        return upcomingAppointments;
+    }
+
+    public void setUpcomingAppointments(int upcomingAppointments) {
+        this.upcomingAppointments = upcomingAppointments;
+    }
+
+    public int getPendingClaims() {
+        return pendingClaims;
+    }
+
+    public void setPendingClaims(int pendingClaims) {
+        this.pendingClaims = pendingClaims;
+    }
+
+    public int getActiveMedications() {
+        return activeMedications;
+    }
+
+    public void setActiveMedications(int activeMedications) {
+        this.activeMedications = activeMedications;
+    }
+}
@@ -0,0 +1,29 @@
+package com.redhat.healthcare.bff.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Aggregated payload for the provider directory view.
+ */
+public class ProviderDirectory {
+
+    private List<ProviderSummary> providers;
+    private OffsetDateTime generatedAt;
+
+    public List<ProviderSummary> getProviders() {
+        return providers;
+    }
+
+    public void setProviders(List<ProviderSummary> providers) {
+        this.providers = providers;
+    }
+
+    public OffsetDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(OffsetDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+}
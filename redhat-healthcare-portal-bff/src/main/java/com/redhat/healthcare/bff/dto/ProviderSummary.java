@@ -0,0 +1,44 @@
+package com.redhat.healthcare.bff.dto;
+
+/**
+ * One row of the provider directory: the activity counters shown on a practitioner's card.
+ */
+public class ProviderSummary {
+
+    private String id;
+    private int upcomingAppointments;
+    private int activeMedications;
+    private int claims;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getUpcomingAppointments() {
+        return upcomingAppointments;
+    }
+
+    public void setUpcomingAppointments(int upcomingAppointments) {
+        this.upcomingAppointments = upcomingAppointments;
+    }
+
+    public int getActiveMedications() {
+        return activeMedications;
+    }
+
+    public void setActiveMedications(int activeMedications) {
+        this.activeMedications = activeMedications;
+    }
+
+    public int getClaims() {
+        return claims;
+    }
+
+    public void setClaims(int claims) {
+        this.claims = claims;
+    }
+}
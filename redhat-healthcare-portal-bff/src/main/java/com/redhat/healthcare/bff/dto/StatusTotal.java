@@ -0,0 +1,28 @@
+package com.redhat.healthcare.bff.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Claim amount and count for a single claim status.
+ */
+public class StatusTotal {
+
+    private BigDecimal total = BigDecimal.ZERO;
+    private int count;
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
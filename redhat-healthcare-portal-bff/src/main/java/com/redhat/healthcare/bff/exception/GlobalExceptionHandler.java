@@ -0,0 +1,35 @@
+package com.redhat.healthcare.bff.exception;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+@Provider
+public class GlobalExceptionHandler implements ExceptionMapper<Exception> {
+
+    @Override
+    public Response toResponse(Exception exception) {
+        if (exception instanceof UpstreamServiceException upstream) {
+            Response.Status status = upstream.getCause() instanceof TimeoutException
+                ? Response.Status.GATEWAY_TIMEOUT
+                : Response.Status.BAD_GATEWAY;
+            return error(status.getStatusCode(), upstream.getMessage());
+        } else if (exception instanceof WebApplicationException webException) {
+            return error(webException.getResponse().getStatus(), exception.getMessage());
+        } else {
+            return error(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), exception.getMessage());
+        }
+    }
+
+    private Response error(int status, String message) {
+        return Response.status(status)
+            .type(MediaType.APPLICATION_JSON)
+            .entity(Map.of("status", status, "error", message != null ? message : "Unexpected error"))
+            .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.redhat.healthcare.bff.exception;
+
+public class UpstreamServiceException extends RuntimeException {
+
+    private final String upstream;
+
+    public UpstreamServiceException(String upstream, Throwable cause) {
+        super(upstream + " service call failed: " + (cause != null ? cause.getMessage() : "unknown error"), cause);
+        this.upstream = upstream;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+}
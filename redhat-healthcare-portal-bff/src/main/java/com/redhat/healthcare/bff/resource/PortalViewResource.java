@@ -0,0 +1,60 @@
+package com.redhat.healthcare.bff.resource;
+
+import com.redhat.healthcare.bff.dto.FinancialSummary;
+import com.redhat.healthcare.bff.dto.PatientDashboard;
+import com.redhat.healthcare.bff.dto.ProviderDirectory;
+import com.redhat.healthcare.bff.service.FinancialSummaryService;
+import com.redhat.healthcare.bff.service.PatientDashboardService;
+import com.redhat.healthcare.bff.service.ProviderDirectoryService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+@Path("/bff")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Portal Views", description = "Pre-aggregated payloads for the patient portal views")
+public class PortalViewResource {
+
+    @Inject
+    PatientDashboardService patientDashboardService;
+
+    @Inject
+    ProviderDirectoryService providerDirectoryService;
+
+    @Inject
+    FinancialSummaryService financialSummaryService;
+
+    @POST
+    @Path("/patient-dashboard")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Upcoming appointment, pending claim and active medication counts of the listed patients",
+               description = "Takes the JSON array of patient ids the portal shows; returns one row per id.")
+    public PatientDashboard patientDashboard(List<String> patientIds) {
+        return patientDashboardService.getDashboard(patientIds != null ? patientIds : List.of());
+    }
+
+    @POST
+    @Path("/provider-directory")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Activity counts of the listed practitioners",
+               description = "Takes the JSON array of practitioner ids the portal shows; returns one row per id.")
+    public ProviderDirectory providerDirectory(List<String> practitionerIds) {
+        return providerDirectoryService.getDirectory(practitionerIds != null ? practitionerIds : List.of());
+    }
+
+    @GET
+    @Path("/patients/{id}/financial-summary")
+    @Operation(summary = "Claim totals and out-of-pocket tracking for a patient")
+    public FinancialSummary financialSummary(@PathParam("id") String id) {
+        return financialSummaryService.getSummary(id);
+    }
+}
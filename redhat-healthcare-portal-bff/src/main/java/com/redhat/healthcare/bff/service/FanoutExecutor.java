@@ -0,0 +1,100 @@
+package com.redhat.healthcare.bff.service;
+
+import com.redhat.healthcare.bff.exception.UpstreamServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs upstream calls in parallel on a fixed-size pool, so a burst of view requests
+ * never has more than {@code bff.fanout.max-concurrency} calls in flight against the services.
+ */
+@ApplicationScoped
+public class FanoutExecutor {
+
+    @ConfigProperty(name = "bff.fanout.max-concurrency", defaultValue = "4")
+    int maxConcurrency;
+
+    @ConfigProperty(name = "bff.fanout.timeout", defaultValue = "15S")
+    Duration timeout;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "bff-fanout-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts the calls for one view. They share a single deadline of {@code bff.fanout.timeout}, and the first
+     * one that fails or runs out of time cancels those still queued, so a failed view does not hold the pool.
+     */
+    public Batch batch() {
+        return new Batch(System.nanoTime() + timeout.toNanos());
+    }
+
+    public final class Batch {
+
+        private final long deadline;
+        private final List<CompletableFuture<?>> submitted = new ArrayList<>();
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public <T> CompletableFuture<T> submit(Supplier<T> call) {
+            CompletableFuture<T> future = CompletableFuture.supplyAsync(call, executor);
+            submitted.add(future);
+            return future;
+        }
+
+        /**
+         * Waits for a submitted call until the batch deadline; a failure is reported against upstream.
+         */
+        public <T> T await(CompletableFuture<T> future, String upstream) {
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw failed(upstream, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failed(upstream, e);
+            } catch (ExecutionException e) {
+                throw failed(upstream, e.getCause());
+            } catch (CancellationException e) {
+                throw failed(upstream, e);
+            }
+        }
+
+        private UpstreamServiceException failed(String upstream, Throwable cause) {
+            submitted.forEach(future -> future.cancel(true));
+            return cause instanceof UpstreamServiceException upstreamError
+                ? upstreamError
+                : new UpstreamServiceException(upstream, cause);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.redhat.healthcare.bff.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Small helpers for reading FHIR JSON returned by the upstream services.
+ * The BFF only reads a handful of fields, so it works on the Jackson tree instead of HAPI models.
+ */
+final class FhirJson {
+
+    private FhirJson() {
+    }
+
+    static List<JsonNode> resources(JsonNode bundle) {
+        List<JsonNode> resources = new ArrayList<>();
+        if (bundle == null) {
+            return resources;
+        }
+        for (JsonNode entry : bundle.path("entry")) {
+            JsonNode resource = entry.path("resource");
+            if (resource.isObject()) {
+                resources.add(resource);
+            }
+        }
+        return resources;
+    }
+
+    static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isValueNode() ? value.asText() : null;
+    }
+
+    static JsonNode first(JsonNode array, Predicate<JsonNode> predicate) {
+        for (JsonNode item : array) {
+            if (predicate.test(item)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    static BigDecimal money(JsonNode money) {
+        if (money == null || !money.path("value").isNumber()) {
+            return null;
+        }
+        return money.path("value").decimalValue();
+    }
+
+    static JsonNode extension(JsonNode node, String url) {
+        return first(node.path("extension"), ext -> url.equals(text(ext, "url")));
+    }
+
+    /**
+     * The Parameters of a $counts request: matches per reference grouped by the groupBy search parameter,
+     * narrowed by filter=value when filter is given.
+     */
+    static JsonNode countsRequest(String groupBy, List<String> references, String filter, String value) {
+        ObjectNode parameters = JsonNodeFactory.instance.objectNode().put("resourceType", "Parameters");
+        ArrayNode parameter = parameters.putArray("parameter");
+        parameter.addObject().put("name", "group-by").put("valueCode", groupBy);
+        if (filter != null) {
+            parameter.addObject().put("name", filter).put("valueString", value);
+        }
+        for (String reference : references) {
+            parameter.addObject().put("name", "reference").put("valueString", reference);
+        }
+        return parameters;
+    }
+
+    /**
+     * The count of each reference in the answer to a $counts request.
+     */
+    static Map<String, Integer> counts(JsonNode parameters) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (parameters == null) {
+            return counts;
+        }
+        for (JsonNode count : parameters.path("parameter")) {
+            JsonNode reference = first(count.path("part"), part -> "reference".equals(text(part, "name")));
+            JsonNode value = first(count.path("part"), part -> "count".equals(text(part, "name")));
+            if (reference != null && value != null) {
+                counts.put(text(reference, "valueString"), value.path("valueInteger").asInt(0));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Parses a FHIR dateTime; date-only values are taken as midnight UTC.
+     */
+    static Instant instant(String dateTime) {
+        if (dateTime == null) {
+            return null;
+        }
+        try {
+            if (dateTime.length() == 10) {
+                return LocalDate.parse(dateTime).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(dateTime).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
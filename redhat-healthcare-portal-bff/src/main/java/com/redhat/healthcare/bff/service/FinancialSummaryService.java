@@ -0,0 +1,122 @@
+package com.redhat.healthcare.bff.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.bff.client.ClaimsApi;
+import com.redhat.healthcare.bff.client.CoverageApi;
+import com.redhat.healthcare.bff.dto.FinancialSummary;
+import com.redhat.healthcare.bff.dto.StatusTotal;
+import io.quarkus.cache.CacheResult;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@ApplicationScoped
+public class FinancialSummaryService {
+
+    static final String OOP_TRACKING_URL = "http://redhat.com/fhir/StructureDefinition/oop-tracking";
+    static final String BENEFICIARY_PAYMENT_URL = "http://redhat.com/fhir/StructureDefinition/beneficiary-payment";
+
+    @Inject
+    @RestClient
+    ClaimsApi claimsApi;
+
+    @Inject
+    @RestClient
+    CoverageApi coverageApi;
+
+    @Inject
+    FanoutExecutor fanout;
+
+    /**
+     * Builds the financial view for one patient: claim totals by status, the out-of-pocket
+     * tracking carried on the most recent claim, and payments still pending on draft claims.
+     */
+    @CacheResult(cacheName = "financial-summary")
+    public FinancialSummary getSummary(String patientId) {
+        String patientReference = "Patient/" + patientId;
+        FanoutExecutor.Batch calls = fanout.batch();
+
+        CompletableFuture<JsonNode> claims = calls.submit(
+            () -> claimsApi.search(patientReference, null, "status,total,created,extension"));
+        CompletableFuture<JsonNode> coverages = calls.submit(() -> coverageApi.searchByBeneficiary(patientReference));
+
+        FinancialSummary summary = new FinancialSummary();
+        summary.setPatientId(patientId);
+        summary.setCurrency("USD");
+        summary.setTotal(BigDecimal.ZERO);
+        summary.setPendingPatientPayments(BigDecimal.ZERO);
+
+        Map<String, StatusTotal> byStatus = new LinkedHashMap<>();
+        JsonNode latestWithTracking = null;
+        Instant latestCreated = null;
+        boolean currencySet = false;
+
+        for (JsonNode claim : FhirJson.resources(calls.await(claims, "claims"))) {
+            String status = claim.path("status").asText("unknown").toLowerCase(Locale.ROOT);
+
+            BigDecimal amount = FhirJson.money(claim.path("total"));
+            if (amount != null) {
+                if (!currencySet && FhirJson.text(claim.path("total"), "currency") != null) {
+                    summary.setCurrency(FhirJson.text(claim.path("total"), "currency"));
+                    currencySet = true;
+                }
+                summary.setTotal(summary.getTotal().add(amount));
+                StatusTotal statusTotal = byStatus.computeIfAbsent(status, s -> new StatusTotal());
+                statusTotal.setTotal(statusTotal.getTotal().add(amount));
+                statusTotal.setCount(statusTotal.getCount() + 1);
+            }
+
+            JsonNode payment = FhirJson.extension(claim, BENEFICIARY_PAYMENT_URL);
+            BigDecimal paymentAmount = payment != null ? FhirJson.money(payment.path("valueMoney")) : null;
+            if (paymentAmount != null && "draft".equals(status)) {
+                summary.setPendingPatientPayments(summary.getPendingPatientPayments().add(paymentAmount));
+            }
+
+            if (FhirJson.extension(claim, OOP_TRACKING_URL) != null) {
+                Instant created = FhirJson.instant(FhirJson.text(claim, "created"));
+                Instant createdOrEpoch = created != null ? created : Instant.EPOCH;
+                if (latestWithTracking == null || createdOrEpoch.isAfter(latestCreated)) {
+                    latestWithTracking = claim;
+                    latestCreated = createdOrEpoch;
+                }
+            }
+        }
+        summary.setByStatus(byStatus);
+
+        if (latestWithTracking != null) {
+            JsonNode tracking = FhirJson.extension(latestWithTracking, OOP_TRACKING_URL);
+            summary.setOutOfPocketSpent(trackingValue(tracking, "paidToDate"));
+            summary.setOutOfPocketMax(trackingValue(tracking, "maximum"));
+            summary.setOutOfPocketRemaining(trackingValue(tracking, "remaining"));
+        }
+
+        summary.setCoverageOutOfPocketMax(coverageOutOfPocketMax(
+            FhirJson.resources(calls.await(coverages, "coverage"))));
+        summary.setGeneratedAt(OffsetDateTime.now());
+        return summary;
+    }
+
+    private BigDecimal trackingValue(JsonNode tracking, String url) {
+        JsonNode value = FhirJson.extension(tracking, url);
+        return value != null ? FhirJson.money(value.path("valueMoney")) : null;
+    }
+
+    private BigDecimal coverageOutOfPocketMax(List<JsonNode> coverages) {
+        if (coverages.isEmpty()) {
+            return null;
+        }
+        JsonNode cost = FhirJson.first(coverages.get(0).path("costToBeneficiary"), c ->
+            "gpay".equals(FhirJson.text(c.path("type").path("coding").path(0), "code"))
+                || String.valueOf(FhirJson.text(c.path("type"), "text")).toLowerCase(Locale.ROOT).contains("out of pocket"));
+        return cost != null ? FhirJson.money(cost.path("valueMoney")) : null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.redhat.healthcare.bff.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * One counter of a list view: a $counts call per batch of references, merged into a count per reference.
+ * A view needs one call per counter for every batch-size rows, however many rows it shows.
+ */
+final class GroupedCounts {
+
+    private final FanoutExecutor.Batch calls;
+    private final String upstream;
+    private final List<CompletableFuture<JsonNode>> batches = new ArrayList<>();
+
+    private GroupedCounts(FanoutExecutor.Batch calls, String upstream) {
+        this.calls = calls;
+        this.upstream = upstream;
+    }
+
+    /**
+     * Submits call for each batch of at most batchSize references.
+     */
+    static GroupedCounts submit(FanoutExecutor.Batch calls, String upstream, List<String> references, int batchSize,
+                                Function<List<String>, JsonNode> call) {
+        GroupedCounts counts = new GroupedCounts(calls, upstream);
+        for (int from = 0; from < references.size(); from += batchSize) {
+            List<String> batch = List.copyOf(references.subList(from, Math.min(from + batchSize, references.size())));
+            counts.batches.add(calls.submit(() -> call.apply(batch)));
+        }
+        return counts;
+    }
+
+    /**
+     * Waits for every batch; references the upstream service did not count map to nothing.
+     */
+    Map<String, Integer> await() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (CompletableFuture<JsonNode> batch : batches) {
+            counts.putAll(FhirJson.counts(calls.await(batch, upstream)));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,80 @@
+package com.redhat.healthcare.bff.service;
+
+import com.redhat.healthcare.bff.client.AppointmentApi;
+import com.redhat.healthcare.bff.client.ClaimsApi;
+import com.redhat.healthcare.bff.client.MedicationApi;
+import com.redhat.healthcare.bff.dto.PatientDashboard;
+import com.redhat.healthcare.bff.dto.PatientSummary;
+import io.quarkus.cache.CacheResult;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@ApplicationScoped
+public class PatientDashboardService {
+
+    @Inject
+    @RestClient
+    AppointmentApi appointmentApi;
+
+    @Inject
+    @RestClient
+    ClaimsApi claimsApi;
+
+    @Inject
+    @RestClient
+    MedicationApi medicationApi;
+
+    @Inject
+    FanoutExecutor fanout;
+
+    @ConfigProperty(name = "bff.counts.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    /**
+     * Builds the home view counters for the patients the portal lists: upcoming appointments, pending claims and
+     * active medications, one row per id in request order. Each counter is a grouped $counts call per batch of
+     * patients, so the three counters of any number of rows up to a batch cost three upstream calls.
+     */
+    @CacheResult(cacheName = "patient-dashboard")
+    public PatientDashboard getDashboard(List<String> patientIds) {
+        String upcoming = "ge" + LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<String> references = patientIds.stream().distinct().map(id -> "Patient/" + id).toList();
+        FanoutExecutor.Batch calls = fanout.batch();
+
+        GroupedCounts appointments = GroupedCounts.submit(calls, "appointment", references, batchSize,
+            batch -> appointmentApi.counts(FhirJson.countsRequest("patient", batch, "date", upcoming)));
+        GroupedCounts claims = GroupedCounts.submit(calls, "claims", references, batchSize,
+            batch -> claimsApi.counts(FhirJson.countsRequest("patient", batch, "status", "active")));
+        GroupedCounts medications = GroupedCounts.submit(calls, "medication", references, batchSize,
+            batch -> medicationApi.counts(FhirJson.countsRequest("patient", batch, "status", "active")));
+
+        Map<String, Integer> upcomingAppointments = appointments.await();
+        Map<String, Integer> pendingClaims = claims.await();
+        Map<String, Integer> activeMedications = medications.await();
+
+        List<PatientSummary> rows = new ArrayList<>();
+        for (String id : patientIds) {
+            String reference = "Patient/" + id;
+            PatientSummary row = new PatientSummary();
+            row.setId(id);
+            row.setUpcomingAppointments(upcomingAppointments.getOrDefault(reference, 0));
+            row.setPendingClaims(pendingClaims.getOrDefault(reference, 0));
+            row.setActiveMedications(activeMedications.getOrDefault(reference, 0));
+            rows.add(row);
+        }
+
+        PatientDashboard dashboard = new PatientDashboard();
+        dashboard.setPatients(rows);
+        dashboard.setGeneratedAt(OffsetDateTime.now());
+        return dashboard;
+    }
+}
@@ -0,0 +1,80 @@
+package com.redhat.healthcare.bff.service;
+
+import com.redhat.healthcare.bff.client.AppointmentApi;
+import com.redhat.healthcare.bff.client.ClaimsApi;
+import com.redhat.healthcare.bff.client.MedicationApi;
+import com.redhat.healthcare.bff.dto.ProviderDirectory;
+import com.redhat.healthcare.bff.dto.ProviderSummary;
+import io.quarkus.cache.CacheResult;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@ApplicationScoped
+public class ProviderDirectoryService {
+
+    @Inject
+    @RestClient
+    AppointmentApi appointmentApi;
+
+    @Inject
+    @RestClient
+    ClaimsApi claimsApi;
+
+    @Inject
+    @RestClient
+    MedicationApi medicationApi;
+
+    @Inject
+    FanoutExecutor fanout;
+
+    @ConfigProperty(name = "bff.counts.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    /**
+     * Builds the provider directory counters for the practitioners the portal lists, one row per id in request
+     * order. Upcoming appointments, claims and active prescriptions are each one grouped $counts call per batch
+     * of practitioners, whether the portal shows the whole directory or a search result.
+     */
+    @CacheResult(cacheName = "provider-directory")
+    public ProviderDirectory getDirectory(List<String> practitionerIds) {
+        String upcoming = "ge" + LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<String> references = practitionerIds.stream().distinct().map(id -> "Practitioner/" + id).toList();
+        FanoutExecutor.Batch calls = fanout.batch();
+
+        GroupedCounts appointments = GroupedCounts.submit(calls, "appointment", references, batchSize,
+            batch -> appointmentApi.counts(FhirJson.countsRequest("practitioner", batch, "date", upcoming)));
+        GroupedCounts claims = GroupedCounts.submit(calls, "claims", references, batchSize,
+            batch -> claimsApi.counts(FhirJson.countsRequest("provider", batch, null, null)));
+        GroupedCounts medications = GroupedCounts.submit(calls, "medication", references, batchSize,
+            batch -> medicationApi.counts(FhirJson.countsRequest("requester", batch, "status", "active")));
+
+        Map<String, Integer> upcomingAppointments = appointments.await();
+        Map<String, Integer> claimCounts = claims.await();
+        Map<String, Integer> activeMedications = medications.await();
+
+        List<ProviderSummary> rows = new ArrayList<>();
+        for (String id : practitionerIds) {
+            String reference = "Practitioner/" + id;
+            ProviderSummary row = new ProviderSummary();
+            row.setId(id);
+            row.setUpcomingAppointments(upcomingAppointments.getOrDefault(reference, 0));
+            row.setClaims(claimCounts.getOrDefault(reference, 0));
+            row.setActiveMedications(activeMedications.getOrDefault(reference, 0));
+            rows.add(row);
+        }
+
+        ProviderDirectory directory = new ProviderDirectory();
+        directory.setProviders(rows);
+        directory.setGeneratedAt(OffsetDateTime.now());
+        return directory;
+    }
+}
@@ -0,0 +1,78 @@
+package com.redhat.healthcare.bff.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.bff.client.FhirBinaryEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side parse time of application/fhir+json against the CBOR and Smile encodings of the same search
+ * Bundle, fetched once per fork from a running service. Each fork prints the payload size of its encoding.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main FhirEncodingBenchmark -p url=http://localhost:8082/fhir/Claim"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FhirEncodingBenchmark {
+
+    @Param("http://localhost:8082/fhir/Claim")
+    public String url;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public FhirBinaryEncoding encoding;
+
+    private byte[] payload;
+
+    @Setup
+    public void fetch() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        payload = get(client, encoding);
+        byte[] json = encoding == FhirBinaryEncoding.JSON ? payload : get(client, FhirBinaryEncoding.JSON);
+        JsonNode reference = FhirBinaryEncoding.JSON.mapper().readTree(json);
+        if (!encoding.mapper().readTree(payload).equals(reference)) {
+            throw new IllegalStateException(encoding + " payload does not match the JSON document");
+        }
+        System.out.printf("%n%s: %d entries, %d bytes (%.1f%% of json)%n", encoding,
+            reference.path("entry").size(), payload.length, 100.0 * payload.length / json.length);
+    }
+
+    @Benchmark
+    public JsonNode parse() throws IOException {
+        return encoding.mapper().readTree(payload);
+    }
+
+    private byte[] get(HttpClient client, FhirBinaryEncoding accept) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Accept", accept.mediaType())
+            .GET()
+            .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(accept + " request failed with HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,144 @@
+package com.redhat.healthcare.bff.service;
+
+import com.redhat.healthcare.bff.exception.UpstreamServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FanoutExecutorTest {
+
+    private FanoutExecutor fanout;
+
+    static FanoutExecutor executor(int maxConcurrency, Duration timeout) {
+        FanoutExecutor fanout = new FanoutExecutor();
+        fanout.maxConcurrency = maxConcurrency;
+        fanout.timeout = timeout;
+        fanout.init();
+        return fanout;
+    }
+
+    @AfterEach
+    void shutdown() {
+        fanout.shutdown();
+    }
+
+    @Test
+    void runsAtMostMaxConcurrencyCallsAtOnce() {
+        fanout = executor(2, Duration.ofSeconds(10));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        FanoutExecutor.Batch calls = fanout.batch();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int call = i;
+            futures.add(calls.submit(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(50);
+                running.decrementAndGet();
+                return call;
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, calls.await(futures.get(i), "patient"));
+        }
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void timeoutFailsTheCallAndCancelsQueuedCalls() throws Exception {
+        fanout = executor(1, Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queuedRuns = new AtomicInteger();
+        FanoutExecutor.Batch calls = fanout.batch();
+
+        CompletableFuture<String> slow = calls.submit(() -> {
+            await(release);
+            return "late";
+        });
+        CompletableFuture<Integer> queued = calls.submit(queuedRuns::incrementAndGet);
+
+        long start = System.nanoTime();
+        UpstreamServiceException failure = assertThrows(UpstreamServiceException.class,
+            () -> calls.await(slow, "appointment"));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("appointment", failure.getUpstream());
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertTrue(waited < 2000, "waited " + waited + " ms");
+        assertTrue(queued.isCancelled());
+
+        release.countDown();
+        fanout.batch().await(fanout.batch().submit(() -> null), "patient");
+        assertEquals(0, queuedRuns.get());
+    }
+
+    @Test
+    void callsShareOneDeadline() {
+        fanout = executor(4, Duration.ofMillis(300));
+        CountDownLatch release = new CountDownLatch(1);
+        FanoutExecutor.Batch calls = fanout.batch();
+        CompletableFuture<String> first = calls.submit(() -> {
+            sleep(200);
+            return "first";
+        });
+        CompletableFuture<String> second = calls.submit(() -> {
+            await(release);
+            return "second";
+        });
+
+        assertEquals("first", calls.await(first, "claims"));
+        long start = System.nanoTime();
+        assertThrows(UpstreamServiceException.class, () -> calls.await(second, "medication"));
+        // Only what is left of the 300 ms after the first call, not a fresh timeout
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+        release.countDown();
+    }
+
+    @Test
+    void failureIsReportedAgainstTheUpstream() {
+        fanout = executor(2, Duration.ofSeconds(10));
+        FanoutExecutor.Batch calls = fanout.batch();
+        IllegalStateException cause = new IllegalStateException("HTTP 500");
+        CompletableFuture<Object> failing = calls.submit(() -> {
+            throw cause;
+        });
+
+        UpstreamServiceException failure = assertThrows(UpstreamServiceException.class,
+            () -> calls.await(failing, "claims"));
+        assertEquals("claims", failure.getUpstream());
+        assertSame(cause, failure.getCause());
+        assertEquals("claims service call failed: HTTP 500", failure.getMessage());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
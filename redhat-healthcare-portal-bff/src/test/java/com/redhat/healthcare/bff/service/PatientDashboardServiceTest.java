@@ -0,0 +1,221 @@
+package com.redhat.healthcare.bff.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.healthcare.bff.client.ClaimsApi;
+import com.redhat.healthcare.bff.dto.PatientSummary;
+import com.redhat.healthcare.bff.exception.UpstreamServiceException;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientDashboardServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Queue<JsonNode> calls = new ConcurrentLinkedQueue<>();
+    private PatientDashboardService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PatientDashboardService();
+        service.batchSize = 1000;
+        service.fanout = FanoutExecutorTest.executor(4, Duration.ofSeconds(10));
+        service.appointmentApi = counted(calls, "Appointment", Map.of("Patient/p1", 3))::apply;
+        service.claimsApi = claims(counted(calls, "Claim", Map.of("Patient/p1", 1, "Patient/p2", 4)));
+        service.medicationApi = counted(calls, "MedicationRequest", Map.of("Patient/p2", 2))::apply;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.fanout.shutdown();
+    }
+
+    @Test
+    void countsTheListedPatientsWithOneGroupedCallPerCounter() {
+        List<PatientSummary> rows = service.getDashboard(List.of("p2", "p3", "p1")).getPatients();
+
+        assertEquals(List.of("p2", "p3", "p1"), rows.stream().map(PatientSummary::getId).toList());
+        PatientSummary p2 = rows.get(0);
+        assertEquals(0, p2.getUpcomingAppointments());
+        assertEquals(4, p2.getPendingClaims());
+        assertEquals(2, p2.getActiveMedications());
+        PatientSummary p3 = rows.get(1);
+        assertEquals(0, p3.getUpcomingAppointments() + p3.getPendingClaims() + p3.getActiveMedications());
+        PatientSummary p1 = rows.get(2);
+        assertEquals(3, p1.getUpcomingAppointments());
+        assertEquals(1, p1.getPendingClaims());
+        assertEquals(0, p1.getActiveMedications());
+
+        assertEquals(3, calls.size());
+        JsonNode claims = call(calls, "Claim");
+        assertEquals("patient", parameter(claims, "group-by"));
+        assertEquals("active", parameter(claims, "status"));
+        assertEquals(List.of("Patient/p2", "Patient/p3", "Patient/p1"), references(claims));
+        assertEquals("active", parameter(call(calls, "MedicationRequest"), "status"));
+        assertTrue(parameter(call(calls, "Appointment"), "date").matches("ge\\d{4}-\\d{2}-\\d{2}T.*"));
+    }
+
+    @Test
+    void upstreamCallsDoNotGrowWithTheRows() {
+        List<String> ids = IntStream.range(0, 250).mapToObj(i -> "p" + i).toList();
+
+        assertEquals(250, service.getDashboard(ids).getPatients().size());
+        assertEquals(3, calls.size());
+
+        calls.clear();
+        service.batchSize = 100;
+        List<PatientSummary> rows = service.getDashboard(ids).getPatients();
+        assertEquals(9, calls.size());
+        assertEquals(3, rows.get(1).getUpcomingAppointments());
+        assertEquals(4, rows.get(2).getPendingClaims());
+        List<Integer> claimBatches = calls.stream()
+            .filter(call -> "Claim".equals(call.path("resourceType").asText()))
+            .map(call -> references(call).size())
+            .toList();
+        assertEquals(3, claimBatches.size());
+        assertEquals(250, claimBatches.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(claimBatches.stream().allMatch(size -> size <= 100));
+    }
+
+    @Test
+    void repeatedIdsAreCountedOnceAndListedAsAsked() {
+        List<PatientSummary> rows = service.getDashboard(List.of("p1", "p1")).getPatients();
+
+        assertEquals(2, rows.size());
+        assertEquals(3, rows.get(1).getUpcomingAppointments());
+        assertEquals(List.of("Patient/p1"), references(call(calls, "Claim")));
+    }
+
+    @Test
+    void noPatientsMakeNoCalls() {
+        assertTrue(service.getDashboard(List.of()).getPatients().isEmpty());
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void oneFailingCountFailsTheView() {
+        service.medicationApi = parameters -> {
+            throw new WebApplicationException("Service Unavailable", 503);
+        };
+
+        UpstreamServiceException failure = assertThrows(UpstreamServiceException.class,
+            () -> service.getDashboard(List.of("p1")));
+        assertEquals("medication", failure.getUpstream());
+        assertInstanceOf(WebApplicationException.class, failure.getCause());
+    }
+
+    @Test
+    void slowCountTimesOutTheView() {
+        service.fanout.shutdown();
+        service.fanout = FanoutExecutorTest.executor(4, Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        service.appointmentApi = parameters -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return json("{\"resourceType\": \"Parameters\"}");
+        };
+
+        try {
+            UpstreamServiceException failure = assertThrows(UpstreamServiceException.class,
+                () -> service.getDashboard(List.of("p1")));
+            assertEquals("appointment", failure.getUpstream());
+            assertInstanceOf(TimeoutException.class, failure.getCause());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * A $counts answer for each request: the count of every requested reference, 0 when absent from counts.
+     * Each request is recorded with its resource type in place of Parameters.
+     */
+    static Function<JsonNode, JsonNode> counted(Queue<JsonNode> calls, String resourceType,
+                                                Map<String, Integer> counts) {
+        return request -> {
+            calls.add(((ObjectNode) request.deepCopy()).put("resourceType", resourceType));
+            ObjectNode answer = MAPPER.createObjectNode().put("resourceType", "Parameters");
+            ArrayNode parameter = answer.putArray("parameter");
+            for (String reference : references(request)) {
+                ArrayNode part = parameter.addObject().put("name", "count").putArray("part");
+                part.addObject().put("name", "reference").put("valueString", reference);
+                part.addObject().put("name", "count").put("valueInteger", counts.getOrDefault(reference, 0));
+            }
+            return answer;
+        };
+    }
+
+    static JsonNode call(Queue<JsonNode> calls, String resourceType) {
+        return calls.stream().filter(call -> resourceType.equals(call.path("resourceType").asText()))
+            .findFirst().orElseThrow();
+    }
+
+    static List<String> references(JsonNode request) {
+        List<String> references = new ArrayList<>();
+        for (JsonNode parameter : request.path("parameter")) {
+            if ("reference".equals(parameter.path("name").asText())) {
+                references.add(parameter.path("valueString").asText());
+            }
+        }
+        return references;
+    }
+
+    static String parameter(JsonNode request, String name) {
+        for (JsonNode parameter : request.path("parameter")) {
+            if (name.equals(parameter.path("name").asText())) {
+                return parameter.has("valueCode")
+                    ? parameter.path("valueCode").asText()
+                    : parameter.path("valueString").asText();
+            }
+        }
+        return null;
+    }
+
+    static JsonNode json(String json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * A ClaimsApi whose $counts requests are answered by counts; the views never run a full claim search.
+     */
+    static ClaimsApi claims(Function<JsonNode, JsonNode> counts) {
+        return new ClaimsApi() {
+            @Override
+            public JsonNode search(String patient, String status, String elements) {
+                throw new UnsupportedOperationException("full claim search");
+            }
+
+            @Override
+            public JsonNode counts(JsonNode parameters) {
+                return counts.apply(parameters);
+            }
+        };
+    }
+}
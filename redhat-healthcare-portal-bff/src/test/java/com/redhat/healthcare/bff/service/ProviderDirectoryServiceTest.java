@@ -0,0 +1,90 @@
+package com.redhat.healthcare.bff.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.redhat.healthcare.bff.dto.ProviderSummary;
+import com.redhat.healthcare.bff.exception.UpstreamServiceException;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.redhat.healthcare.bff.service.PatientDashboardServiceTest.call;
+import static com.redhat.healthcare.bff.service.PatientDashboardServiceTest.claims;
+import static com.redhat.healthcare.bff.service.PatientDashboardServiceTest.counted;
+import static com.redhat.healthcare.bff.service.PatientDashboardServiceTest.parameter;
+import static com.redhat.healthcare.bff.service.PatientDashboardServiceTest.references;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderDirectoryServiceTest {
+
+    private final Queue<JsonNode> calls = new ConcurrentLinkedQueue<>();
+    private ProviderDirectoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProviderDirectoryService();
+        service.batchSize = 1000;
+        service.fanout = FanoutExecutorTest.executor(4, Duration.ofSeconds(10));
+        service.appointmentApi = counted(calls, "Appointment", Map.of("Practitioner/dr-watson", 5))::apply;
+        service.claimsApi = claims(counted(calls, "Claim", Map.of("Practitioner/dr-adams", 7)));
+        service.medicationApi = counted(calls, "MedicationRequest",
+            Map.of("Practitioner/dr-adams", 1, "Practitioner/dr-watson", 1))::apply;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.fanout.shutdown();
+    }
+
+    @Test
+    void countsTheListedPractitionersInRequestOrder() {
+        List<ProviderSummary> rows = service.getDirectory(List.of("dr-watson", "dr-adams")).getProviders();
+
+        assertEquals(2, rows.size());
+        ProviderSummary watson = rows.get(0);
+        assertEquals("dr-watson", watson.getId());
+        assertEquals(5, watson.getUpcomingAppointments());
+        assertEquals(0, watson.getClaims());
+        assertEquals(1, watson.getActiveMedications());
+        ProviderSummary adams = rows.get(1);
+        assertEquals("dr-adams", adams.getId());
+        assertEquals(0, adams.getUpcomingAppointments());
+        assertEquals(7, adams.getClaims());
+
+        assertEquals(3, calls.size());
+        assertEquals("practitioner", parameter(call(calls, "Appointment"), "group-by"));
+        JsonNode claims = call(calls, "Claim");
+        assertEquals("provider", parameter(claims, "group-by"));
+        assertNull(parameter(claims, "status"));
+        assertEquals(List.of("Practitioner/dr-watson", "Practitioner/dr-adams"), references(claims));
+        JsonNode medications = call(calls, "MedicationRequest");
+        assertEquals("requester", parameter(medications, "group-by"));
+        assertEquals("active", parameter(medications, "status"));
+    }
+
+    @Test
+    void oneFailingCountFailsTheView() {
+        service.claimsApi = claims(parameters -> {
+            throw new WebApplicationException("Internal Server Error", 500);
+        });
+
+        UpstreamServiceException failure = assertThrows(UpstreamServiceException.class,
+            () -> service.getDirectory(List.of("dr-watson")));
+        assertEquals("claims", failure.getUpstream());
+    }
+
+    @Test
+    void noPractitionersMakeNoCalls() {
+        assertTrue(service.getDirectory(List.of()).getProviders().isEmpty());
+        assertTrue(calls.isEmpty());
+    }
+}
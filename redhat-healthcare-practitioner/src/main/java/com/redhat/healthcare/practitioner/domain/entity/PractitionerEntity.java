@@ -92,6 +92,12 @@ public class PractitionerEntity extends PanacheEntityBase {
     @Column(name = "country", length = 100)
     public String country;
 
+    @Column(name = "latitude")
+    public Double latitude;
+
+    @Column(name = "longitude")
+    public Double longitude;
+
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "fhir_resource", columnDefinition = "jsonb")
     public String fhirResource;
@@ -101,4 +107,8 @@ public class PractitionerEntity extends PanacheEntityBase {
 
     @Column(name = "created_at")
     public LocalDateTime createdAt;
+
+    // PractitionerSearchIndex.VERSION of the practitioner_idx_* rows; NULL until indexed
+    @Column(name = "search_index_version")
+    public Short searchIndexVersion;
 }
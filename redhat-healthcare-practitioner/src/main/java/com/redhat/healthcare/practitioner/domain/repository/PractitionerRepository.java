@@ -1,62 +1,279 @@
 package com.redhat.healthcare.practitioner.domain.repository;
 
+import com.redhat.healthcare.fhir.search.ExtractedSearchParams;
+import com.redhat.healthcare.fhir.search.SearchIndexQuery;
+import com.redhat.healthcare.fhir.search.SearchParamType;
+import com.redhat.healthcare.fhir.store.FhirResourceStore;
 import com.redhat.healthcare.practitioner.domain.entity.PractitionerEntity;
+import com.redhat.healthcare.practitioner.search.PractitionerSearchParameters;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 
-import java.time.LocalDateTime;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class PractitionerRepository implements PanacheRepositoryBase<PractitionerEntity, String> {
 
+    private static final String SOFT_DELETE_SQL = FhirResourceStore.softDeleteSql("practitioners");
+
+    @Inject
+    FhirResourceStore store;
+
     public Optional<PractitionerEntity> findByFhirId(String fhirId) {
         return find("fhirId", fhirId).firstResultOptional();
     }
 
-    public List<PractitionerEntity> findByIdentifier(String system, String value) {
+    /**
+     * The stored JSON of a practitioner, for reads that only render it.
+     */
+    public Optional<String> findResourceByFhirId(String fhirId) {
+        return firstResource("fhirId = ?1", fhirId);
+    }
+
+    public Optional<Long> findVersionByFhirId(String fhirId) {
+        return store.currentVersion(getEntityManager(), PractitionerEntity.class, fhirId);
+    }
+
+    /**
+     * Active practitioners with the identifier, at most two: enough for a conditional request to tell one
+     * match from several. Without a system the value alone is matched.
+     */
+    public List<PractitionerEntity> findActiveByIdentifier(String system, String value) {
+        if (system != null) {
+            return find("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value)
+                .range(0, 1).list();
+        }
+        return find("identifierValue = ?1 and active = true", value).range(0, 1).list();
+    }
+
+    /**
+     * The active practitioner holding exactly this identifier, a missing system matching only a missing system: the
+     * row uq_practitioner_active_identifier keeps any other active practitioner from taking the identifier.
+     */
+    public Optional<PractitionerEntity> findActiveHolder(String system, String value) {
+        return find("coalesce(identifierSystem, '') = ?1 and identifierValue = ?2 and active = true",
+            system != null ? system : "", value).firstResultOptional();
+    }
+
+    /**
+     * Inserts the practitioner unless an active practitioner already holds its identifier system and value,
+     * in one INSERT ... ON CONFLICT on uq_practitioner_active_identifier. Returns false when nothing was inserted.
+     */
+    public boolean insertIfIdentifierFree(PractitionerEntity entity) {
+        return getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO practitioners (fhir_id, version_id, identifier_system, identifier_value, npi, " +
+                    "family_name, given_name, full_name, prefix, suffix, active, phone, email, gender, birth_date, " +
+                    "specialty_code, specialty_display, specialty_system, address_line, city, state, postal_code, " +
+                    "country, latitude, longitude, fhir_resource, last_updated, created_at, search_index_version) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+                    "CAST(? AS jsonb), ?, ?, ?) " +
+                    "ON CONFLICT ((COALESCE(identifier_system, '')), identifier_value) WHERE active = true " +
+                    "DO NOTHING")) {
+                insert.setString(1, entity.fhirId);
+                insert.setObject(2, entity.versionId);
+                insert.setString(3, entity.identifierSystem);
+                insert.setString(4, entity.identifierValue);
+                insert.setString(5, entity.npi);
+                insert.setString(6, entity.familyName);
+                insert.setString(7, entity.givenName);
+                insert.setString(8, entity.fullName);
+                insert.setString(9, entity.prefix);
+                insert.setString(10, entity.suffix);
+                insert.setObject(11, entity.active);
+                insert.setString(12, entity.phone);
+                insert.setString(13, entity.email);
+                insert.setString(14, entity.gender);
+                insert.setObject(15, entity.birthDate);
+                insert.setString(16, entity.specialtyCode);
+                insert.setString(17, entity.specialtyDisplay);
+                insert.setString(18, entity.specialtySystem);
+                insert.setString(19, entity.addressLine);
+                insert.setString(20, entity.city);
+                insert.setString(21, entity.state);
+                insert.setString(22, entity.postalCode);
+                insert.setString(23, entity.country);
+                insert.setObject(24, entity.latitude);
+                insert.setObject(25, entity.longitude);
+                insert.setString(26, entity.fhirResource);
+                insert.setObject(27, entity.lastUpdated);
+                insert.setObject(28, entity.createdAt);
+                insert.setObject(29, entity.searchIndexVersion);
+                return insert.executeUpdate() == 1;
+            }
+        });
+    }
+
+    /**
+     * Batched read for _id searches, e.g. resolving the practitioners included in another service's Bundle.
+     */
+    public Stream<String> findByFhirIds(Collection<String> fhirIds) {
+        return streamResources("fhirId in ?1 and active = true", fhirIds);
+    }
+
+    /**
+     * fhir_id -> stored JSON of the active practitioners among fhirIds.
+     */
+    public Map<String, String> findResourcesByFhirId(Collection<String> fhirIds) {
+        Map<String, String> resources = new HashMap<>();
+        getEntityManager()
+            .createQuery("select fhirId, fhirResource from PractitionerEntity where fhirId in ?1 and active = true",
+                Object[].class)
+            .setParameter(1, fhirIds)
+            .getResultList()
+            .forEach(row -> resources.put((String) row[0], (String) row[1]));
+        return resources;
+    }
+
+    public Stream<String> findByIdentifier(String system, String value) {
         if (system != null && value != null) {
-            return list("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value);
+            return streamResources("identifierSystem = ?1 and identifierValue = ?2 and active = true", system, value);
         } else if (value != null) {
-            return list("identifierValue = ?1 and active = true", value);
+            return streamResources("identifierValue = ?1 and active = true", value);
+        }
+        return Stream.empty();
+    }
+
+    public Optional<String> findByNpi(String npi) {
+        return firstResource("npi = ?1 and active = true", npi);
+    }
+
+    /**
+     * Search over the practitioner_idx_* tables, narrowed by specialty when given.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> findByIndexedParams(Map<String, List<String>> indexedParams, String specialty) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> predicates = new ArrayList<>();
+        int n = 0;
+        for (Map.Entry<String, List<String>> param : indexedParams.entrySet()) {
+            String name = param.getKey().split(":", 2)[0];
+            predicates.add(SearchIndexQuery.toSql(PractitionerSearchParameters.RESOURCE_PREFIX, param.getKey(),
+                PractitionerSearchParameters.INDEXED.get(name), param.getValue(), "sp" + n++, params));
+        }
+        if (specialty != null && !specialty.isEmpty()) {
+            predicates.add("specialty_code = :specialty");
+            params.put("specialty", specialty);
         }
-        return List.of();
+
+        Query query = getEntityManager().createNativeQuery(
+            "SELECT CAST(fhir_resource AS text) FROM practitioners WHERE " + String.join(" AND ", predicates) +
+            " AND active = true ORDER BY family_name, given_name, fhir_id")
+            .setHint(HibernateHints.HINT_FETCH_SIZE, store.fetchSize());
+        params.forEach(query::setParameter);
+        return query.getResultStream();
+    }
+
+    public Stream<String> findBySpecialty(String specialtyCode) {
+        return streamResources("specialtyCode = ?1 and active = true", specialtyCode);
+    }
+
+    public Optional<String> findByEmail(String email) {
+        return firstResource("email = ?1 and active = true", email);
+    }
+
+    public Stream<String> findAllActive() {
+        return streamResources("active = true order by familyName, givenName");
     }
 
-    public Optional<PractitionerEntity> findByNpi(String npi) {
-        return find("npi = ?1 and active = true", npi).firstResultOptional();
+    /**
+     * Id, coordinates, postal code and specialty of every active practitioner, without the FHIR resource.
+     */
+    public List<Object[]> findActiveLocations() {
+        return getEntityManager().createQuery(
+                "select p.fhirId, p.latitude, p.longitude, p.postalCode, p.specialtyCode "
+                    + "from PractitionerEntity p where p.active = true", Object[].class)
+            .getResultList();
     }
 
-    public List<PractitionerEntity> findByName(String name) {
-        String pattern = "%" + name.toLowerCase() + "%";
-        return list("(LOWER(familyName) LIKE ?1 OR LOWER(givenName) LIKE ?1 OR LOWER(fullName) LIKE ?1) and active = true", pattern);
+    /**
+     * Practitioners not yet in the search index after the given id: [fhir_id, fhir_resource as text].
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findUnindexed(String afterId, int limit) {
+        return getEntityManager().createNativeQuery(
+                "SELECT fhir_id, CAST(fhir_resource AS text) FROM practitioners " +
+                "WHERE search_index_version IS NULL AND fhir_id > :after ORDER BY fhir_id LIMIT :limit")
+            .setParameter("after", afterId)
+            .setParameter("limit", limit)
+            .getResultList();
     }
 
-    public List<PractitionerEntity> findByFamilyName(String familyName) {
-        String pattern = "%" + familyName.toLowerCase() + "%";
-        return list("LOWER(familyName) LIKE ?1 and active = true", pattern);
+    public void setSearchIndexVersion(String fhirId, short version) {
+        update("searchIndexVersion = ?1 where fhirId = ?2", version, fhirId);
     }
 
-    public List<PractitionerEntity> findByGivenName(String givenName) {
-        String pattern = "%" + givenName.toLowerCase() + "%";
-        return list("LOWER(givenName) LIKE ?1 and active = true", pattern);
+    /**
+     * Replaces the practitioner_idx_* rows of one practitioner, one JDBC batch per table.
+     */
+    public void replaceSearchIndex(String fhirId, ExtractedSearchParams extracted) {
+        getEntityManager().unwrap(Session.class).doWork(connection -> {
+            for (SearchParamType type : PractitionerSearchParameters.INDEX_TABLES) {
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM " + type.table(PractitionerSearchParameters.RESOURCE_PREFIX) + " WHERE fhir_id = ?")) {
+                    delete.setString(1, fhirId);
+                    delete.executeUpdate();
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO practitioner_idx_token (fhir_id, param_name, token_system, token_value) VALUES (?, ?, ?, ?)")) {
+                for (ExtractedSearchParams.Token token : extracted.tokens()) {
+                    insert.setString(1, fhirId);
+                    insert.setString(2, token.param());
+                    insert.setString(3, token.system());
+                    insert.setString(4, token.value());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO practitioner_idx_string (fhir_id, param_name, value_normalized, value_exact) " +
+                    "VALUES (?, ?, ?, ?)")) {
+                for (ExtractedSearchParams.StringValue string : extracted.strings()) {
+                    insert.setString(1, fhirId);
+                    insert.setString(2, string.param());
+                    insert.setString(3, string.normalized());
+                    insert.setString(4, string.exact());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
     }
 
-    public List<PractitionerEntity> findBySpecialty(String specialtyCode) {
-        return list("specialtyCode = ?1 and active = true", specialtyCode);
+    /**
+     * Soft-deletes the active practitioners among fhirIds in one statement: the UPDATE bumps version_id and keeps
+     * meta.versionId and meta.lastUpdated of fhir_resource in step; the history trigger records the new version in
+     * practitioner_history. Returns the new version of each deleted practitioner; unknown or already deleted ids are
+     * absent.
+     */
+    public Map<String, Long> softDelete(Collection<String> fhirIds) {
+        return store.softDelete(getEntityManager(), SOFT_DELETE_SQL, fhirIds);
     }
 
-    public Optional<PractitionerEntity> findByEmail(String email) {
-        return find("email = ?1 and active = true", email).firstResultOptional();
+    /**
+     * Makes the current transaction read-only; call it before the first query of a search.
+     */
+    public void readOnly() {
+        store.readOnly(getEntityManager());
     }
 
-    public List<PractitionerEntity> findAllActive() {
-        return list("active = true order by familyName, givenName");
+    private Stream<String> streamResources(String where, Object... params) {
+        return store.streamResources(getEntityManager(), PractitionerEntity.class, where, params);
     }
 
-    public void softDelete(String fhirId) {
-        update("active = false, lastUpdated = ?1 where fhirId = ?2",
-               LocalDateTime.now(), fhirId);
+    private Optional<String> firstResource(String where, Object... params) {
+        return store.firstResource(getEntityManager(), PractitionerEntity.class, where, params);
     }
 }
@@ -0,0 +1,33 @@
+package com.redhat.healthcare.practitioner.dto;
+
+import org.hl7.fhir.r4.model.Practitioner;
+
+/**
+ * A near-search match with its great-circle distance from the search point.
+ */
+public class PractitionerDistance {
+
+    private Practitioner practitioner;
+    private double distanceKm;
+
+    public PractitionerDistance(Practitioner practitioner, double distanceKm) {
+        this.practitioner = practitioner;
+        this.distanceKm = distanceKm;
+    }
+
+    public Practitioner getPractitioner() {
+        return practitioner;
+    }
+
+    public void setPractitioner(Practitioner practitioner) {
+        this.practitioner = practitioner;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
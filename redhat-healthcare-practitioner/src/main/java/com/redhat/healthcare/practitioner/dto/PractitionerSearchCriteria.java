@@ -1,15 +1,31 @@
 package com.redhat.healthcare.practitioner.dto;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class PractitionerSearchCriteria {
 
+    private List<String> ids;
     private String identifierSystem;
     private String identifier;
     private String npi;
-    private String name;
-    private String family;
-    private String given;
     private String email;
     private String specialty;
+    private Double nearLatitude;
+    private Double nearLongitude;
+    private Double nearDistanceKm;
+    private Integer count;
+    // Parameters served from the practitioner_idx_* tables, keyed by name (with modifier, if any)
+    private Map<String, List<String>> indexedParams = new LinkedHashMap<>();
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
 
     public String getIdentifierSystem() {
         return identifierSystem;
@@ -35,43 +51,59 @@ public class PractitionerSearchCriteria {
         this.npi = npi;
     }
 
-    public String getName() {
-        return name;
+    public String getEmail() {
+        return email;
     }
 
-    public void setName(String name) {
-        this.name = name;
+    public void setEmail(String email) {
+        this.email = email;
     }
 
-    public String getFamily() {
-        return family;
+    public String getSpecialty() {
+        return specialty;
     }
 
-    public void setFamily(String family) {
-        this.family = family;
+    public void setSpecialty(String specialty) {
+        this.specialty = specialty;
     }
 
-    public String getGiven() {
-        return given;
+    public Double getNearLatitude() {
+        return nearLatitude;
     }
 
-    public void setGiven(String given) {
-        this.given = given;
+    public void setNearLatitude(Double nearLatitude) {
+        this.nearLatitude = nearLatitude;
     }
 
-    public String getEmail() {
-        return email;
+    public Double getNearLongitude() {
+        return nearLongitude;
     }
 
-    public void setEmail(String email) {
-        this.email = email;
+    public void setNearLongitude(Double nearLongitude) {
+        this.nearLongitude = nearLongitude;
     }
 
-    public String getSpecialty() {
-        return specialty;
+    public Double getNearDistanceKm() {
+        return nearDistanceKm;
     }
 
-    public void setSpecialty(String specialty) {
-        this.specialty = specialty;
+    public void setNearDistanceKm(Double nearDistanceKm) {
+        this.nearDistanceKm = nearDistanceKm;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public Map<String, List<String>> getIndexedParams() {
+        return indexedParams;
+    }
+
+    public void setIndexedParams(Map<String, List<String>> indexedParams) {
+        this.indexedParams = indexedParams;
     }
 }
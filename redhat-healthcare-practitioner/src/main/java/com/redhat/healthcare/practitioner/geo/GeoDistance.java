@@ -0,0 +1,37 @@
+package com.redhat.healthcare.practitioner.geo;
+
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double KM_PER_DEGREE_LATITUDE = 111.32;
+
+    private GeoDistance() {
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Converts a FHIR near distance to kilometres. Units follow UCUM; km is the default.
+     */
+    public static double toKm(double distance, String units) {
+        if (units == null || units.isBlank()) {
+            return distance;
+        }
+        return switch (units.trim()) {
+            case "km" -> distance;
+            case "m" -> distance / 1000.0;
+            case "mi", "[mi_i]", "[mi_us]" -> distance * 1.609344;
+            default -> throw new IllegalArgumentException("Unsupported distance unit: " + units);
+        };
+    }
+
+    public static double fromKm(double km, String units) {
+        return km / toKm(1.0, units);
+    }
+}
@@ -0,0 +1,79 @@
+package com.redhat.healthcare.practitioner.geo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable 2-d tree over (latitude, longitude), stored as an implicit balanced tree in one array:
+ * the node of a sub-range is its middle element and the split axis alternates with depth.
+ */
+final class KdTree {
+
+    private static final Comparator<LocatedPractitioner> BY_LATITUDE =
+        Comparator.comparingDouble(LocatedPractitioner::latitude);
+    private static final Comparator<LocatedPractitioner> BY_LONGITUDE =
+        Comparator.comparingDouble(LocatedPractitioner::longitude);
+
+    static final KdTree EMPTY = new KdTree(new LocatedPractitioner[0]);
+
+    private final LocatedPractitioner[] nodes;
+
+    private KdTree(LocatedPractitioner[] nodes) {
+        this.nodes = nodes;
+    }
+
+    static KdTree build(List<LocatedPractitioner> points) {
+        LocatedPractitioner[] nodes = points.toArray(new LocatedPractitioner[0]);
+        build(nodes, 0, nodes.length, 0);
+        return new KdTree(nodes);
+    }
+
+    private static void build(LocatedPractitioner[] nodes, int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        Arrays.sort(nodes, from, to, depth % 2 == 0 ? BY_LATITUDE : BY_LONGITUDE);
+        int mid = (from + to) >>> 1;
+        build(nodes, from, mid, depth + 1);
+        build(nodes, mid + 1, to, depth + 1);
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    List<LocatedPractitioner> points() {
+        return Arrays.asList(nodes);
+    }
+
+    /**
+     * Visits every point inside the latitude/longitude box (inclusive).
+     */
+    void search(double minLat, double maxLat, double minLon, double maxLon, Consumer<LocatedPractitioner> visitor) {
+        search(0, nodes.length, 0, minLat, maxLat, minLon, maxLon, visitor);
+    }
+
+    private void search(int from, int to, int depth, double minLat, double maxLat, double minLon, double maxLon,
+                        Consumer<LocatedPractitioner> visitor) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        LocatedPractitioner node = nodes[mid];
+        if (node.latitude() >= minLat && node.latitude() <= maxLat
+            && node.longitude() >= minLon && node.longitude() <= maxLon) {
+            visitor.accept(node);
+        }
+        double value = depth % 2 == 0 ? node.latitude() : node.longitude();
+        double min = depth % 2 == 0 ? minLat : minLon;
+        double max = depth % 2 == 0 ? maxLat : maxLon;
+        if (min <= value) {
+            search(from, mid, depth + 1, minLat, maxLat, minLon, maxLon, visitor);
+        }
+        if (max >= value) {
+            search(mid + 1, to, depth + 1, minLat, maxLat, minLon, maxLon, visitor);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.redhat.healthcare.practitioner.geo;
+
+/**
+ * The few fields of an active practitioner the spatial index needs.
+ */
+public record LocatedPractitioner(String fhirId, double latitude, double longitude, String specialtyCode) {
+}
@@ -0,0 +1,80 @@
+package com.redhat.healthcare.practitioner.geo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Geocodes postal codes to centroids from a local file, so writes never call an external geocoding service.
+ * Exact 5-digit ZIP codes are preferred; 3-digit prefixes are used as a coarser fallback.
+ */
+@ApplicationScoped
+public class PostalCentroidGeocoder {
+
+    @ConfigProperty(name = "fhir.geo.centroid-file")
+    Optional<String> centroidFile;
+
+    private final Map<String, double[]> centroids = new HashMap<>();
+
+    @PostConstruct
+    void load() {
+        try (InputStream input = open()) {
+            if (input == null) {
+                return;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length >= 3) {
+                    centroids.put(parts[0].trim(), new double[] {
+                        Double.parseDouble(parts[1].trim()),
+                        Double.parseDouble(parts[2].trim())
+                    });
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load postal-code centroids", e);
+        }
+    }
+
+    private InputStream open() throws IOException {
+        if (centroidFile.isPresent()) {
+            return Files.newInputStream(Path.of(centroidFile.get()));
+        }
+        return getClass().getClassLoader().getResourceAsStream("postal-centroids.csv");
+    }
+
+    /**
+     * Returns [latitude, longitude] for the postal code, or empty when neither the ZIP nor its prefix is known.
+     */
+    public Optional<double[]> geocode(String postalCode) {
+        if (postalCode == null) {
+            return Optional.empty();
+        }
+        String zip = postalCode.trim();
+        if (zip.length() > 5) {
+            zip = zip.substring(0, 5);
+        }
+        double[] centroid = centroids.get(zip);
+        if (centroid == null && zip.length() >= 3) {
+            centroid = centroids.get(zip.substring(0, 3));
+        }
+        return Optional.ofNullable(centroid);
+    }
+}
@@ -0,0 +1,183 @@
+package com.redhat.healthcare.practitioner.geo;
+
+import com.redhat.healthcare.practitioner.domain.entity.PractitionerEntity;
+import com.redhat.healthcare.practitioner.domain.repository.PractitionerRepository;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory KD-tree over active practitioners with coordinates, used for {@code near} searches.
+ * <p>
+ * Readers use an immutable snapshot: the tree plus a small overlay of writes made since it was built.
+ * Writes replace the snapshot after their transaction commits and the tree is rebuilt once the overlay
+ * exceeds {@code fhir.geo.index.rebuild-threshold}.
+ */
+@ApplicationScoped
+public class PractitionerSpatialIndex {
+
+    private static final Logger LOG = Logger.getLogger(PractitionerSpatialIndex.class);
+
+    @ConfigProperty(name = "fhir.geo.index.rebuild-threshold", defaultValue = "256")
+    int rebuildThreshold;
+
+    @Inject
+    PractitionerRepository repository;
+
+    @Inject
+    PostalCentroidGeocoder geocoder;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private volatile Snapshot snapshot = new Snapshot(KdTree.EMPTY, Map.of(), Set.of());
+
+    /**
+     * A tree with pending upserts and removals layered on top; ids in either set shadow the tree.
+     */
+    private record Snapshot(KdTree tree, Map<String, LocatedPractitioner> pending, Set<String> removed) {
+    }
+
+    public record Match(String fhirId, double distanceKm) {
+    }
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        List<LocatedPractitioner> points = new ArrayList<>();
+        for (Object[] row : repository.findActiveLocations()) {
+            LocatedPractitioner point = locate((String) row[0], (Double) row[1], (Double) row[2],
+                (String) row[3], (String) row[4]);
+            if (point != null) {
+                points.add(point);
+            }
+        }
+        snapshot = new Snapshot(KdTree.build(points), Map.of(), Set.of());
+        LOG.infof("Spatial index built with %d practitioners", points.size());
+    }
+
+    /**
+     * Active practitioners within radiusKm of the point, nearest first, optionally limited to one specialty code.
+     */
+    public List<Match> near(double latitude, double longitude, double radiusKm, String specialtyCode) {
+        Snapshot current = snapshot;
+
+        double latDelta = radiusKm / GeoDistance.KM_PER_DEGREE_LATITUDE;
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double lonDelta = cosLat < 1e-6 ? 180.0
+            : Math.min(180.0, radiusKm / (GeoDistance.KM_PER_DEGREE_LATITUDE * cosLat));
+
+        List<Match> matches = new ArrayList<>();
+        current.tree().search(latitude - latDelta, latitude + latDelta, longitude - lonDelta, longitude + lonDelta,
+            point -> {
+                if (!current.pending().containsKey(point.fhirId()) && !current.removed().contains(point.fhirId())) {
+                    collect(point, latitude, longitude, radiusKm, specialtyCode, matches);
+                }
+            });
+        current.pending().values()
+            .forEach(point -> collect(point, latitude, longitude, radiusKm, specialtyCode, matches));
+
+        matches.sort(Comparator.comparingDouble(Match::distanceKm));
+        return matches;
+    }
+
+    private void collect(LocatedPractitioner point, double latitude, double longitude, double radiusKm,
+                         String specialtyCode, List<Match> matches) {
+        if (specialtyCode != null && !specialtyCode.equals(point.specialtyCode())) {
+            return;
+        }
+        double distance = GeoDistance.haversineKm(latitude, longitude, point.latitude(), point.longitude());
+        if (distance <= radiusKm) {
+            matches.add(new Match(point.fhirId(), distance));
+        }
+    }
+
+    /**
+     * Reflects a created, updated or deleted practitioner once the current transaction commits.
+     */
+    public void index(PractitionerEntity entity) {
+        String id = entity.fhirId;
+        LocatedPractitioner point = Boolean.FALSE.equals(entity.active) ? null
+            : locate(id, entity.latitude, entity.longitude, entity.postalCode, entity.specialtyCode);
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            apply(id, point);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    apply(id, point);
+                }
+            }
+        });
+    }
+
+    public void remove(String fhirId) {
+        PractitionerEntity removed = new PractitionerEntity();
+        removed.fhirId = fhirId;
+        removed.active = false;
+        index(removed);
+    }
+
+    private synchronized void apply(String id, LocatedPractitioner point) {
+        Snapshot current = snapshot;
+        Map<String, LocatedPractitioner> pending = new HashMap<>(current.pending());
+        Set<String> removed = new HashSet<>(current.removed());
+        if (point != null) {
+            pending.put(id, point);
+            removed.remove(id);
+        } else {
+            pending.remove(id);
+            removed.add(id);
+        }
+
+        if (pending.size() + removed.size() > rebuildThreshold) {
+            snapshot = new Snapshot(rebuild(current.tree(), pending, removed), Map.of(), Set.of());
+        } else {
+            snapshot = new Snapshot(current.tree(), Map.copyOf(pending), Set.copyOf(removed));
+        }
+    }
+
+    private KdTree rebuild(KdTree tree, Map<String, LocatedPractitioner> pending, Set<String> removed) {
+        List<LocatedPractitioner> points = new ArrayList<>(tree.size() + pending.size());
+        for (LocatedPractitioner point : tree.points()) {
+            if (!pending.containsKey(point.fhirId()) && !removed.contains(point.fhirId())) {
+                points.add(point);
+            }
+        }
+        points.addAll(pending.values());
+        return KdTree.build(points);
+    }
+
+    private LocatedPractitioner locate(String fhirId, Double latitude, Double longitude,
+                                       String postalCode, String specialtyCode) {
+        if (latitude == null || longitude == null) {
+            double[] centroid = geocoder.geocode(postalCode).orElse(null);
+            if (centroid == null) {
+                return null;
+            }
+            latitude = centroid[0];
+            longitude = centroid[1];
+        }
+        return new LocatedPractitioner(fhirId, latitude, longitude, specialtyCode);
+    }
+}
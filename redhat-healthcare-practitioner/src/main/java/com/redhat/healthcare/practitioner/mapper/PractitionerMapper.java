@@ -1,7 +1,9 @@
 package com.redhat.healthcare.practitioner.mapper;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.store.ResourceMapping;
 import com.redhat.healthcare.practitioner.domain.entity.PractitionerEntity;
+import com.redhat.healthcare.practitioner.geo.PostalCentroidGeocoder;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.hl7.fhir.r4.model.*;
@@ -12,11 +14,22 @@ import java.time.ZoneId;
 import java.util.Date;
 
 @ApplicationScoped
-public class PractitionerMapper {
+public class PractitionerMapper implements ResourceMapping<Practitioner, PractitionerEntity> {
+
+    static final String GEOLOCATION_URL = "http://hl7.org/fhir/StructureDefinition/geolocation";
 
     @Inject
     IParser jsonParser;
 
+    @Inject
+    PostalCentroidGeocoder geocoder;
+
+    @Override
+    public Class<Practitioner> resourceType() {
+        return Practitioner.class;
+    }
+
+    @Override
     public PractitionerEntity toEntity(Practitioner practitioner) {
         PractitionerEntity entity = new PractitionerEntity();
 
@@ -127,6 +140,19 @@ public class PractitionerMapper {
             if (address.hasCountry()) {
                 entity.country = address.getCountry();
             }
+
+            // Coordinates: explicit geolocation extension, otherwise the postal-code centroid
+            Extension geolocation = address.getExtensionByUrl(GEOLOCATION_URL);
+            if (geolocation != null) {
+                entity.latitude = decimalExtension(geolocation, "latitude");
+                entity.longitude = decimalExtension(geolocation, "longitude");
+            }
+            if (entity.latitude == null || entity.longitude == null) {
+                geocoder.geocode(entity.postalCode).ifPresent(centroid -> {
+                    entity.latitude = centroid[0];
+                    entity.longitude = centroid[1];
+                });
+            }
         }
 
         entity.lastUpdated = LocalDateTime.now();
@@ -135,7 +161,20 @@ public class PractitionerMapper {
     }
 
     public Practitioner toFhir(PractitionerEntity entity) {
-        return jsonParser.parseResource(Practitioner.class, entity.fhirResource);
+        return toFhir(entity.fhirResource);
+    }
+
+    @Override
+    public Practitioner toFhir(String fhirResource) {
+        return jsonParser.parseResource(Practitioner.class, fhirResource);
+    }
+
+    private Double decimalExtension(Extension parent, String url) {
+        Extension extension = parent.getExtensionByUrl(url);
+        if (extension != null && extension.getValue() instanceof DecimalType decimal && decimal.getValue() != null) {
+            return decimal.getValue().doubleValue();
+        }
+        return null;
     }
 
     private LocalDate convertToLocalDate(Date date) {
@@ -1,37 +1,75 @@
 package com.redhat.healthcare.practitioner.resource;
 
 import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.rest.FhirBinaryEncodingFilter;
+import com.redhat.healthcare.fhir.rest.ResourceResponses;
+import com.redhat.healthcare.fhir.rest.SearchBundleWriter;
+import com.redhat.healthcare.fhir.search.IdentifierCondition;
+import com.redhat.healthcare.fhir.search.SearchIndexQuery;
+import com.redhat.healthcare.fhir.search.SearchParamType;
+import com.redhat.healthcare.fhir.service.ResponseCompressionService;
+import com.redhat.healthcare.fhir.store.EncodedResource;
+import com.redhat.healthcare.fhir.store.WriteResult;
+import com.redhat.healthcare.practitioner.dto.PractitionerDistance;
 import com.redhat.healthcare.practitioner.dto.PractitionerSearchCriteria;
+import com.redhat.healthcare.practitioner.geo.GeoDistance;
+import com.redhat.healthcare.practitioner.search.PractitionerSearchParameters;
 import com.redhat.healthcare.practitioner.service.PractitionerService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Distance;
+import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Practitioner;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Path("/fhir/Practitioner")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, FhirBinaryEncodingFilter.FHIR_CBOR, FhirBinaryEncodingFilter.FHIR_SMILE})
 @Consumes(MediaType.APPLICATION_JSON)
 @Tag(name = "Practitioner", description = "FHIR Practitioner Resource Operations")
 public class PractitionerResource {
 
+    static final String LOCATION_DISTANCE_URL = "http://hl7.org/fhir/StructureDefinition/location-distance";
+    static final String UCUM_SYSTEM = "http://unitsofmeasure.org";
+
     @Inject
     PractitionerService practitionerService;
 
     @Inject
     IParser jsonParser;
 
+    @Inject
+    ResponseCompressionService compressionService;
+
     @POST
-    @Operation(summary = "Create a new Practitioner resource")
-    public Response create(String practitionerJson) {
+    @Operation(summary = "Create a new Practitioner resource",
+               description = "With If-None-Exist: identifier=[system|]value, returns the matching practitioner (200) " +
+                             "instead of creating a duplicate. A create whose identifier an active practitioner " +
+                             "already holds fails with 409.")
+    public Response create(@HeaderParam("If-None-Exist") String ifNoneExist, String practitionerJson) {
         Practitioner practitioner = jsonParser.parseResource(Practitioner.class, practitionerJson);
-        Practitioner created = practitionerService.createPractitioner(practitioner);
+        if (ifNoneExist != null && !ifNoneExist.isBlank()) {
+            WriteResult<Practitioner> result = practitionerService.createIfNoneExist(practitioner,
+                IdentifierCondition.fromQuery(ifNoneExist));
+            return ResourceResponses.written(jsonParser, result);
+        }
+        Practitioner created = practitionerService.create(practitioner);
 
         String location = "/fhir/Practitioner/" + created.getIdElement().getIdPart();
 
@@ -44,9 +82,25 @@ public class PractitionerResource {
     @GET
     @Path("/{id}")
     @Operation(summary = "Read a Practitioner resource by ID")
-    public Response read(@PathParam("id") String id) {
-        Practitioner practitioner = practitionerService.getPractitioner(id);
-        return Response.ok(jsonParser.encodeResourceToString(practitioner)).build();
+    public Response read(@PathParam("id") String id,
+                         @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+                         @Context HttpHeaders headers) {
+        boolean binary = FhirBinaryEncodingFilter.prefersBinary(headers);
+        String coding = binary ? ResponseCompressionService.IDENTITY : compressionService.negotiate(acceptEncoding);
+        EncodedResource encoded = practitionerService.getPractitionerEncoded(id, coding);
+        if (!encoded.has(coding)) {
+            coding = ResponseCompressionService.IDENTITY;
+        }
+        // Binary encodings are transcoded from the identity bytes by FhirBinaryEncodingFilter
+        Response.ResponseBuilder response = Response.ok(encoded.bytesFor(coding))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.getVersionId() != null) {
+            response.tag(new EntityTag(encoded.getVersionId(), true));
+        }
+        if (!ResponseCompressionService.IDENTITY.equals(coding)) {
+            response.header(HttpHeaders.CONTENT_ENCODING, coding);
+        }
+        return response.build();
     }
 
     @PUT
@@ -54,11 +108,24 @@ public class PractitionerResource {
     @Operation(summary = "Update a Practitioner resource")
     public Response update(@PathParam("id") String id, String practitionerJson) {
         Practitioner practitioner = jsonParser.parseResource(Practitioner.class, practitionerJson);
-        Practitioner updated = practitionerService.updatePractitioner(id, practitioner);
+        Practitioner updated = practitionerService.update(id, practitioner);
 
         return Response.ok(jsonParser.encodeResourceToString(updated)).build();
     }
 
+    @PUT
+    @Operation(summary = "Conditionally update a Practitioner resource",
+               description = "Updates the practitioner found by identifier=[system|]value, creates it when none " +
+                             "matches, and fails with 412 when several do")
+    public Response conditionalUpdate(@QueryParam("identifier") String identifier, String practitionerJson) {
+        if (identifier == null || identifier.isBlank()) {
+            throw new FhirValidationException("Conditional update requires an identifier search parameter");
+        }
+        Practitioner practitioner = jsonParser.parseResource(Practitioner.class, practitionerJson);
+        IdentifierCondition condition = IdentifierCondition.fromToken(identifier);
+        return ResourceResponses.written(jsonParser, practitionerService.conditionalUpdate(condition, practitioner));
+    }
+
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a Practitioner resource (soft delete)")
@@ -67,37 +134,115 @@ public class PractitionerResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/$delete")
+    @Operation(summary = "Delete many Practitioner resources (soft delete)",
+               description = "Deletes the practitioners named by the id parameters of a Parameters resource in one " +
+                             "statement. The batch-response Bundle has one entry per id: 204, or 404 when the " +
+                             "practitioner is unknown or already deleted.")
+    public Response deleteBatch(String parametersJson) {
+        List<String> ids = ResourceResponses.deleteIds(jsonParser.parseResource(Parameters.class, parametersJson));
+        Map<String, Long> deleted = practitionerService.deletePractitioners(ids);
+        Bundle outcome = ResourceResponses.deleteOutcome("Practitioner", ids, deleted);
+        return Response.ok(jsonParser.encodeResourceToString(outcome)).build();
+    }
+
     @GET
     @Operation(summary = "Search for Practitioner resources",
-               description = "Search using FHIR parameters: identifier, npi, name, family, given, email, specialty")
+               description = "Search using FHIR parameters: _id (comma-separated), identifier, npi, email, specialty, "
+                   + "near (latitude|longitude|distance|units, combinable with specialty), and the indexed "
+                   + "name, family, given, address, address-city, address-state, address-postalcode, "
+                   + "address-country (with :exact and :contains), telecom, phone, gender, communication; "
+                   + "_count caps the matches returned")
     public Response search(
+        @QueryParam("_id") String ids,
         @QueryParam("identifier") String identifier,
         @QueryParam("npi") String npi,
-        @QueryParam("name") String name,
-        @QueryParam("family") String family,
-        @QueryParam("given") String given,
         @QueryParam("email") String email,
-        @QueryParam("specialty") String specialty
+        @QueryParam("specialty") String specialty,
+        @QueryParam("near") String near,
+        @QueryParam("_count") Integer count,
+        @Context UriInfo uriInfo
     ) {
         PractitionerSearchCriteria criteria = new PractitionerSearchCriteria();
+        if (ids != null && !ids.isBlank()) {
+            criteria.setIds(Arrays.stream(ids.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .collect(Collectors.toList()));
+        }
         criteria.setIdentifier(identifier);
         criteria.setNpi(npi);
-        criteria.setName(name);
-        criteria.setFamily(family);
-        criteria.setGiven(given);
         criteria.setEmail(email);
         criteria.setSpecialty(specialty);
+        criteria.setCount(count);
+        try {
+            for (Map.Entry<String, List<String>> param : uriInfo.getQueryParameters().entrySet()) {
+                SearchParamType type = PractitionerSearchParameters.INDEXED.get(param.getKey().split(":", 2)[0]);
+                if (type != null) {
+                    // Parsed here so a malformed value is a 400 rather than a failure building the query
+                    SearchIndexQuery.toSql(PractitionerSearchParameters.RESOURCE_PREFIX, param.getKey(), type,
+                        param.getValue(), "sp", new HashMap<>());
+                    criteria.getIndexedParams().put(param.getKey(), param.getValue());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new FhirValidationException(e.getMessage());
+        }
+
+        if (near != null && !near.isEmpty()) {
+            return searchNear(criteria, near);
+        }
+
+        StreamingOutput body = out -> {
+            SearchBundleWriter bundle = new SearchBundleWriter(out, jsonParser);
+            practitionerService.searchPractitioners(criteria, bundle::match);
+            bundle.finish();
+        };
+        return Response.ok(body).build();
+    }
 
-        List<Practitioner> practitioners = practitionerService.searchPractitioners(criteria);
+    private Response searchNear(PractitionerSearchCriteria criteria, String near) {
+        String[] parts = near.split("\\|", -1);
+        if (parts.length < 3 || parts.length > 4) {
+            throw new FhirValidationException("near must be latitude|longitude|distance|units: " + near);
+        }
+        String units = parts.length == 4 && !parts[3].isBlank() ? parts[3].trim() : "km";
+        try {
+            double latitude = Double.parseDouble(parts[0].trim());
+            double longitude = Double.parseDouble(parts[1].trim());
+            double distance = Double.parseDouble(parts[2].trim());
+            if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180 || distance < 0) {
+                throw new FhirValidationException("near coordinates or distance out of range: " + near);
+            }
+            criteria.setNearLatitude(latitude);
+            criteria.setNearLongitude(longitude);
+            criteria.setNearDistanceKm(GeoDistance.toKm(distance, units));
+        } catch (IllegalArgumentException e) {
+            throw new FhirValidationException("Invalid near parameter: " + e.getMessage());
+        }
+
+        List<PractitionerDistance> matches = practitionerService.searchNear(criteria);
 
         Bundle bundle = new Bundle();
         bundle.setType(Bundle.BundleType.SEARCHSET);
-        bundle.setTotal(practitioners.size());
+        bundle.setTotal(matches.size());
 
-        practitioners.forEach(practitioner -> {
+        matches.forEach(match -> {
+            Practitioner practitioner = match.getPractitioner();
             Bundle.BundleEntryComponent entry = bundle.addEntry();
             entry.setResource(practitioner);
             entry.setFullUrl("/fhir/Practitioner/" + practitioner.getIdElement().getIdPart());
+
+            Distance distance = new Distance();
+            distance.setValue(Math.round(GeoDistance.fromKm(match.getDistanceKm(), units) * 1000) / 1000.0);
+            distance.setUnit(units);
+            distance.setSystem(UCUM_SYSTEM);
+            distance.setCode(units.equals("mi") ? "[mi_i]" : units);
+            entry.getSearch()
+                .setMode(Bundle.SearchEntryMode.MATCH)
+                .addExtension(LOCATION_DISTANCE_URL, distance);
         });
 
         return Response.ok(jsonParser.encodeResourceToString(bundle)).build();
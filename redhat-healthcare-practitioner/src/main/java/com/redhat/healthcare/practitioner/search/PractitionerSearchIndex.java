@@ -0,0 +1,74 @@
+package com.redhat.healthcare.practitioner.search;
+
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.practitioner.domain.entity.PractitionerEntity;
+import com.redhat.healthcare.practitioner.domain.repository.PractitionerRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Maintains the practitioner_idx_* search index tables. Rows are replaced in the same transaction as the
+ * practitioner write; rows with a NULL search_index_version (stored before the index existed, or reset by a
+ * migration after the extraction changes) are indexed at startup.
+ */
+@ApplicationScoped
+public class PractitionerSearchIndex {
+
+    private static final Logger LOG = Logger.getLogger(PractitionerSearchIndex.class);
+
+    // Bump, and reset practitioners.search_index_version to NULL in a migration, when the extraction changes
+    public static final short VERSION = 1;
+
+    @Inject
+    PractitionerRepository repository;
+
+    @Inject
+    IParser jsonParser;
+
+    void onStart(@Observes StartupEvent event) {
+        int indexed = reindex();
+        if (indexed > 0) {
+            LOG.infof("Search index: indexed %d existing practitioners", indexed);
+        }
+    }
+
+    public void index(PractitionerEntity entity, Practitioner practitioner) {
+        repository.replaceSearchIndex(entity.fhirId, PractitionerSearchParameters.extract(practitioner));
+        entity.searchIndexVersion = VERSION;
+    }
+
+    // Keyset-paged by fhir_id, one short transaction per page
+    private int reindex() {
+        int total = 0;
+        String after = "";
+        while (true) {
+            String from = after;
+            List<Object[]> rows = QuarkusTransaction.requiringNew().call(() -> {
+                List<Object[]> page = repository.findUnindexed(from, 500);
+                for (Object[] row : page) {
+                    String fhirId = (String) row[0];
+                    try {
+                        Practitioner practitioner = jsonParser.parseResource(Practitioner.class, (String) row[1]);
+                        repository.replaceSearchIndex(fhirId, PractitionerSearchParameters.extract(practitioner));
+                        repository.setSearchIndexVersion(fhirId, VERSION);
+                    } catch (RuntimeException e) {
+                        LOG.warnf("Cannot index Practitioner/%s: %s", fhirId, e.getMessage());
+                    }
+                }
+                return page;
+            });
+            if (rows.isEmpty()) {
+                return total;
+            }
+            total += rows.size();
+            after = (String) rows.get(rows.size() - 1)[0];
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.redhat.healthcare.practitioner.search;
+
+import com.redhat.healthcare.fhir.search.ExtractedSearchParams;
+import com.redhat.healthcare.fhir.search.SearchParamType;
+import org.hl7.fhir.r4.model.Address;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.StringType;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Practitioner search parameters served from the practitioner_idx_* tables, and their extraction.
+ * Unlike the extracted columns, which hold only the first name, address and telecom, every repetition
+ * is indexed. identifier, npi, email and specialty are still searched on their columns.
+ */
+public final class PractitionerSearchParameters {
+
+    public static final String RESOURCE_PREFIX = "practitioner";
+
+    public static final Map<String, SearchParamType> INDEXED = Map.ofEntries(
+        Map.entry("name", SearchParamType.STRING),
+        Map.entry("family", SearchParamType.STRING),
+        Map.entry("given", SearchParamType.STRING),
+        Map.entry("address", SearchParamType.STRING),
+        Map.entry("address-city", SearchParamType.STRING),
+        Map.entry("address-state", SearchParamType.STRING),
+        Map.entry("address-postalcode", SearchParamType.STRING),
+        Map.entry("address-country", SearchParamType.STRING),
+        Map.entry("telecom", SearchParamType.TOKEN),
+        Map.entry("phone", SearchParamType.TOKEN),
+        Map.entry("gender", SearchParamType.TOKEN),
+        Map.entry("communication", SearchParamType.TOKEN)
+    );
+
+    // The practitioner_idx_* tables that exist, one per type in INDEXED
+    public static final Set<SearchParamType> INDEX_TABLES = EnumSet.of(SearchParamType.TOKEN, SearchParamType.STRING);
+
+    private PractitionerSearchParameters() {
+    }
+
+    public static ExtractedSearchParams extract(Practitioner practitioner) {
+        ExtractedSearchParams params = new ExtractedSearchParams();
+
+        for (HumanName name : practitioner.getName()) {
+            params.string("name", name.getText());
+            params.string("name", name.getFamily());
+            params.string("family", name.getFamily());
+            for (StringType given : name.getGiven()) {
+                params.string("name", given.getValue());
+                params.string("given", given.getValue());
+            }
+            name.getPrefix().forEach(prefix -> params.string("name", prefix.getValue()));
+            name.getSuffix().forEach(suffix -> params.string("name", suffix.getValue()));
+        }
+
+        for (Address address : practitioner.getAddress()) {
+            address.getLine().forEach(line -> params.string("address", line.getValue()));
+            params.string("address", address.getText());
+            params.string("address", address.getCity());
+            params.string("address", address.getDistrict());
+            params.string("address", address.getState());
+            params.string("address", address.getPostalCode());
+            params.string("address", address.getCountry());
+            params.string("address-city", address.getCity());
+            params.string("address-state", address.getState());
+            params.string("address-postalcode", address.getPostalCode());
+            params.string("address-country", address.getCountry());
+        }
+
+        // ContactPoint tokens are matched on value only
+        for (ContactPoint telecom : practitioner.getTelecom()) {
+            params.token("telecom", null, telecom.getValue());
+            if (telecom.getSystem() == ContactPoint.ContactPointSystem.PHONE) {
+                params.token("phone", null, telecom.getValue());
+            }
+        }
+
+        if (practitioner.hasGender()) {
+            params.token("gender", practitioner.getGender().getSystem(), practitioner.getGender().toCode());
+        }
+        for (CodeableConcept language : practitioner.getCommunication()) {
+            params.token("communication", language);
+        }
+        return params;
+    }
+}
@@ -1,22 +1,38 @@
 package com.redhat.healthcare.practitioner.service;
 
+import ca.uhn.fhir.parser.IParser;
+import com.redhat.healthcare.fhir.exception.FhirValidationException;
+import com.redhat.healthcare.fhir.exception.ResourceNotFoundException;
+import com.redhat.healthcare.fhir.service.FhirParserService;
+import com.redhat.healthcare.fhir.service.FhirValidationService;
+import com.redhat.healthcare.fhir.service.IdentifierKeyedService;
+import com.redhat.healthcare.fhir.store.EncodedResource;
+import com.redhat.healthcare.fhir.store.EncodedResourceCache;
 import com.redhat.healthcare.practitioner.domain.entity.PractitionerEntity;
 import com.redhat.healthcare.practitioner.domain.repository.PractitionerRepository;
+import com.redhat.healthcare.practitioner.dto.PractitionerDistance;
 import com.redhat.healthcare.practitioner.dto.PractitionerSearchCriteria;
-import com.redhat.healthcare.practitioner.exception.ResourceNotFoundException;
+import com.redhat.healthcare.practitioner.geo.PractitionerSpatialIndex;
 import com.redhat.healthcare.practitioner.mapper.PractitionerMapper;
+import com.redhat.healthcare.practitioner.search.PractitionerSearchIndex;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Practitioner;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
-public class PractitionerService {
+public class PractitionerService extends IdentifierKeyedService<Practitioner, PractitionerEntity> {
 
     @Inject
     PractitionerRepository repository;
@@ -30,101 +46,205 @@ public class PractitionerService {
     @Inject
     PractitionerMapper mapper;
 
-    @Transactional
-    public Practitioner createPractitioner(Practitioner practitioner) {
+    @Inject
+    IParser jsonParser;
+
+    @Inject
+    EncodedResourceCache encodedCache;
+
+    @Inject
+    PractitionerSpatialIndex spatialIndex;
+
+    @Inject
+    PractitionerSearchIndex searchIndex;
+
+    @ConfigProperty(name = "fhir.delete.max-ids", defaultValue = "1000")
+    int deleteMaxIds;
+
+    @Override
+    protected String resourceType() {
+        return "Practitioner";
+    }
+
+    @Override
+    protected Identifier identifier(Practitioner practitioner) {
+        return practitioner.hasIdentifier() ? practitioner.getIdentifierFirstRep() : null;
+    }
+
+    @Override
+    protected List<PractitionerEntity> findActiveByIdentifier(String system, String value) {
+        return repository.findActiveByIdentifier(system, value);
+    }
+
+    @Override
+    protected Optional<PractitionerEntity> findActiveHolder(String system, String value) {
+        return repository.findActiveHolder(system, value);
+    }
+
+    @Override
+    protected String fhirId(PractitionerEntity entity) {
+        return entity.fhirId;
+    }
+
+    @Override
+    protected Practitioner toFhir(PractitionerEntity entity) {
+        return mapper.toFhir(entity);
+    }
+
+    @Override
+    protected PractitionerEntity prepareCreate(Practitioner practitioner) {
         validationService.validateOrThrow(practitioner);
 
         if (practitioner.getId() == null || practitioner.getId().isEmpty()) {
             practitioner.setId(parserService.generateId());
         }
-
-        if (practitioner.getMeta() == null) {
-            practitioner.setMeta(new org.hl7.fhir.r4.model.Meta());
-        }
-        practitioner.getMeta().setVersionId("1");
-        practitioner.getMeta().setLastUpdated(new Date());
+        stamp(practitioner, 1L);
 
         PractitionerEntity entity = mapper.toEntity(practitioner);
         entity.versionId = 1L;
         entity.createdAt = LocalDateTime.now();
         entity.lastUpdated = LocalDateTime.now();
+        return entity;
+    }
 
-        repository.persist(entity);
-
-        return practitioner;
+    // Index rows are written only once the row exists, so a create that loses to an existing identifier
+    // leaves none behind
+    @Override
+    protected boolean insert(PractitionerEntity entity, Practitioner practitioner) {
+        entity.searchIndexVersion = PractitionerSearchIndex.VERSION;
+        if (!repository.insertIfIdentifierFree(entity)) {
+            return false;
+        }
+        searchIndex.index(entity, practitioner);
+        spatialIndex.index(entity);
+        return true;
     }
 
+    @Override
     @Transactional
-    public Practitioner updatePractitioner(String id, Practitioner practitioner) {
+    public Practitioner update(String id, Practitioner practitioner) {
         PractitionerEntity existing = repository.findByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Practitioner/" + id));
 
         validationService.validateOrThrow(practitioner);
 
         practitioner.setId(id);
+        rejectIdentifierHeldByAnother(id, practitioner);
 
         Long newVersion = existing.versionId + 1;
-        if (practitioner.getMeta() == null) {
-            practitioner.setMeta(new org.hl7.fhir.r4.model.Meta());
-        }
-        practitioner.getMeta().setVersionId(newVersion.toString());
-        practitioner.getMeta().setLastUpdated(new Date());
+        stamp(practitioner, newVersion);
 
         PractitionerEntity updated = mapper.toEntity(practitioner);
         updated.versionId = newVersion;
         updated.lastUpdated = LocalDateTime.now();
         updated.createdAt = existing.createdAt;
+        searchIndex.index(updated, practitioner);
 
         repository.persist(updated);
+        encodedCache.invalidate(id, newVersion);
+        spatialIndex.index(updated);
 
         return practitioner;
     }
 
     public Practitioner getPractitioner(String id) {
-        PractitionerEntity entity = repository.findByFhirId(id)
+        String resource = repository.findResourceByFhirId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Practitioner/" + id));
 
-        return mapper.toFhir(entity);
+        return mapper.toFhir(resource);
+    }
+
+    /**
+     * Returns the encoded Practitioner holding the bytes for the negotiated coding, encoding and compressing only what
+     * the cache does not hold yet. A cached encoding is only served while its version is still the stored one.
+     */
+    public EncodedResource getPractitionerEncoded(String id, String coding) {
+        return encodedCache.get(id, coding, () -> repository.findVersionByFhirId(id).orElse(null), () -> {
+            Practitioner practitioner = getPractitioner(id);
+            byte[] json = jsonParser.encodeResourceToString(practitioner).getBytes(StandardCharsets.UTF_8);
+            return new EncodedResource(practitioner.getMeta().getVersionId(), json);
+        });
     }
 
     @Transactional
     public void deletePractitioner(String id) {
-        if (!repository.findByFhirId(id).isPresent()) {
+        Map<String, Long> deleted = repository.softDelete(List.of(id));
+        if (deleted.isEmpty()) {
             throw new ResourceNotFoundException("Practitioner/" + id);
         }
-        repository.softDelete(id);
+        deleted.forEach(encodedCache::invalidate);
+        spatialIndex.remove(id);
     }
 
-    public List<Practitioner> searchPractitioners(PractitionerSearchCriteria criteria) {
-        List<PractitionerEntity> entities;
+    /**
+     * Deletes many practitioners with one statement. Returns the new version of each deleted practitioner; ids that are
+     * unknown or already deleted are absent.
+     */
+    @Transactional
+    public Map<String, Long> deletePractitioners(List<String> ids) {
+        if (ids.size() > deleteMaxIds) {
+            throw new FhirValidationException("At most " + deleteMaxIds + " ids can be deleted at once");
+        }
+        Map<String, Long> deleted = repository.softDelete(ids);
+        deleted.forEach(encodedCache::invalidate);
+        deleted.keySet().forEach(spatialIndex::remove);
+        return deleted;
+    }
 
-        if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
-            entities = repository.findByIdentifier(
+    /**
+     * Passes each match to matches as it is fetched, stopping after criteria's count when one is given. Runs in a
+     * read-only transaction so the driver can fetch the matches through a cursor while they are parsed.
+     */
+    @Transactional
+    public void searchPractitioners(PractitionerSearchCriteria criteria, Consumer<Practitioner> matches) {
+        repository.readOnly();
+        try (Stream<String> resources = findResources(criteria)) {
+            Stream<String> page = criteria.getCount() != null ? resources.limit(Math.max(0, criteria.getCount()))
+                : resources;
+            page.map(mapper::toFhir).forEach(matches);
+        }
+    }
+
+    private Stream<String> findResources(PractitionerSearchCriteria criteria) {
+        if (criteria.getIds() != null && !criteria.getIds().isEmpty()) {
+            return repository.findByFhirIds(criteria.getIds());
+        } else if (criteria.getIdentifier() != null && !criteria.getIdentifier().isEmpty()) {
+            return repository.findByIdentifier(
                 criteria.getIdentifierSystem(),
                 criteria.getIdentifier()
             );
         } else if (criteria.getNpi() != null && !criteria.getNpi().isEmpty()) {
-            entities = repository.findByNpi(criteria.getNpi())
-                .map(List::of)
-                .orElse(List.of());
-        } else if (criteria.getName() != null && !criteria.getName().isEmpty()) {
-            entities = repository.findByName(criteria.getName());
-        } else if (criteria.getFamily() != null && !criteria.getFamily().isEmpty()) {
-            entities = repository.findByFamilyName(criteria.getFamily());
-        } else if (criteria.getGiven() != null && !criteria.getGiven().isEmpty()) {
-            entities = repository.findByGivenName(criteria.getGiven());
+            return repository.findByNpi(criteria.getNpi()).stream();
+        } else if (!criteria.getIndexedParams().isEmpty()) {
+            return repository.findByIndexedParams(criteria.getIndexedParams(), criteria.getSpecialty());
         } else if (criteria.getEmail() != null && !criteria.getEmail().isEmpty()) {
-            entities = repository.findByEmail(criteria.getEmail())
-                .map(List::of)
-                .orElse(List.of());
+            return repository.findByEmail(criteria.getEmail()).stream();
         } else if (criteria.getSpecialty() != null && !criteria.getSpecialty().isEmpty()) {
-            entities = repository.findBySpecialty(criteria.getSpecialty());
-        } else {
-            entities = repository.findAllActive();
+            return repository.findBySpecialty(criteria.getSpecialty());
         }
+        return repository.findAllActive();
+    }
+
+    /**
+     * Resolves a near search against the spatial index, then loads the matches nearest first.
+     * The specialty criterion, when present, is applied within the index.
+     */
+    public List<PractitionerDistance> searchNear(PractitionerSearchCriteria criteria) {
+        String specialty = criteria.getSpecialty() != null && !criteria.getSpecialty().isEmpty()
+            ? criteria.getSpecialty()
+            : null;
+        List<PractitionerSpatialIndex.Match> matches = spatialIndex.near(
+            criteria.getNearLatitude(), criteria.getNearLongitude(), criteria.getNearDistanceKm(), specialty);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> ids = matches.stream().map(PractitionerSpatialIndex.Match::fhirId).toList();
+        Map<String, String> resources = repository.findResourcesByFhirId(ids);
 
-        return entities.stream()
-            .map(mapper::toFhir)
+        return matches.stream()
+            .filter(match -> resources.containsKey(match.fhirId()))
+            .map(match -> new PractitionerDistance(mapper.toFhir(resources.get(match.fhirId())), match.distanceKm()))
             .collect(Collectors.toList());
     }
 }
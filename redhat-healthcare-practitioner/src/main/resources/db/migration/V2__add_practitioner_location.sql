@@ -0,0 +1,6 @@
+-- Coordinates resolved at write time from the address geolocation extension or the postal-code centroid
+ALTER TABLE practitioners ADD COLUMN latitude DOUBLE PRECISION;
+ALTER TABLE practitioners ADD COLUMN longitude DOUBLE PRECISION;
+
+COMMENT ON COLUMN practitioners.latitude IS 'WGS84 latitude of address[0]; loaded into the in-memory spatial index for near searches';
+COMMENT ON COLUMN practitioners.longitude IS 'WGS84 longitude of address[0]; loaded into the in-memory spatial index for near searches';
@@ -0,0 +1,36 @@
+-- Typed search-parameter index tables (see PractitionerSearchParameters / PractitionerSearchIndex). Each row is
+-- one extracted value; searches join on fhir_id. The FK is deferred because index rows are written before
+-- Hibernate flushes the practitioner insert.
+
+CREATE TABLE practitioner_idx_token (
+    fhir_id VARCHAR(64) NOT NULL REFERENCES practitioners(fhir_id) ON DELETE CASCADE DEFERRABLE INITIALLY DEFERRED,
+    param_name VARCHAR(64) NOT NULL,
+    token_system VARCHAR(255),
+    token_value VARCHAR(255) NOT NULL
+);
+CREATE INDEX idx_practitioner_idx_token_value ON practitioner_idx_token(param_name, token_value, token_system) INCLUDE (fhir_id);
+CREATE INDEX idx_practitioner_idx_token_system ON practitioner_idx_token(param_name, token_system) INCLUDE (fhir_id);
+CREATE INDEX idx_practitioner_idx_token_resource ON practitioner_idx_token(fhir_id);
+
+CREATE TABLE practitioner_idx_string (
+    fhir_id VARCHAR(64) NOT NULL REFERENCES practitioners(fhir_id) ON DELETE CASCADE DEFERRABLE INITIALLY DEFERRED,
+    param_name VARCHAR(64) NOT NULL,
+    value_normalized VARCHAR(255) NOT NULL,
+    value_exact VARCHAR(255) NOT NULL
+);
+-- varchar_pattern_ops lets the default prefix match (LIKE 'smi%') use the index under any collation
+CREATE INDEX idx_practitioner_idx_string_normalized
+    ON practitioner_idx_string(param_name, value_normalized varchar_pattern_ops) INCLUDE (fhir_id);
+CREATE INDEX idx_practitioner_idx_string_exact ON practitioner_idx_string(param_name, value_exact) INCLUDE (fhir_id);
+CREATE INDEX idx_practitioner_idx_string_resource ON practitioner_idx_string(fhir_id);
+
+-- NULL until PractitionerSearchIndex has written the practitioner's rows; existing rows are indexed at startup
+ALTER TABLE practitioners ADD COLUMN search_index_version SMALLINT;
+CREATE INDEX idx_practitioner_search_unindexed ON practitioners(fhir_id) WHERE search_index_version IS NULL;
+
+-- Nothing queries the whole document with @> or ?, and the GIN index made every write rewrite posting lists
+DROP INDEX IF EXISTS idx_practitioner_fhir_resource;
+
+COMMENT ON TABLE practitioner_idx_token IS 'Token search parameters (system|code) extracted from practitioners';
+COMMENT ON TABLE practitioner_idx_string IS 'String search parameters extracted from practitioners, normalized and exact';
+COMMENT ON COLUMN practitioners.search_index_version IS 'Extraction version of the practitioner_idx_* rows; NULL = not indexed yet';
@@ -0,0 +1,18 @@
+-- At most one active practitioner per identifier, so retried creates cannot store the same one twice.
+-- Existing duplicates keep their earliest row active; the later copies are retired like a delete.
+UPDATE practitioners p
+SET active = false, last_updated = localtimestamp
+WHERE p.active = true
+  AND p.identifier_system IS NOT NULL
+  AND p.identifier_value IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM practitioners o
+      WHERE o.active = true
+        AND o.identifier_system = p.identifier_system
+        AND o.identifier_value = p.identifier_value
+        AND (o.created_at, o.fhir_id) < (p.created_at, p.fhir_id)
+  );
+
+-- The arbiter index of PractitionerRepository.insertIfIdentifierFree's INSERT ... ON CONFLICT
+CREATE UNIQUE INDEX uq_practitioner_active_identifier ON practitioners(identifier_system, identifier_value)
+    WHERE active = true;
@@ -0,0 +1,28 @@
+-- Identifiers without a system escaped uq_practitioner_active_identifier,
+-- which treated a NULL identifier_system as distinct, so concurrent conditional creates could store them
+-- twice. The index now keys on COALESCE(identifier_system, ''), which PractitionerRepository.insertIfIdentifierFree
+-- names in its conflict target.
+
+-- Duplicates that got in keep their earliest row active; the later copies are soft-deleted like a $delete
+UPDATE practitioners p
+SET active = false,
+    version_id = p.version_id + 1,
+    last_updated = localtimestamp,
+    fhir_resource = jsonb_set(jsonb_set(p.fhir_resource, '{meta,versionId}', to_jsonb(CAST(p.version_id + 1 AS text))),
+                              '{meta,lastUpdated}',
+                              to_jsonb(to_char(now() AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.MS"Z"')))
+WHERE p.active = true
+  AND p.identifier_value IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM practitioners o
+      WHERE o.active = true
+        AND COALESCE(o.identifier_system, '') = COALESCE(p.identifier_system, '')
+        AND o.identifier_value = p.identifier_value
+        AND (o.created_at, o.fhir_id) < (p.created_at, p.fhir_id)
+  );
+
+DROP INDEX uq_practitioner_active_identifier;
+
+CREATE UNIQUE INDEX uq_practitioner_active_identifier
+    ON practitioners((COALESCE(identifier_system, '')), identifier_value)
+    WHERE active = true;
@@ -0,0 +1,69 @@
+package com.redhat.healthcare.practitioner.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KdTreeTest {
+
+    @Test
+    void boxSearchMatchesAFullScan() {
+        Random random = new Random(7);
+        List<LocatedPractitioner> points = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // Coarse grid, so many points share a latitude or longitude with a split node
+            points.add(point("pr-" + i, 25 + random.nextInt(240) / 10.0, -125 + random.nextInt(580) / 10.0));
+        }
+        KdTree tree = KdTree.build(points);
+        assertEquals(points.size(), tree.size());
+
+        for (int query = 0; query < 200; query++) {
+            double minLat = 25 + random.nextInt(240) / 10.0;
+            double minLon = -125 + random.nextInt(580) / 10.0;
+            double maxLat = minLat + random.nextInt(50) / 10.0;
+            double maxLon = minLon + random.nextInt(50) / 10.0;
+
+            Set<String> expected = new TreeSet<>();
+            for (LocatedPractitioner point : points) {
+                if (point.latitude() >= minLat && point.latitude() <= maxLat
+                    && point.longitude() >= minLon && point.longitude() <= maxLon) {
+                    expected.add(point.fhirId());
+                }
+            }
+            assertEquals(expected, search(tree, minLat, maxLat, minLon, maxLon));
+        }
+    }
+
+    @Test
+    void boxBoundsAreInclusive() {
+        KdTree tree = KdTree.build(List.of(
+            point("corner", 40.0, -75.0), point("edge", 40.5, -74.0), point("outside", 41.01, -74.5)));
+
+        assertEquals(Set.of("corner", "edge"), search(tree, 40.0, 41.0, -75.0, -74.0));
+        assertEquals(Set.of("corner"), search(tree, 40.0, 40.0, -75.0, -75.0));
+    }
+
+    @Test
+    void emptyTreeFindsNothing() {
+        assertEquals(0, KdTree.EMPTY.size());
+        assertTrue(search(KdTree.EMPTY, -90, 90, -180, 180).isEmpty());
+        assertTrue(search(KdTree.build(List.of()), -90, 90, -180, 180).isEmpty());
+    }
+
+    private static Set<String> search(KdTree tree, double minLat, double maxLat, double minLon, double maxLon) {
+        Set<String> found = new TreeSet<>();
+        tree.search(minLat, maxLat, minLon, maxLon, point -> assertTrue(found.add(point.fhirId())));
+        return found;
+    }
+
+    private static LocatedPractitioner point(String id, double latitude, double longitude) {
+        return new LocatedPractitioner(id, latitude, longitude, null);
+    }
+}
@@ -78,6 +78,12 @@ echo -e "${GREEN}✓ Databases ready${NC}"
 # Build and start Quarkus applications
 echo -e "\n${YELLOW}Building Quarkus applications...${NC}"
 
+# Shared FHIR module, installed first so the services resolve it from the local repository
+echo -e "\n  Building FHIR common module..."
+cd /Users/vtsugran/Code/redhat-healthcare/redhat-healthcare-fhir-common
+./mvnw clean install -DskipTests
+echo -e "${GREEN}✓ FHIR common module installed${NC}"
+
 # Patients Service
 echo -e "\n  Building Patients Service..."
 cd /Users/vtsugran/Code/redhat-healthcare/redhat-healthcare-patients